@@ -24,7 +24,9 @@ import org.noureddine.joularjx.cpu.Cpu;
 import org.noureddine.joularjx.cpu.CpuFactory;
 import org.noureddine.joularjx.monitor.MonitoringHandler;
 import org.noureddine.joularjx.monitor.MonitoringStatus;
+import org.noureddine.joularjx.monitor.SamplerFactory;
 import org.noureddine.joularjx.monitor.ShutdownHandler;
+import org.noureddine.joularjx.monitor.StackSampler;
 import org.noureddine.joularjx.result.ResultTreeManager;
 import org.noureddine.joularjx.result.ResultWriter;
 import org.noureddine.joularjx.utils.AgentProperties;
@@ -47,6 +49,16 @@ public class Agent {
      */
     public static final String COMPUTATION_THREAD_NAME = "JoularJX Agent Computation";
 
+    /**
+     * JoularJX sampling thread name
+     */
+    public static final String SAMPLING_THREAD_NAME = "JoularJX Agent Sampling";
+
+    /**
+     * JoularJX external power process reader thread name
+     */
+    public static final String POWER_READER_THREAD_NAME = "JoularJX Agent Power Reader";
+
     /**
      * Logger
      */
@@ -85,7 +97,8 @@ public class Agent {
         OperatingSystemMXBean osBean = createOperatingSystemBean(cpu);
         MonitoringStatus status = new MonitoringStatus();
         List<ResultWriter> resultWriters = getWriters(properties, appPid, currentTime);
-        MonitoringHandler monitoringHandler = new MonitoringHandler(appPid, properties, resultWriters, cpu, status, osBean, threadBean);
+        StackSampler sampler = SamplerFactory.getSampler(properties, threadBean);
+        MonitoringHandler monitoringHandler = new MonitoringHandler(appPid, properties, resultWriters, cpu, status, osBean, threadBean, sampler);
         ShutdownHandler shutdownHandler = new ShutdownHandler(appPid, resultWriters, cpu, status, properties);
 
         logger.log(Level.INFO, "Initialization finished");
@@ -94,6 +107,16 @@ public class Agent {
         Runtime.getRuntime().addShutdownHook(new Thread(shutdownHandler));
     }
   
+    /**
+     * Indicates if the given thread belongs to the agent
+     * @param threadName name of the thread
+     * @return true if the thread is one of the agent monitoring threads
+     */
+    public static boolean isAgentThread(String threadName) {
+        return threadName.equals(COMPUTATION_THREAD_NAME) || threadName.equals(SAMPLING_THREAD_NAME)
+                || threadName.equals(POWER_READER_THREAD_NAME);
+    }
+
     /**
      * Get all output classes from SPI
      * @param props application properties
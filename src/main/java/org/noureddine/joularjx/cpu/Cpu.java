@@ -11,6 +11,8 @@
 
 package org.noureddine.joularjx.cpu;
 
+import java.util.Map;
+
 /**
  * Abstraction for CPU power measurement implementations.
  */
@@ -23,6 +25,7 @@ public interface Cpu extends AutoCloseable {
 
     /**
      * Returns the initial power reading for this CPU monitor.
+     * For energy counters, this also starts the measurement of {@link #getConsumedEnergy(double, double)}.
      *
      * @return the initial power reading
      */
@@ -43,4 +46,71 @@ public interface Cpu extends AutoCloseable {
      * @return the max power reading
      */
     double getMaxPower(double cpuLoad);
+
+    /**
+     * Indicates whether {@link #getCurrentPower(double)} returns an instantaneous power, in watts,
+     * rather than the value of a cumulative energy counter, in joules.
+     * Power readings are converted to energy using the actual duration of the monitoring window,
+     * see {@link #getConsumedEnergy(double, double)}.
+     *
+     * @return true for power readings (the default), false for energy counters
+     */
+    default boolean isInstantaneousPower() {
+        return true;
+    }
+
+    /**
+     * Returns the energy consumed since the previous call (or since {@link #getInitialPower()}).
+     * Power readings are multiplied by the duration of the monitoring window (the default). Implementations
+     * reading energy counters return the sum of the increases of their counters instead, each counter
+     * handling its own wraparound, so callers never have to detect wraparounds.
+     *
+     * @param cpuLoad        the current CPU load (0..1 or implementation-specific)
+     * @param elapsedSeconds the duration since the previous call, in seconds
+     * @return the consumed energy, in joules
+     */
+    default double getConsumedEnergy(double cpuLoad, double elapsedSeconds) {
+        return getCurrentPower(cpuLoad) * elapsedSeconds;
+    }
+
+    /**
+     * Reads the energy consumed since the previous reading into the given sample, which is reused across
+     * readings (see {@link EnergySample}). The first reading of a sample starts the measurement, with
+     * {@link #getInitialPower()}. The next ones set the energy returned by {@link #getConsumedEnergy(double, double)}
+     * over the actual duration since the previous reading, so every source gives joules over a measured interval.
+     * Implementations measuring several domains also set the energy of each domain.
+     *
+     * @param cpuLoad the current CPU load (0..1 or implementation-specific)
+     * @param sample  the sample of the previous reading, overwritten with the new reading
+     */
+    default void readEnergy(double cpuLoad, EnergySample sample) {
+        final long now = System.nanoTime();
+        if (!sample.isStarted()) {
+            getInitialPower();
+            sample.start(now);
+            return;
+        }
+        sample.update(now, getConsumedEnergy(cpuLoad, (now - sample.getNanoTime()) / 1_000_000_000.0));
+    }
+
+    /**
+     * Returns the share of the energy returned by the last call to {@link #getConsumedEnergy(double, double)}
+     * that was consumed by the monitored process, for implementations measuring the power of the process itself.
+     *
+     * @return the share of the process, between 0 and 1, or NaN if not supported (the default), in which case
+     *         the share is estimated from the process and total CPU loads
+     */
+    default double getProcessShare() {
+        return Double.NaN;
+    }
+
+    /**
+     * Returns the energy consumed by each measured domain (e.g. each package and dram of each socket)
+     * since initialization, for implementations reading several energy counters.
+     *
+     * @return the consumed energy of each domain, in joules, or an empty map if not supported (the default)
+     */
+    default Map<String, Double> getDomainsConsumedEnergy() {
+        return Map.of();
+    }
 }
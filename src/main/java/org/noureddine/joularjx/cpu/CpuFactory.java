@@ -11,6 +11,7 @@
 
 package org.noureddine.joularjx.cpu;
 
+import org.noureddine.joularjx.cpu.EnergySourceCapabilities.Platform;
 import org.noureddine.joularjx.utils.AgentProperties;
 import org.noureddine.joularjx.utils.JoularJXLogging;
 
@@ -18,8 +19,11 @@ import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Optional;
+import java.util.ServiceLoader;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -31,7 +35,13 @@ public class CpuFactory {
     private static final Logger logger = JoularJXLogging.getLogger();
 
     /**
-     * Select the supported {@link Cpu} implementation
+     * Name of the energy source property value letting the factory select the best available source
+     */
+    static final String AUTO_ENERGY_SOURCE = "auto";
+
+    /**
+     * Select the supported {@link Cpu} implementation, among the {@link EnergySourceProvider} loaded with
+     * {@link ServiceLoader}
      * 
      * @param properties the properties passed to the agent
      * @return the selected CPU implementation
@@ -42,65 +52,63 @@ public class CpuFactory {
         String osArch = System.getProperty("os.arch").toLowerCase();
         logger.info("Initializing for platform: '" + osName + "' running on architecture: '" + osArch + '\'');
 
-        if (properties.isVirtualMachine()) {
-            logger.info("Initializing for running inside a virtual machine");
-            return new VirtualMachine(properties.getVMPowerPath(), properties.getVMPowerFormat());
-        }
-        
-        // If Joular Core is enabled, then use instead of other approaches
-        if (properties.isJoularCoreEnabled()) {
-            String ringBufferPath = properties.getJoularCoreRingBufferPath();
-            if (properties.isJoularCoreRingBufferEnabled() && ringBufferPath != null && !ringBufferPath.isBlank()) {
-                logger.info("Initializing for Joular Core ring buffer");
-                return new JoularCoreRingBufferCpu(ringBufferPath);
-            }
-
-            logger.info("Initializing for Joular Core");
-            return new JoularCoreCpu(properties.getJoularCorePath(), properties.getJoularCoreParameters());
-        }
-
-        if (osName.contains("win")) {
-            return new IntelWindows(properties.getPowerMonitorPath());
-        }
+        List<EnergySourceProvider> providers = new ArrayList<>();
+        ServiceLoader.load(EnergySourceProvider.class).forEach(providers::add);
 
-        if (osName.contains("mac os x")) {
-            return new PowermetricsMacOS();
-        }
-
-        if (!osName.contains("linux")) {
+        Optional<EnergySourceProvider> provider = select(providers, properties, Platform.of(osName));
+        if (provider.isEmpty()) {
             logger.log(Level.SEVERE, "Platform not supported. Exiting...");
             System.exit(1);
+            // Should never reach here because we stop the agent. But the compiler needs the
+            // return to compile the code.
+            return null;
         }
 
-        if (osArch.contains("aarch64") || osArch.contains("arm")) {
-            return new RaspberryPi(getRPiModelName(osArch).orElseGet(() -> {
-                logger.log(Level.SEVERE, "Platform not supported. Exiting...");
-                System.exit(1);
-                return null;
-            }));
-        }
+        logger.info("Initializing for " + provider.get().getName() + " energy source");
+        return provider.get().create(properties);
+    }
 
-        // Suppose it's x86/64, check for powercap RAPL
-        try {
-            String raplFolderPath = "/sys/class/powercap/intel-rapl/intel-rapl:0";
-            File raplFolder = new File(raplFolderPath);
-            if (raplFolder.exists()) {
-                // Rapl is supported
-                return new RaplLinux();
-            } else {
-                // If no RAPL, then no support
-                logger.log(Level.SEVERE, "Platform not supported. Exiting...");
-                System.exit(1);
+    /**
+     * Select the preferred available energy source. The sources supporting the platform are probed by decreasing
+     * priority, and the source named in the {@code energy-source} property is probed first among the sources of
+     * the same priority, followed by the others in the order of their {@link EnergySourceCapabilities}: a source
+     * updated every millisecond is preferred over a source updated every second.
+     *
+     * @param providers  the providers of the energy sources
+     * @param properties the properties passed to the agent
+     * @param platform   the platform of the machine
+     * @return the first available source, or empty if no source is available
+     */
+    static Optional<EnergySourceProvider> select(final List<EnergySourceProvider> providers,
+                                                 final AgentProperties properties, final Platform platform) {
+        final String requested = properties.energySource();
+        final Comparator<EnergySourceProvider> preference = Comparator
+                .comparingInt((EnergySourceProvider p) -> p.getCapabilities().getPriority()).reversed()
+                .thenComparing(p -> !p.getName().equals(requested))
+                .thenComparing(EnergySourceProvider::getCapabilities, EnergySourceCapabilities.PREFERENCE);
+
+        final List<EnergySourceProvider> candidates = new ArrayList<>();
+        boolean requestedFound = AUTO_ENERGY_SOURCE.equals(requested);
+        for (EnergySourceProvider provider : providers) {
+            if (provider.getName().equals(requested)) {
+                requestedFound = true;
             }
-        } catch (Exception e) {
-            // If no RAPL, then no support
-            logger.log(Level.SEVERE, "Platform not supported. Exiting...");
-            System.exit(1);
+            if (provider.getCapabilities().getPlatform().supports(platform)) {
+                candidates.add(provider);
+            }
+        }
+        if (!requestedFound) {
+            logger.log(Level.WARNING, "Unknown energy source '" + requested + "'. Selecting the best available source instead.");
         }
+        candidates.sort(preference);
 
-        // Should never reach here because we stop the agent. But the compiler needs the
-        // return to compile the code.
-        return null;
+        for (EnergySourceProvider provider : candidates) {
+            if (provider.isAvailable(properties)) {
+                return Optional.of(provider);
+            }
+            logger.log(Level.FINE, "Energy source " + provider.getName() + " is not available");
+        }
+        return Optional.empty();
     }
 
     /**
@@ -109,7 +117,7 @@ public class CpuFactory {
      * @param osArch OS Architecture (arm, aarch64)
      * @return Raspberry Pi model name
      */
-    private static Optional<RaspberryPiModels> getRPiModelName(String osArch) {
+    static Optional<RaspberryPiModels> getRPiModelName(String osArch) {
         String deviceTreeModel = "/proc/device-tree/model";
         File deviceTreeModelFile = new File(deviceTreeModel);
         if (!deviceTreeModelFile.exists()) {
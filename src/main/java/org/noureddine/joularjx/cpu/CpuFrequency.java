@@ -0,0 +1,101 @@
+/*
+ * Copyright (c) 2021-2026, Adel Noureddine, Université de Pau et des Pays de l'Adour.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the
+ * GNU General Public License v3.0 only (GPL-3.0-only)
+ * which accompanies this distribution, and is available at
+ * https://www.gnu.org/licenses/gpl-3.0.en.html
+ *
+ */
+
+package org.noureddine.joularjx.cpu;
+
+import org.noureddine.joularjx.utils.JoularJXLogging;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystem;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Logger;
+
+/**
+ * Reads the average current frequency of the CPUs, from the {@code cpufreq/scaling_cur_freq} file (in kHz) of
+ * every CPU in the Linux sysfs. The files are kept open and read with a {@link SysfsReader}.
+ * This class is not thread-safe.
+ */
+final class CpuFrequency implements AutoCloseable {
+
+    private static final Logger logger = JoularJXLogging.getLogger();
+
+    static final String CPU_ROOT = "/sys/devices/system/cpu";
+
+    private final FileSystem fileSystem;
+
+    private final List<SysfsReader> readers = new ArrayList<>();
+
+    /**
+     * Creates a new reader of the CPU frequency.
+     *
+     * @param fileSystem the filesystem where the cpufreq files are located
+     */
+    CpuFrequency(FileSystem fileSystem) {
+        this.fileSystem = fileSystem;
+    }
+
+    /**
+     * Opens the frequency file of every CPU.
+     *
+     * @return true if the frequency of at least one CPU can be read
+     */
+    boolean open() {
+        final Path root = fileSystem.getPath(CPU_ROOT);
+        if (!Files.isDirectory(root)) {
+            return false;
+        }
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(root, "cpu[0-9]*")) {
+            for (final Path cpu : stream) {
+                final Path file = cpu.resolve("cpufreq").resolve("scaling_cur_freq");
+                if (Files.isReadable(file)) {
+                    readers.add(new SysfsReader(file));
+                }
+            }
+        } catch (IOException exception) {
+            logger.throwing(getClass().getName(), "open", exception);
+        }
+        return !readers.isEmpty();
+    }
+
+    /**
+     * Reads the current frequency of the CPUs.
+     *
+     * @return the average frequency of the CPUs, in GHz, or NaN if it cannot be read
+     */
+    double read() {
+        long total = 0;
+        int count = 0;
+        for (final SysfsReader reader : readers) {
+            try {
+                total += reader.readLong();
+                count++;
+            } catch (IOException exception) {
+                logger.throwing(getClass().getName(), "read", exception);
+            }
+        }
+        return count == 0 ? Double.NaN : total / (double) count / 1_000_000.0;
+    }
+
+    @Override
+    public void close() {
+        for (final SysfsReader reader : readers) {
+            try {
+                reader.close();
+            } catch (IOException exception) {
+                logger.throwing(getClass().getName(), "close", exception);
+            }
+        }
+        readers.clear();
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright (c) 2021-2026, Adel Noureddine, Université de Pau et des Pays de l'Adour.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the
+ * GNU General Public License v3.0 only (GPL-3.0-only)
+ * which accompanies this distribution, and is available at
+ * https://www.gnu.org/licenses/gpl-3.0.en.html
+ *
+ */
+
+package org.noureddine.joularjx.cpu;
+
+/**
+ * A 64-bit monotonic accumulator for a hardware energy counter that wraps around (e.g. a RAPL counter).
+ * <p>
+ * Each raw value of the counter is passed to {@link #update(long)}, and the increase since the previous value is
+ * added to a total, handling the wraparound of this counter with its own range. The total starts at the first
+ * raw value, so it matches the raw counter until it first wraps, and then keeps increasing.
+ * The energy consumed since the previous call to {@link #takeDelta()} can be taken at any time, so callers
+ * never have to reason about wraparounds. Units are the ones of the raw counter. This class is not thread-safe.
+ */
+public final class EnergyCounter {
+
+    private final long range;
+
+    private boolean started;
+    private long lastValue;
+    private long firstValue;
+    private long total;
+    private long deltaMark;
+
+    /**
+     * Creates a new counter.
+     *
+     * @param range the range of the raw counter, which wraps around to 0 when reaching it (e.g. 2^32 for a 32-bit
+     *              counter, or max_energy_range_uj for a powercap zone). 0 or less if unknown.
+     */
+    public EnergyCounter(long range) {
+        this.range = range;
+    }
+
+    /**
+     * Adds the increase of the raw counter since its previous value to the total.
+     * The first value only initializes the counter.
+     *
+     * @param value the current raw value of the counter
+     * @return the increase since the previous value, 0 for the first value
+     */
+    public long update(long value) {
+        if (!started) {
+            started = true;
+            lastValue = value;
+            firstValue = value;
+            total = value;
+            deltaMark = value;
+            return 0;
+        }
+
+        long delta = value - lastValue;
+        if (delta < 0) {
+            // The counter wrapped around. If the range is unknown, or if the counter was reset, only count
+            // the energy since it restarted from 0.
+            delta = range > 0 ? delta + range : value;
+            if (delta < 0) {
+                delta = value;
+            }
+        }
+        lastValue = value;
+        total += delta;
+        return delta;
+    }
+
+    /**
+     * Returns the total of the counter: its first raw value plus all the increases since then.
+     *
+     * @return the monotonic total of the counter
+     */
+    public long getTotal() {
+        return total;
+    }
+
+    /**
+     * Returns the increase of the counter since its first value.
+     *
+     * @return the energy consumed since the first update
+     */
+    public long getConsumed() {
+        return total - firstValue;
+    }
+
+    /**
+     * Returns the increase of the counter since the previous call to this method (or since its first value),
+     * and starts a new delta.
+     *
+     * @return the energy consumed since the last delta was taken
+     */
+    public long takeDelta() {
+        long delta = total - deltaMark;
+        deltaMark = total;
+        return delta;
+    }
+
+    /**
+     * Returns the range of the raw counter.
+     *
+     * @return the range after which the raw counter wraps around, 0 or less if unknown
+     */
+    public long getRange() {
+        return range;
+    }
+}
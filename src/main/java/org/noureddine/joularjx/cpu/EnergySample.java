@@ -0,0 +1,186 @@
+/*
+ * Copyright (c) 2021-2026, Adel Noureddine, Université de Pau et des Pays de l'Adour.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the
+ * GNU General Public License v3.0 only (GPL-3.0-only)
+ * which accompanies this distribution, and is available at
+ * https://www.gnu.org/licenses/gpl-3.0.en.html
+ *
+ */
+
+package org.noureddine.joularjx.cpu;
+
+import java.util.Arrays;
+
+/**
+ * A reading of a {@link Cpu} energy source, in the same units for every source: the energy consumed, in joules,
+ * during the interval between two readings, timed with {@link System#nanoTime()}.
+ * <p>
+ * The same sample is passed to {@link Cpu#readEnergy(double, EnergySample)} at every reading, and overwritten
+ * in place: it keeps the time of the previous reading, which starts the interval of the next one, so reading a
+ * source does not allocate. The first reading only starts the measurement, and is not valid. Sources measuring
+ * several domains (e.g. each package and dram of each socket) also give the energy of each domain during the
+ * interval. This class is not thread-safe.
+ */
+public final class EnergySample {
+
+    private boolean started;
+    private boolean valid;
+    private long nanoTime;
+    private long elapsedNanos;
+    private double joules;
+
+    private int domainCount;
+    private String[] domainNames = new String[0];
+    private double[] domainJoules = new double[0];
+
+    /**
+     * Starts the measurement: the next reading measures the energy consumed from the given time.
+     *
+     * @param nanoTime the time of the reading, a {@link System#nanoTime()} value
+     */
+    public void start(long nanoTime) {
+        this.started = true;
+        this.valid = false;
+        this.nanoTime = nanoTime;
+        this.elapsedNanos = 0;
+        this.joules = 0;
+        this.domainCount = 0;
+    }
+
+    /**
+     * Sets the energy consumed since the previous reading, and removes the domains of the previous reading.
+     * The reading is valid if the energy is a finite positive number, and the measurement was started.
+     *
+     * @param nanoTime the time of the reading, a {@link System#nanoTime()} value
+     * @param joules   the energy consumed since the previous reading, in joules
+     */
+    public void update(long nanoTime, double joules) {
+        this.valid = started && Double.isFinite(joules) && joules >= 0;
+        this.elapsedNanos = started ? nanoTime - this.nanoTime : 0;
+        this.started = true;
+        this.nanoTime = nanoTime;
+        this.joules = joules;
+        this.domainCount = 0;
+    }
+
+    /**
+     * Sets the energy consumed by a domain since the previous reading.
+     *
+     * @param index  the index of the domain, from 0
+     * @param name   the name of the domain, e.g. "package-0"
+     * @param joules the energy consumed by the domain since the previous reading, in joules
+     */
+    public void setDomain(int index, String name, double joules) {
+        if (index >= domainNames.length) {
+            domainNames = Arrays.copyOf(domainNames, Math.max(index + 1, domainNames.length * 2));
+            domainJoules = Arrays.copyOf(domainJoules, domainNames.length);
+        }
+        domainNames[index] = name;
+        domainJoules[index] = joules;
+        domainCount = Math.max(domainCount, index + 1);
+    }
+
+    /**
+     * Indicates whether the measurement was started by a first reading.
+     *
+     * @return true after the first reading
+     */
+    public boolean isStarted() {
+        return started;
+    }
+
+    /**
+     * Indicates whether the last reading measured the energy of its interval. Invalid readings (the first
+     * reading, or an invalid value of the source) should be skipped.
+     *
+     * @return true if the energy of the last reading can be used
+     */
+    public boolean isValid() {
+        return valid;
+    }
+
+    /**
+     * Returns the validation check failed by the last reading, for log messages.
+     *
+     * @return "NaN", "infinite" or "negative" for an invalid energy, "first reading" for the reading starting
+     *         the measurement, or null if the reading is valid
+     */
+    public String getInvalidReason() {
+        if (valid) {
+            return null;
+        } else if (Double.isNaN(joules)) {
+            return "NaN";
+        } else if (Double.isInfinite(joules)) {
+            return "infinite";
+        } else if (joules < 0) {
+            return "negative";
+        }
+        return "first reading";
+    }
+
+    /**
+     * Returns the time of the last reading.
+     *
+     * @return a {@link System#nanoTime()} value
+     */
+    public long getNanoTime() {
+        return nanoTime;
+    }
+
+    /**
+     * Returns the duration of the interval of the last reading, since the previous reading.
+     *
+     * @return the duration, in nanoseconds
+     */
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /**
+     * Returns the energy consumed during the interval of the last reading.
+     *
+     * @return the energy, in joules
+     */
+    public double getJoules() {
+        return joules;
+    }
+
+    /**
+     * Returns the average power during the interval of the last reading.
+     *
+     * @return the power, in watts, or NaN if the reading is not valid or its interval is empty
+     */
+    public double getPower() {
+        return valid && elapsedNanos > 0 ? joules / (elapsedNanos / 1_000_000_000.0) : Double.NaN;
+    }
+
+    /**
+     * Returns the number of domains measured by the last reading.
+     *
+     * @return the number of domains, 0 if the source does not measure domains
+     */
+    public int getDomainCount() {
+        return domainCount;
+    }
+
+    /**
+     * Returns the name of a domain of the last reading.
+     *
+     * @param index the index of the domain, lower than {@link #getDomainCount()}
+     * @return the name of the domain
+     */
+    public String getDomainName(int index) {
+        return domainNames[index];
+    }
+
+    /**
+     * Returns the energy consumed by a domain during the interval of the last reading.
+     *
+     * @param index the index of the domain, lower than {@link #getDomainCount()}
+     * @return the energy, in joules
+     */
+    public double getDomainJoules(int index) {
+        return domainJoules[index];
+    }
+}
@@ -0,0 +1,163 @@
+/*
+ * Copyright (c) 2021-2026, Adel Noureddine, Université de Pau et des Pays de l'Adour.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the
+ * GNU General Public License v3.0 only (GPL-3.0-only)
+ * which accompanies this distribution, and is available at
+ * https://www.gnu.org/licenses/gpl-3.0.en.html
+ *
+ */
+
+package org.noureddine.joularjx.cpu;
+
+import java.util.Comparator;
+
+/**
+ * The capabilities of an energy source, declared by its {@link EnergySourceProvider}, and used by the
+ * {@link CpuFactory} to select the best source available on the machine.
+ * <p>
+ * Sources are preferred by decreasing priority, then by finer resolution (a source updated every millisecond is
+ * preferred over a source updated every second), energy counters over power readings, sources measuring several
+ * domains, and cheaper reads.
+ */
+public final class EnergySourceCapabilities {
+
+    /**
+     * Operating systems supported by an energy source.
+     */
+    public enum Platform {
+        LINUX, WINDOWS, MACOS, ANY;
+
+        /**
+         * Returns the platform of an operating system.
+         *
+         * @param osName the name of the operating system, as the "os.name" system property
+         * @return the platform, or ANY if the operating system is not known
+         */
+        public static Platform of(String osName) {
+            String name = osName.toLowerCase();
+            if (name.contains("win")) {
+                return WINDOWS;
+            } else if (name.contains("mac os x")) {
+                return MACOS;
+            } else if (name.contains("linux")) {
+                return LINUX;
+            }
+            return ANY;
+        }
+
+        /**
+         * Indicates whether a source for this platform can run on the given platform.
+         *
+         * @param platform the platform of the machine
+         * @return true if this platform is ANY or the given platform
+         */
+        public boolean supports(Platform platform) {
+            return this == ANY || this == platform;
+        }
+    }
+
+    /**
+     * Cost of a reading of an energy source.
+     */
+    public enum ReadCost {
+        /** A register, shared memory, or an open file descriptor */
+        LOW,
+        /** A few files or system calls */
+        MEDIUM,
+        /** An external process */
+        HIGH
+    }
+
+    /**
+     * Preference order of the sources: the preferred source first.
+     */
+    static final Comparator<EnergySourceCapabilities> PREFERENCE = Comparator
+            .comparingInt(EnergySourceCapabilities::getPriority).reversed()
+            .thenComparingLong(EnergySourceCapabilities::getResolutionMicros)
+            .thenComparing(EnergySourceCapabilities::isCounter, Comparator.reverseOrder())
+            .thenComparing(EnergySourceCapabilities::isPerDomain, Comparator.reverseOrder())
+            .thenComparing(EnergySourceCapabilities::getReadCost);
+
+    private final int priority;
+    private final Platform platform;
+    private final boolean counter;
+    private final long resolutionMicros;
+    private final boolean perDomain;
+    private final ReadCost readCost;
+
+    /**
+     * Creates the capabilities of an energy source.
+     *
+     * @param priority         the priority of the source over the other available sources, 0 for the sources of the
+     *                         hardware, higher for sources only available when explicitly configured
+     * @param platform         the operating system supported by the source
+     * @param counter          true for cumulative energy counters, false for power readings
+     * @param resolutionMicros the update period of the readings, in microseconds
+     * @param perDomain        true if the source measures several domains (see {@link Cpu#getDomainsConsumedEnergy()})
+     * @param readCost         the cost of a reading
+     */
+    public EnergySourceCapabilities(int priority, Platform platform, boolean counter, long resolutionMicros,
+                                    boolean perDomain, ReadCost readCost) {
+        this.priority = priority;
+        this.platform = platform;
+        this.counter = counter;
+        this.resolutionMicros = resolutionMicros;
+        this.perDomain = perDomain;
+        this.readCost = readCost;
+    }
+
+    /**
+     * Returns the priority of the source over the other available sources.
+     *
+     * @return the priority, 0 for the sources of the hardware
+     */
+    public int getPriority() {
+        return priority;
+    }
+
+    /**
+     * Returns the operating system supported by the source.
+     *
+     * @return the platform, ANY for all operating systems
+     */
+    public Platform getPlatform() {
+        return platform;
+    }
+
+    /**
+     * Indicates whether the source reads cumulative energy counters.
+     *
+     * @return true for energy counters, false for power readings
+     */
+    public boolean isCounter() {
+        return counter;
+    }
+
+    /**
+     * Returns the update period of the readings.
+     *
+     * @return the update period, in microseconds
+     */
+    public long getResolutionMicros() {
+        return resolutionMicros;
+    }
+
+    /**
+     * Indicates whether the source measures several domains.
+     *
+     * @return true if the energy of each domain is measured
+     */
+    public boolean isPerDomain() {
+        return perDomain;
+    }
+
+    /**
+     * Returns the cost of a reading.
+     *
+     * @return the read cost
+     */
+    public ReadCost getReadCost() {
+        return readCost;
+    }
+}
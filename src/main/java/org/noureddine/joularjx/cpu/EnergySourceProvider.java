@@ -0,0 +1,56 @@
+/*
+ * Copyright (c) 2021-2026, Adel Noureddine, Université de Pau et des Pays de l'Adour.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the
+ * GNU General Public License v3.0 only (GPL-3.0-only)
+ * which accompanies this distribution, and is available at
+ * https://www.gnu.org/licenses/gpl-3.0.en.html
+ *
+ */
+
+package org.noureddine.joularjx.cpu;
+
+import org.noureddine.joularjx.utils.AgentProperties;
+
+/**
+ * Service provider of an energy source, loaded with {@link java.util.ServiceLoader}.
+ * <p>
+ * The {@link CpuFactory} selects the preferred source among the providers supporting the platform, by their
+ * {@link EnergySourceCapabilities}, and probes them in this order. Additional sources (e.g. a PDU or a BMC) can be
+ * added without changing JoularJX, by adding a jar to the classpath with an implementation of this interface
+ * registered in {@code META-INF/services/org.noureddine.joularjx.cpu.EnergySourceProvider} (for example with
+ * {@code @AutoService(EnergySourceProvider.class)}).
+ */
+public interface EnergySourceProvider {
+
+    /**
+     * Returns the name of the source, which can be set in the {@code energy-source} property to prefer it.
+     *
+     * @return the name of the source, e.g. "powercap"
+     */
+    String getName();
+
+    /**
+     * Returns the capabilities of the source.
+     *
+     * @return the capabilities
+     */
+    EnergySourceCapabilities getCapabilities();
+
+    /**
+     * Probes whether the source can be used on this machine with the given configuration. This method is only
+     * called on the supported platform, and should be cheap (e.g. checking that a file exists).
+     *
+     * @param properties the properties passed to the agent
+     * @return true if the source is available
+     */
+    boolean isAvailable(AgentProperties properties);
+
+    /**
+     * Creates the {@link Cpu} implementation of the source. It is initialized by the caller.
+     *
+     * @param properties the properties passed to the agent
+     * @return the new source
+     */
+    Cpu create(AgentProperties properties);
+}
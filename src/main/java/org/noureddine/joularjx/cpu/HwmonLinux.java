@@ -0,0 +1,404 @@
+/*
+ * Copyright (c) 2021-2026, Adel Noureddine, Université de Pau et des Pays de l'Adour.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the
+ * GNU General Public License v3.0 only (GPL-3.0-only)
+ * which accompanies this distribution, and is available at
+ * https://www.gnu.org/licenses/gpl-3.0.en.html
+ *
+ */
+
+package org.noureddine.joularjx.cpu;
+
+import com.google.auto.service.AutoService;
+import org.noureddine.joularjx.cpu.EnergySourceCapabilities.Platform;
+import org.noureddine.joularjx.cpu.EnergySourceCapabilities.ReadCost;
+import org.noureddine.joularjx.utils.AgentProperties;
+import org.noureddine.joularjx.utils.JoularJXLogging;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * {@link Cpu} implementation using the energy and power sensors of the Linux hwmon interface, e.g. the
+ * amd_energy driver on AMD EPYC processors, or the SMpro/SLIMpro drivers on Ampere processors, when RAPL
+ * (powercap) is not available.
+ * The sensors are discovered in every hwmon chip directory, and labelled by their {@code label} file. The total
+ * energy is read from the socket sensors when available, or from the core sensors otherwise. Sensors of other
+ * devices are never part of the total, so the source is only available with processor sensors. Energy counters
+ * are preferred over power sensors, which are integrated between two reads. Only the sensors of the total are
+ * read at each reading, as readings may be taken at every sampling tick. The other sensors are read when the
+ * energy of each domain is requested (e.g. each socket and each core).
+ * The input files are kept open and read with a {@link SysfsReader}, so reading them does not allocate.
+ */
+public class HwmonLinux implements Cpu {
+
+    private static final Logger logger = JoularJXLogging.getLogger();
+
+    static final String HWMON_ROOT = "/sys/class/hwmon";
+
+    /**
+     * Name of a sensor input file, e.g. "energy12_input" or "power1_input".
+     */
+    private static final Pattern SENSOR_PATTERN = Pattern.compile("(energy|power)(\\d+)_input");
+
+    /**
+     * A name with an index, e.g. "hwmon12" or "energy3_input".
+     */
+    private static final Pattern NAME_PATTERN = Pattern.compile("(\\D*)(\\d{1,18}).*");
+
+    /**
+     * All the readable sensors, in the order of their chip and input file names.
+     */
+    private final List<HwmonSensor> sensors = new ArrayList<>();
+
+    /**
+     * Sensors whose energy is summed as the total energy.
+     */
+    private final List<HwmonSensor> totalSensors = new ArrayList<>();
+
+    /**
+     * Filesystem where the hwmon files are located.
+     */
+    private final FileSystem fileSystem;
+
+    /**
+     * True if the total energy is read from energy counters, false if it is integrated from power sensors.
+     */
+    private boolean counters;
+
+    /**
+     * Total energy up to the previous {@link #getConsumedEnergy(double, double)}, in Joules
+     */
+    private double totalMark;
+
+    /**
+     * Energy consumed by each sensor of the total up to the previous {@link #readEnergy(double, EnergySample)},
+     * in Joules
+     */
+    private double[] domainMarks = new double[0];
+
+    /**
+     * Create a new energy measurement via hwmon. The files will be read from the default filesystem.
+     */
+    public HwmonLinux() {
+        this(FileSystems.getDefault());
+    }
+
+    /**
+     * Create a new energy measurement via hwmon. The files will be read from the passed filesystem.
+     *
+     * @param fileSystem The filesystem to use for reading the hwmon files
+     */
+    HwmonLinux(final FileSystem fileSystem) {
+        this.fileSystem = fileSystem;
+    }
+
+    /**
+     * Discover the hwmon sensors available on the system, open them, and select the ones to read the total
+     * energy from.
+     */
+    @Override
+    public void initialize() {
+        final long now = System.nanoTime();
+        for (final HwmonSensor sensor : discoverSensors(fileSystem.getPath(HWMON_ROOT))) {
+            try {
+                sensor.open(now);
+                sensors.add(sensor);
+            } catch (IOException exception) {
+                logger.log(Level.WARNING, "Failed to get hwmon readings from " + sensor.getInputFile() + " file. Continuing without it.");
+            }
+        }
+
+        counters = sensors.stream().anyMatch(sensor -> sensor.getKind() == HwmonSensor.Kind.ENERGY
+                && sensor.getScope() != HwmonSensor.Scope.OTHER);
+        final HwmonSensor.Kind totalKind = counters ? HwmonSensor.Kind.ENERGY : HwmonSensor.Kind.POWER;
+        for (final HwmonSensor.Scope scope : List.of(HwmonSensor.Scope.SOCKET, HwmonSensor.Scope.CORE)) {
+            for (final HwmonSensor sensor : sensors) {
+                if (sensor.getKind() == totalKind && sensor.getScope() == scope) {
+                    totalSensors.add(sensor);
+                }
+            }
+            if (!totalSensors.isEmpty()) {
+                break;
+            }
+        }
+
+        if (totalSensors.isEmpty()) {
+            logger.log(Level.SEVERE, "Found no hwmon processor energy or power sensors to read the energy measurement from. Exit ...");
+            System.exit(1);
+        }
+
+        for (final HwmonSensor sensor : sensors) {
+            logger.log(Level.FINE, "Found hwmon sensor {0} ({1}){2}", new Object[] {sensor.getInputFile(),
+                    sensor.getLabel(), totalSensors.contains(sensor) ? ", used for the total energy" : ""});
+        }
+    }
+
+    /**
+     * Lists the energy and power sensors of every hwmon chip, labelled by the chip name and their label file.
+     *
+     * @param root the hwmon class directory
+     * @return the sensors, sorted by chip and input file names
+     */
+    static List<HwmonSensor> discoverSensors(final Path root) {
+        final List<HwmonSensor> result = new ArrayList<>();
+        for (final Path chip : listEntries(root, Files::isDirectory).values()) {
+            final Map<String, Path> inputs = listEntries(chip, path ->
+                    SENSOR_PATTERN.matcher(path.getFileName().toString()).matches());
+            if (inputs.isEmpty()) {
+                continue;
+            }
+
+            final String chipName = readName(chip.resolve("name"), chip.getFileName().toString());
+            for (final Map.Entry<String, Path> input : inputs.entrySet()) {
+                final Matcher matcher = SENSOR_PATTERN.matcher(input.getKey());
+                matcher.matches();
+                final String sensorName = matcher.group(1) + matcher.group(2);
+                final String label = readName(chip.resolve(sensorName + "_label"), sensorName);
+                result.add(new HwmonSensor(HwmonSensor.Kind.of(matcher.group(1)), chipName, label, input.getValue()));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Indicates whether the given hwmon class directory has sensors of the processor, to read its total energy.
+     *
+     * @param root the hwmon class directory
+     * @return true if a socket or core sensor is found
+     */
+    static boolean hasProcessorSensors(final Path root) {
+        return discoverSensors(root).stream().anyMatch(sensor -> sensor.getScope() != HwmonSensor.Scope.OTHER);
+    }
+
+    /**
+     * Reads the first line of a name or label file, or returns the given default name if it cannot be read.
+     */
+    private static String readName(final Path file, final String defaultName) {
+        if (!Files.exists(file)) {
+            return defaultName;
+        }
+        try {
+            final String name = Files.readString(file).trim();
+            return name.isEmpty() ? defaultName : name;
+        } catch (IOException exception) {
+            logger.throwing(HwmonLinux.class.getName(), "readName", exception);
+            return defaultName;
+        }
+    }
+
+    /**
+     * Lists the entries of the given directory accepted by the filter, sorted by name and index (hwmon2 before
+     * hwmon10), or returns an empty map if it cannot be listed.
+     */
+    private static Map<String, Path> listEntries(final Path directory, final DirectoryStream.Filter<Path> filter) {
+        final Map<String, Path> entries = new TreeMap<>(HwmonLinux::compareNames);
+        if (!Files.isDirectory(directory)) {
+            return entries;
+        }
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, filter)) {
+            for (final Path path : stream) {
+                entries.put(path.getFileName().toString(), path);
+            }
+        } catch (IOException exception) {
+            logger.throwing(HwmonLinux.class.getName(), "listEntries", exception);
+        }
+        return entries;
+    }
+
+    /**
+     * Compares two names by their text before the first digit, then by the number starting at this digit, then by
+     * the rest of the name.
+     */
+    static int compareNames(final String first, final String second) {
+        final Matcher firstMatcher = NAME_PATTERN.matcher(first);
+        final Matcher secondMatcher = NAME_PATTERN.matcher(second);
+        if (!firstMatcher.matches() || !secondMatcher.matches()) {
+            return first.compareTo(second);
+        }
+        int result = firstMatcher.group(1).compareTo(secondMatcher.group(1));
+        if (result == 0) {
+            result = Long.compare(Long.parseLong(firstMatcher.group(2)), Long.parseLong(secondMatcher.group(2)));
+        }
+        return result != 0 ? result : first.compareTo(second);
+    }
+
+    /**
+     * Get the current readings of the sensors used for the total energy
+     *
+     * @return the accumulated energy in Joules for energy counters, or the power in Watts for power sensors
+     */
+    @Override
+    public synchronized double getCurrentPower(final double cpuLoad) {
+        readSensors(totalSensors);
+        double value = 0;
+        for (final HwmonSensor sensor : totalSensors) {
+            value += counters ? sensor.getTotalEnergy() : sensor.getPower();
+        }
+        return value;
+    }
+
+    /**
+     * Returns the energy consumed since the previous call by the sensors used for the total energy: the increase
+     * of the energy counters, or the integral of the power sensors over the time between their reads.
+     *
+     * @param cpuLoad        unused
+     * @param elapsedSeconds unused
+     * @return the consumed energy, in Joules
+     */
+    @Override
+    public synchronized double getConsumedEnergy(final double cpuLoad, final double elapsedSeconds) {
+        readSensors(totalSensors);
+        double consumed = 0;
+        for (final HwmonSensor sensor : totalSensors) {
+            consumed += sensor.getConsumedEnergy();
+        }
+        final double delta = consumed - totalMark;
+        totalMark = consumed;
+        return delta;
+    }
+
+    /**
+     * Reads the given sensors, if open.
+     */
+    private void readSensors(final List<HwmonSensor> sensorsToRead) {
+        final long now = System.nanoTime();
+        for (final HwmonSensor sensor : sensorsToRead) {
+            if (!sensor.isOpen()) {
+                continue;
+            }
+            try {
+                sensor.read(now);
+            } catch (IOException exception) {
+                logger.throwing(getClass().getName(), "readSensors", exception);
+            }
+        }
+    }
+
+    /**
+     * The range of the hwmon energy counters is not exposed, and wraparounds are handled per sensor.
+     *
+     * @return 0
+     */
+    @Override
+    public double getMaxPower(final double cpuLoad) {
+        return 0;
+    }
+
+    /**
+     * Returns the current readings, and starts the measurement of {@link #getConsumedEnergy(double, double)}
+     * from now.
+     *
+     * @return the current readings of the sensors used for the total energy
+     */
+    @Override
+    public synchronized double getInitialPower() {
+        getConsumedEnergy(0, 0);
+        return getCurrentPower(0);
+    }
+
+    /**
+     * Energy sensors are cumulative counters, power sensors are instantaneous readings.
+     *
+     * @return false if the total energy is read from energy counters
+     */
+    @Override
+    public boolean isInstantaneousPower() {
+        return !counters;
+    }
+
+    /**
+     * Reads the energy consumed since the previous reading, and the energy consumed by each sensor of the total
+     * during the interval (e.g. "amd_energy:Esocket0"). The other sensors are not read, as this is called at
+     * every sampling tick with energy counters.
+     *
+     * @param cpuLoad unused
+     * @param sample  the sample of the previous reading, overwritten with the new reading
+     */
+    @Override
+    public synchronized void readEnergy(final double cpuLoad, final EnergySample sample) {
+        Cpu.super.readEnergy(cpuLoad, sample);
+        if (domainMarks.length != totalSensors.size()) {
+            domainMarks = new double[totalSensors.size()];
+        }
+        for (int i = 0; i < totalSensors.size(); i++) {
+            final HwmonSensor sensor = totalSensors.get(i);
+            final double consumed = sensor.getConsumedEnergy();
+            sample.setDomain(i, sensor.getLabel(), consumed - domainMarks[i]);
+            domainMarks[i] = consumed;
+        }
+    }
+
+    /**
+     * Returns the energy consumed by each hwmon sensor since initialization, labelled by chip and sensor
+     * (e.g. "amd_energy:Esocket0", "amd_energy:Ecore000"). All the sensors are read, the power sensors that
+     * are not part of the total being integrated between the calls.
+     *
+     * @return the consumed energy of each sensor, in Joules
+     */
+    @Override
+    public synchronized Map<String, Double> getDomainsConsumedEnergy() {
+        readSensors(sensors);
+        final Map<String, Double> result = new LinkedHashMap<>();
+        for (final HwmonSensor sensor : sensors) {
+            result.merge(sensor.getLabel(), sensor.getConsumedEnergy(), Double::sum);
+        }
+        return result;
+    }
+
+    @Override
+    public synchronized void close() {
+        for (final HwmonSensor sensor : sensors) {
+            try {
+                sensor.close();
+            } catch (IOException exception) {
+                logger.throwing(getClass().getName(), "close", exception);
+            }
+        }
+    }
+
+    /**
+     * {@link EnergySourceProvider} of the energy and power sensors of the hwmon sysfs interface. Only available
+     * with processor sensors. Its resolution depends on the driver, so RAPL is preferred when both are available.
+     */
+    @AutoService(EnergySourceProvider.class)
+    public static final class Provider implements EnergySourceProvider {
+
+        private static final EnergySourceCapabilities CAPABILITIES =
+                new EnergySourceCapabilities(0, Platform.LINUX, true, 1_000_000, true, ReadCost.MEDIUM);
+
+        @Override
+        public String getName() {
+            return "hwmon";
+        }
+
+        @Override
+        public EnergySourceCapabilities getCapabilities() {
+            return CAPABILITIES;
+        }
+
+        @Override
+        public boolean isAvailable(final AgentProperties properties) {
+            return hasProcessorSensors(Path.of(HWMON_ROOT));
+        }
+
+        @Override
+        public Cpu create(final AgentProperties properties) {
+            return new HwmonLinux();
+        }
+    }
+}
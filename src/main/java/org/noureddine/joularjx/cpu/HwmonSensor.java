@@ -0,0 +1,197 @@
+/*
+ * Copyright (c) 2021-2026, Adel Noureddine, Université de Pau et des Pays de l'Adour.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the
+ * GNU General Public License v3.0 only (GPL-3.0-only)
+ * which accompanies this distribution, and is available at
+ * https://www.gnu.org/licenses/gpl-3.0.en.html
+ *
+ */
+
+package org.noureddine.joularjx.cpu;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Set;
+
+/**
+ * An energy ({@code energyN_input}, in microJoules) or power ({@code powerN_input}, in microWatts) sensor of a
+ * hwmon chip, classified by its label (e.g. "Esocket0" or "Ecore012" for amd_energy). Once opened, the sensor
+ * keeps its input file open. Energy sensors are accumulated in an {@link EnergyCounter}, and power sensors are
+ * integrated over the time between two reads, so both give the energy consumed since they were opened.
+ * This class is not thread-safe.
+ */
+final class HwmonSensor {
+
+    /**
+     * The quantity measured by a sensor.
+     */
+    enum Kind {
+        ENERGY, POWER;
+
+        /**
+         * Returns the kind of a sensor from the prefix of its input file ("energy" or "power").
+         */
+        static Kind of(String prefix) {
+            return "energy".equals(prefix) ? ENERGY : POWER;
+        }
+    }
+
+    /**
+     * The part of the processor measured by a sensor. Sensors of other devices (e.g. IO, DRAM or a GPU) are
+     * never part of the total energy of the processor.
+     */
+    enum Scope {
+        SOCKET, CORE, OTHER;
+
+        /**
+         * Names of the hwmon drivers of processors, whose sensors all measure a part of the processor.
+         */
+        private static final Set<String> CPU_CHIPS = Set.of("amd_energy", "zenpower");
+
+        /**
+         * Returns the scope of a sensor from its label, e.g. "Esocket0", "Ecore012", "CPU power". The sensors of
+         * processor drivers whose label does not name a socket are parts of the processor, like cores (e.g.
+         * "SVI2_P_SoC" for zenpower).
+         */
+        static Scope of(String chip, String label) {
+            final String name = label.toLowerCase();
+            if (name.contains("core")) {
+                return CORE;
+            } else if (name.contains("socket") || name.contains("package") || name.contains("pkg")
+                    || name.contains("cpu")) {
+                return SOCKET;
+            }
+            return CPU_CHIPS.contains(chip) ? CORE : OTHER;
+        }
+    }
+
+    private final Kind kind;
+    private final Scope scope;
+    private final String label;
+    private final Path inputFile;
+
+    private SysfsReader reader;
+    private EnergyCounter counter;
+
+    private long lastNanoTime;
+    private long lastPower;
+    private double integratedEnergy;
+
+    /**
+     * Creates a new sensor.
+     *
+     * @param kind      the quantity measured by the sensor
+     * @param chip      the content of the chip's name file, e.g. "amd_energy"
+     * @param label     the content of the sensor's label file, e.g. "Esocket0", or the sensor name if it has none
+     * @param inputFile the input file of the sensor, e.g. "hwmon2/energy1_input"
+     */
+    HwmonSensor(Kind kind, String chip, String label, Path inputFile) {
+        this.kind = kind;
+        this.scope = Scope.of(chip, label);
+        this.label = chip + ":" + label;
+        this.inputFile = inputFile;
+    }
+
+    /**
+     * Opens the input file of the sensor and reads its first value.
+     *
+     * @param nanoTime the time of the read, a {@link System#nanoTime()} value
+     * @throws IOException if the input file cannot be read
+     */
+    void open(long nanoTime) throws IOException {
+        reader = new SysfsReader(inputFile);
+        if (kind == Kind.ENERGY) {
+            // The range of hwmon energy counters is not exposed
+            counter = new EnergyCounter(0);
+            counter.update(reader.readLong());
+        } else {
+            lastPower = reader.readLong();
+            lastNanoTime = nanoTime;
+        }
+    }
+
+    /**
+     * Reads the input file. Energy values are added to the sensor's counter, and power values are integrated
+     * with the previous value over the time since the previous read.
+     *
+     * @param nanoTime the time of the read, a {@link System#nanoTime()} value
+     * @throws IOException if the input file cannot be read
+     */
+    void read(long nanoTime) throws IOException {
+        if (kind == Kind.ENERGY) {
+            counter.update(reader.readLong());
+        } else {
+            final long power = reader.readLong();
+            // microWatts over seconds, in Joules
+            integratedEnergy += (lastPower + power) / 2.0 * (nanoTime - lastNanoTime) / 1e15;
+            lastPower = power;
+            lastNanoTime = nanoTime;
+        }
+    }
+
+    /**
+     * Returns the energy consumed since the sensor was opened, up to the last read.
+     *
+     * @return the consumed energy, in Joules
+     */
+    double getConsumedEnergy() {
+        return kind == Kind.ENERGY ? counter.getConsumed() / 1000000.0 : integratedEnergy;
+    }
+
+    /**
+     * Returns the total of an energy sensor: its first value plus all the increases since then.
+     *
+     * @return the total energy, in Joules
+     */
+    double getTotalEnergy() {
+        return kind == Kind.ENERGY ? counter.getTotal() / 1000000.0 : integratedEnergy;
+    }
+
+    /**
+     * Returns the last value of a power sensor.
+     *
+     * @return the power, in Watts, or 0 for an energy sensor
+     */
+    double getPower() {
+        return kind == Kind.POWER ? lastPower / 1000000.0 : 0;
+    }
+
+    /**
+     * Indicates whether the input file is open.
+     *
+     * @return true between {@link #open(long)} and {@link #close()}
+     */
+    boolean isOpen() {
+        return reader != null;
+    }
+
+    /**
+     * Closes the input file.
+     *
+     * @throws IOException if the input file cannot be closed
+     */
+    void close() throws IOException {
+        if (reader != null) {
+            SysfsReader openReader = reader;
+            reader = null;
+            openReader.close();
+        }
+    }
+
+    Kind getKind() {
+        return kind;
+    }
+
+    Scope getScope() {
+        return scope;
+    }
+
+    String getLabel() {
+        return label;
+    }
+
+    Path getInputFile() {
+        return inputFile;
+    }
+}
@@ -11,12 +11,13 @@
 
 package org.noureddine.joularjx.cpu;
 
+import com.google.auto.service.AutoService;
+import org.noureddine.joularjx.cpu.EnergySourceCapabilities.Platform;
+import org.noureddine.joularjx.cpu.EnergySourceCapabilities.ReadCost;
 import org.noureddine.joularjx.utils.AgentProperties;
 import org.noureddine.joularjx.utils.CommandLineUtils;
 import org.noureddine.joularjx.utils.JoularJXLogging;
 
-import java.io.BufferedReader;
-import java.io.InputStreamReader;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -37,6 +38,11 @@ public class IntelWindows implements Cpu {
      */
     private Process process;
 
+    /**
+     * Reader of the power printed by the process
+     */
+    private ProcessPowerReader reader;
+
     /**
      * If the monitoring process was initialized
      */
@@ -69,9 +75,7 @@ public class IntelWindows implements Cpu {
                 System.exit(1);
             }
             process = new ProcessBuilder(command).start();
-
-            // The first result is not useful
-            getCurrentPower(0);
+            reader = new ProcessPowerReader(process.getInputStream(), "Power monitor");
 
             initialized = true;
         } catch (Exception exception) {
@@ -81,32 +85,48 @@ public class IntelWindows implements Cpu {
         }
     }
 
+    /**
+     * Returns the last power printed by the process, without waiting for its next line.
+     *
+     * @param cpuLoad unused
+     * @return the latest power, in watts
+     */
     @Override
     public double getCurrentPower(final double cpuLoad) {
-        try {
-            // Should not be closed since it closes the process
-            BufferedReader input = new BufferedReader(new InputStreamReader(process.getInputStream()));
-            String line = input.readLine();
-            return Double.parseDouble(line);
-        } catch (Exception exception) {
-            logger.throwing(getClass().getName(), "getCurrentPower", exception);
-        }
-        return 0;
+        return reader != null ? reader.getLatestPower() : 0;
     }
 
     /**
-     * The power is returned every second, so it does not need an offset.
+     * Starts the measurement of {@link #getConsumedEnergy(double, double)}. The power is returned every second,
+     * so it does not need an offset.
      *
      * @return 0
      */
     @Override
     public double getInitialPower() {
+        if (reader != null) {
+            reader.getConsumedEnergy();
+        }
         return 0;
     }
 
+    /**
+     * Returns the energy accumulated from all the values printed by the process since the previous call,
+     * instead of the latest power times the duration of the window.
+     *
+     * @param cpuLoad        unused
+     * @param elapsedSeconds unused
+     * @return the consumed energy, in joules
+     */
+    @Override
+    public double getConsumedEnergy(final double cpuLoad, final double elapsedSeconds) {
+        return reader != null ? reader.getConsumedEnergy() : 0;
+    }
+
     @Override
     public void close() {
         if (initialized) {
+            reader.close();
             process.destroy();
         }
     }
@@ -117,4 +137,34 @@ public class IntelWindows implements Cpu {
     public double getMaxPower(final double cpuLoad) {
         return 0;
     }
+
+    /**
+     * {@link EnergySourceProvider} of the Power Monitor process on Windows.
+     */
+    @AutoService(EnergySourceProvider.class)
+    public static final class Provider implements EnergySourceProvider {
+
+        private static final EnergySourceCapabilities CAPABILITIES =
+                new EnergySourceCapabilities(0, Platform.WINDOWS, false, 1_000_000, false, ReadCost.HIGH);
+
+        @Override
+        public String getName() {
+            return "powermonitor";
+        }
+
+        @Override
+        public EnergySourceCapabilities getCapabilities() {
+            return CAPABILITIES;
+        }
+
+        @Override
+        public boolean isAvailable(final AgentProperties properties) {
+            return true;
+        }
+
+        @Override
+        public Cpu create(final AgentProperties properties) {
+            return new IntelWindows(properties.getPowerMonitorPath());
+        }
+    }
 }
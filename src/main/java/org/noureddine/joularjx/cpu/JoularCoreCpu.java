@@ -11,12 +11,13 @@
 
 package org.noureddine.joularjx.cpu;
 
+import com.google.auto.service.AutoService;
+import org.noureddine.joularjx.cpu.EnergySourceCapabilities.Platform;
+import org.noureddine.joularjx.cpu.EnergySourceCapabilities.ReadCost;
 import org.noureddine.joularjx.utils.AgentProperties;
 import org.noureddine.joularjx.utils.CommandLineUtils;
 import org.noureddine.joularjx.utils.JoularJXLogging;
 
-import java.io.BufferedReader;
-import java.io.InputStreamReader;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -38,6 +39,11 @@ public class JoularCoreCpu implements Cpu {
      */
     private Process process;
 
+    /**
+     * Reader of the power printed by the process
+     */
+    private ProcessPowerReader reader;
+
     /**
      * If the monitoring process was initialized
      */
@@ -74,9 +80,7 @@ public class JoularCoreCpu implements Cpu {
                 System.exit(1);
             }
             process = new ProcessBuilder(command).start();
-            
-            // The first result is not useful
-            getCurrentPower(0);
+            reader = new ProcessPowerReader(process.getInputStream(), "Joular Core");
             
             initialized = true;
         } catch (Exception exception) {
@@ -86,29 +90,48 @@ public class JoularCoreCpu implements Cpu {
         }
     }
 
+    /**
+     * Returns the last power printed by the process, without waiting for its next line.
+     *
+     * @param cpuLoad unused
+     * @return the latest power, in watts
+     */
     @Override
     public double getCurrentPower(final double cpuLoad) {
-        try {
-            // Should not be closed since it closes the process stream
-            BufferedReader input = new BufferedReader(new InputStreamReader(process.getInputStream()));
-            String line = input.readLine();
-            if (line != null && !line.isBlank()) {
-                return Double.parseDouble(line);
-            }
-        } catch (Exception exception) {
-            logger.throwing(getClass().getName(), "getCurrentPower", exception);
-        }
-        return 0;
+        return reader != null ? reader.getLatestPower() : 0;
     }
 
+    /**
+     * Starts the measurement of {@link #getConsumedEnergy(double, double)}. The power is returned every second,
+     * so it does not need an offset.
+     *
+     * @return 0
+     */
     @Override
     public double getInitialPower() {
+        if (reader != null) {
+            reader.getConsumedEnergy();
+        }
         return 0;
     }
 
+    /**
+     * Returns the energy accumulated from all the values printed by the process since the previous call,
+     * instead of the latest power times the duration of the window.
+     *
+     * @param cpuLoad        unused
+     * @param elapsedSeconds unused
+     * @return the consumed energy, in joules
+     */
+    @Override
+    public double getConsumedEnergy(final double cpuLoad, final double elapsedSeconds) {
+        return reader != null ? reader.getConsumedEnergy() : 0;
+    }
+
     @Override
     public void close() {
         if (initialized && process != null) {
+            reader.close();
             process.destroy();
         }
     }
@@ -117,4 +140,35 @@ public class JoularCoreCpu implements Cpu {
     public double getMaxPower(final double cpuLoad) {
         return 0;
     }
+
+    /**
+     * {@link EnergySourceProvider} of the Joular Core process. Only available when Joular Core is enabled, and
+     * preferred over the hardware sources.
+     */
+    @AutoService(EnergySourceProvider.class)
+    public static final class Provider implements EnergySourceProvider {
+
+        private static final EnergySourceCapabilities CAPABILITIES =
+                new EnergySourceCapabilities(80, Platform.ANY, false, 1_000_000, false, ReadCost.HIGH);
+
+        @Override
+        public String getName() {
+            return "joular-core";
+        }
+
+        @Override
+        public EnergySourceCapabilities getCapabilities() {
+            return CAPABILITIES;
+        }
+
+        @Override
+        public boolean isAvailable(final AgentProperties properties) {
+            return properties.isJoularCoreEnabled();
+        }
+
+        @Override
+        public Cpu create(final AgentProperties properties) {
+            return new JoularCoreCpu(properties.getJoularCorePath(), properties.getJoularCoreParameters());
+        }
+    }
 }
@@ -11,11 +11,14 @@
 
 package org.noureddine.joularjx.cpu;
 
+import com.google.auto.service.AutoService;
 import com.sun.jna.Library;
 import com.sun.jna.Native;
 import com.sun.jna.Pointer;
 import com.sun.jna.PointerType;
 import com.sun.jna.WString;
+import org.noureddine.joularjx.cpu.EnergySourceCapabilities.Platform;
+import org.noureddine.joularjx.cpu.EnergySourceCapabilities.ReadCost;
 import org.noureddine.joularjx.utils.AgentProperties;
 import org.noureddine.joularjx.utils.JoularJXLogging;
 
@@ -29,6 +32,13 @@ import java.util.logging.Logger;
 
 /**
  * {@link Cpu} implementation for Joular Core shared ring buffer.
+ * <p>
+ * The buffer starts with the number of entries written so far (the head), followed by a ring of entries of
+ * five doubles: cpu_power, gpu_power, total_power, cpu_usage and pid_app_power. Every entry written since the
+ * previous read is consumed, and the energy of a monitoring window is its average CPU power over the actual
+ * duration of the window. Joular Core writes without locking, so the head is read again after the entries, as
+ * in a seqlock: the read is retried if the writer overwrote one of the entries in the meantime.
+ * Optionally, the power of the monitored process (pid_app_power) gives the share of the process directly.
  */
 public class JoularCoreRingBufferCpu implements Cpu {
 
@@ -37,13 +47,30 @@ public class JoularCoreRingBufferCpu implements Cpu {
     private static final int ENTRY_SIZE = 40; // 5 * f64 (8 bytes each)
     private static final int BUFFER_SIZE = 5;
     private static final int FILE_SIZE = 8 + BUFFER_SIZE * ENTRY_SIZE;
+    private static final int CPU_POWER_OFFSET = 0;
+    private static final int TOTAL_POWER_OFFSET = 16;
+    private static final int PID_APP_POWER_OFFSET = 32;
+    private static final int READ_ATTEMPTS = 3;
 
     private final String path;
+    private final boolean processPower;
     private ByteBuffer buffer;
     private HANDLE mappingHandle;
     private Pointer mappingPointer;
     private boolean initialized;
 
+    /**
+     * Head of the buffer at the previous read: the entries from this head have not been consumed yet
+     */
+    private long lastHead = -1;
+    private double lastCpuPower;
+    private double processShare = Double.NaN;
+
+    // Sums of the entries consumed by the last read
+    private double cpuPowerSum;
+    private double totalPowerSum;
+    private double pidAppPowerSum;
+
     interface Kernel32 extends Library {
         Kernel32 INSTANCE = Native.load("kernel32", Kernel32.class);
 
@@ -77,12 +104,23 @@ public class JoularCoreRingBufferCpu implements Cpu {
      * @param path ring buffer path or mapping name
      */
     public JoularCoreRingBufferCpu(final String path) {
+        this(path, false);
+    }
+
+    /**
+     * Creates a new Joular Core ring buffer CPU monitor instance.
+     *
+     * @param path         ring buffer path or mapping name
+     * @param processPower true to use the power of the monitored process (pid_app_power) as its share
+     */
+    public JoularCoreRingBufferCpu(final String path, final boolean processPower) {
         if (path == null || path.isBlank()) {
             logger.severe("Can't start because of missing Joular Core ring buffer path. Set it in config.properties under the '"
                     + AgentProperties.JOULAR_CORE_RINGBUFFER_PATH_PROPERTY + "' key.");
             System.exit(1);
         }
         this.path = path;
+        this.processPower = processPower;
     }
 
     @Override
@@ -136,26 +174,108 @@ public class JoularCoreRingBufferCpu implements Cpu {
         this.buffer.order(ByteOrder.nativeOrder());
     }
 
+    /**
+     * Consumes the entries written since the previous read, at most {@code BUFFER_SIZE - 1} of them: the slot
+     * after the head may be being written. Older entries were overwritten, and are skipped.
+     *
+     * @return the number of entries consumed, their sums being stored in the fields
+     */
+    private int readNewEntries() {
+        for (int attempt = 0; attempt < READ_ATTEMPTS; attempt++) {
+            final long head = buffer.getLong(0);
+            if (head <= 0) {
+                // Nothing written yet: the next entries are all new
+                lastHead = 0;
+                return 0;
+            }
+
+            long first = lastHead < 0 || lastHead > head ? head - 1 : lastHead;
+            first = Math.max(first, head - (BUFFER_SIZE - 1));
+            double cpuPower = 0;
+            double totalPower = 0;
+            double pidAppPower = 0;
+            double latestCpuPower = 0;
+            for (long entry = first; entry < head; entry++) {
+                final int offset = 8 + (int) (entry % BUFFER_SIZE) * ENTRY_SIZE;
+                latestCpuPower = buffer.getDouble(offset + CPU_POWER_OFFSET);
+                cpuPower += latestCpuPower;
+                totalPower += buffer.getDouble(offset + TOTAL_POWER_OFFSET);
+                pidAppPower += buffer.getDouble(offset + PID_APP_POWER_OFFSET);
+            }
+
+            // The slot of an entry is rewritten by the entry BUFFER_SIZE after it
+            if (buffer.getLong(0) - first < BUFFER_SIZE) {
+                lastHead = head;
+                cpuPowerSum = cpuPower;
+                totalPowerSum = totalPower;
+                pidAppPowerSum = pidAppPower;
+                if (head > first) {
+                    lastCpuPower = latestCpuPower;
+                }
+                return (int) (head - first);
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Returns the CPU power of the latest entry, consuming the entries written since the previous read.
+     *
+     * @param cpuLoad unused
+     * @return the latest CPU power, in watts
+     */
     @Override
-    public double getCurrentPower(final double cpuLoad) {
+    public synchronized double getCurrentPower(final double cpuLoad) {
         if (buffer == null) {
             return 0;
         }
+        readNewEntries();
+        return lastCpuPower;
+    }
 
-        long head = buffer.getLong(0);
-        int idx = (int) ((head - 1) % BUFFER_SIZE);
-        if (idx < 0) {
+    /**
+     * Returns the energy consumed since the previous call, as the average CPU power of the entries written in
+     * the meantime over the duration of the window. If no entry was written, the latest power is used.
+     *
+     * @param cpuLoad        unused
+     * @param elapsedSeconds the duration since the previous call, in seconds
+     * @return the consumed energy, in joules
+     */
+    @Override
+    public synchronized double getConsumedEnergy(final double cpuLoad, final double elapsedSeconds) {
+        if (buffer == null) {
             return 0;
         }
 
-        int offset = 8 + idx * ENTRY_SIZE;
-        // RingBufferStruct: cpu_power, gpu_power, total_power, cpu_usage, pid_app_power
-        return buffer.getDouble(offset);
+        final int entries = readNewEntries();
+        if (entries == 0) {
+            return lastCpuPower * elapsedSeconds;
+        }
+        if (processPower) {
+            processShare = totalPowerSum > 0 ? Math.min(1, Math.max(0, pidAppPowerSum / totalPowerSum)) : 0;
+        }
+        return cpuPowerSum / entries * elapsedSeconds;
     }
 
+    /**
+     * Returns the share of the monitored process in the power of the last consumed entries (pid_app_power over
+     * total_power), if enabled.
+     *
+     * @return the share of the process, or NaN if disabled or until entries are consumed
+     */
     @Override
-    public double getInitialPower() {
-        return 0;
+    public synchronized double getProcessShare() {
+        return processShare;
+    }
+
+    /**
+     * Starts the measurement from the entries written from now.
+     *
+     * @return the latest CPU power, in watts
+     */
+    @Override
+    public synchronized double getInitialPower() {
+        return getCurrentPower(0);
     }
 
     @Override
@@ -164,7 +284,7 @@ public class JoularCoreRingBufferCpu implements Cpu {
     }
 
     @Override
-    public void close() {
+    public synchronized void close() {
         if (IS_WINDOWS) {
             if (mappingPointer != null) {
                 Kernel32.INSTANCE.UnmapViewOfFile(mappingPointer);
@@ -176,6 +296,41 @@ public class JoularCoreRingBufferCpu implements Cpu {
             }
         }
         buffer = null;
+        lastHead = -1;
         initialized = false;
     }
+
+    /**
+     * {@link EnergySourceProvider} of the Joular Core shared ring buffer. Only available when Joular Core and its
+     * ring buffer are enabled, and preferred over the Joular Core process.
+     */
+    @AutoService(EnergySourceProvider.class)
+    public static final class Provider implements EnergySourceProvider {
+
+        private static final EnergySourceCapabilities CAPABILITIES =
+                new EnergySourceCapabilities(90, Platform.ANY, false, 1_000_000, false, ReadCost.LOW);
+
+        @Override
+        public String getName() {
+            return "joular-core-ring-buffer";
+        }
+
+        @Override
+        public EnergySourceCapabilities getCapabilities() {
+            return CAPABILITIES;
+        }
+
+        @Override
+        public boolean isAvailable(final AgentProperties properties) {
+            final String path = properties.getJoularCoreRingBufferPath();
+            return properties.isJoularCoreEnabled() && properties.isJoularCoreRingBufferEnabled()
+                    && path != null && !path.isBlank();
+        }
+
+        @Override
+        public Cpu create(final AgentProperties properties) {
+            return new JoularCoreRingBufferCpu(properties.getJoularCoreRingBufferPath(),
+                    properties.isJoularCoreProcessPowerEnabled());
+        }
+    }
 }
@@ -0,0 +1,213 @@
+/*
+ * Copyright (c) 2021-2026, Adel Noureddine, Université de Pau et des Pays de l'Adour.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the
+ * GNU General Public License v3.0 only (GPL-3.0-only)
+ * which accompanies this distribution, and is available at
+ * https://www.gnu.org/licenses/gpl-3.0.en.html
+ *
+ */
+
+package org.noureddine.joularjx.cpu;
+
+import com.google.auto.service.AutoService;
+import org.noureddine.joularjx.cpu.EnergySourceCapabilities.Platform;
+import org.noureddine.joularjx.cpu.EnergySourceCapabilities.ReadCost;
+import org.noureddine.joularjx.utils.AgentProperties;
+import org.noureddine.joularjx.utils.JoularJXLogging;
+
+import java.io.IOException;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * {@link Cpu} implementation estimating the CPU power from the CPU load, and optionally the CPU frequency, with
+ * a {@link PowerModel}, for hardware without power or energy sensors. Models are bundled with JoularJX, or loaded
+ * from the file set in the {@code power-model-file} property, and can be produced on a RAPL-capable host with
+ * the {@link PowerModelCalibrator}.
+ */
+public class ModelCpu implements Cpu {
+
+    private static final Logger logger = JoularJXLogging.getLogger();
+
+    /**
+     * The power model
+     */
+    private final PowerModel model;
+
+    /**
+     * Filesystem where the cpufreq files are located.
+     */
+    private final FileSystem fileSystem;
+
+    /**
+     * The reader of the CPU frequency, for models using it
+     */
+    private CpuFrequency frequency;
+
+    /**
+     * Creates a new model-based CPU power estimation.
+     *
+     * @param model the power model
+     */
+    public ModelCpu(final PowerModel model) {
+        this(model, FileSystems.getDefault());
+    }
+
+    /**
+     * Creates a new model-based CPU power estimation, reading the CPU frequency from the passed filesystem.
+     *
+     * @param model      the power model
+     * @param fileSystem the filesystem to use for reading the cpufreq files
+     */
+    ModelCpu(final PowerModel model, final FileSystem fileSystem) {
+        this.model = model;
+        this.fileSystem = fileSystem;
+    }
+
+    /**
+     * Opens the CPU frequency files if the model uses the frequency.
+     */
+    @Override
+    public void initialize() {
+        if (!model.usesFrequency()) {
+            return;
+        }
+        frequency = new CpuFrequency(fileSystem);
+        if (!frequency.open()) {
+            logger.log(Level.SEVERE, "The power model " + model.getId() + " uses the CPU frequency, which cannot be read from " + CpuFrequency.CPU_ROOT + ". Exiting...");
+            System.exit(1);
+        }
+    }
+
+    @Override
+    public double getCurrentPower(final double cpuLoad) {
+        return model.evaluate(cpuLoad, frequency != null ? frequency.read() : Double.NaN);
+    }
+
+    /**
+     * The power is approximated based on the CPU load, so it does not need an offset.
+     *
+     * @return 0
+     */
+    @Override
+    public double getInitialPower() {
+        return 0;
+    }
+
+    /**
+     * Nothing to do here. Method only useful for RAPL
+     */
+    @Override
+    public double getMaxPower(final double cpuLoad) {
+        return 0;
+    }
+
+    @Override
+    public void close() {
+        if (frequency != null) {
+            frequency.close();
+        }
+    }
+
+    /**
+     * Returns the power model.
+     *
+     * @return the model used to estimate the power
+     */
+    public PowerModel getModel() {
+        return model;
+    }
+
+    /**
+     * Loads the bundled power models and the models of the {@code power-model-file}, and exits if they cannot
+     * be read.
+     *
+     * @param properties the properties passed to the agent
+     * @return the models, by identifier
+     */
+    static Map<String, PowerModel> loadModels(final AgentProperties properties) {
+        try {
+            return PowerModel.load(properties.getPowerModelFile());
+        } catch (IOException | IllegalArgumentException exception) {
+            logger.log(Level.SEVERE, "Failed to read the power models from " + properties.getPowerModelFile() + ": " + exception.getMessage() + ". Exiting...");
+            System.exit(1);
+            return null;
+        }
+    }
+
+    /**
+     * {@link EnergySourceProvider} of the power model set in the {@code power-model} property. The models are
+     * loaded once, by the availability check, and the source is not available if they cannot be read.
+     */
+    @AutoService(EnergySourceProvider.class)
+    public static final class Provider implements EnergySourceProvider {
+
+        private static final EnergySourceCapabilities CAPABILITIES =
+                new EnergySourceCapabilities(0, Platform.ANY, false, 1_000_000, false, ReadCost.LOW);
+
+        @Override
+        public String getName() {
+            return "model";
+        }
+
+        @Override
+        public EnergySourceCapabilities getCapabilities() {
+            return CAPABILITIES;
+        }
+
+        /**
+         * The models of {@link #modelsFile}, empty if they cannot be read, or null until loaded
+         */
+        private Optional<Map<String, PowerModel>> models;
+
+        private String modelsFile;
+
+        @Override
+        public boolean isAvailable(final AgentProperties properties) {
+            if (properties.getPowerModel() == null) {
+                return false;
+            }
+            final Optional<Map<String, PowerModel>> loaded = getModels(properties);
+            if (loaded.isEmpty()) {
+                return false;
+            }
+            if (!loaded.get().containsKey(properties.getPowerModel())) {
+                logger.log(Level.WARNING, "Unknown power model " + properties.getPowerModel() + ". Using another energy source instead.");
+                return false;
+            }
+            return true;
+        }
+
+        @Override
+        public Cpu create(final AgentProperties properties) {
+            return new ModelCpu(getModels(properties).orElseThrow().get(properties.getPowerModel()));
+        }
+
+        /**
+         * Loads the bundled power models and the models of the {@code power-model-file}, unless they were
+         * already loaded from the same file.
+         *
+         * @param properties the properties passed to the agent
+         * @return the models, by identifier, or an empty optional if they cannot be read
+         */
+        private synchronized Optional<Map<String, PowerModel>> getModels(final AgentProperties properties) {
+            final String file = properties.getPowerModelFile();
+            if (models == null || !Objects.equals(modelsFile, file)) {
+                modelsFile = file;
+                try {
+                    models = Optional.of(PowerModel.load(file));
+                } catch (IOException | IllegalArgumentException exception) {
+                    logger.log(Level.SEVERE, "Failed to read the power models from " + file + ": " + exception.getMessage() + ". Using another energy source instead.");
+                    models = Optional.empty();
+                }
+            }
+            return models;
+        }
+    }
+}
@@ -0,0 +1,202 @@
+/*
+ * Copyright (c) 2021-2026, Adel Noureddine, Université de Pau et des Pays de l'Adour.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the
+ * GNU General Public License v3.0 only (GPL-3.0-only)
+ * which accompanies this distribution, and is available at
+ * https://www.gnu.org/licenses/gpl-3.0.en.html
+ *
+ */
+
+package org.noureddine.joularjx.cpu;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Follows a file where power values are written by another program (e.g. the host of a virtual machine), one
+ * value per line, either by appending lines or by rewriting the file.
+ * <p>
+ * The file is kept open, and its size and modification time are polled: nothing is read or parsed while they do
+ * not change, the latest value being cached. Mtime polling is used rather than a WatchService, as change
+ * notifications are usually not propagated through the shared folders of virtual machines. When lines were
+ * appended, only the new complete lines are read. When the file was rewritten (it shrank, kept the same size, or
+ * the byte before the read position is no longer a line end), only its last line is read, which may be
+ * unterminated. The average of the values read since the previous call to {@link #takeAveragePower()} can be
+ * taken at any time. Lines that cannot be parsed (e.g. a CSV header) are skipped. A rewritten file only keeps its
+ * last value, so the file must be polled more often than it is rewritten for every value to be read (see
+ * {@link VirtualMachine}). This class is not thread-safe.
+ */
+final class PowerFileTail implements AutoCloseable {
+
+    /**
+     * Maximum number of bytes read from the end of the file to find its last value, when it is rewritten
+     */
+    private static final int TAIL_READ_SIZE = 4096;
+
+    private final Path file;
+    private final ToDoubleFunction<String> parser;
+    private final ByteBuffer buffer = ByteBuffer.allocate(4096);
+
+    private SeekableByteChannel channel;
+    // Position after the last line end read
+    private long position;
+    private long lastSize = -1;
+    private FileTime lastModified;
+
+    private double latestPower;
+    private double powerSum;
+    private int readings;
+
+    /**
+     * Creates a new tail of the given file.
+     *
+     * @param file   the file where the power values are written
+     * @param parser parses the power value of a line, in watts, throwing a {@link RuntimeException} if the line
+     *               has no value
+     */
+    PowerFileTail(final Path file, final ToDoubleFunction<String> parser) {
+        this.file = file;
+        this.parser = parser;
+    }
+
+    /**
+     * Opens the file, and reads its last value.
+     *
+     * @throws IOException if the file cannot be read
+     */
+    void open() throws IOException {
+        channel = Files.newByteChannel(file, StandardOpenOption.READ);
+        poll();
+        takeAveragePower();
+    }
+
+    /**
+     * Reads the values written since the previous poll, if the file changed.
+     *
+     * @return true if the file changed
+     * @throws IOException if the file cannot be read
+     */
+    boolean poll() throws IOException {
+        final BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        final long size = attributes.size();
+        final FileTime modified = attributes.lastModifiedTime();
+        if (size == lastSize && modified.equals(lastModified)) {
+            return false;
+        }
+
+        // Without any line end read yet, the whole file is a value being rewritten
+        final boolean rewritten = position == 0 || size <= position || size == lastSize || !isLineEnd(position - 1);
+        lastSize = size;
+        lastModified = modified;
+        if (rewritten) {
+            final long start = Math.max(0, size - TAIL_READ_SIZE);
+            final String content = read(start, size);
+            // A partial first line, when starting in the middle of the file, is not a value
+            final int firstLineEnd = start > 0 ? content.indexOf('\n') : -1;
+            final String[] lines = content.substring(firstLineEnd + 1).split("\n");
+            for (int i = lines.length - 1; i >= 0; i--) {
+                if (addReading(lines[i])) {
+                    break;
+                }
+            }
+            position = start + content.lastIndexOf('\n') + 1;
+        } else {
+            final String content = read(position, size);
+            final int lastLineEnd = content.lastIndexOf('\n');
+            if (lastLineEnd >= 0) {
+                // The unterminated last line is being written, it is read at the next poll
+                for (final String line : content.substring(0, lastLineEnd).split("\n")) {
+                    addReading(line);
+                }
+                position += lastLineEnd + 1;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Indicates whether the byte at the given position of the file is a line end.
+     */
+    private boolean isLineEnd(final long bytePosition) throws IOException {
+        final String content = read(bytePosition, bytePosition + 1);
+        return content.equals("\n");
+    }
+
+    /**
+     * Reads the bytes of the file between the given positions.
+     */
+    private String read(final long start, final long end) throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream((int) Math.min(end - start, 1 << 16));
+        channel.position(start);
+        long remaining = end - start;
+        while (remaining > 0) {
+            buffer.clear();
+            buffer.limit((int) Math.min(buffer.capacity(), remaining));
+            final int read = channel.read(buffer);
+            if (read <= 0) {
+                break;
+            }
+            bytes.write(buffer.array(), 0, read);
+            remaining -= read;
+        }
+        return bytes.toString(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Parses and adds the value of a line.
+     *
+     * @return true if the line has a value
+     */
+    private boolean addReading(final String line) {
+        if (line.isBlank()) {
+            return false;
+        }
+        try {
+            final double power = parser.applyAsDouble(line.trim());
+            latestPower = power;
+            powerSum += power;
+            readings++;
+            return true;
+        } catch (RuntimeException exception) {
+            return false;
+        }
+    }
+
+    /**
+     * Returns the last value read.
+     *
+     * @return the latest power, in watts
+     */
+    double getLatestPower() {
+        return latestPower;
+    }
+
+    /**
+     * Returns the average of the values read since the previous call, and starts a new average.
+     *
+     * @return the average power, in watts, or NaN if no value was read since the previous call
+     */
+    double takeAveragePower() {
+        final double average = readings > 0 ? powerSum / readings : Double.NaN;
+        powerSum = 0;
+        readings = 0;
+        return average;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (channel != null) {
+            channel.close();
+        }
+    }
+}
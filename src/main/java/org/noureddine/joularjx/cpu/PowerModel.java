@@ -0,0 +1,436 @@
+/*
+ * Copyright (c) 2021-2026, Adel Noureddine, Université de Pau et des Pays de l'Adour.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the
+ * GNU General Public License v3.0 only (GPL-3.0-only)
+ * which accompanies this distribution, and is available at
+ * https://www.gnu.org/licenses/gpl-3.0.en.html
+ *
+ */
+
+package org.noureddine.joularjx.cpu;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+
+/**
+ * A model of the CPU power as a function of the CPU load (0 to 1), and optionally of the CPU frequency (in GHz).
+ * <p>
+ * Polynomial models have one polynomial in CPU load per power of the frequency, all evaluated with Horner's
+ * method. Piecewise-linear models interpolate the power between measured points, with one curve per frequency.
+ * Models are defined in properties files: the models bundled with JoularJX ({@code power-models.properties}),
+ * and the models of a user-supplied file, which can replace them. The keys of each model start with its
+ * identifier:
+ * <pre>
+ * my-sku.type=polynomial
+ * my-sku.description=My server
+ * my-sku.coefficients=12.5, 40.2, -8.1
+ * my-sku.coefficients.1=0.5, 10.3
+ *
+ * my-board.type=piecewise-linear
+ * my-board.loads=0, 0.5, 1
+ * my-board.powers=2.1, 3.4, 4.2
+ * </pre>
+ * Here {@code my-sku} gives {@code 12.5 + 40.2 u - 8.1 u² + f (0.5 + 10.3 u)}, for a load {@code u} and a
+ * frequency {@code f}. Piecewise-linear models depending on the frequency list their {@code frequencies}, and
+ * one curve of powers per frequency ({@code powers.0}, {@code powers.1}...).
+ */
+public final class PowerModel {
+
+    /**
+     * Name of the resource of the bundled models
+     */
+    static final String BUNDLED_MODELS = "/power-models.properties";
+
+    /**
+     * The kind of function of a model.
+     */
+    public enum Type {
+        POLYNOMIAL("polynomial"), PIECEWISE_LINEAR("piecewise-linear");
+
+        private final String name;
+
+        Type(String name) {
+            this.name = name;
+        }
+
+        /**
+         * Returns the type of a model from its name in a model file.
+         *
+         * @param name the name of the type, e.g. "polynomial"
+         * @return the type, or null if the name is unknown
+         */
+        static Type of(String name) {
+            for (Type type : values()) {
+                if (type.name.equalsIgnoreCase(name.trim())) {
+                    return type;
+                }
+            }
+            return null;
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+
+    private final String id;
+    private final String description;
+    private final Type type;
+
+    // Polynomial: the coefficients in CPU load, from the constant term, multiplied by each power of the frequency
+    private final double[][] coefficients;
+
+    // Piecewise-linear: the loads of the points, the frequencies of the curves, and the powers of each curve
+    private final double[] loads;
+    private final double[] frequencies;
+    private final double[][] powers;
+
+    private PowerModel(String id, String description, Type type, double[][] coefficients, double[] loads,
+                       double[] frequencies, double[][] powers) {
+        this.id = id;
+        this.description = description;
+        this.type = type;
+        this.coefficients = coefficients;
+        this.loads = loads;
+        this.frequencies = frequencies;
+        this.powers = powers;
+    }
+
+    /**
+     * Creates a polynomial model.
+     *
+     * @param id           the identifier of the model
+     * @param description  the description of the hardware, or null
+     * @param coefficients the coefficients of the polynomials in CPU load, from the constant term, one polynomial
+     *                     per power of the frequency (a single polynomial if the model does not use the frequency)
+     * @return the model
+     * @throws IllegalArgumentException if there is no coefficient
+     */
+    public static PowerModel polynomial(String id, String description, double[][] coefficients) {
+        if (coefficients.length == 0 || Arrays.stream(coefficients).anyMatch(row -> row.length == 0)) {
+            throw new IllegalArgumentException("The power model " + id + " has no coefficients");
+        }
+        return new PowerModel(id, description, Type.POLYNOMIAL, coefficients, null, new double[0], null);
+    }
+
+    /**
+     * Creates a piecewise-linear model.
+     *
+     * @param id          the identifier of the model
+     * @param description the description of the hardware, or null
+     * @param loads       the CPU loads of the points, in increasing order
+     * @param frequencies the frequencies of the curves in increasing order, or an empty array if the model does
+     *                    not use the frequency
+     * @param powers      the powers at each load, one curve per frequency (a single curve without frequencies)
+     * @return the model
+     * @throws IllegalArgumentException if the points are not sorted, or the curves do not match the points
+     */
+    public static PowerModel piecewiseLinear(String id, String description, double[] loads, double[] frequencies,
+                                             double[][] powers) {
+        if (loads.length < 2 || !isIncreasing(loads)) {
+            throw new IllegalArgumentException("The power model " + id + " needs at least 2 loads, in increasing order");
+        }
+        if (!isIncreasing(frequencies)) {
+            throw new IllegalArgumentException("The frequencies of the power model " + id + " are not in increasing order");
+        }
+        if (powers.length != Math.max(1, frequencies.length)
+                || Arrays.stream(powers).anyMatch(curve -> curve.length != loads.length)) {
+            throw new IllegalArgumentException("The power model " + id + " needs one power per load, for each frequency");
+        }
+        return new PowerModel(id, description, Type.PIECEWISE_LINEAR, null, loads, frequencies, powers);
+    }
+
+    private static boolean isIncreasing(double[] values) {
+        for (int i = 1; i < values.length; i++) {
+            if (values[i] <= values[i - 1]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the power estimated by the model.
+     *
+     * @param cpuLoad   the CPU load, from 0 to 1
+     * @param frequency the CPU frequency in GHz, only used if the model uses the frequency
+     * @return the power in Watts, never negative
+     */
+    public double evaluate(double cpuLoad, double frequency) {
+        final double power = type == Type.POLYNOMIAL
+                ? evaluatePolynomial(cpuLoad, frequency)
+                : evaluatePiecewiseLinear(cpuLoad, frequency);
+        return Math.max(0, power);
+    }
+
+    /**
+     * Evaluates the polynomials in load with Horner's method, and then the polynomial in frequency of their
+     * results.
+     */
+    private double evaluatePolynomial(double cpuLoad, double frequency) {
+        double result = horner(coefficients[coefficients.length - 1], cpuLoad);
+        for (int i = coefficients.length - 2; i >= 0; i--) {
+            result = result * frequency + horner(coefficients[i], cpuLoad);
+        }
+        return result;
+    }
+
+    private static double horner(double[] polynomial, double x) {
+        double result = polynomial[polynomial.length - 1];
+        for (int i = polynomial.length - 2; i >= 0; i--) {
+            result = result * x + polynomial[i];
+        }
+        return result;
+    }
+
+    /**
+     * Interpolates the power on the curves of the two frequencies around the given one, and then between these
+     * frequencies. Loads and frequencies out of the range of the model are clamped to that range.
+     */
+    private double evaluatePiecewiseLinear(double cpuLoad, double frequency) {
+        if (frequencies.length < 2) {
+            return interpolate(loads, powers[0], cpuLoad);
+        }
+        if (frequency <= frequencies[0]) {
+            return interpolate(loads, powers[0], cpuLoad);
+        }
+        final int last = frequencies.length - 1;
+        if (frequency >= frequencies[last]) {
+            return interpolate(loads, powers[last], cpuLoad);
+        }
+        final int upper = upperIndex(frequencies, frequency);
+        final double lowerPower = interpolate(loads, powers[upper - 1], cpuLoad);
+        final double upperPower = interpolate(loads, powers[upper], cpuLoad);
+        return lerp(frequencies[upper - 1], lowerPower, frequencies[upper], upperPower, frequency);
+    }
+
+    private static double interpolate(double[] xs, double[] ys, double x) {
+        if (x <= xs[0]) {
+            return ys[0];
+        }
+        final int last = xs.length - 1;
+        if (x >= xs[last]) {
+            return ys[last];
+        }
+        final int upper = upperIndex(xs, x);
+        return lerp(xs[upper - 1], ys[upper - 1], xs[upper], ys[upper], x);
+    }
+
+    /**
+     * Returns the index of the first value greater than or equal to x, for x within the range of the values.
+     */
+    private static int upperIndex(double[] values, double x) {
+        final int index = Arrays.binarySearch(values, x);
+        return index >= 0 ? Math.max(index, 1) : -index - 1;
+    }
+
+    private static double lerp(double x0, double y0, double x1, double y1, double x) {
+        return y0 + (y1 - y0) * (x - x0) / (x1 - x0);
+    }
+
+    /**
+     * Indicates whether the model uses the CPU frequency.
+     *
+     * @return true if the power depends on the frequency
+     */
+    public boolean usesFrequency() {
+        return type == Type.POLYNOMIAL ? coefficients.length > 1 : frequencies.length > 1;
+    }
+
+    /**
+     * Returns the definition of the model, in the format of the model files.
+     *
+     * @return the properties defining the model, one per line
+     */
+    public String format() {
+        final StringBuilder builder = new StringBuilder();
+        builder.append(id).append(".type=").append(type).append('\n');
+        if (description != null) {
+            builder.append(id).append(".description=").append(description).append('\n');
+        }
+        if (type == Type.POLYNOMIAL) {
+            for (int i = 0; i < coefficients.length; i++) {
+                builder.append(id).append(".coefficients").append(i == 0 ? "" : "." + i).append('=')
+                        .append(join(coefficients[i])).append('\n');
+            }
+        } else {
+            builder.append(id).append(".loads=").append(join(loads)).append('\n');
+            if (frequencies.length > 0) {
+                builder.append(id).append(".frequencies=").append(join(frequencies)).append('\n');
+                for (int i = 0; i < powers.length; i++) {
+                    builder.append(id).append(".powers.").append(i).append('=').append(join(powers[i])).append('\n');
+                }
+            } else {
+                builder.append(id).append(".powers=").append(join(powers[0])).append('\n');
+            }
+        }
+        return builder.toString();
+    }
+
+    private static String join(double[] values) {
+        final StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < values.length; i++) {
+            builder.append(i == 0 ? "" : ", ").append(values[i]);
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Returns the models bundled with JoularJX.
+     *
+     * @return the bundled models, by identifier
+     */
+    public static Map<String, PowerModel> bundled() {
+        try (InputStream input = PowerModel.class.getResourceAsStream(BUNDLED_MODELS)) {
+            if (input == null) {
+                throw new IllegalStateException("Missing bundled power models " + BUNDLED_MODELS);
+            }
+            final Properties properties = new Properties();
+            properties.load(input);
+            return parse(properties);
+        } catch (IOException exception) {
+            throw new IllegalStateException("Cannot read the bundled power models", exception);
+        }
+    }
+
+    /**
+     * Returns the models bundled with JoularJX, and the models of the given file, which replace the bundled
+     * models with the same identifier.
+     *
+     * @param modelFile the path of the model file, or null to only load the bundled models
+     * @return the models, by identifier
+     * @throws IOException              if the model file cannot be read
+     * @throws IllegalArgumentException if a model of the file is invalid
+     */
+    public static Map<String, PowerModel> load(String modelFile) throws IOException {
+        return load(FileSystems.getDefault(), modelFile);
+    }
+
+    static Map<String, PowerModel> load(FileSystem fileSystem, String modelFile) throws IOException {
+        final Map<String, PowerModel> models = bundled();
+        if (modelFile != null) {
+            final Properties properties = new Properties();
+            try (InputStream input = new BufferedInputStream(Files.newInputStream(fileSystem.getPath(modelFile)))) {
+                properties.load(input);
+            }
+            models.putAll(parse(properties));
+        }
+        return models;
+    }
+
+    /**
+     * Parses the models defined in properties, identified by their {@code type} keys.
+     *
+     * @param properties the properties of a model file
+     * @return the models, by identifier
+     * @throws IllegalArgumentException if a model is invalid
+     */
+    static Map<String, PowerModel> parse(Properties properties) {
+        final Map<String, PowerModel> models = new TreeMap<>();
+        for (String key : properties.stringPropertyNames()) {
+            if (!key.endsWith(".type")) {
+                continue;
+            }
+            final String id = key.substring(0, key.length() - ".type".length());
+            final Type type = Type.of(properties.getProperty(key));
+            if (type == null) {
+                throw new IllegalArgumentException("Unknown type of power model " + id + ": " + properties.getProperty(key));
+            }
+            final String description = properties.getProperty(id + ".description");
+
+            if (type == Type.POLYNOMIAL) {
+                final int degree = countIndexedKeys(properties, id + ".coefficients");
+                final double[][] coefficients = new double[degree + 1][];
+                coefficients[0] = parseValues(properties, id, id + ".coefficients");
+                for (int i = 1; i <= degree; i++) {
+                    coefficients[i] = parseValues(properties, id, id + ".coefficients." + i);
+                }
+                models.put(id, polynomial(id, description, coefficients));
+            } else {
+                final double[] loads = parseValues(properties, id, id + ".loads");
+                final double[] frequencies = properties.getProperty(id + ".frequencies") == null
+                        ? new double[0]
+                        : parseValues(properties, id, id + ".frequencies");
+                final double[][] powers;
+                if (frequencies.length == 0) {
+                    powers = new double[][] {parseValues(properties, id, id + ".powers")};
+                } else {
+                    powers = new double[frequencies.length][];
+                    for (int i = 0; i < frequencies.length; i++) {
+                        powers[i] = parseValues(properties, id, id + ".powers." + i);
+                    }
+                }
+                models.put(id, piecewiseLinear(id, description, loads, frequencies, powers));
+            }
+        }
+        return models;
+    }
+
+    /**
+     * Counts the keys prefix.1, prefix.2... following each other.
+     */
+    private static int countIndexedKeys(Properties properties, String prefix) {
+        int count = 0;
+        while (properties.getProperty(prefix + "." + (count + 1)) != null) {
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Parses a comma-separated list of numbers.
+     */
+    private static double[] parseValues(Properties properties, String id, String key) {
+        final String property = properties.getProperty(key);
+        if (property == null || property.isBlank()) {
+            throw new IllegalArgumentException("Missing " + key + " in power model " + id);
+        }
+        final String[] values = property.split(",");
+        final double[] result = new double[values.length];
+        try {
+            for (int i = 0; i < values.length; i++) {
+                result[i] = Double.parseDouble(values[i].trim());
+            }
+        } catch (NumberFormatException exception) {
+            throw new IllegalArgumentException("Invalid number in " + key + " of power model " + id, exception);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the identifier of the model.
+     *
+     * @return the identifier, e.g. "rpi-4b-12-64"
+     */
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * Returns the description of the hardware of the model.
+     *
+     * @return the description, or null
+     */
+    public String getDescription() {
+        return description;
+    }
+
+    /**
+     * Returns the kind of function of the model.
+     *
+     * @return the type
+     */
+    public Type getType() {
+        return type;
+    }
+}
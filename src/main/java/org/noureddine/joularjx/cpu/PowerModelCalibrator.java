@@ -0,0 +1,342 @@
+/*
+ * Copyright (c) 2021-2026, Adel Noureddine, Université de Pau et des Pays de l'Adour.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the
+ * GNU General Public License v3.0 only (GPL-3.0-only)
+ * which accompanies this distribution, and is available at
+ * https://www.gnu.org/licenses/gpl-3.0.en.html
+ *
+ */
+
+package org.noureddine.joularjx.cpu;
+
+import com.sun.management.OperatingSystemMXBean;
+import org.noureddine.joularjx.cpu.EnergySourceCapabilities.Platform;
+import org.noureddine.joularjx.utils.AgentProperties;
+import org.noureddine.joularjx.utils.JoularJXLogging;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.ServiceLoader;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Calibrates a polynomial {@link PowerModel} of the CPU power on a host with an energy counter (e.g. RAPL).
+ * <p>
+ * The calibration sweeps a synthetic load, from idle to all the CPUs fully loaded: at each step, one thread
+ * per CPU is busy for a share of every 10 ms period. The CPU load and the power measured by the energy counter
+ * are averaged over each step, and the polynomial of the power in CPU load is fitted on these points with the
+ * least squares method. The model is written to a model file, which can be set in the {@code power-model-file}
+ * property of hosts without energy sensors, with the {@code power-model} property set to its identifier.
+ * <p>
+ * Run with {@code java -cp joularjx.jar org.noureddine.joularjx.cpu.PowerModelCalibrator id=my-sku}, and the
+ * optional arguments {@code output=<file>} (default {@code <id>.properties}), {@code degree=<n>} (default 3),
+ * {@code steps=<n>} (default 10), {@code seconds=<n>} per step (default 5) and {@code description=<text>}.
+ * The calibration is more accurate with no other workload running on the host.
+ */
+public final class PowerModelCalibrator {
+
+    private static final Logger logger = JoularJXLogging.getLogger();
+
+    /**
+     * Period of the duty cycle of the load threads
+     */
+    private static final long LOAD_PERIOD_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+    /**
+     * Duration of each step before measuring, for the load and the CPU frequency to settle
+     */
+    private static final long WARMUP_MILLIS = 1000;
+
+    /**
+     * Interval between two readings of the CPU frequency during a step
+     */
+    private static final long FREQUENCY_INTERVAL_MILLIS = 100;
+
+    private final Cpu cpu;
+    private final CpuFrequency frequency;
+    private final OperatingSystemMXBean osBean;
+
+    /**
+     * Creates a new calibration.
+     *
+     * @param cpu       the initialized energy source measuring the power
+     * @param frequency the reader of the CPU frequency, or null if it cannot be read
+     * @param osBean    the OperatingSystemMXBean, used to measure the CPU load
+     */
+    PowerModelCalibrator(Cpu cpu, CpuFrequency frequency, OperatingSystemMXBean osBean) {
+        this.cpu = cpu;
+        this.frequency = frequency;
+        this.osBean = osBean;
+    }
+
+    /**
+     * Runs the calibration with the arguments of the command line.
+     *
+     * @param args the arguments, as key=value pairs
+     * @throws Exception if the source cannot be closed
+     */
+    public static void main(String[] args) throws Exception {
+        final Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            final int separator = arg.indexOf('=');
+            if (separator <= 0) {
+                logger.log(Level.SEVERE, "Invalid argument " + arg + ". Usage: PowerModelCalibrator id=<model id> [output=<file>] [degree=<n>] [steps=<n>] [seconds=<n>] [description=<text>]");
+                System.exit(1);
+            }
+            options.put(arg.substring(0, separator), arg.substring(separator + 1));
+        }
+        final String id = options.get("id");
+        if (id == null || id.isBlank()) {
+            logger.log(Level.SEVERE, "Missing model identifier. Usage: PowerModelCalibrator id=<model id> [output=<file>] [degree=<n>] [steps=<n>] [seconds=<n>] [description=<text>]");
+            System.exit(1);
+        }
+        final Path output = Path.of(options.getOrDefault("output", id + ".properties"));
+        final int degree = Integer.parseInt(options.getOrDefault("degree", "3"));
+        final int steps = Integer.parseInt(options.getOrDefault("steps", "10"));
+        final long seconds = Long.parseLong(options.getOrDefault("seconds", "5"));
+
+        final AgentProperties properties = new AgentProperties();
+        JoularJXLogging.updateLevel(properties.getLoggerLevel());
+        final EnergySourceProvider provider = selectCounterSource(properties);
+        logger.info("Calibrating power model " + id + " with the " + provider.getName() + " energy source");
+
+        final Cpu cpu = provider.create(properties);
+        cpu.initialize();
+        final CpuFrequency frequency = new CpuFrequency(FileSystems.getDefault());
+        final OperatingSystemMXBean osBean = ManagementFactory.getPlatformMXBean(OperatingSystemMXBean.class);
+        final PowerModelCalibrator calibrator = new PowerModelCalibrator(cpu, frequency.open() ? frequency : null,
+                osBean);
+
+        final List<double[]> points = calibrator.sweep(steps, TimeUnit.SECONDS.toMillis(seconds));
+        frequency.close();
+        cpu.close();
+
+        final PowerModel model = fit(id, options.get("description"), points, degree);
+        Files.writeString(output, format(model, provider.getName(), points));
+        logger.info("Power model " + id + " written to " + output.toAbsolutePath());
+    }
+
+    /**
+     * Selects the preferred available energy counter source, and exits if there is none.
+     */
+    private static EnergySourceProvider selectCounterSource(AgentProperties properties) {
+        final List<EnergySourceProvider> counters = new ArrayList<>();
+        for (EnergySourceProvider provider : ServiceLoader.load(EnergySourceProvider.class)) {
+            if (provider.getCapabilities().isCounter()) {
+                counters.add(provider);
+            }
+        }
+        final Optional<EnergySourceProvider> provider = CpuFactory.select(counters, properties,
+                Platform.of(System.getProperty("os.name")));
+        if (provider.isEmpty()) {
+            logger.log(Level.SEVERE, "The calibration requires an energy counter (e.g. RAPL), and none is available. Exiting...");
+            System.exit(1);
+        }
+        return provider.get();
+    }
+
+    /**
+     * Sweeps the synthetic load from 0 to 100%, and measures the CPU load, power and frequency of each step.
+     *
+     * @param steps         the number of steps after the idle step
+     * @param measureMillis the duration of the measurement of each step, in milliseconds
+     * @return the points of each step: the CPU load, the power in Watts and the CPU frequency in GHz (NaN if
+     *         unknown)
+     * @throws InterruptedException if the calibration is interrupted
+     */
+    List<double[]> sweep(int steps, long measureMillis) throws InterruptedException {
+        final List<double[]> points = new ArrayList<>(steps + 1);
+        for (int step = 0; step <= steps; step++) {
+            final double target = step / (double) steps;
+            final SyntheticLoad load = new SyntheticLoad(target, Runtime.getRuntime().availableProcessors());
+            try {
+                Thread.sleep(WARMUP_MILLIS);
+
+                final EnergySample sample = new EnergySample();
+                // Starts the measurements of the CPU load and of the energy
+                osBean.getSystemCpuLoad();
+                cpu.readEnergy(0, sample);
+
+                double frequencyTotal = 0;
+                int frequencyCount = 0;
+                final long end = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(measureMillis);
+                do {
+                    Thread.sleep(Math.min(FREQUENCY_INTERVAL_MILLIS, measureMillis));
+                    if (frequency != null) {
+                        frequencyTotal += frequency.read();
+                        frequencyCount++;
+                    }
+                } while (System.nanoTime() < end);
+
+                cpu.readEnergy(0, sample);
+                final double cpuLoad = osBean.getSystemCpuLoad();
+                final double averageFrequency = frequencyCount > 0 ? frequencyTotal / frequencyCount : Double.NaN;
+                if (!sample.isValid() || cpuLoad < 0) {
+                    logger.log(Level.WARNING, "Failed to measure the step at {0}% of load, skipping it",
+                            Math.round(target * 100));
+                    continue;
+                }
+                points.add(new double[] {cpuLoad, sample.getPower(), averageFrequency});
+                logger.log(Level.INFO, String.format("Load %3d%%: measured load %.3f, %.2f W, %.2f GHz",
+                        Math.round(target * 100), cpuLoad, sample.getPower(), averageFrequency));
+            } finally {
+                load.stop();
+            }
+        }
+        return points;
+    }
+
+    /**
+     * Fits a polynomial of the power in CPU load on the measured points, with the least squares method.
+     *
+     * @param id          the identifier of the model
+     * @param description the description of the hardware, or null
+     * @param points      the measured points: the CPU load and the power
+     * @param degree      the degree of the polynomial, lowered to fit the number of points
+     * @return the polynomial model
+     * @throws IllegalArgumentException if there is no point
+     */
+    static PowerModel fit(String id, String description, List<double[]> points, int degree) {
+        if (points.isEmpty()) {
+            throw new IllegalArgumentException("No measured point to fit the power model " + id);
+        }
+        final int size = Math.min(Math.max(degree, 0), points.size() - 1) + 1;
+
+        // Normal equations: (X^T X) c = X^T y, with X the powers of the loads
+        final double[][] matrix = new double[size][size + 1];
+        for (double[] point : points) {
+            final double[] powers = new double[2 * size - 1];
+            powers[0] = 1;
+            for (int i = 1; i < powers.length; i++) {
+                powers[i] = powers[i - 1] * point[0];
+            }
+            for (int row = 0; row < size; row++) {
+                for (int column = 0; column < size; column++) {
+                    matrix[row][column] += powers[row + column];
+                }
+                matrix[row][size] += powers[row] * point[1];
+            }
+        }
+        return PowerModel.polynomial(id, description, new double[][] {solve(matrix)});
+    }
+
+    /**
+     * Solves a linear system given as an augmented matrix, by Gaussian elimination with partial pivoting.
+     */
+    private static double[] solve(double[][] matrix) {
+        final int size = matrix.length;
+        for (int pivot = 0; pivot < size; pivot++) {
+            int best = pivot;
+            for (int row = pivot + 1; row < size; row++) {
+                if (Math.abs(matrix[row][pivot]) > Math.abs(matrix[best][pivot])) {
+                    best = row;
+                }
+            }
+            final double[] swap = matrix[pivot];
+            matrix[pivot] = matrix[best];
+            matrix[best] = swap;
+            if (matrix[pivot][pivot] == 0) {
+                throw new IllegalArgumentException("The measured points do not determine the power model, lower its degree");
+            }
+
+            for (int row = pivot + 1; row < size; row++) {
+                final double factor = matrix[row][pivot] / matrix[pivot][pivot];
+                for (int column = pivot; column <= size; column++) {
+                    matrix[row][column] -= factor * matrix[pivot][column];
+                }
+            }
+        }
+
+        final double[] solution = new double[size];
+        for (int row = size - 1; row >= 0; row--) {
+            double value = matrix[row][size];
+            for (int column = row + 1; column < size; column++) {
+                value -= matrix[row][column] * solution[column];
+            }
+            solution[row] = value / matrix[row][row];
+        }
+        return solution;
+    }
+
+    /**
+     * Formats the model file, with the measured points as comments.
+     */
+    private static String format(PowerModel model, String source, List<double[]> points) {
+        final StringBuilder builder = new StringBuilder();
+        builder.append("# Power model calibrated with the ").append(source).append(" energy source on ")
+                .append(LocalDateTime.now().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME)).append('\n');
+        builder.append("# Measured points (CPU load, power in Watts, CPU frequency in GHz):\n");
+        for (double[] point : points) {
+            builder.append(String.format("#   %.4f, %.3f, %.3f%n", point[0], point[1], point[2]));
+        }
+        builder.append(model.format());
+        return builder.toString();
+    }
+
+    /**
+     * Threads keeping each CPU busy for a share of every period, until stopped.
+     */
+    private static final class SyntheticLoad {
+
+        private final List<Thread> threads = new ArrayList<>();
+
+        private volatile boolean running = true;
+
+        // Written by the load threads, so their computation is not removed
+        private volatile double sink;
+
+        SyntheticLoad(double share, int threadCount) {
+            final long busyNanos = (long) (share * LOAD_PERIOD_NANOS);
+            for (int i = 0; i < threadCount && busyNanos > 0; i++) {
+                final Thread thread = new Thread(() -> run(busyNanos), "JoularJX Calibration Load " + i);
+                thread.setDaemon(true);
+                threads.add(thread);
+                thread.start();
+            }
+        }
+
+        private void run(long busyNanos) {
+            double value = 1;
+            while (running) {
+                final long start = System.nanoTime();
+                while (System.nanoTime() - start < busyNanos) {
+                    value = value * 1.0000001 + 1e-9;
+                }
+                sink = value;
+                final long idleNanos = LOAD_PERIOD_NANOS - (System.nanoTime() - start);
+                if (idleNanos > 0) {
+                    LockSupport.parkNanos(idleNanos);
+                }
+            }
+        }
+
+        /**
+         * Stops the load threads, and waits for them to end. If interrupted while waiting, the interrupt status
+         * is restored, and the threads end on their own.
+         */
+        void stop() {
+            running = false;
+            try {
+                for (Thread thread : threads) {
+                    thread.join();
+                }
+            } catch (InterruptedException exception) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
@@ -0,0 +1,277 @@
+/*
+ * Copyright (c) 2021-2026, Adel Noureddine, Université de Pau et des Pays de l'Adour.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the
+ * GNU General Public License v3.0 only (GPL-3.0-only)
+ * which accompanies this distribution, and is available at
+ * https://www.gnu.org/licenses/gpl-3.0.en.html
+ *
+ */
+
+package org.noureddine.joularjx.cpu;
+
+import org.noureddine.joularjx.utils.JoularJXLogging;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A battery of the Linux power_supply class, e.g. {@code /sys/class/power_supply/BAT0}, read from its
+ * {@code power_now} (microWatts), {@code current_now} (microAmperes) and {@code voltage_now} (microVolts), or
+ * {@code energy_now} (microWatt-hours) attributes, in this order of preference.
+ * <p>
+ * Fuel gauges only update their values every few seconds. Power readings are linearly interpolated between two
+ * reads. The remaining energy is a staircase: the consumed energy is interpolated at the rate of the last step
+ * (the energy of the step over the time since the previous one), for at most the duration of that step, and is
+ * caught up with the gauge at the next step. The energy is only measured while the battery is discharging.
+ * Once opened, the attribute files, including {@code status}, are kept open. This class is not thread-safe.
+ */
+final class PowerSupplyBattery {
+
+    private static final Logger logger = JoularJXLogging.getLogger();
+
+    /**
+     * Joules in a microWatt-hour
+     */
+    private static final double JOULES_PER_MICROWATT_HOUR = 0.0036;
+
+    /**
+     * The attributes read from a battery.
+     */
+    enum Reading {
+        POWER, CURRENT_VOLTAGE, ENERGY;
+
+        /**
+         * Returns the preferred reading available in a battery directory, or null if it has none.
+         */
+        static Reading of(Path directory) {
+            if (Files.exists(directory.resolve("power_now"))) {
+                return POWER;
+            } else if (Files.exists(directory.resolve("current_now")) && Files.exists(directory.resolve("voltage_now"))) {
+                return CURRENT_VOLTAGE;
+            } else if (Files.exists(directory.resolve("energy_now"))) {
+                return ENERGY;
+            }
+            return null;
+        }
+    }
+
+    private final String name;
+    private final Path directory;
+    private final Reading reading;
+
+    private SysfsReader reader;
+    private SysfsReader voltageReader;
+    private SysfsReader statusReader;
+
+    private boolean discharging;
+    private long lastNanoTime;
+    private double power;
+    private double consumedEnergy;
+
+    // Staircase of energy_now: the energy of the steps seen since opening, the time of the last two steps
+    private long lastEnergy;
+    private double measuredEnergy;
+    private long lastStepNanoTime = -1;
+    private long stepNanos;
+
+    /**
+     * Creates a new battery.
+     *
+     * @param name      the name of the battery directory, e.g. "BAT0"
+     * @param directory the battery directory
+     * @param reading   the attributes to read
+     */
+    PowerSupplyBattery(String name, Path directory, Reading reading) {
+        this.name = name;
+        this.directory = directory;
+        this.reading = reading;
+    }
+
+    /**
+     * Opens the attribute files of the battery and reads their first values.
+     *
+     * @param nanoTime the time of the read, a {@link System#nanoTime()} value
+     * @throws IOException if the attribute files cannot be read
+     */
+    void open(long nanoTime) throws IOException {
+        switch (reading) {
+            case POWER:
+                reader = new SysfsReader(directory.resolve("power_now"));
+                break;
+            case CURRENT_VOLTAGE:
+                reader = new SysfsReader(directory.resolve("current_now"));
+                voltageReader = new SysfsReader(directory.resolve("voltage_now"));
+                break;
+            default:
+                reader = new SysfsReader(directory.resolve("energy_now"));
+                lastEnergy = reader.readLong();
+                break;
+        }
+        final Path statusFile = directory.resolve("status");
+        if (Files.exists(statusFile)) {
+            statusReader = new SysfsReader(statusFile);
+        }
+        discharging = readDischarging();
+        lastNanoTime = nanoTime;
+        power = discharging ? readPower() : 0;
+    }
+
+    /**
+     * Reads the battery, and adds the energy consumed since the previous read.
+     *
+     * @param nanoTime the time of the read, a {@link System#nanoTime()} value
+     * @throws IOException if the attribute files cannot be read
+     */
+    void read(long nanoTime) throws IOException {
+        final boolean wasDischarging = discharging;
+        discharging = readDischarging();
+        if (wasDischarging && !discharging) {
+            logger.log(Level.WARNING, "Battery " + name + " is not discharging, its energy is not measured until it discharges again");
+        }
+
+        if (reading == Reading.ENERGY) {
+            readEnergy(nanoTime);
+        } else {
+            final double currentPower = discharging ? readPower() : 0;
+            // Linear interpolation of the power between the two reads
+            consumedEnergy += (power + currentPower) / 2 * (nanoTime - lastNanoTime) / 1_000_000_000.0;
+            power = currentPower;
+        }
+        lastNanoTime = nanoTime;
+    }
+
+    /**
+     * Follows the steps of energy_now, and interpolates the energy consumed since the last step.
+     */
+    private void readEnergy(long nanoTime) throws IOException {
+        final long energy = reader.readLong();
+        if (energy != lastEnergy) {
+            if (energy < lastEnergy && discharging && lastStepNanoTime >= 0) {
+                measuredEnergy += (lastEnergy - energy) * JOULES_PER_MICROWATT_HOUR;
+                stepNanos = nanoTime - lastStepNanoTime;
+                power = (lastEnergy - energy) * JOULES_PER_MICROWATT_HOUR / (stepNanos / 1_000_000_000.0);
+            } else {
+                // The first step after opening, or charging: the step was not (only) consumed since the
+                // previous one, so it only starts the interpolation
+                measuredEnergy = Math.max(measuredEnergy, consumedEnergy);
+                stepNanos = 0;
+                power = 0;
+            }
+            lastEnergy = energy;
+            lastStepNanoTime = nanoTime;
+        }
+        if (!discharging) {
+            power = 0;
+        }
+
+        final long interpolatedNanos = Math.min(nanoTime - lastStepNanoTime, stepNanos);
+        final double estimatedEnergy = measuredEnergy + power * interpolatedNanos / 1_000_000_000.0;
+        consumedEnergy = Math.max(consumedEnergy, estimatedEnergy);
+    }
+
+    /**
+     * Reads the power of the battery.
+     *
+     * @return the power, in Watts, positive whatever the sign convention of the driver
+     */
+    private double readPower() throws IOException {
+        if (reading == Reading.POWER) {
+            return Math.abs(reader.readLong()) / 1_000_000.0;
+        } else if (reading == Reading.CURRENT_VOLTAGE) {
+            return Math.abs(reader.readLong()) / 1_000_000.0 * (voltageReader.readLong() / 1_000_000.0);
+        }
+        return power;
+    }
+
+    /**
+     * Reads the status of the battery.
+     *
+     * @return true if the battery is discharging, or if it has no status
+     */
+    private boolean readDischarging() {
+        if (statusReader == null) {
+            return true;
+        }
+        try {
+            return statusReader.readEquals("Discharging");
+        } catch (IOException exception) {
+            logger.throwing(getClass().getName(), "readDischarging", exception);
+            return true;
+        }
+    }
+
+    /**
+     * Returns the energy consumed since the battery was opened, up to the last read.
+     *
+     * @return the consumed energy, in Joules
+     */
+    double getConsumedEnergy() {
+        return consumedEnergy;
+    }
+
+    /**
+     * Returns the power at the last read: the last power reading, or the rate of the last energy step.
+     *
+     * @return the power, in Watts, 0 if the battery is not discharging
+     */
+    double getPower() {
+        return power;
+    }
+
+    /**
+     * Indicates whether the battery was discharging at the last read.
+     *
+     * @return true if the status of the battery was "Discharging"
+     */
+    boolean isDischarging() {
+        return discharging;
+    }
+
+    /**
+     * Indicates whether the attribute files are open.
+     *
+     * @return true between {@link #open(long)} and {@link #close()}
+     */
+    boolean isOpen() {
+        return reader != null;
+    }
+
+    /**
+     * Closes the attribute files.
+     *
+     * @throws IOException if a file cannot be closed
+     */
+    void close() throws IOException {
+        if (statusReader != null) {
+            SysfsReader openReader = statusReader;
+            statusReader = null;
+            openReader.close();
+        }
+        if (voltageReader != null) {
+            SysfsReader openReader = voltageReader;
+            voltageReader = null;
+            openReader.close();
+        }
+        if (reader != null) {
+            SysfsReader openReader = reader;
+            reader = null;
+            openReader.close();
+        }
+    }
+
+    String getName() {
+        return name;
+    }
+
+    Path getDirectory() {
+        return directory;
+    }
+
+    Reading getReading() {
+        return reading;
+    }
+}
@@ -0,0 +1,289 @@
+/*
+ * Copyright (c) 2021-2026, Adel Noureddine, Université de Pau et des Pays de l'Adour.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the
+ * GNU General Public License v3.0 only (GPL-3.0-only)
+ * which accompanies this distribution, and is available at
+ * https://www.gnu.org/licenses/gpl-3.0.en.html
+ *
+ */
+
+package org.noureddine.joularjx.cpu;
+
+import com.google.auto.service.AutoService;
+import org.noureddine.joularjx.cpu.EnergySourceCapabilities.Platform;
+import org.noureddine.joularjx.cpu.EnergySourceCapabilities.ReadCost;
+import org.noureddine.joularjx.utils.AgentProperties;
+import org.noureddine.joularjx.utils.JoularJXLogging;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * {@link Cpu} implementation using the batteries of the Linux power_supply class, for battery-powered devices
+ * without RAPL. The system batteries are discovered in the power_supply class directory (batteries of
+ * peripherals are ignored), and read with a {@link PowerSupplyBattery}: their power, current and voltage, or
+ * remaining energy, interpolated between the updates of the fuel gauge. The energy of the whole device is
+ * measured while it runs on battery, as the sum of the energy of all its batteries.
+ */
+public class PowerSupplyLinux implements Cpu {
+
+    private static final Logger logger = JoularJXLogging.getLogger();
+
+    static final String POWER_SUPPLY_ROOT = "/sys/class/power_supply";
+
+    /**
+     * The readable batteries, in the order of their directory names.
+     */
+    private final List<PowerSupplyBattery> batteries = new ArrayList<>();
+
+    /**
+     * Filesystem where the power_supply files are located.
+     */
+    private final FileSystem fileSystem;
+
+    /**
+     * Energy up to the previous {@link #getConsumedEnergy(double, double)}, in Joules
+     */
+    private double totalMark;
+
+    /**
+     * Create a new energy measurement via power_supply. The files will be read from the default filesystem.
+     */
+    public PowerSupplyLinux() {
+        this(FileSystems.getDefault());
+    }
+
+    /**
+     * Create a new energy measurement via power_supply. The files will be read from the passed filesystem.
+     *
+     * @param fileSystem The filesystem to use for reading the power_supply files
+     */
+    PowerSupplyLinux(final FileSystem fileSystem) {
+        this.fileSystem = fileSystem;
+    }
+
+    /**
+     * Discover the batteries of the system, and open them.
+     */
+    @Override
+    public void initialize() {
+        final long now = System.nanoTime();
+        for (final PowerSupplyBattery battery : discoverBatteries(fileSystem.getPath(POWER_SUPPLY_ROOT))) {
+            try {
+                battery.open(now);
+                batteries.add(battery);
+                logger.log(Level.FINE, "Found battery {0} ({1})", new Object[] {battery.getDirectory(),
+                        battery.getReading()});
+                if (!battery.isDischarging()) {
+                    // Usually plugged in: no energy is measured, which would otherwise look like an idle system
+                    logger.log(Level.WARNING, "Battery " + battery.getName() + " is not discharging, its energy is not measured until it discharges");
+                }
+            } catch (IOException exception) {
+                logger.log(Level.WARNING, "Failed to get battery readings from " + battery.getDirectory() + " directory. Continuing without it.");
+            }
+        }
+
+        if (batteries.isEmpty()) {
+            logger.log(Level.SEVERE, "Found no battery to read the energy measurement from. Exit ...");
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Lists the system batteries having a power, current and voltage, or energy attribute.
+     *
+     * @param root the power_supply class directory
+     * @return the batteries, sorted by directory name
+     */
+    static List<PowerSupplyBattery> discoverBatteries(final Path root) {
+        final List<PowerSupplyBattery> result = new ArrayList<>();
+        if (!Files.isDirectory(root)) {
+            return result;
+        }
+
+        final Map<String, Path> directories = new TreeMap<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(root, Files::isDirectory)) {
+            for (final Path path : stream) {
+                directories.put(path.getFileName().toString(), path);
+            }
+        } catch (IOException exception) {
+            logger.throwing(PowerSupplyLinux.class.getName(), "discoverBatteries", exception);
+        }
+
+        for (final Map.Entry<String, Path> entry : directories.entrySet()) {
+            final Path directory = entry.getValue();
+            // Batteries of peripherals (e.g. a mouse) have a Device scope
+            if (!"Battery".equals(readAttribute(directory.resolve("type")))
+                    || "Device".equals(readAttribute(directory.resolve("scope")))) {
+                continue;
+            }
+            final PowerSupplyBattery.Reading reading = PowerSupplyBattery.Reading.of(directory);
+            if (reading != null) {
+                result.add(new PowerSupplyBattery(entry.getKey(), directory, reading));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Reads a text attribute, or returns an empty string if it cannot be read.
+     */
+    private static String readAttribute(final Path file) {
+        if (!Files.exists(file)) {
+            return "";
+        }
+        try {
+            return Files.readString(file).trim();
+        } catch (IOException exception) {
+            logger.throwing(PowerSupplyLinux.class.getName(), "readAttribute", exception);
+            return "";
+        }
+    }
+
+    /**
+     * Get the current power of the batteries
+     *
+     * @return the power in Watts, 0 when not running on battery
+     */
+    @Override
+    public synchronized double getCurrentPower(final double cpuLoad) {
+        readBatteries();
+        double power = 0;
+        for (final PowerSupplyBattery battery : batteries) {
+            power += battery.getPower();
+        }
+        return power;
+    }
+
+    /**
+     * Returns the energy consumed from the batteries since the previous call, interpolated between the updates
+     * of their fuel gauges over the actual time between the reads.
+     *
+     * @param cpuLoad        unused
+     * @param elapsedSeconds unused
+     * @return the consumed energy, in Joules
+     */
+    @Override
+    public synchronized double getConsumedEnergy(final double cpuLoad, final double elapsedSeconds) {
+        readBatteries();
+        double consumed = 0;
+        for (final PowerSupplyBattery battery : batteries) {
+            consumed += battery.getConsumedEnergy();
+        }
+        final double delta = consumed - totalMark;
+        totalMark = consumed;
+        return delta;
+    }
+
+    /**
+     * Reads all the open batteries.
+     */
+    private void readBatteries() {
+        final long now = System.nanoTime();
+        for (final PowerSupplyBattery battery : batteries) {
+            if (!battery.isOpen()) {
+                continue;
+            }
+            try {
+                battery.read(now);
+            } catch (IOException exception) {
+                logger.throwing(getClass().getName(), "readBatteries", exception);
+            }
+        }
+    }
+
+    /**
+     * The maximum power of the batteries is not exposed.
+     *
+     * @return 0
+     */
+    @Override
+    public double getMaxPower(final double cpuLoad) {
+        return 0;
+    }
+
+    /**
+     * Returns the current power, and starts the measurement of {@link #getConsumedEnergy(double, double)}
+     * from now.
+     *
+     * @return the power in Watts
+     */
+    @Override
+    public synchronized double getInitialPower() {
+        getConsumedEnergy(0, 0);
+        double power = 0;
+        for (final PowerSupplyBattery battery : batteries) {
+            power += battery.getPower();
+        }
+        return power;
+    }
+
+    /**
+     * Returns the energy consumed from each battery since initialization (e.g. "BAT0").
+     *
+     * @return the consumed energy of each battery, in Joules
+     */
+    @Override
+    public synchronized Map<String, Double> getDomainsConsumedEnergy() {
+        readBatteries();
+        final Map<String, Double> result = new LinkedHashMap<>();
+        for (final PowerSupplyBattery battery : batteries) {
+            result.put(battery.getName(), battery.getConsumedEnergy());
+        }
+        return result;
+    }
+
+    @Override
+    public synchronized void close() {
+        for (final PowerSupplyBattery battery : batteries) {
+            try {
+                battery.close();
+            } catch (IOException exception) {
+                logger.throwing(getClass().getName(), "close", exception);
+            }
+        }
+    }
+
+    /**
+     * {@link EnergySourceProvider} of the batteries of the power_supply sysfs interface. Fuel gauges are updated
+     * every few seconds, so the other Linux sources are preferred when available.
+     */
+    @AutoService(EnergySourceProvider.class)
+    public static final class Provider implements EnergySourceProvider {
+
+        private static final EnergySourceCapabilities CAPABILITIES =
+                new EnergySourceCapabilities(0, Platform.LINUX, false, 10_000_000, false, ReadCost.MEDIUM);
+
+        @Override
+        public String getName() {
+            return "power-supply";
+        }
+
+        @Override
+        public EnergySourceCapabilities getCapabilities() {
+            return CAPABILITIES;
+        }
+
+        @Override
+        public boolean isAvailable(final AgentProperties properties) {
+            return !discoverBatteries(Path.of(POWER_SUPPLY_ROOT)).isEmpty();
+        }
+
+        @Override
+        public Cpu create(final AgentProperties properties) {
+            return new PowerSupplyLinux();
+        }
+    }
+}
@@ -0,0 +1,165 @@
+/*
+ * Copyright (c) 2021-2026, Adel Noureddine, Université de Pau et des Pays de l'Adour.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the
+ * GNU General Public License v3.0 only (GPL-3.0-only)
+ * which accompanies this distribution, and is available at
+ * https://www.gnu.org/licenses/gpl-3.0.en.html
+ *
+ */
+
+package org.noureddine.joularjx.cpu;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * A powercap zone (or subzone), such as {@code intel-rapl:0} or {@code intel-rapl:0:2}, classified by the content
+ * of its {@code name} file. Once opened, the zone keeps its {@code energy_uj} counter open and accumulates its
+ * values in an {@link EnergyCounter}, handling the wraparound of the counter with the zone's own
+ * {@code max_energy_range_uj}. This class is not thread-safe.
+ */
+final class PowercapZone {
+
+    /**
+     * The RAPL domain measured by a zone.
+     */
+    enum Domain {
+        PACKAGE, CORE, UNCORE, DRAM, PSYS, OTHER;
+
+        /**
+         * Returns the domain of a zone from the content of its {@code name} file (e.g. "package-0", "dram").
+         */
+        static Domain of(String name) {
+            if (name.startsWith("package")) {
+                return PACKAGE;
+            } else if (name.startsWith("dram")) {
+                return DRAM;
+            } else if (name.startsWith("uncore")) {
+                return UNCORE;
+            } else if (name.startsWith("core")) {
+                return CORE;
+            } else if (name.startsWith("psys")) {
+                return PSYS;
+            }
+            return OTHER;
+        }
+    }
+
+    private final String id;
+    private final Domain domain;
+    private final String label;
+    private final Path directory;
+
+    private SysfsReader reader;
+    private EnergyCounter counter;
+
+    /**
+     * Creates a new zone.
+     *
+     * @param id        the name of the zone directory, e.g. "intel-rapl:0:2"
+     * @param name      the content of the zone's name file, e.g. "dram"
+     * @param socket    the socket (package) the zone belongs to, or -1 for platform-wide zones
+     * @param directory the zone directory
+     */
+    PowercapZone(String id, String name, int socket, Path directory) {
+        this.id = id;
+        this.domain = Domain.of(name);
+        this.label = label(name, domain, socket);
+        this.directory = directory;
+    }
+
+    /**
+     * Builds a label unique among the zones of the system: "package-1", "dram-1", "core-0", "psys"...
+     */
+    private static String label(String name, Domain domain, int socket) {
+        if (domain == Domain.PACKAGE || domain == Domain.PSYS || socket < 0 || name.matches(".*-\\d+")) {
+            return name;
+        }
+        return name + "-" + socket;
+    }
+
+    /**
+     * Opens the energy counter of the zone, reads its maximum value and its first value.
+     *
+     * @throws IOException if the energy counter or its maximum value cannot be read
+     */
+    void open() throws IOException {
+        final long maxEnergyRange;
+        try (SysfsReader maxReader = new SysfsReader(getMaxEnergyRangeFile())) {
+            maxEnergyRange = maxReader.readLong();
+        }
+        reader = new SysfsReader(getEnergyFile());
+        counter = new EnergyCounter(maxEnergyRange);
+        counter.update(reader.readLong());
+    }
+
+    /**
+     * Reads the energy counter, and adds the energy consumed since the previous read to the zone's counter.
+     *
+     * @throws IOException if the counter cannot be read
+     */
+    void read() throws IOException {
+        counter.update(reader.readLong());
+    }
+
+    /**
+     * Returns the accumulated energy counter of the zone, up to the last read.
+     *
+     * @return the counter, in microJoules
+     */
+    EnergyCounter getCounter() {
+        return counter;
+    }
+
+    /**
+     * Returns the energy consumed by the zone since it was opened, up to the last read.
+     *
+     * @return the consumed energy, in Joules
+     */
+    double getConsumedEnergy() {
+        return counter.getConsumed() / 1000000.0;
+    }
+
+    /**
+     * Indicates whether the energy counter is open.
+     *
+     * @return true between {@link #open()} and {@link #close()}
+     */
+    boolean isOpen() {
+        return reader != null;
+    }
+
+    /**
+     * Closes the energy counter.
+     *
+     * @throws IOException if the counter file cannot be closed
+     */
+    void close() throws IOException {
+        if (reader != null) {
+            SysfsReader openReader = reader;
+            reader = null;
+            openReader.close();
+        }
+    }
+
+    Path getEnergyFile() {
+        return directory.resolve("energy_uj");
+    }
+
+    Path getMaxEnergyRangeFile() {
+        return directory.resolve("max_energy_range_uj");
+    }
+
+    String getId() {
+        return id;
+    }
+
+    Domain getDomain() {
+        return domain;
+    }
+
+    String getLabel() {
+        return label;
+    }
+}
@@ -10,6 +10,10 @@
 
 package org.noureddine.joularjx.cpu;
 
+import com.google.auto.service.AutoService;
+import org.noureddine.joularjx.cpu.EnergySourceCapabilities.Platform;
+import org.noureddine.joularjx.cpu.EnergySourceCapabilities.ReadCost;
+import org.noureddine.joularjx.utils.AgentProperties;
 import org.noureddine.joularjx.utils.JoularJXLogging;
 
 import java.io.BufferedReader;
@@ -159,4 +163,34 @@ public class PowermetricsMacOS implements Cpu {
     public double getMaxPower(final double cpuLoad) {
         return 0;
     }
+
+    /**
+     * {@link EnergySourceProvider} of the powermetrics process on macOS.
+     */
+    @AutoService(EnergySourceProvider.class)
+    public static final class Provider implements EnergySourceProvider {
+
+        private static final EnergySourceCapabilities CAPABILITIES =
+                new EnergySourceCapabilities(0, Platform.MACOS, false, 1_000_000, false, ReadCost.HIGH);
+
+        @Override
+        public String getName() {
+            return "powermetrics";
+        }
+
+        @Override
+        public EnergySourceCapabilities getCapabilities() {
+            return CAPABILITIES;
+        }
+
+        @Override
+        public boolean isAvailable(final AgentProperties properties) {
+            return true;
+        }
+
+        @Override
+        public Cpu create(final AgentProperties properties) {
+            return new PowermetricsMacOS();
+        }
+    }
 }
@@ -0,0 +1,166 @@
+/*
+ * Copyright (c) 2021-2026, Adel Noureddine, Université de Pau et des Pays de l'Adour.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the
+ * GNU General Public License v3.0 only (GPL-3.0-only)
+ * which accompanies this distribution, and is available at
+ * https://www.gnu.org/licenses/gpl-3.0.en.html
+ *
+ */
+
+package org.noureddine.joularjx.cpu;
+
+import org.noureddine.joularjx.Agent;
+import org.noureddine.joularjx.utils.JoularJXLogging;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.function.LongSupplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Reads the power printed by an external process (Joular Core, power monitor on Windows), one value in watts per
+ * line, on a dedicated daemon thread.
+ * <p>
+ * The output is read through a single {@link BufferedReader} for the whole life of the process, so no buffered
+ * line is lost, and each value is published in volatile fields: reading the latest power never blocks the
+ * monitoring loop while the process is computing its next value. The energy is also accumulated, each value
+ * being the average power since the previous line, so the energy of a monitoring window does not depend on the
+ * single value printed last. The first line is discarded, as the external tools print it before a full
+ * measurement interval.
+ */
+final class ProcessPowerReader implements AutoCloseable {
+
+    private static final Logger logger = JoularJXLogging.getLogger();
+
+    private final BufferedReader reader;
+    private final String description;
+    private final LongSupplier clock;
+    private final Thread thread;
+
+    private volatile double latestPower;
+    private volatile boolean closed;
+
+    // Guarded by this: energy up to the last line, time of the last line, and energy returned so far
+    private double totalEnergy;
+    private long lastTime;
+    private double reportedEnergy;
+
+    /**
+     * Creates a new reader, and starts reading the given stream.
+     *
+     * @param stream      the output of the external process
+     * @param description the name of the external process, for log messages
+     */
+    ProcessPowerReader(final InputStream stream, final String description) {
+        this(stream, description, System::nanoTime);
+    }
+
+    /**
+     * Creates a new reader timing the values with the given clock, and starts reading the given stream.
+     *
+     * @param stream      the output of the external process
+     * @param description the name of the external process, for log messages
+     * @param clock       the time of the readings, in nanoseconds, like {@link System#nanoTime()}
+     */
+    ProcessPowerReader(final InputStream stream, final String description, final LongSupplier clock) {
+        this.reader = new BufferedReader(new InputStreamReader(stream, StandardCharsets.UTF_8));
+        this.description = description;
+        this.clock = clock;
+        this.thread = new Thread(this::readLines, Agent.POWER_READER_THREAD_NAME);
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    /**
+     * Reads the lines of the stream until it ends, publishing each value.
+     */
+    private void readLines() {
+        try {
+            // The first result is not useful
+            if (reader.readLine() != null) {
+                synchronized (this) {
+                    lastTime = clock.getAsLong();
+                }
+            }
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+
+                final double power;
+                try {
+                    power = Double.parseDouble(line.trim());
+                } catch (NumberFormatException exception) {
+                    logger.throwing(getClass().getName(), "readLines", exception);
+                    continue;
+                }
+                accumulate(power, power);
+            }
+        } catch (IOException exception) {
+            if (!closed) {
+                logger.throwing(getClass().getName(), "readLines", exception);
+            }
+        }
+
+        if (!closed) {
+            logger.log(Level.WARNING, "{0} stopped printing power readings", description);
+        }
+        // No more power: the energy since the last line is estimated from its value
+        accumulate(latestPower, 0);
+    }
+
+    /**
+     * Adds the energy since the previous line, and publishes the next power.
+     *
+     * @param power       the average power since the previous line, in watts
+     * @param latestPower the power returned from now on, in watts
+     */
+    private synchronized void accumulate(final double power, final double latestPower) {
+        final long now = clock.getAsLong();
+        totalEnergy += power * ((now - lastTime) / 1_000_000_000.0);
+        lastTime = now;
+        this.latestPower = latestPower;
+    }
+
+    /**
+     * Returns the last power read, without waiting for the next line.
+     *
+     * @return the latest power, in watts, or 0 until a value has been read
+     */
+    double getLatestPower() {
+        return latestPower;
+    }
+
+    /**
+     * Returns the energy consumed since the previous call, accumulated from the values read. The energy since
+     * the last value is estimated from it, and corrected once the next value is read. No call returns a negative
+     * energy, and the calls add up to the energy of all the values.
+     *
+     * @return the consumed energy, in joules, 0 until a value has been read
+     */
+    synchronized double getConsumedEnergy() {
+        final double energy = totalEnergy + latestPower * ((clock.getAsLong() - lastTime) / 1_000_000_000.0);
+        if (energy <= reportedEnergy) {
+            return 0;
+        }
+        final double consumed = energy - reportedEnergy;
+        reportedEnergy = energy;
+        return consumed;
+    }
+
+    /**
+     * Stops logging the end of the stream, which is expected once the process is destroyed.
+     * The reading thread ends when the process output is closed.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        thread.interrupt();
+    }
+}
@@ -11,53 +11,72 @@
 
 package org.noureddine.joularjx.cpu;
 
+import com.google.auto.service.AutoService;
+import org.noureddine.joularjx.cpu.EnergySourceCapabilities.Platform;
+import org.noureddine.joularjx.cpu.EnergySourceCapabilities.ReadCost;
+import org.noureddine.joularjx.utils.AgentProperties;
 import org.noureddine.joularjx.utils.JoularJXLogging;
 
 import java.io.IOException;
+import java.nio.file.DirectoryStream;
 import java.nio.file.FileSystem;
 import java.nio.file.FileSystems;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 /**
  * {@link Cpu} implementation using Linux RAPL (powercap) counters.
+ * The zones are discovered by walking the powercap class directory, and classified by their {@code name} file
+ * (package-N, dram, core, uncore, psys). The total energy is read from the psys zones when available, or from
+ * all the package and dram zones otherwise, so every socket is measured. The energy of each zone is also
+ * accumulated separately, with its own wraparound range, and reported per domain.
+ * The counter files are kept open and read with a {@link SysfsReader}, so reading them does not allocate.
  */
 public class RaplLinux implements Cpu {
 
     private static final Logger logger = JoularJXLogging.getLogger();
 
-    static final String RAPL_PSYS = "/sys/class/powercap/intel-rapl/intel-rapl:1/energy_uj";
+    static final String POWERCAP_ROOT = "/sys/class/powercap";
 
-    static final String RAPL_PKG = "/sys/class/powercap/intel-rapl/intel-rapl:0/energy_uj";
-
-    static final String RAPL_DRAM = "/sys/class/powercap/intel-rapl/intel-rapl:0/intel-rapl:0:2/energy_uj";
-
-    static final String RAPL_PSYS_MAX = "/sys/class/powercap/intel-rapl/intel-rapl:1/max_energy_range_uj";
-
-    static final String RAPL_PKG_MAX = "/sys/class/powercap/intel-rapl/intel-rapl:0/max_energy_range_uj";
+    /**
+     * Name of a zone directory: a control type followed by the zone indexes, e.g. "intel-rapl:0:2".
+     */
+    private static final Pattern ZONE_PATTERN = Pattern.compile("(.+?):(\\d+)(?::\\d+)*");
 
-    static final String RAPL_DRAM_MAX = "/sys/class/powercap/intel-rapl/intel-rapl:0/intel-rapl:0:2/max_energy_range_uj";
+    /**
+     * Content of the name file of a package zone, e.g. "package-1".
+     */
+    private static final Pattern PACKAGE_NAME_PATTERN = Pattern.compile("package-(\\d+)");
 
     /**
-     * RAPL files existing on the current system. All files in this list will be used for reading the
-     * energy values.
+     * All the readable zones, in the order of their directory names.
      */
-    private final List<Path> raplFilesToRead = new ArrayList<>(3);
+    private final List<PowercapZone> zones = new ArrayList<>();
 
     /**
-     * RAPL max values files existing on the current system. All files in this list will be used for reading the energy values.
+     * Zones whose energy is summed as the total energy: psys, or packages and drams.
      */
-    private final List<Path> maxRaplFilesToRead = new ArrayList<>(3);
+    private final List<PowercapZone> totalZones = new ArrayList<>();
 
     /**
      * Filesystem where the RAPL files are located.
      */
     private final FileSystem fileSystem;
 
+    /**
+     * Energy consumed by each zone up to the previous {@link #readEnergy(double, EnergySample)}, in microJoules
+     */
+    private long[] domainMarks = new long[0];
+
     /**
      * Create a new energy measurement via RAPL. The files will be read from the default filesystem.
      */
@@ -75,121 +94,354 @@ public class RaplLinux implements Cpu {
     }
 
     /**
-     * Check which RAPL files are available on the system to read the energy values from.
+     * Discover the powercap zones available on the system, and open the ones to read the energy values from.
      */
     @Override
     public void initialize() {
-        final Path psysFile = fileSystem.getPath(RAPL_PSYS);
-        final Path psysMaxFile = fileSystem.getPath(RAPL_PSYS_MAX);
-        if (Files.exists(psysFile)) {
-            // psys exists, so use this for energy readings
-            if (Files.isReadable(psysFile)) {
-                raplFilesToRead.add(psysFile);
-                if (Files.isReadable(psysMaxFile)) {
-                    maxRaplFilesToRead.add(psysMaxFile);
-                } else {
-                    logger.log(Level.SEVERE, "Failed to get read" + psysMaxFile + " file. Exiting... Did you run JoularJX with elevated privileges (sudo)?");
+        final List<PowercapZone> discoveredZones = discoverZones(fileSystem);
+        final boolean psysSupported = isPsysSupported(discoveredZones);
+
+        for (final PowercapZone zone : discoveredZones) {
+            final boolean total = isTotalZone(zone, psysSupported);
+            try {
+                zone.open();
+            } catch (IOException exception) {
+                if (total && zone.getDomain() != PowercapZone.Domain.DRAM) {
+                    logger.log(Level.SEVERE, "Failed to get RAPL energy readings from " + zone.getEnergyFile() + " file. Exiting... Did you run JoularJX with elevated privileges (sudo)?");
+                    logger.throwing(getClass().getName(), "initialize", exception);
                     System.exit(1);
                 }
-            } else {
-                logger.log(Level.SEVERE, "Failed to get RAPL energy readings from" + psysFile + " file. Exiting... Did you run JoularJX with elevated privileges (sudo)?");
-                System.exit(1);
+                logger.log(Level.WARNING, "Failed to get RAPL energy readings from " + zone.getEnergyFile() + " file. Continuing without it.");
+                continue;
             }
-        } else {
-            // No psys supported, then check for pkg and dram
-            final Path pkgFile = fileSystem.getPath(RAPL_PKG);
-            final Path pkgMaxFile = fileSystem.getPath(RAPL_PKG_MAX);
-            if (Files.exists(pkgFile)) {
-                if (Files.isReadable(pkgFile)) {
-                    raplFilesToRead.add(pkgFile);
-                    if (Files.isReadable(pkgMaxFile)) {
-                        maxRaplFilesToRead.add(pkgMaxFile);
-                    } else {
-                        logger.log(Level.SEVERE, "Failed to get read" + pkgMaxFile + " file. Exiting... Did you run JoularJX with elevated privileges (sudo)?");
-                        System.exit(1);
-                    }
-                } else {
-                    logger.log(Level.SEVERE, "Failed to get RAPL energy readings from" + pkgFile + " file. Exiting... Did you run JoularJX with elevated privileges (sudo)?");
-                    System.exit(1);
-                }
 
-                final Path dramFile = fileSystem.getPath(RAPL_DRAM);
-                final Path dramMaxFile = fileSystem.getPath(RAPL_DRAM_MAX);
-                if (Files.exists(dramFile)) {
-                    if (Files.isReadable(dramFile)) {
-                        raplFilesToRead.add(dramFile);
-                        if (Files.isReadable(dramMaxFile)) {
-                            maxRaplFilesToRead.add(dramMaxFile);
-                        } else {
-                            logger.log(Level.SEVERE, "Failed to get read" + dramMaxFile + " file. Exiting... Did you run JoularJX with elevated privileges (sudo)?");
-                            System.exit(1);
-                        }
-                    } else {
-                        logger.log(Level.WARNING, "Failed to get RAPL energy readings from" + dramFile + " file. Continuing without it.");
-                    }
-                }
+            zones.add(zone);
+            if (total) {
+                totalZones.add(zone);
             }
         }
 
-        if (raplFilesToRead.isEmpty()) {
+        if (totalZones.isEmpty()) {
             logger.log(Level.SEVERE, "Found no RAPL files to read the energy measurement from. Exit ...");
             System.exit(1);
         }
+
+        for (final PowercapZone zone : zones) {
+            logger.log(Level.FINE, "Found RAPL zone {0} ({1}){2}", new Object[] {zone.getId(), zone.getLabel(),
+                    totalZones.contains(zone) ? ", used for the total energy" : ""});
+        }
     }
 
     /**
-     * Get energy readings from RAPL through powercap
-     * Calculates the best energy reading as supported by CPU (psys, or pkg+dram, or pkg)
-     * @return Energy readings from RAPL
+     * Indicates whether the powercap zones can be used: at least one zone is used for the total energy, and the
+     * energy counters of all of them, except the DRAM ones which are optional, are readable. Logs a warning if the
+     * zones exist but cannot be read, so another energy source is used instead.
+     *
+     * @param fileSystem the filesystem where the powercap files are located
+     * @return true if {@link #initialize()} can read the total energy
      */
-    @Override
-    public double getCurrentPower(final double cpuLoad) {
-        double energyData = 0.0;
+    static boolean isSupported(final FileSystem fileSystem) {
+        final List<PowercapZone> discoveredZones = discoverZones(fileSystem);
+        final boolean psysSupported = isPsysSupported(discoveredZones);
+
+        boolean found = false;
+        for (final PowercapZone zone : discoveredZones) {
+            if (!isTotalZone(zone, psysSupported)) {
+                continue;
+            }
+            if (zone.getDomain() != PowercapZone.Domain.DRAM && !Files.isReadable(zone.getEnergyFile())) {
+                logger.log(Level.WARNING, "Cannot read " + zone.getEnergyFile() + " (run JoularJX with elevated privileges). Using another energy source instead.");
+                return false;
+            }
+            found = true;
+        }
+        return found;
+    }
+
+    /**
+     * Indicates whether one of the zones is a psys zone, measuring the whole platform.
+     */
+    private static boolean isPsysSupported(final List<PowercapZone> zones) {
+        return zones.stream().anyMatch(zone -> zone.getDomain() == PowercapZone.Domain.PSYS);
+    }
 
-        for (final Path raplFile : raplFilesToRead) {
+    /**
+     * Indicates whether the energy of a zone is summed as the total energy: psys if supported, packages and drams
+     * otherwise.
+     */
+    private static boolean isTotalZone(final PowercapZone zone, final boolean psysSupported) {
+        return psysSupported
+                ? zone.getDomain() == PowercapZone.Domain.PSYS
+                : zone.getDomain() == PowercapZone.Domain.PACKAGE || zone.getDomain() == PowercapZone.Domain.DRAM;
+    }
+
+    /**
+     * Walks the powercap class directory to find the zones and subzones, through the control type directories
+     * (e.g. intel-rapl) as well as the zone links at the root. Zones are identified by their directory name, so
+     * each one is only returned once. The MMIO interface, duplicating the package zones, is ignored.
+     *
+     * @param fileSystem the filesystem where the powercap files are located
+     * @return the zones having a name and an energy counter, sorted by directory name
+     */
+    private static List<PowercapZone> discoverZones(final FileSystem fileSystem) {
+        final Map<String, Path> zoneDirectories = new TreeMap<>();
+        final Path root = fileSystem.getPath(POWERCAP_ROOT);
+        for (final Path entry : listDirectories(root)) {
+            final String entryName = entry.getFileName().toString();
+            if (entryName.contains("-mmio")) {
+                continue;
+            }
+            if (ZONE_PATTERN.matcher(entryName).matches()) {
+                collectZones(entry, zoneDirectories);
+            } else {
+                // Control type directory
+                for (final Path child : listDirectories(entry)) {
+                    if (ZONE_PATTERN.matcher(child.getFileName().toString()).matches()) {
+                        collectZones(child, zoneDirectories);
+                    }
+                }
+            }
+        }
+
+        // Names are read first, as subzones take the socket of their parent package
+        final Map<String, String> zoneNames = new LinkedHashMap<>();
+        for (final Map.Entry<String, Path> entry : zoneDirectories.entrySet()) {
+            final Path directory = entry.getValue();
+            if (!Files.exists(directory.resolve("energy_uj"))) {
+                continue;
+            }
             try {
-                energyData += Double.parseDouble(Files.readString(raplFile));
+                zoneNames.put(entry.getKey(), Files.readString(directory.resolve("name")).trim());
             } catch (IOException exception) {
-                logger.throwing(getClass().getName(), "getCurrentPower", exception);
+                logger.log(Level.FINE, "Ignoring RAPL zone " + directory + " without name");
             }
         }
 
-        // Divide by 1 million to convert microJoules to Joules
-        return energyData / 1000000;
+        final List<PowercapZone> result = new ArrayList<>(zoneNames.size());
+        for (final Map.Entry<String, String> entry : zoneNames.entrySet()) {
+            final String id = entry.getKey();
+            result.add(new PowercapZone(id, entry.getValue(), getSocket(id, zoneNames), zoneDirectories.get(id)));
+        }
+        return result;
     }
 
     /**
-     * Get max energy value of RAPL interface through powercap
-     * @return Maximum energy value of RAPL interface
+     * Adds the given zone directory and its subzone directories to the found zones, unless already found.
+     */
+    private static void collectZones(final Path zoneDirectory, final Map<String, Path> zoneDirectories) {
+        final String zoneId = zoneDirectory.getFileName().toString();
+        if (zoneDirectories.putIfAbsent(zoneId, zoneDirectory) != null) {
+            return;
+        }
+        for (final Path child : listDirectories(zoneDirectory)) {
+            // Only zone directories: the "device" and "subsystem" links lead outside of the zone
+            if (ZONE_PATTERN.matcher(child.getFileName().toString()).matches()) {
+                collectZones(child, zoneDirectories);
+            }
+        }
+    }
+
+    /**
+     * Returns the socket of a zone: the index in the name of its package zone ("package-1"), or the index of its
+     * top-level zone. Returns -1 for platform-wide zones.
+     */
+    private static int getSocket(final String zoneId, final Map<String, String> zoneNames) {
+        final Matcher matcher = ZONE_PATTERN.matcher(zoneId);
+        if (!matcher.matches()) {
+            return -1;
+        }
+        final String topLevelId = matcher.group(1) + ":" + matcher.group(2);
+        final String topLevelName = zoneNames.getOrDefault(topLevelId, "");
+        if (PowercapZone.Domain.of(topLevelName) == PowercapZone.Domain.PSYS) {
+            return -1;
+        }
+        final Matcher packageMatcher = PACKAGE_NAME_PATTERN.matcher(topLevelName);
+        if (packageMatcher.matches()) {
+            return Integer.parseInt(packageMatcher.group(1));
+        }
+        return Integer.parseInt(matcher.group(2));
+    }
+
+    /**
+     * Lists the sub-directories of the given directory, or returns an empty list if it cannot be listed.
+     */
+    private static List<Path> listDirectories(final Path directory) {
+        final List<Path> directories = new ArrayList<>();
+        if (!Files.isDirectory(directory)) {
+            return directories;
+        }
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, Files::isDirectory)) {
+            for (final Path path : stream) {
+                directories.add(path);
+            }
+        } catch (IOException exception) {
+            logger.throwing(RaplLinux.class.getName(), "listDirectories", exception);
+        }
+        return directories;
+    }
+
+    /**
+     * Get energy readings from RAPL through powercap
+     * Calculates the best energy reading as supported by CPU (psys, or pkg+dram of all sockets)
+     * Each counter is accumulated with its own wraparound range, so the reading never decreases.
+     * @return Energy readings from RAPL
      */
     @Override
-    public double getMaxPower(final double cpuLoad) {
-        double energyData = 0.0;
+    public synchronized double getCurrentPower(final double cpuLoad) {
+        readZones();
+        long energyData = 0;
+        for (final PowercapZone zone : totalZones) {
+            energyData += zone.getCounter().getTotal();
+        }
+        return energyData / 1000000.0;
+    }
+
+    /**
+     * Returns the energy consumed since the previous call, as the sum of the increases of each counter used for
+     * the total, each one with its own wraparound.
+     *
+     * @param cpuLoad        unused
+     * @param elapsedSeconds unused
+     * @return the consumed energy, in Joules
+     */
+    @Override
+    public synchronized double getConsumedEnergy(final double cpuLoad, final double elapsedSeconds) {
+        readZones();
+        long energyData = 0;
+        for (final PowercapZone zone : totalZones) {
+            energyData += zone.getCounter().takeDelta();
+        }
+        return energyData / 1000000.0;
+    }
 
-        for (final Path raplFile : maxRaplFilesToRead) {
+    /**
+     * Reads all the open zones, accumulating their counters.
+     */
+    private void readZones() {
+        for (final PowercapZone zone : zones) {
+            if (!zone.isOpen()) {
+                continue;
+            }
             try {
-                energyData += Double.parseDouble(Files.readString(raplFile));
+                zone.read();
             } catch (IOException exception) {
-                logger.throwing(getClass().getName(), "getMaxPower", exception);
+                logger.throwing(getClass().getName(), "readZones", exception);
             }
         }
+    }
 
-        // Divide by 1 million to convert microJoules to Joules
-        return energyData / 1000000;
+    /**
+     * Get max energy value of RAPL interface through powercap
+     * Wraparounds are handled per counter, so this value is not needed to compute energy deltas.
+     * @return Maximum energy value of RAPL interface
+     */
+    @Override
+    public double getMaxPower(final double cpuLoad) {
+        long maxEnergyData = 0;
+        for (final PowercapZone zone : totalZones) {
+            maxEnergyData += zone.getCounter().getRange();
+        }
+        return maxEnergyData / 1000000.0;
     }
 
     /**
-     * Returns the
+     * Returns the current energy readings, and starts the measurement of {@link #getConsumedEnergy(double, double)}
+     * from now.
      *
      * @return Energy readings from RAPL
      */
     @Override
-    public double getInitialPower() {
+    public synchronized double getInitialPower() {
+        getConsumedEnergy(0, 0);
         return getCurrentPower(0);
     }
 
+    /**
+     * RAPL files are cumulative energy counters.
+     *
+     * @return false
+     */
     @Override
-    public void close() {
-        // Nothing to do for RAPL Linux
+    public boolean isInstantaneousPower() {
+        return false;
+    }
+
+    /**
+     * Reads the energy consumed since the previous reading, and the energy consumed by each zone during the
+     * interval (e.g. "package-0", "core-0", "dram-0").
+     *
+     * @param cpuLoad unused
+     * @param sample  the sample of the previous reading, overwritten with the new reading
+     */
+    @Override
+    public synchronized void readEnergy(final double cpuLoad, final EnergySample sample) {
+        Cpu.super.readEnergy(cpuLoad, sample);
+        if (domainMarks.length != zones.size()) {
+            domainMarks = new long[zones.size()];
+        }
+        for (int i = 0; i < zones.size(); i++) {
+            final PowercapZone zone = zones.get(i);
+            final long consumed = zone.isOpen() ? zone.getCounter().getConsumed() : 0;
+            sample.setDomain(i, zone.getLabel(), (consumed - domainMarks[i]) / 1000000.0);
+            domainMarks[i] = consumed;
+        }
+    }
+
+    /**
+     * Returns the energy consumed by each RAPL zone since initialization, labelled by domain and socket
+     * (e.g. "package-0", "dram-0", "package-1", "psys").
+     *
+     * @return the consumed energy of each zone, in Joules
+     */
+    @Override
+    public synchronized Map<String, Double> getDomainsConsumedEnergy() {
+        // Count the energy consumed since the last monitoring window
+        readZones();
+        final Map<String, Double> result = new LinkedHashMap<>();
+        for (final PowercapZone zone : zones) {
+            result.merge(zone.getLabel(), zone.getConsumedEnergy(), Double::sum);
+        }
+        return result;
+    }
+
+    @Override
+    public synchronized void close() {
+        for (final PowercapZone zone : zones) {
+            try {
+                zone.close();
+            } catch (IOException exception) {
+                logger.throwing(getClass().getName(), "close", exception);
+            }
+        }
+    }
+
+    /**
+     * {@link EnergySourceProvider} of the RAPL counters of the powercap sysfs interface.
+     */
+    @AutoService(EnergySourceProvider.class)
+    public static final class Provider implements EnergySourceProvider {
+
+        private static final EnergySourceCapabilities CAPABILITIES =
+                new EnergySourceCapabilities(0, Platform.LINUX, true, 1_000, true, ReadCost.MEDIUM);
+
+        @Override
+        public String getName() {
+            return "powercap";
+        }
+
+        @Override
+        public EnergySourceCapabilities getCapabilities() {
+            return CAPABILITIES;
+        }
+
+        @Override
+        public boolean isAvailable(final AgentProperties properties) {
+            return isSupported(FileSystems.getDefault());
+        }
+
+        @Override
+        public Cpu create(final AgentProperties properties) {
+            return new RaplLinux();
+        }
     }
 }
@@ -0,0 +1,461 @@
+/*
+ * Copyright (c) 2021-2026, Adel Noureddine, Université de Pau et des Pays de l'Adour.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the
+ * GNU General Public License v3.0 only (GPL-3.0-only)
+ * which accompanies this distribution, and is available at
+ * https://www.gnu.org/licenses/gpl-3.0.en.html
+ *
+ */
+
+package org.noureddine.joularjx.cpu;
+
+import com.google.auto.service.AutoService;
+import org.noureddine.joularjx.cpu.EnergySourceCapabilities.Platform;
+import org.noureddine.joularjx.cpu.EnergySourceCapabilities.ReadCost;
+import org.noureddine.joularjx.utils.AgentProperties;
+import org.noureddine.joularjx.utils.JoularJXLogging;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+
+/**
+ * {@link Cpu} implementation reading the Intel RAPL energy counters directly from the model-specific registers,
+ * through the Linux msr driver ({@code /dev/cpu/N/msr}, requires {@code modprobe msr} and elevated privileges).
+ * <p>
+ * The registers are read with positional reads on an open channel, the offset being the register address, which
+ * avoids the powercap sysfs stack and its update interval. One CPU is read per package (the first one of each
+ * package). Counters are scaled by the energy status unit of MSR_RAPL_POWER_UNIT, and accumulated in an
+ * {@link EnergyCounter} with a 32-bit range. The DRAM counter is scaled with the same unit, and skipped on
+ * packages where it cannot be read.
+ */
+public class RaplMsrLinux implements Cpu {
+
+    private static final Logger logger = JoularJXLogging.getLogger();
+
+    static final String CPU_ROOT = "/sys/devices/system/cpu";
+
+    static final String MSR_PATH = "/dev/cpu/%d/msr";
+
+    static final String CPUINFO_PATH = "/proc/cpuinfo";
+
+    private static final String INTEL_VENDOR_ID = "GenuineIntel";
+
+    static final long MSR_RAPL_POWER_UNIT = 0x606;
+
+    static final long MSR_PKG_ENERGY_STATUS = 0x611;
+
+    static final long MSR_DRAM_ENERGY_STATUS = 0x619;
+
+    /**
+     * The energy status counters are 32-bit wide.
+     */
+    private static final long COUNTER_RANGE = 1L << 32;
+
+    /**
+     * The RAPL counters of a package, read from one of its CPUs.
+     */
+    private static final class Package {
+        private final String pkgLabel;
+        private final String dramLabel;
+        private final SeekableByteChannel channel;
+        private final double energyUnit;
+        private final EnergyCounter pkg;
+        private EnergyCounter dram;
+
+        private Package(int packageId, SeekableByteChannel channel, double energyUnit) {
+            this.pkgLabel = "package-" + packageId;
+            this.dramLabel = "dram-" + packageId;
+            this.channel = channel;
+            this.energyUnit = energyUnit;
+            this.pkg = new EnergyCounter(COUNTER_RANGE);
+        }
+    }
+
+    private final List<Package> packages = new ArrayList<>();
+
+    /**
+     * Reused buffer for the 64-bit register values.
+     */
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(Long.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+
+    /**
+     * Filesystem where the CPU topology and msr files are located.
+     */
+    private final FileSystem fileSystem;
+
+    /**
+     * Counters of each domain up to the previous {@link #readEnergy(double, EnergySample)}, two per package
+     */
+    private long[] domainMarks = new long[0];
+
+    /**
+     * Create a new energy measurement via the RAPL MSRs. The files will be read from the default filesystem.
+     */
+    public RaplMsrLinux() {
+        this(FileSystems.getDefault());
+    }
+
+    /**
+     * Create a new energy measurement via the RAPL MSRs. The files will be read from the passed filesystem.
+     *
+     * @param fileSystem The filesystem to use for reading the topology and msr files
+     */
+    RaplMsrLinux(final FileSystem fileSystem) {
+        this.fileSystem = fileSystem;
+    }
+
+    /**
+     * Opens the msr file of one CPU per package, and reads the energy unit and first values of the counters.
+     */
+    @Override
+    public void initialize() {
+        for (final Map.Entry<Integer, Integer> entry : getPackageCpus().entrySet()) {
+            final Path msrFile = fileSystem.getPath(String.format(MSR_PATH, entry.getValue()));
+            try {
+                final SeekableByteChannel channel = Files.newByteChannel(msrFile, StandardOpenOption.READ);
+                final long powerUnit = readMsr(channel, MSR_RAPL_POWER_UNIT);
+                // Energy status units are in bits 12:8, as 1/2^ESU joules
+                final double energyUnit = 1.0 / (1L << ((powerUnit >>> 8) & 0x1F));
+                final Package cpuPackage = new Package(entry.getKey(), channel, energyUnit);
+                cpuPackage.pkg.update(readMsr(channel, MSR_PKG_ENERGY_STATUS) & 0xFFFFFFFFL);
+                packages.add(cpuPackage);
+
+                try {
+                    final EnergyCounter dram = new EnergyCounter(COUNTER_RANGE);
+                    dram.update(readMsr(channel, MSR_DRAM_ENERGY_STATUS) & 0xFFFFFFFFL);
+                    cpuPackage.dram = dram;
+                } catch (IOException exception) {
+                    logger.log(Level.WARNING, "Failed to get RAPL DRAM energy readings from " + msrFile + " file. Continuing without it.");
+                }
+            } catch (IOException exception) {
+                logger.log(Level.SEVERE, "Failed to get RAPL energy readings from " + msrFile + " file. Exiting... Did you load the msr module (modprobe msr) and run JoularJX with elevated privileges (sudo)?");
+                logger.throwing(getClass().getName(), "initialize", exception);
+                System.exit(1);
+            }
+        }
+
+        if (packages.isEmpty()) {
+            logger.log(Level.SEVERE, "Found no MSR files to read the energy measurement from. Exit ...");
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Returns the first CPU of each package, from the CPU topology. Defaults to CPU 0 if the topology is not available.
+     *
+     * @return the CPU to read for each package ID, sorted by package ID
+     */
+    private Map<Integer, Integer> getPackageCpus() {
+        final Map<Integer, Integer> packageCpus = new TreeMap<>();
+        final Path cpuRoot = fileSystem.getPath(CPU_ROOT);
+        if (Files.isDirectory(cpuRoot)) {
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(cpuRoot, "cpu[0-9]*")) {
+                for (final Path cpuDirectory : stream) {
+                    final int cpu = Integer.parseInt(cpuDirectory.getFileName().toString().substring(3));
+                    final Path packageFile = cpuDirectory.resolve("topology").resolve("physical_package_id");
+                    if (Files.isReadable(packageFile)) {
+                        final int packageId = Integer.parseInt(Files.readString(packageFile).trim());
+                        packageCpus.merge(packageId, cpu, Math::min);
+                    }
+                }
+            } catch (IOException | NumberFormatException exception) {
+                logger.throwing(getClass().getName(), "getPackageCpus", exception);
+            }
+        }
+
+        if (packageCpus.isEmpty()) {
+            packageCpus.put(0, 0);
+        }
+        return packageCpus;
+    }
+
+    /**
+     * Reads a 64-bit model-specific register, at the offset of its address in the msr file.
+     */
+    private long readMsr(final SeekableByteChannel channel, final long address) throws IOException {
+        return readMsr(channel, address, buffer);
+    }
+
+    /**
+     * Reads a 64-bit model-specific register into the given little-endian buffer, at the offset of its address in
+     * the msr file.
+     */
+    private static long readMsr(final SeekableByteChannel channel, final long address, final ByteBuffer buffer)
+            throws IOException {
+        buffer.clear();
+        if (channel instanceof FileChannel) {
+            final FileChannel fileChannel = (FileChannel) channel;
+            while (buffer.hasRemaining() && fileChannel.read(buffer, address + buffer.position()) > 0) {
+                // Keep reading until the 8 bytes are read
+            }
+        } else {
+            channel.position(address);
+            while (buffer.hasRemaining() && channel.read(buffer) > 0) {
+                // Keep reading until the 8 bytes are read
+            }
+        }
+        if (buffer.hasRemaining()) {
+            throw new IOException("Failed to read MSR 0x" + Long.toHexString(address));
+        }
+        return buffer.getLong(0);
+    }
+
+    /**
+     * Indicates whether the Intel RAPL registers can be read from the msr file of CPU 0. The CPU vendor is checked
+     * first, as AMD CPUs expose their energy counters at other addresses, then MSR_RAPL_POWER_UNIT is read once.
+     * Logs a warning explaining why the registers cannot be read, so another energy source is used instead.
+     *
+     * @param fileSystem the filesystem where the cpuinfo and msr files are located
+     * @return true if MSR_RAPL_POWER_UNIT can be read
+     */
+    static boolean isSupported(final FileSystem fileSystem) {
+        final String vendorId = getVendorId(fileSystem);
+        if (vendorId != null && !INTEL_VENDOR_ID.equals(vendorId)) {
+            logger.log(Level.WARNING, "The msr energy source reads the Intel RAPL registers, which are not available on " + vendorId + " CPUs. Using another energy source instead.");
+            return false;
+        }
+
+        final Path msrFile = fileSystem.getPath(String.format(MSR_PATH, 0));
+        if (!Files.isReadable(msrFile)) {
+            logger.log(Level.WARNING, "Cannot read " + msrFile + " (load the msr module with modprobe msr, and run JoularJX with elevated privileges). Using another energy source instead.");
+            return false;
+        }
+        try (SeekableByteChannel channel = Files.newByteChannel(msrFile, StandardOpenOption.READ)) {
+            readMsr(channel, MSR_RAPL_POWER_UNIT, ByteBuffer.allocate(Long.BYTES).order(ByteOrder.LITTLE_ENDIAN));
+            return true;
+        } catch (IOException exception) {
+            logger.log(Level.WARNING, "Cannot read MSR_RAPL_POWER_UNIT from " + msrFile + " (this CPU may not support Intel RAPL). Using another energy source instead.");
+            logger.throwing(RaplMsrLinux.class.getName(), "isSupported", exception);
+            return false;
+        }
+    }
+
+    /**
+     * Returns the vendor of the CPUs, from the first vendor_id line of /proc/cpuinfo.
+     *
+     * @param fileSystem the filesystem where the cpuinfo file is located
+     * @return the CPU vendor (e.g. "GenuineIntel", "AuthenticAMD"), or null if it cannot be read
+     */
+    private static String getVendorId(final FileSystem fileSystem) {
+        final Path cpuinfo = fileSystem.getPath(CPUINFO_PATH);
+        if (!Files.isReadable(cpuinfo)) {
+            return null;
+        }
+        try (Stream<String> lines = Files.lines(cpuinfo)) {
+            return lines.filter(line -> line.startsWith("vendor_id"))
+                    .map(line -> line.substring(line.indexOf(':') + 1).trim())
+                    .findFirst()
+                    .orElse(null);
+        } catch (IOException | UncheckedIOException exception) {
+            logger.throwing(RaplMsrLinux.class.getName(), "getVendorId", exception);
+            return null;
+        }
+    }
+
+    /**
+     * Reads the counters of all the packages, accumulating them.
+     */
+    private void readCounters() {
+        for (final Package cpuPackage : packages) {
+            if (!cpuPackage.channel.isOpen()) {
+                continue;
+            }
+            try {
+                cpuPackage.pkg.update(readMsr(cpuPackage.channel, MSR_PKG_ENERGY_STATUS) & 0xFFFFFFFFL);
+                if (cpuPackage.dram != null) {
+                    cpuPackage.dram.update(readMsr(cpuPackage.channel, MSR_DRAM_ENERGY_STATUS) & 0xFFFFFFFFL);
+                }
+            } catch (IOException exception) {
+                logger.throwing(getClass().getName(), "readCounters", exception);
+            }
+        }
+    }
+
+    /**
+     * Get energy readings from the RAPL MSRs, as the sum of the package and DRAM counters of all packages.
+     * Each counter is accumulated with its own wraparound, so the reading never decreases.
+     *
+     * @return Energy readings, in Joules
+     */
+    @Override
+    public synchronized double getCurrentPower(final double cpuLoad) {
+        readCounters();
+        double energyData = 0;
+        for (final Package cpuPackage : packages) {
+            long counters = cpuPackage.pkg.getTotal();
+            if (cpuPackage.dram != null) {
+                counters += cpuPackage.dram.getTotal();
+            }
+            energyData += counters * cpuPackage.energyUnit;
+        }
+        return energyData;
+    }
+
+    /**
+     * Returns the energy consumed since the previous call, as the sum of the increases of each counter.
+     *
+     * @param cpuLoad        unused
+     * @param elapsedSeconds unused
+     * @return the consumed energy, in Joules
+     */
+    @Override
+    public synchronized double getConsumedEnergy(final double cpuLoad, final double elapsedSeconds) {
+        readCounters();
+        double energyData = 0;
+        for (final Package cpuPackage : packages) {
+            long counters = cpuPackage.pkg.takeDelta();
+            if (cpuPackage.dram != null) {
+                counters += cpuPackage.dram.takeDelta();
+            }
+            energyData += counters * cpuPackage.energyUnit;
+        }
+        return energyData;
+    }
+
+    /**
+     * Returns the current energy readings, and starts the measurement of {@link #getConsumedEnergy(double, double)}
+     * from now.
+     *
+     * @return Energy readings, in Joules
+     */
+    @Override
+    public synchronized double getInitialPower() {
+        getConsumedEnergy(0, 0);
+        return getCurrentPower(0);
+    }
+
+    /**
+     * Get the range of the RAPL counters, in Joules.
+     * Wraparounds are handled per counter, so this value is not needed to compute energy deltas.
+     *
+     * @return Maximum energy value of the counters
+     */
+    @Override
+    public double getMaxPower(final double cpuLoad) {
+        double maxEnergyData = 0;
+        for (final Package cpuPackage : packages) {
+            maxEnergyData += COUNTER_RANGE * cpuPackage.energyUnit * (cpuPackage.dram != null ? 2 : 1);
+        }
+        return maxEnergyData;
+    }
+
+    /**
+     * RAPL MSRs are cumulative energy counters.
+     *
+     * @return false
+     */
+    @Override
+    public boolean isInstantaneousPower() {
+        return false;
+    }
+
+    /**
+     * Reads the energy consumed since the previous reading, and the energy consumed by the package and DRAM of
+     * each package during the interval (e.g. "package-0", "dram-0").
+     *
+     * @param cpuLoad unused
+     * @param sample  the sample of the previous reading, overwritten with the new reading
+     */
+    @Override
+    public synchronized void readEnergy(final double cpuLoad, final EnergySample sample) {
+        Cpu.super.readEnergy(cpuLoad, sample);
+        if (domainMarks.length != packages.size() * 2) {
+            domainMarks = new long[packages.size() * 2];
+        }
+        int domain = 0;
+        for (int i = 0; i < packages.size(); i++) {
+            final Package cpuPackage = packages.get(i);
+            final long pkg = cpuPackage.pkg.getConsumed();
+            sample.setDomain(domain++, cpuPackage.pkgLabel, (pkg - domainMarks[2 * i]) * cpuPackage.energyUnit);
+            domainMarks[2 * i] = pkg;
+            if (cpuPackage.dram != null) {
+                final long dram = cpuPackage.dram.getConsumed();
+                sample.setDomain(domain++, cpuPackage.dramLabel, (dram - domainMarks[2 * i + 1]) * cpuPackage.energyUnit);
+                domainMarks[2 * i + 1] = dram;
+            }
+        }
+    }
+
+    /**
+     * Returns the energy consumed by the package and DRAM of each package since initialization
+     * (e.g. "package-0", "dram-0", "package-1").
+     *
+     * @return the consumed energy of each domain, in Joules
+     */
+    @Override
+    public synchronized Map<String, Double> getDomainsConsumedEnergy() {
+        readCounters();
+        final Map<String, Double> result = new LinkedHashMap<>();
+        for (final Package cpuPackage : packages) {
+            result.put(cpuPackage.pkgLabel, cpuPackage.pkg.getConsumed() * cpuPackage.energyUnit);
+            if (cpuPackage.dram != null) {
+                result.put(cpuPackage.dramLabel, cpuPackage.dram.getConsumed() * cpuPackage.energyUnit);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public synchronized void close() {
+        for (final Package cpuPackage : packages) {
+            try {
+                cpuPackage.channel.close();
+            } catch (IOException exception) {
+                logger.throwing(getClass().getName(), "close", exception);
+            }
+        }
+    }
+
+    /**
+     * {@link EnergySourceProvider} of the RAPL model-specific registers, only used when the {@code msr} energy source is
+     * requested.
+     */
+    @AutoService(EnergySourceProvider.class)
+    public static final class Provider implements EnergySourceProvider {
+
+        private static final EnergySourceCapabilities CAPABILITIES =
+                new EnergySourceCapabilities(0, Platform.LINUX, true, 1_000, true, ReadCost.LOW);
+
+        @Override
+        public String getName() {
+            return "msr";
+        }
+
+        @Override
+        public EnergySourceCapabilities getCapabilities() {
+            return CAPABILITIES;
+        }
+
+        @Override
+        public boolean isAvailable(final AgentProperties properties) {
+            if (!"msr".equals(properties.energySource())) {
+                return false;
+            }
+            return isSupported(FileSystems.getDefault());
+        }
+
+        @Override
+        public Cpu create(final AgentProperties properties) {
+            return new RaplMsrLinux();
+        }
+    }
+}
@@ -40,5 +40,14 @@ public enum RaspberryPiModels {
     /** Raspberry Pi Zero W (11). */
     RPI_ZW_11,
     /** ASUS Tinker Board S. */
-    ASUSTBS
+    ASUSTBS;
+
+    /**
+     * Returns the identifier of the power model of the board.
+     *
+     * @return the model identifier, e.g. "rpi-4b-12-64"
+     */
+    public String getModelId() {
+        return name().toLowerCase().replace('_', '-');
+    }
 }
@@ -0,0 +1,154 @@
+/*
+ * Copyright (c) 2021-2026, Adel Noureddine, Université de Pau et des Pays de l'Adour.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the
+ * GNU General Public License v3.0 only (GPL-3.0-only)
+ * which accompanies this distribution, and is available at
+ * https://www.gnu.org/licenses/gpl-3.0.en.html
+ *
+ */
+
+package org.noureddine.joularjx.cpu;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads an integer value from a sysfs attribute file (e.g. a RAPL {@code energy_uj} counter) without allocating.
+ * <p>
+ * The file is opened once and kept open. Each read starts at offset 0 (a positional read for a FileChannel),
+ * which makes sysfs generate the current value again, into a reused direct buffer. The ASCII value is parsed
+ * in place as a long, or compared in place to an expected text (e.g. a battery {@code status}).
+ * This class is not thread-safe.
+ */
+public class SysfsReader implements AutoCloseable {
+
+    // Large enough for any 64-bit integer, its sign and a trailing new line
+    private static final int BUFFER_SIZE = 32;
+
+    private final Path path;
+    private final SeekableByteChannel channel;
+    private final FileChannel fileChannel;
+    private final ByteBuffer buffer;
+
+    /**
+     * Opens the given sysfs file.
+     *
+     * @param path the path of the file to read
+     * @throws IOException if the file cannot be opened
+     */
+    public SysfsReader(Path path) throws IOException {
+        this.path = path;
+        this.channel = Files.newByteChannel(path, StandardOpenOption.READ);
+        this.fileChannel = channel instanceof FileChannel ? (FileChannel) channel : null;
+        this.buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    }
+
+    /**
+     * Reads the current value of the file.
+     *
+     * @return the integer value at the beginning of the file
+     * @throws IOException if the file cannot be read or does not start with an integer
+     */
+    public long readLong() throws IOException {
+        return parseLong(buffer, read());
+    }
+
+    /**
+     * Reads the current value of the file, and compares it to the given text.
+     *
+     * @param value the expected ASCII value, shorter than the read buffer
+     * @return true if the file contains the value, ignoring leading and trailing whitespace
+     * @throws IOException if the file cannot be read
+     */
+    public boolean readEquals(String value) throws IOException {
+        int end = read();
+        int start = 0;
+        while (start < end && Character.isWhitespace(buffer.get(start))) {
+            start++;
+        }
+        while (end > start && Character.isWhitespace(buffer.get(end - 1))) {
+            end--;
+        }
+
+        if (end - start != value.length()) {
+            return false;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            if (buffer.get(start + i) != value.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Reads the file from its beginning into the buffer.
+     *
+     * @return the number of bytes read, at most the size of the buffer
+     */
+    private int read() throws IOException {
+        buffer.clear();
+        if (fileChannel != null) {
+            while (buffer.hasRemaining() && fileChannel.read(buffer, buffer.position()) > 0) {
+                // Keep reading until the end of the file
+            }
+        } else {
+            channel.position(0);
+            while (buffer.hasRemaining() && channel.read(buffer) > 0) {
+                // Keep reading until the end of the file
+            }
+        }
+        return buffer.position();
+    }
+
+    /**
+     * Parses the integer value at the beginning of the buffer, after optional leading whitespace.
+     */
+    private long parseLong(ByteBuffer bytes, int length) throws IOException {
+        int index = 0;
+        while (index < length && Character.isWhitespace(bytes.get(index))) {
+            index++;
+        }
+
+        boolean negative = index < length && bytes.get(index) == '-';
+        if (negative) {
+            index++;
+        }
+
+        int firstDigit = index;
+        long value = 0;
+        while (index < length) {
+            byte digit = bytes.get(index);
+            if (digit < '0' || digit > '9') {
+                break;
+            }
+            value = value * 10 + (digit - '0');
+            index++;
+        }
+
+        if (index == firstDigit) {
+            throw new IOException("No integer value in " + path);
+        }
+        return negative ? -value : value;
+    }
+
+    /**
+     * Returns the path of the file.
+     *
+     * @return the path of the read file
+     */
+    public Path getPath() {
+        return path;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
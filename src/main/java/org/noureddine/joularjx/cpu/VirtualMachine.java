@@ -11,6 +11,11 @@
 
 package org.noureddine.joularjx.cpu;
 
+import com.google.auto.service.AutoService;
+import org.noureddine.joularjx.Agent;
+import org.noureddine.joularjx.cpu.EnergySourceCapabilities.Platform;
+import org.noureddine.joularjx.cpu.EnergySourceCapabilities.ReadCost;
+import org.noureddine.joularjx.utils.AgentProperties;
 import org.noureddine.joularjx.utils.JoularJXLogging;
 import java.util.logging.Logger;
 import java.nio.file.Files;
@@ -18,15 +23,29 @@ import java.io.IOException;
 import java.nio.file.Path;
 import java.nio.file.FileSystems;
 import java.nio.file.FileSystem;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 
 /**
  * {@link Cpu} implementation for reading power data from a shared file in virtualized environments.
+ * <p>
+ * By default, the whole file is read at every monitoring cycle, and its value is the power of the cycle. In tail
+ * mode, the file is followed by a {@link PowerFileTail}: it is only read when the host writes to it, and the
+ * energy of a cycle is the average of the values written during the cycle over its actual duration. The file is
+ * polled in the background every {@value #TAIL_POLL_MILLISECONDS} milliseconds, not only at the end of each cycle,
+ * so the values of a host rewriting the file at a slower rate are all counted, and not only the last one.
  */
 public class VirtualMachine implements Cpu {
     
     private static final Logger logger = JoularJXLogging.getLogger();
 
+    /**
+     * Period of the polling of the shared file in tail mode, shorter than the usual cadence of the host (1 second)
+     */
+    static final long TAIL_POLL_MILLISECONDS = 100;
+
     private static String VM_POWER_PATH_NAME;
 
     private static String VM_POWER_FORMAT;
@@ -35,6 +54,12 @@ public class VirtualMachine implements Cpu {
 
     private final FileSystem fileSystem;
 
+    private boolean tailMode;
+
+    private PowerFileTail tail;
+
+    private ScheduledExecutorService tailPoller;
+
     /**
      * Creates a new virtual machine CPU monitor using the default filesystem.
      *
@@ -42,9 +67,33 @@ public class VirtualMachine implements Cpu {
      * @param VMPowerFormat format of the power data (e.g. "watts" or "powerjoular")
      */
     public VirtualMachine(String VMPowerPath, String VMPowerFormat) {
-        this(FileSystems.getDefault());
+        this(VMPowerPath, VMPowerFormat, "read");
+    }
+
+    /**
+     * Creates a new virtual machine CPU monitor using the default filesystem.
+     *
+     * @param VMPowerPath   path to the shared power file
+     * @param VMPowerFormat format of the power data (e.g. "watts" or "powerjoular")
+     * @param VMPowerMode   how the file is read: "read" (whole file at every cycle) or "tail"
+     */
+    public VirtualMachine(String VMPowerPath, String VMPowerFormat, String VMPowerMode) {
+        this(FileSystems.getDefault(), VMPowerPath, VMPowerFormat, VMPowerMode);
+    }
+
+    /**
+     * Creates a new virtual machine CPU monitor with a custom filesystem.
+     *
+     * @param fileSystem    filesystem used to read the shared power file
+     * @param VMPowerPath   path to the shared power file
+     * @param VMPowerFormat format of the power data (e.g. "watts" or "powerjoular")
+     * @param VMPowerMode   how the file is read: "read" (whole file at every cycle) or "tail"
+     */
+    VirtualMachine(final FileSystem fileSystem, String VMPowerPath, String VMPowerFormat, String VMPowerMode) {
+        this(fileSystem);
         VM_POWER_PATH_NAME = VMPowerPath;
         VM_POWER_FORMAT = VMPowerFormat;
+        this.tailMode = "tail".equals(VMPowerMode);
     }
 
     /**
@@ -67,6 +116,48 @@ public class VirtualMachine implements Cpu {
             logger.log(Level.SEVERE, "The shared VM power file cannot be found. Exiting...");
             System.exit(1);
         }
+
+        if (tailMode) {
+            if (!VM_POWER_FORMAT.equals("watts") && !VM_POWER_FORMAT.equals("powerjoular")) {
+                logger.log(Level.WARNING, "Power data format for VM not supported. Returning 0.");
+            }
+            try {
+                tail = new PowerFileTail(this.VM_POWER_PATH, VirtualMachine::parsePower);
+                tail.open();
+                tailPoller = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                    Thread thread = new Thread(runnable, Agent.POWER_READER_THREAD_NAME);
+                    thread.setDaemon(true);
+                    return thread;
+                });
+                tailPoller.scheduleWithFixedDelay(this::pollTail, TAIL_POLL_MILLISECONDS, TAIL_POLL_MILLISECONDS,
+                        TimeUnit.MILLISECONDS);
+            } catch (IOException exception) {
+                logger.log(Level.SEVERE, "Failed to read the shared VM power file. Exiting...");
+                logger.throwing(getClass().getName(), "initialize", exception);
+                System.exit(1);
+            }
+        }
+    }
+
+    /**
+     * Parses the power of a line of the shared VM power file, depending on its format.
+     *
+     * @param line the line (or whole content) of the file
+     * @return the power, in watts
+     * @throws NumberFormatException if the line has no power value
+     */
+    private static double parsePower(String line) {
+        if (VM_POWER_FORMAT.equals("watts")) {
+            return Double.parseDouble(line);
+        } else if (VM_POWER_FORMAT.equals("powerjoular")) {
+            String[] powerDataInfo = line.split(",");
+            if (powerDataInfo.length < 3) {
+                throw new NumberFormatException("Missing power column: " + line);
+            }
+            // Get 3rd column (index 2) for power consumption
+            return Double.parseDouble(powerDataInfo[2]);
+        }
+        throw new NumberFormatException("Power data format for VM not supported: " + VM_POWER_FORMAT);
     }
 
     /**
@@ -83,18 +174,27 @@ public class VirtualMachine implements Cpu {
 
     /**
      * The power is approximated based on the CPU load, so it does not need an offset.
+     * In tail mode, the values written from now are averaged in the next cycle.
      *
      * @return 0
      */
     @Override
-    public double getInitialPower() {
+    public synchronized double getInitialPower() {
+        if (tail != null) {
+            pollTail();
+            tail.takeAveragePower();
+        }
         return 0;
     }
 
     @Override
-    public double getCurrentPower(double cpuLoad) {
+    public synchronized double getCurrentPower(double cpuLoad) {
         double powerData = 0.0;
 
+        if (tail != null) {
+            pollTail();
+            return tail.getLatestPower();
+        }
 
         try {
             if (VM_POWER_FORMAT.equals("watts")) {
@@ -112,6 +212,40 @@ public class VirtualMachine implements Cpu {
 
         return powerData;
     }
+
+    /**
+     * In tail mode, returns the average of the values written since the previous call over the elapsed duration,
+     * or the latest value if the host did not write since then.
+     *
+     * @param cpuLoad        unused
+     * @param elapsedSeconds the duration since the previous call, in seconds
+     * @return the consumed energy, in joules
+     */
+    @Override
+    public synchronized double getConsumedEnergy(double cpuLoad, double elapsedSeconds) {
+        if (tail == null) {
+            return Cpu.super.getConsumedEnergy(cpuLoad, elapsedSeconds);
+        }
+
+        pollTail();
+        double averagePower = tail.takeAveragePower();
+        if (Double.isNaN(averagePower)) {
+            averagePower = tail.getLatestPower();
+        }
+        return averagePower * elapsedSeconds;
+    }
+
+    /**
+     * Reads the values written to the shared file since the previous poll, if any. Called by the background
+     * poller, and before each use of the tail.
+     */
+    private synchronized void pollTail() {
+        try {
+            tail.poll();
+        } catch (IOException exception) {
+            logger.throwing(getClass().getName(), "pollTail", exception);
+        }
+    }
     
     /**
      * Nothing to do here. Method only useful for RAPL
@@ -122,8 +256,48 @@ public class VirtualMachine implements Cpu {
     }
     
     @Override
-    public void close() {
-        // Nothing to do for virtual machines
+    public synchronized void close() {
+        if (tailPoller != null) {
+            tailPoller.shutdownNow();
+        }
+        if (tail != null) {
+            try {
+                tail.close();
+            } catch (IOException exception) {
+                logger.throwing(getClass().getName(), "close", exception);
+            }
+        }
+    }
+
+    /**
+     * {@link EnergySourceProvider} of the virtual machine power file, written by the host. Only available when
+     * {@code vm-monitoring} is enabled, and preferred over all the other sources.
+     */
+    @AutoService(EnergySourceProvider.class)
+    public static final class Provider implements EnergySourceProvider {
+
+        private static final EnergySourceCapabilities CAPABILITIES =
+                new EnergySourceCapabilities(100, Platform.ANY, false, 1_000_000, false, ReadCost.MEDIUM);
+
+        @Override
+        public String getName() {
+            return "vm";
+        }
+
+        @Override
+        public EnergySourceCapabilities getCapabilities() {
+            return CAPABILITIES;
+        }
+
+        @Override
+        public boolean isAvailable(final AgentProperties properties) {
+            return properties.isVirtualMachine();
+        }
+
+        @Override
+        public Cpu create(final AgentProperties properties) {
+            return new VirtualMachine(properties.getVMPowerPath(), properties.getVMPowerFormat(),
+                    properties.getVMPowerMode());
+        }
     }
-    
 }
@@ -0,0 +1,117 @@
+/*
+ * Copyright (c) 2021-2026, Adel Noureddine, Université de Pau et des Pays de l'Adour.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the
+ * GNU General Public License v3.0 only (GPL-3.0-only)
+ * which accompanies this distribution, and is available at
+ * https://www.gnu.org/licenses/gpl-3.0.en.html
+ *
+ */
+
+package org.noureddine.joularjx.monitor;
+
+import java.lang.management.ThreadInfo;
+import java.util.Arrays;
+
+import com.sun.management.ThreadMXBean;
+import org.noureddine.joularjx.Agent;
+import org.noureddine.joularjx.utils.AgentProperties;
+import org.noureddine.joularjx.utils.LongLongHashMap;
+
+/**
+ * {@link StackSampler} implementation capturing the stacks of busy threads only.
+ * <p>
+ * Every tick reads the CPU time of all the threads with a single bulk call
+ * ({@link ThreadMXBean#getThreadCpuTime(long[])}), then captures the stacks of the threads whose CPU time
+ * advanced since the previous tick with {@link ThreadMXBean#getThreadInfo(long[], int)}.
+ * Idle threads are never dumped, so the sampling cost scales with the number of busy threads
+ * instead of the total number of threads (e.g. large, mostly idle thread pools).
+ * The first tick only records the initial CPU times. The CPU time read for each sampled thread is passed with its
+ * stack trace, so it does not have to be read again to weight the samples.
+ */
+public class CpuTimeSampler implements StackSampler {
+
+    private final AgentProperties properties;
+    private final ThreadMXBean threadBean;
+
+    /**
+     * CPU time (in nanoseconds) of each thread at the previous tick, and the map being filled by the current tick
+     */
+    private LongLongHashMap previousCpuTimes;
+    private LongLongHashMap currentCpuTimes;
+    private boolean initialized;
+    private long[] busyThreadIds;
+    private long[] busyCpuTimes;
+
+    /**
+     * Creates a new CPU time sampler.
+     *
+     * @param properties the agent's configuration properties
+     * @param threadBean the thread MXBean, supporting bulk CPU time reads
+     */
+    public CpuTimeSampler(AgentProperties properties, ThreadMXBean threadBean) {
+        this.properties = properties;
+        this.threadBean = threadBean;
+        this.previousCpuTimes = new LongLongHashMap();
+        this.currentCpuTimes = new LongLongHashMap();
+        this.busyThreadIds = new long[16];
+        this.busyCpuTimes = new long[16];
+    }
+
+    @Override
+    public void sample(SampleConsumer consumer) {
+        long[] threadIds = threadBean.getAllThreadIds();
+        long[] cpuTimes = threadBean.getThreadCpuTime(threadIds);
+        // The sampling thread is always busy, skip it without dumping its stack
+        long samplingThreadId = this.properties.hideAgentConsumption() ? Thread.currentThread().getId() : -1;
+
+        int busyCount = 0;
+        currentCpuTimes.clear();
+        for (int i = 0; i < threadIds.length; i++) {
+            long threadId = threadIds[i];
+            long cpuTime = cpuTimes[i];
+            if (cpuTime < 0) {
+                continue; // Terminated thread
+            }
+            currentCpuTimes.put(threadId, cpuTime);
+
+            // Threads created since the previous tick are busy if they already used some CPU time
+            long previousCpuTime = previousCpuTimes.get(threadId, 0);
+            if (initialized && cpuTime > previousCpuTime && threadId != samplingThreadId) {
+                if (busyCount == busyThreadIds.length) {
+                    busyThreadIds = Arrays.copyOf(busyThreadIds, busyCount * 2);
+                    busyCpuTimes = Arrays.copyOf(busyCpuTimes, busyCount * 2);
+                }
+                busyCpuTimes[busyCount] = cpuTime;
+                busyThreadIds[busyCount++] = threadId;
+            }
+        }
+
+        LongLongHashMap swap = previousCpuTimes;
+        previousCpuTimes = currentCpuTimes;
+        currentCpuTimes = swap;
+        initialized = true;
+
+        if (busyCount == 0) {
+            return;
+        }
+
+        ThreadInfo[] threadInfos = threadBean.getThreadInfo(Arrays.copyOf(busyThreadIds, busyCount), Integer.MAX_VALUE);
+        for (int i = 0; i < threadInfos.length; i++) {
+            ThreadInfo threadInfo = threadInfos[i];
+            if (threadInfo == null) {
+                continue; // Thread terminated since the CPU time read
+            }
+
+            // Ignoring agent related threads, if option is enabled
+            if (this.properties.hideAgentConsumption() && Agent.isAgentThread(threadInfo.getThreadName())) {
+                continue;
+            }
+
+            // Only keep runnable threads (not waiting or blocked)
+            if (threadInfo.getThreadState() == Thread.State.RUNNABLE) {
+                consumer.accept(threadInfo.getThreadId(), threadInfo.getStackTrace(), busyCpuTimes[i]);
+            }
+        }
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright (c) 2021-2026, Adel Noureddine, Université de Pau et des Pays de l'Adour.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the
+ * GNU General Public License v3.0 only (GPL-3.0-only)
+ * which accompanies this distribution, and is available at
+ * https://www.gnu.org/licenses/gpl-3.0.en.html
+ *
+ */
+
+package org.noureddine.joularjx.monitor;
+
+import java.util.logging.Logger;
+
+import org.noureddine.joularjx.cpu.Cpu;
+import org.noureddine.joularjx.cpu.EnergySample;
+import org.noureddine.joularjx.utils.JoularJXLogging;
+
+/**
+ * The EnergySampler reads the energy consumed by the {@link Cpu} at each sampling tick, so each stack sample can
+ * be weighted by the energy actually consumed during its own interval, instead of the average of its window.
+ * <p>
+ * Each tick only keeps the energy of its own interval and the power of the last interval, so recording a tick
+ * does not allocate.
+ * The cumulative energy is the sum of the valid readings of {@link Cpu#readEnergy(double, EnergySample)} since
+ * the sampler started, so it never decreases. Invalid readings count no energy, and the first one of each window
+ * is logged. This class is not thread-safe: the {@link SamplingScheduler}
+ * records and reads it under its lock.
+ */
+public class EnergySampler {
+
+    private static final Logger logger = JoularJXLogging.getLogger();
+
+    private final Cpu cpu;
+    private final EnergySample sample = new EnergySample();
+
+    private double totalEnergy;
+    private double lastPower;
+    private boolean invalidLogged;
+    private volatile double cpuLoad;
+
+    /**
+     * Creates a new EnergySampler.
+     *
+     * @param cpu the source of the energy readings
+     */
+    public EnergySampler(Cpu cpu) {
+        this.cpu = cpu;
+    }
+
+    /**
+     * Starts the energy measurement, and records the first reading.
+     */
+    public void start() {
+        cpu.readEnergy(cpuLoad, sample);
+        totalEnergy = 0;
+        lastPower = 0;
+        invalidLogged = false;
+    }
+
+    /**
+     * Starts a new monitoring window, so the next invalid reading is logged again.
+     */
+    public void startWindow() {
+        invalidLogged = false;
+    }
+
+    /**
+     * Records the energy consumed since the previous reading.
+     *
+     * @return the energy consumed since the previous reading, in joules
+     */
+    public double record() {
+        cpu.readEnergy(cpuLoad, sample);
+        // Invalid reading: no energy in this interval
+        if (!sample.isValid() && !invalidLogged) {
+            logger.info("Invalid energy reading (" + sample.getInvalidReason()
+                    + "), counting no energy for this tick: " + sample.getJoules());
+            invalidLogged = true;
+        }
+        double energy = sample.isValid() ? sample.getJoules() : 0;
+        lastPower = sample.isValid() && sample.getElapsedNanos() > 0 ? sample.getPower() : 0;
+        totalEnergy += energy;
+        return energy;
+    }
+
+    /**
+     * Returns the average power between the last two readings.
+     *
+     * @return the average power of the last interval, in watts
+     */
+    public double getLastPower() {
+        return lastPower;
+    }
+
+    /**
+     * Returns the energy consumed since the sampler started, up to the last reading.
+     *
+     * @return the cumulative energy, in joules
+     */
+    public double getTotalEnergy() {
+        return totalEnergy;
+    }
+
+    /**
+     * Sets the CPU load given to the energy source, for sources estimating the energy from it.
+     *
+     * @param cpuLoad the last measured CPU load
+     */
+    public void setCpuLoad(double cpuLoad) {
+        this.cpuLoad = cpuLoad;
+    }
+}
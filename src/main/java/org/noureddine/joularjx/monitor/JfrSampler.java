@@ -0,0 +1,66 @@
+/*
+ * Copyright (c) 2021-2026, Adel Noureddine, Université de Pau et des Pays de l'Adour.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the
+ * GNU General Public License v3.0 only (GPL-3.0-only)
+ * which accompanies this distribution, and is available at
+ * https://www.gnu.org/licenses/gpl-3.0.en.html
+ *
+ */
+
+package org.noureddine.joularjx.monitor;
+
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.noureddine.joularjx.utils.AgentProperties;
+import org.noureddine.joularjx.utils.JoularJXLogging;
+
+/**
+ * {@link StackSampler} implementation using JFR execution samples.
+ * <p>
+ * JFR event streaming requires Java 14 or later. This class is the Java 11 version, which is never selected:
+ * {@link #isSupported()} returns false, and the {@link SamplerFactory} falls back to the {@link ThreadDumpSampler}.
+ * If it is created anyway, it samples with a {@link ThreadDumpSampler} as well.
+ * The actual implementation is shipped as a multi-release class in {@code META-INF/versions/14}.
+ */
+public class JfrSampler implements StackSampler {
+
+    private static final Logger logger = JoularJXLogging.getLogger();
+
+    private final ThreadDumpSampler fallback;
+
+    /**
+     * Creates a new JFR sampler.
+     *
+     * @param properties the agent's configuration properties
+     */
+    public JfrSampler(AgentProperties properties) {
+        logger.log(Level.WARNING, "JFR event streaming requires Java 14 or later. Falling back to the thread dump sampler");
+        this.fallback = new ThreadDumpSampler(properties);
+    }
+
+    /**
+     * Indicates whether JFR event streaming is available on the running JVM.
+     *
+     * @return always false on Java versions older than 14
+     */
+    public static boolean isSupported() {
+        return false;
+    }
+
+    @Override
+    public void start() {
+        fallback.start();
+    }
+
+    @Override
+    public void sample(SampleConsumer consumer) {
+        fallback.sample(consumer);
+    }
+
+    @Override
+    public void close() {
+        fallback.close();
+    }
+}
@@ -12,26 +12,26 @@ package org.noureddine.joularjx.monitor;
 
 import java.io.IOException;
 import java.lang.management.ThreadMXBean;
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
-import java.util.function.ObjDoubleConsumer;
-import java.util.function.Predicate;
+import java.util.function.LongFunction;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
-import org.noureddine.joularjx.Agent;
 import org.noureddine.joularjx.cpu.Cpu;
+import org.noureddine.joularjx.cpu.EnergySample;
 import org.noureddine.joularjx.result.ResultScope;
 import org.noureddine.joularjx.result.ResultWriter;
 import org.noureddine.joularjx.result.ResultWriterConfiguration;
 import org.noureddine.joularjx.utils.AgentProperties;
-import org.noureddine.joularjx.utils.CallTree;
+import org.noureddine.joularjx.utils.CallingContextTree;
+import org.noureddine.joularjx.utils.FrameDictionary;
 import org.noureddine.joularjx.utils.JoularJXLogging;
+import org.noureddine.joularjx.utils.LongLongHashMap;
 import org.noureddine.joularjx.utils.Scope;
-import org.noureddine.joularjx.utils.StackTraceFilter;
 
 import com.sun.management.OperatingSystemMXBean;
 
@@ -51,9 +51,11 @@ public class MonitoringHandler implements Runnable {
 	private final MonitoringStatus status;
 	private final OperatingSystemMXBean osBean;
 	private final ThreadMXBean threadBean;
-	private final long sampleTimeMilliseconds = 1000;
+	private final StackSampler sampler;
+	private final long sampleTimeMilliseconds;
 	private final long sampleRateMilliseconds;
-	private final int sampleIterations;
+	private final boolean cpuTimeWeighting;
+	private long agentCpuTime;
 
 	/**
 	 * Creates a new MonitoringHandler.
@@ -67,9 +69,11 @@ public class MonitoringHandler implements Runnable {
 	 * @param osBean        the OperatingSystemMXBean, used to collect CPU and
 	 *                      process loads
 	 * @param threadBean    the ThreadMXBean, used to collect thread CPU time
+	 * @param sampler       the StackSampler, used to collect the stack traces of
+	 *                      the running threads
 	 */
 	public MonitoringHandler(long appPid, AgentProperties properties, List<ResultWriter> resultWriters, Cpu cpu,
-			MonitoringStatus status, OperatingSystemMXBean osBean, ThreadMXBean threadBean) {
+			MonitoringStatus status, OperatingSystemMXBean osBean, ThreadMXBean threadBean, StackSampler sampler) {
 		this.appPid = appPid;
 		this.properties = properties;
 		this.resultWriters = resultWriters;
@@ -77,8 +81,29 @@ public class MonitoringHandler implements Runnable {
 		this.status = status;
 		this.osBean = osBean;
 		this.threadBean = threadBean;
+		this.sampler = sampler;
 		this.sampleRateMilliseconds = properties.stackMonitoringSampleRate();
-		this.sampleIterations = (int) (sampleTimeMilliseconds / sampleRateMilliseconds);
+		this.sampleTimeMilliseconds = properties.monitoringWindow();
+		this.cpuTimeWeighting = isCpuTimeWeighting(properties, sampler);
+	}
+
+	/**
+	 * Indicates whether the samples are weighted by the CPU time used by their thread since their previous sample.
+	 * JFR delivers its samples in batches, long after the tick that collects them, so they are never weighted.
+	 *
+	 * @param properties the agent's configuration properties
+	 * @param sampler    the StackSampler, used to collect the stack traces of the running threads
+	 * @return true if the samples are weighted by CPU time
+	 */
+	private static boolean isCpuTimeWeighting(AgentProperties properties, StackSampler sampler) {
+		if (!"cpu-time".equals(properties.stackMonitoringWeighting())) {
+			return false;
+		}
+		if (sampler instanceof JfrSampler) {
+			logger.log(Level.INFO, "The JFR sampler does not support CPU time weighting, counting each sample once");
+			return false;
+		}
+		return true;
 	}
 
 	/**
@@ -94,115 +119,56 @@ public class MonitoringHandler implements Runnable {
 	}
 
 	/**
-	 * Indicate if the JVM is destroying
+	 * Indicate if the JVM is destroying.
+	 * Thread infos are requested without stack traces, which does not require a
+	 * global safepoint (unlike {@link Thread#getAllStackTraces()}).
 	 *
 	 * @return true if the JVM destroying thread is present, false otherwise
 	 */
 	private boolean destroyingVM() {
 		if (!this.properties.isApplicationServer()) {
-			return Thread.getAllStackTraces().keySet().stream()
-					.anyMatch(thread -> thread.getName().equals(DESTROY_THREAD_NAME));
+			return Arrays.stream(threadBean.getThreadInfo(threadBean.getAllThreadIds(), 0))
+					.anyMatch(threadInfo -> threadInfo != null && threadInfo.getThreadName().equals(DESTROY_THREAD_NAME));
 		} else {
 			return false;
 		}
 	}
 
-	/**
-	 * Returns the occurences of each call tree during monitoring loop, per thread.
-	 *
-	 * @param samples the result of the sampling step. A List of StackTraces of each
-	 *                Thread.
-	 * @param filter  a Predicate, used to filter method names within the call tree.
-	 * @return for each Thread, a Map of each CallTree and its occurences during the
-	 *         last monitoring loop.
-	 */
-	private Map<Thread, Map<CallTree, Integer>> extractCallTreesStats(Map<Thread, List<StackTraceElement[]>> samples,
-			Predicate<String> filter) {
-		Map<Thread, Map<CallTree, Integer>> stats = new HashMap<>();
-
-		for (var entry : samples.entrySet()) {
-			Map<CallTree, Integer> target = new HashMap<>();
-			stats.put(entry.getKey(), target);
-
-			for (var stackTraceEntry : entry.getValue()) {
-				List<StackTraceElement> stackTrace = StackTraceFilter.filter(stackTraceEntry, filter);
-				if (!stackTrace.isEmpty()) {
-					target.merge(new CallTree(stackTrace), 1, Integer::sum);
-				}
-			}
-		}
-
-		return stats;
-	}
-
-	/**
-	 * Return the occurrences of each method call during monitoring loop, per
-	 * thread.
-	 *
-	 * @param samples the result of the sampling step. A List of StackTraces of each
-	 *                Thread
-	 * @param covers  a Predicate, used to filter method names
-	 * @return for each Thread, a Map of each method and its occurrences during the
-	 *         last monitoring loop
-	 */
-	private Map<Thread, Map<String, Integer>> extractStats(Map<Thread, List<StackTraceElement[]>> samples,
-			Predicate<String> covers) {
-		Map<Thread, Map<String, Integer>> stats = new HashMap<>();
-
-		for (var entry : samples.entrySet()) {
-			Map<String, Integer> target = new HashMap<>();
-			stats.put(entry.getKey(), target);
-
-			for (StackTraceElement[] stackTrace : entry.getValue()) {
-				for (StackTraceElement stackTraceElement : stackTrace) {
-					String methodName = stackTraceElement.getClassName() + "." + stackTraceElement.getMethodName();
-					if (covers.test(methodName)) {
-						target.merge(methodName, 1, Integer::sum);
-						break;
-					}
-				}
-			}
-		}
-
-		return stats;
-	}
-
 	/**
 	 * Updates the CPU times for each Thread. Returns for each thread (PID) it's
-	 * percentage of CPU time used
+	 * percentage of CPU time used. With CPU time weighting, the weighted samples
+	 * of each thread give its CPU time directly.
 	 *
-	 * @param methodsStats   a map of method occurrences for each thread
-	 * @param threadsCpuTime a map of CPU time per PID, contains the cpu time for
-	 *                       each tread, resulting from the last call to
-	 *                       getThreadCpuTime(threadId)
-	 * @param processEnergy  the energy consumed by the process in the last
-	 *                       monitoring period
+	 * @param methodsStats  a map of method occurrences for each thread
+	 * @param threadLedger  the ledger of the CPU time of each thread, giving the
+	 *                      CPU time used by each thread in the last monitoring
+	 *                      period
+	 * @param processEnergy the energy consumed by the process in the last
+	 *                      monitoring period
+	 * @param totalWeight   the total weight of the sampling ticks of the last
+	 *                      monitoring period (their number if samples are not
+	 *                      weighted by energy)
 	 * @return for each PID, the percentage of energy used by the associated thread
 	 */
-	private Map<Long, Double> getThreadsCpuTimePercentage(Map<Thread, Map<String, Integer>> methodsStats,
-			Map<Long, Long> threadsCpuTime, double processEnergy) {
+	private Map<Long, Double> getThreadsCpuTimePercentage(Map<Long, LongLongHashMap> methodsStats,
+			ThreadLedger threadLedger, double processEnergy, long totalWeight) {
 		Map<Long, Double> threadsCpuTimePercentage = new HashMap<>();
 
 		Map<Long, Double> actualThreadsCpuTime = new HashMap<>();
 		double totalThreadsCpuTime = 0;
 		// first compute the proportion of cpu time for each thread in the last sampling
 		// period
-		for (Entry<Thread, Map<String, Integer>> threadEntry : methodsStats.entrySet()) {
-			long threadId = threadEntry.getKey().getId(); // Is deprecated in Java 19, use threadId() instead
-			long currentThreadCpuTime = threadBean.getThreadCpuTime(threadId);
-			long previousThreadCpuTime = threadsCpuTime.getOrDefault(threadId, 0l);
-			if (currentThreadCpuTime < 0) { // thread has quit
-				// TODO ignore last sampling period??
-				long jump = this.sampleRateMilliseconds / 10;
-				currentThreadCpuTime = previousThreadCpuTime + jump; // assume interval of 1 millisecond
-				logger.info("Thread CPU time negative, taking previous time + " + jump + " : " + currentThreadCpuTime
-						+ " for thread: " + threadId);
+		LongLongHashMap cpuTimeDeltas = threadLedger.endWindow(methodsStats.keySet());
+		for (Entry<Long, LongLongHashMap> threadEntry : methodsStats.entrySet()) {
+			long threadId = threadEntry.getKey();
+			double adjustedThreadCpuTime;
+			if (cpuTimeWeighting) {
+				// Samples are already weighted by the CPU time used by the thread since its previous sample
+				adjustedThreadCpuTime = threadEntry.getValue().sumValues();
+			} else {
+				long delta = cpuTimeDeltas.get(threadId, 0);
+				adjustedThreadCpuTime = delta * (double) threadEntry.getValue().sumValues() / totalWeight;
 			}
-
-			threadsCpuTime.put(threadId, currentThreadCpuTime);
-			long delta = currentThreadCpuTime - previousThreadCpuTime;
-			double adjustedThreadCpuTime = delta * threadEntry.getValue().values().stream().mapToDouble(i -> i).sum()
-					/ sampleIterations;
 			totalThreadsCpuTime += adjustedThreadCpuTime;
 			actualThreadsCpuTime.put(threadId, adjustedThreadCpuTime);
 		}
@@ -224,45 +190,66 @@ public class MonitoringHandler implements Runnable {
         logger.log(Level.INFO, String.format("Started monitoring application with ID %d", appPid));
 
         // CPU time for each thread
-        Map<Long, Long> threadsCpuTime = new HashMap<>();
+        ThreadLedger threadLedger = new ThreadLedger(threadBean);
+
+        // Energy counters are read at each sampling tick, to weight each sample by the energy of its own tick
+        EnergySampler energySampler = createEnergySampler();
+        SamplingScheduler scheduler = new SamplingScheduler(sampler, threadLedger, energySampler, cpuTimeWeighting,
+                () -> new SampleAggregator(status, properties::filtersMethod, this.properties.callTreesConsumption()),
+                sampleRateMilliseconds, sampleTimeMilliseconds);
+        scheduler.start();
+        SampleRateController rateController = createSampleRateController();
+        long computationThreadId = Thread.currentThread().getId(); // Is deprecated in Java 19, use threadId() instead
+        agentCpuTime = getAgentCpuTime(computationThreadId, scheduler.getSamplingThreadId());
+        // Reused at every window, so reading the energy source does not allocate
+        EnergySample energySample = new EnergySample();
+        if (energySampler == null) {
+            // The energy of the first window is measured from here
+            cpu.readEnergy(0, energySample);
+        }
 
         while (!destroyingVM()) {
             try {
-                double energyBefore = cpu.getInitialPower();
-
-                var samples = sample();
-                var methodsStats = extractStats(samples, methodName -> true);
-                var methodsStatsFiltered = extractStats(samples, properties::filtersMethod);
-
-                // Collecting call trees stats only if the option is enabled
-                Map<Thread, Map<CallTree, Integer>> callTreesStats = null;
-                Map<Thread, Map<CallTree, Integer>> filteredCallTreeStats = null;
-                if (this.properties.callTreesConsumption()) {
-                    callTreesStats = extractCallTreesStats(samples, methodName -> true);
-                    filteredCallTreeStats = extractCallTreesStats(samples, properties::filtersMethod);
+                // Aggregating methods and call trees (only if the option is enabled) while sampling
+                SamplingScheduler.Window window = scheduler.nextWindow();
+                SampleAggregator aggregator = window.getAggregator();
+                status.addSamplingWindow(window.getSampleCount(), window.getElapsedNanos());
+                if (rateController != null) {
+                    adaptSampleRate(scheduler, rateController, computationThreadId, window.getElapsedNanos());
                 }
 
+                var methodsStats = aggregator.getMethodsStats();
+                var methodsStatsFiltered = aggregator.getFilteredMethodsStats();
+                var callTreesStats = aggregator.getCallTreesStats();
+                var filteredCallTreeStats = aggregator.getFilteredCallTreesStats();
+
                 double cpuLoad = osBean.getSystemCpuLoad(); // If Java >= 14 is available, use the new getCpuLoad() instead
                 double processCpuLoad = osBean.getProcessCpuLoad();
 
-                double energyAfter = cpu.getCurrentPower(cpuLoad);
-                double cpuEnergy = energyAfter - energyBefore;
-
-                // Check if energy after is smaller than before
-                // Meaning: RAPL energy has wrapped
-                if (energyBefore > energyAfter) {
-                    cpuEnergy += cpu.getMaxPower(cpuLoad);
-                }
-
-                // if cpuEnergy is negative, skip this cycle.
-                // this happens when energy counter is reset during program execution
-                if (cpuEnergy < 0) {
-                    logger.info("Negative energy delta detected, skipping this cycle: " + cpuEnergy);
-                    continue;
+                // Energy consumed during the window: counters handle their own wraparounds, and power
+                // readings are converted to energy over the measured interval since the previous reading
+                double cpuEnergy;
+                if (energySampler != null) {
+                    cpuEnergy = window.getEnergy();
+                    energySampler.setCpuLoad(cpuLoad);
+                } else {
+                    cpu.readEnergy(cpuLoad, energySample);
+                    cpuEnergy = energySample.getJoules();
+                    // if the reading is invalid, skip this cycle.
+                    // this happens when a power source reports an invalid (negative, NaN or infinite) reading
+                    if (!energySample.isValid()) {
+                        logger.info("Invalid energy reading (" + energySample.getInvalidReason()
+                                + "), skipping this cycle: " + cpuEnergy);
+                        continue;
+                    }
                 }
 
-                // Calculate CPU energy consumption of the process of the JVM all its apps
-                double processEnergy = calculateProcessCpuEnergy(cpuLoad, processCpuLoad, cpuEnergy);
+                // Calculate CPU energy consumption of the process of the JVM all its apps, using the share
+                // measured by the energy source if available
+                double processShare = cpu.getProcessShare();
+                double processEnergy = Double.isNaN(processShare)
+                        ? calculateProcessCpuEnergy(cpuLoad, processCpuLoad, cpuEnergy)
+                        : processShare * cpuEnergy;
 
                 // Adds current power to total energy
                 status.addConsumedEnergy(processEnergy);
@@ -274,39 +261,41 @@ public class MonitoringHandler implements Runnable {
 //                long totalThreadsCpuTime = updateThreadsCpuTime(methodsStats, threadsCpuTime);
 //                var threadCpuTimePercentages = getThreadsCpuTimePercentage(threadsCpuTime, totalThreadsCpuTime, processEnergy);
 
-                var threadCpuTimePercentages = getThreadsCpuTimePercentage(methodsStats, threadsCpuTime, processEnergy);
+                var threadCpuTimePercentages = getThreadsCpuTimePercentage(methodsStats, threadLedger, processEnergy,
+                        window.getTotalWeight());
 
-                updateMethodsConsumedEnergy(methodsStats, threadCpuTimePercentages, status::addMethodConsumedEnergy,
-                        Scope.ALL);
-                updateMethodsConsumedEnergy(methodsStatsFiltered, threadCpuTimePercentages,
-                        status::addFilteredMethodConsumedEnergy, Scope.FILTERED);
+                updateMethodsConsumedEnergy(methodsStats, threadCpuTimePercentages, Scope.ALL);
+                updateMethodsConsumedEnergy(methodsStatsFiltered, threadCpuTimePercentages, Scope.FILTERED);
 
                 // Updating call trees consumption if option is enabled
                 if (this.properties.callTreesConsumption()) {
-                    updateCallTreesConsumedEnergy(callTreesStats, threadCpuTimePercentages,
-                            status::addCallTreeConsumedEnergy);
-                    updateCallTreesConsumedEnergy(filteredCallTreeStats, threadCpuTimePercentages,
-                            status::addFilteredCallTreeConsumedEnergy);
+                    updateCallTreesConsumedEnergy(callTreesStats, threadCpuTimePercentages, Scope.ALL);
+                    updateCallTreesConsumedEnergy(filteredCallTreeStats, threadCpuTimePercentages, Scope.FILTERED);
 
                     // Writing runtime call trees power only if option is enabled
                     if (this.properties.saveCallTreesRuntimeData()) {
-                        this.saveResults(callTreesStats, threadCpuTimePercentages, new ResultWriterConfiguration(
-                                ResultScope.ALL_RUNTIME_CALL_TREE, !this.properties.overwriteCallTreesRuntimeData()));
-                        this.saveResults(filteredCallTreeStats, threadCpuTimePercentages,
-                                new ResultWriterConfiguration(ResultScope.FILTERED_RUNTIME_CALL_TREE,
+                        CallingContextTree callTrees = status.getCallTrees();
+                        CallingContextTree filteredCallTrees = status.getFilteredCallTrees();
+                        this.saveResults(callTreesStats, node -> callTrees.getPath((int) node), threadCpuTimePercentages,
+                                window, new ResultWriterConfiguration(ResultScope.ALL_RUNTIME_CALL_TREE,
+                                        !this.properties.overwriteCallTreesRuntimeData()));
+                        this.saveResults(filteredCallTreeStats, node -> filteredCallTrees.getPath((int) node),
+                                threadCpuTimePercentages, window, new ResultWriterConfiguration(
+                                        ResultScope.FILTERED_RUNTIME_CALL_TREE,
                                         !this.properties.overwriteCallTreesRuntimeData()));
                     }
                 }
 
                 // Writing runtime method's power only if option is enabled
                 if (this.properties.savesRuntimeData()) {
-                    this.saveResults(methodsStats, threadCpuTimePercentages, new ResultWriterConfiguration(
-                            ResultScope.ALL_RUNTIME_METHODS, !this.properties.overwritesRuntimeData()));
-                    this.saveResults(methodsStatsFiltered, threadCpuTimePercentages, new ResultWriterConfiguration(
-                            ResultScope.FILTERED_RUNTIME_METHODS, !this.properties.overwritesRuntimeData()));
+                    FrameDictionary dictionary = status.getFrameDictionary();
+                    this.saveResults(methodsStats, method -> dictionary.getName((int) method), threadCpuTimePercentages,
+                            window, new ResultWriterConfiguration(ResultScope.ALL_RUNTIME_METHODS,
+                                    !this.properties.overwritesRuntimeData()));
+                    this.saveResults(methodsStatsFiltered, method -> dictionary.getName((int) method),
+                            threadCpuTimePercentages, window, new ResultWriterConfiguration(
+                                    ResultScope.FILTERED_RUNTIME_METHODS, !this.properties.overwritesRuntimeData()));
                 }
-
-                Thread.sleep(sampleRateMilliseconds);
             } catch (InterruptedException exception) {
                 Thread.currentThread().interrupt();
             } catch (IOException exception) {
@@ -315,67 +304,122 @@ public class MonitoringHandler implements Runnable {
                 System.exit(1);
             }
         }
+
+        scheduler.close();
     }
 
     /**
-     * Performs the sampling step. Collects a set of stack traces for each thread.
-     * The sampling step is performed multiple time at the frequency of
-     * SAMPLE_RATE_MILLSECONDS, for the duration of SAMPLE_TIME_MILLISECONDS
+     * Creates the sampler reading the energy at each sampling tick, for energy counters. Power readings are
+     * refreshed too rarely to tell apart the ticks of a window, so their samples are not weighted. Neither are
+     * JFR samples, which are collected about once a second by whichever tick follows their delivery.
      *
-     * @return for each Thread, a List of its stack traces
+     * @return the EnergySampler, or null if samples are not weighted by energy
      */
-    private Map<Thread, List<StackTraceElement[]>> sample() {
-        Map<Thread, List<StackTraceElement[]>> result = new HashMap<>();
-        try {
-            for (int duration = 0; duration < sampleTimeMilliseconds; duration += sampleRateMilliseconds) {
-                for (var entry : Thread.getAllStackTraces().entrySet()) {
-                    String threadName = entry.getKey().getName();
-                    // Ignoring agent related threads, if option is enabled
-                    if (this.properties.hideAgentConsumption() && (threadName.equals(Agent.COMPUTATION_THREAD_NAME))) {
-                        continue; // Ignoring the thread
-                    }
+    private EnergySampler createEnergySampler() {
+        if (cpu.isInstantaneousPower() || sampler instanceof JfrSampler) {
+            return null;
+        }
+        return new EnergySampler(cpu);
+    }
 
-                    // Only check runnable threads (not waiting or blocked)
-                    if (entry.getKey().getState() == Thread.State.RUNNABLE) {
-                        var target = result.computeIfAbsent(entry.getKey(), t -> new ArrayList<>(sampleIterations));
-                        target.add(entry.getValue());
-                    }
-                }
+    /**
+     * Creates the controller adapting the sample rate to the agent overhead budget, if one is configured.
+     *
+     * @return the SampleRateController, or null if the sample rate is fixed
+     */
+    private SampleRateController createSampleRateController() {
+        double overheadBudget = this.properties.stackMonitoringOverheadBudget();
+        if (overheadBudget <= 0) {
+            return null;
+        }
+        if (sampler instanceof JfrSampler) {
+            logger.log(Level.INFO, "The JFR sampler uses a fixed sample rate, ignoring the overhead budget");
+            return null;
+        }
 
-                Thread.sleep(sampleRateMilliseconds);
-            }
-        } catch (InterruptedException exception) {
-            Thread.currentThread().interrupt();
+        logger.log(Level.INFO, "Adapting the sample rate to an agent overhead budget of {0}%", overheadBudget);
+        return new SampleRateController(overheadBudget, sampleRateMilliseconds, 1,
+                Math.min(1000, sampleTimeMilliseconds));
+    }
+
+    /**
+     * Measures the CPU time used by the agent threads during the last window, and updates the sample rate
+     * of the scheduler accordingly.
+     *
+     * @param scheduler           the SamplingScheduler running the sampling ticks
+     * @param rateController      the SampleRateController computing the new sample rate
+     * @param computationThreadId the ID of the computation thread
+     * @param elapsedNanos        the duration of the last window, in nanoseconds
+     */
+    private void adaptSampleRate(SamplingScheduler scheduler, SampleRateController rateController,
+            long computationThreadId, long elapsedNanos) {
+        long currentAgentCpuTime = getAgentCpuTime(computationThreadId, scheduler.getSamplingThreadId());
+        long previousSampleRate = rateController.getSampleRate();
+        long usedCpuTime = currentAgentCpuTime >= 0 && agentCpuTime >= 0 ? currentAgentCpuTime - agentCpuTime : -1;
+        long sampleRate = rateController.update(usedCpuTime, elapsedNanos);
+        agentCpuTime = currentAgentCpuTime;
+
+        if (sampleRate != previousSampleRate) {
+            scheduler.setSampleRate(sampleRate);
+            logger.log(Level.INFO, String.format("Agent overhead of %.2f%%, stack monitoring sample rate set to %d ms",
+                    rateController.getLastOverheadPercentage(), sampleRate));
         }
+    }
 
-        return result;
+    /**
+     * Returns the total CPU time used by the agent threads.
+     *
+     * @param computationThreadId the ID of the computation thread
+     * @param samplingThreadId    the ID of the sampling thread
+     * @return the CPU time in nanoseconds, or a negative value if it is not available
+     */
+    private long getAgentCpuTime(long computationThreadId, long samplingThreadId) {
+        long computationCpuTime = threadBean.getThreadCpuTime(computationThreadId);
+        long samplingCpuTime = threadBean.getThreadCpuTime(samplingThreadId);
+        if (computationCpuTime < 0 || samplingCpuTime < 0) {
+            return -1;
+        }
+        return computationCpuTime + samplingCpuTime;
     }
 
 	  /**
      * Writes the results. The filename is partially defined by the given
      * parameters.
      *
-     * @param <K>                      The type of key that will be written in the
-     *                                 file. Must implement the {@code toString()}
-     *                                 method.
      * @param stats                    the data to be written, given under the form
-     *                                 of a {@code Map<Thread, Map<K>, Double>>} where the
-     *                                 Double is the energy consumption.
+     *                                 of the occurrences of each key (method frame ID
+     *                                 or call tree node ID) per Thread
+     * @param keyNames                 the function returning the name written in the
+     *                                 file for a key
      * @param threadCpuTimePercentages a map of CPU time usage per Thread (PID)
+     * @param window                   the monitoring window of the data, giving its
+     *                                 number of samples and its duration
      * @param config                   configuration for the writers
      * @throws IOException if an I/O error occurs while writing the file
      */
-    public <K> void saveResults(Map<Thread, Map<K, Integer>> stats, Map<Long, Double> threadCpuTimePercentages,
+    public void saveResults(Map<Long, LongLongHashMap> stats, LongFunction<String> keyNames,
+            Map<Long, Double> threadCpuTimePercentages, SamplingScheduler.Window window,
             ResultWriterConfiguration config) throws IOException {
         for (final ResultWriter resultWriter : resultWriters) {
             resultWriter.setConfiguration(config);
         }
 
+        // Converts (weighted) occurrences to a share of the thread energy per second of the window
+        double samplePowerRatio = 1.0 / (window.getTotalWeight() * window.getElapsedSeconds());
         for (var statEntry : stats.entrySet()) {
-            for (var entry : statEntry.getValue().entrySet()) {
-                double power = threadCpuTimePercentages.get(statEntry.getKey().getId()) * (entry.getValue() / 100.0);
+            LongLongHashMap occurrences = statEntry.getValue();
+            if (cpuTimeWeighting) {
+                // Occurrences are CPU times, the share of a key is relative to the CPU time of its thread
+                long threadWeight = occurrences.sumValues();
+                samplePowerRatio = threadWeight > 0 ? 1.0 / (threadWeight * window.getElapsedSeconds()) : 0;
+            }
+            double threadPower = threadCpuTimePercentages.get(statEntry.getKey());
+            long[] keys = occurrences.keys(new long[occurrences.size()]);
+            for (long key : keys) {
+                double power = threadPower * occurrences.get(key, 0) * samplePowerRatio;
+                String name = keyNames.apply(key);
                 for (ResultWriter resultWriter : resultWriters) {
-                    resultWriter.write(entry.getKey().toString(), power);
+                    resultWriter.write(name, power);
                 }
             }
         }
@@ -384,69 +428,78 @@ public class MonitoringHandler implements Runnable {
             resultWriter.closeTarget();
         }
     }
-    
+
     /**
      * Update method's consumed energy.
      *
-     * @param methodsStats               method's encounters statistics per Thread
+     * @param methodsStats               method's encounters statistics (per frame
+     *                                   ID) per Thread
      * @param threadCpuTimePercentages   a map of CPU time usage per PID
-     * @param updateMethodConsumedEnergy an object consumer, used to update all or
-     *                                   only filtered methods
      * @param scope                      the scope (all methods or only filtered
-     *                                   methods). Used for energy consumption
-     *                                   tracking
+     *                                   methods). Used to update all or only
+     *                                   filtered methods
      */
-    private void updateMethodsConsumedEnergy(Map<Thread, Map<String, Integer>> methodsStats,
+    private void updateMethodsConsumedEnergy(Map<Long, LongLongHashMap> methodsStats,
                                              Map<Long, Double> threadCpuTimePercentages,
-                                             ObjDoubleConsumer<String> updateMethodConsumedEnergy,
                                              Scope scope) {
+        // computing the UNIX EPOCH timestamp, only used if consumption evolution tracking is enabled
+        long unixTimestamp = System.currentTimeMillis() / 1000L;
+
         for (var threadEntry : methodsStats.entrySet()) {
-            double totalEncounters = threadEntry.getValue().values().stream().mapToDouble(i -> i).sum();
-            for (var methodEntry : threadEntry.getValue().entrySet()) {
+            double totalEncounters = threadEntry.getValue().sumValues();
+            double threadPower = threadCpuTimePercentages.get(threadEntry.getKey());
+            threadEntry.getValue().forEach((methodKey, encounters) -> {
+                int methodId = (int) methodKey;
                 double methodPower = 0.0;
                 if(totalEncounters >= Double.MIN_VALUE) {
-                    methodPower = threadCpuTimePercentages.get(threadEntry.getKey().getId()) * (methodEntry.getValue() / totalEncounters);
+                    methodPower = threadPower * (encounters / totalEncounters);
                 }
 
                 // Only of consumption evolution tracking is enabled
                 if (this.properties.trackConsumptionEvolution()) {
-                    // computing the UNIX EPOCH timestamp
-                    long unixTimestamp = System.currentTimeMillis() / 1000L;
-
                     if (scope == Scope.ALL) {
-                        this.status.trackMethodConsumption(methodEntry.getKey(), unixTimestamp, methodPower);
+                        this.status.trackMethodConsumption(methodId, unixTimestamp, methodPower);
                     } else {
-                        this.status.trackFilteredMethodConsumption(methodEntry.getKey(), unixTimestamp, methodPower);
+                        this.status.trackFilteredMethodConsumption(methodId, unixTimestamp, methodPower);
                     }
                 }
 
-                updateMethodConsumedEnergy.accept(methodEntry.getKey(), methodPower);
-            }
+                if (scope == Scope.ALL) {
+                    this.status.addMethodConsumedEnergy(methodId, methodPower);
+                } else {
+                    this.status.addFilteredMethodConsumedEnergy(methodId, methodPower);
+                }
+            });
         }
     }
 
     /**
      * Update call trees consumed energy.
      *
-     * @param stats                    call trees encounters statistics per Thread
+     * @param stats                    call trees encounters statistics (per node
+     *                                 ID) per Thread
      * @param threadCpuTimePercentages map of CPU time usage per PID
-     * @param callTreeConsumer         the method used to update the energy
-     *                                 consumption
+     * @param scope                    the scope (all or only filtered call trees).
+     *                                 Used to update all or only filtered call trees
      */
-    private void updateCallTreesConsumedEnergy(Map<Thread, Map<CallTree, Integer>> stats,
-            Map<Long, Double> threadCpuTimePercentages, ObjDoubleConsumer<CallTree> callTreeConsumer) {
+    private void updateCallTreesConsumedEnergy(Map<Long, LongLongHashMap> stats,
+            Map<Long, Double> threadCpuTimePercentages, Scope scope) {
         for (var entry : stats.entrySet()) {
-            double totalEncounters = entry.getValue().values().stream().mapToDouble(i -> i).sum();
+            double totalEncounters = entry.getValue().sumValues();
+            double threadPower = threadCpuTimePercentages.get(entry.getKey());
 
-            for (var callTreeEntry : entry.getValue().entrySet()) {
+            entry.getValue().forEach((node, encounters) -> {
                 double stackTracePower = 0.0;
                 if (totalEncounters >= Double.MIN_VALUE) {
-                    stackTracePower = threadCpuTimePercentages.get(entry.getKey().getId())
-                            * (callTreeEntry.getValue() / totalEncounters);
+                    stackTracePower = threadPower * (encounters / totalEncounters);
                 }
 
-                callTreeConsumer.accept(callTreeEntry.getKey(), stackTracePower);
-            }
+                if (scope == Scope.ALL) {
+                    this.status.addCallTreeConsumedEnergy((int) node, stackTracePower);
+                } else {
+                    this.status.addFilteredCallTreeConsumedEnergy((int) node, stackTracePower);
+                }
+            });
         }
     }
-}
\ No newline at end of file
+}
@@ -10,42 +10,49 @@
 
 package org.noureddine.joularjx.monitor;
 
-import java.util.Collections;
+import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
-import org.noureddine.joularjx.utils.CallTree;
+import org.noureddine.joularjx.utils.CallingContextTree;
+import org.noureddine.joularjx.utils.FrameDictionary;
 
 /**
  * The MonitoringStatus contains several data structures used to save runtime data and global consumption values.
+ * Methods are identified by their frame ID in the {@link FrameDictionary}, and their names are only resolved
+ * when the results are requested.
  */
 public class MonitoringStatus {
 
     private final Object consumedEnergyLock;
-    private final Map<String, Double> methodsConsumedEnergy;
-    private final Map<String, Double> filteredMethodsConsumedEnergy;
+    private final FrameDictionary frameDictionary;
+    private final Map<Integer, Double> methodsConsumedEnergy;
+    private final Map<Integer, Double> filteredMethodsConsumedEnergy;
 
-    //Map method names to a Map of timestamps mapped to energy consumption
-    private final Map<String, Map<Long, Double>> methodsConsumptionEvolution;
-    private final Map<String, Map<Long, Double>> filteredMethodsConsumptionEvolution;
+    //Map method frame IDs to a Map of timestamps mapped to energy consumption
+    private final Map<Integer, Map<Long, Double>> methodsConsumptionEvolution;
+    private final Map<Integer, Map<Long, Double>> filteredMethodsConsumptionEvolution;
 
-    //Map CallTrees to their energy consumption
-    private final Map<CallTree, Double> callTreesConsumption;
-    private final Map<CallTree, Double> filteredCallTreesConsumption;
+    //Calling context trees storing the energy consumption of each call tree
+    private final CallingContextTree callTreesConsumption;
+    private final CallingContextTree filteredCallTreesConsumption;
 
     private double totalConsumedEnergy;
+    private long totalSampleCount;
+    private long totalSamplingNanos;
 
     /**
      * Constructor for the MonitoringStatus class. Initializes empty data structures and sets the total consumed energy to zero.
      */
     public MonitoringStatus() {
         this.consumedEnergyLock = new Object();
+        this.frameDictionary = new FrameDictionary();
         this.methodsConsumedEnergy = new ConcurrentHashMap<>();
         this.filteredMethodsConsumedEnergy = new ConcurrentHashMap<>();
         this.methodsConsumptionEvolution = new ConcurrentHashMap<>();
         this.filteredMethodsConsumptionEvolution = new ConcurrentHashMap<>();
-        this.callTreesConsumption = new ConcurrentHashMap<>();
-        this.filteredCallTreesConsumption = new ConcurrentHashMap<>();
+        this.callTreesConsumption = new CallingContextTree(this.frameDictionary);
+        this.filteredCallTreesConsumption = new CallingContextTree(this.frameDictionary);
 
         this.totalConsumedEnergy = 0;
     }
@@ -60,76 +67,123 @@ public class MonitoringStatus {
         }
     }
 
+    /**
+     * Returns the dictionary interning the frames of the sampled stack traces.
+     * @return the FrameDictionary used for the method IDs
+     */
+    public FrameDictionary getFrameDictionary() {
+        return this.frameDictionary;
+    }
+
     /**
      * Adds the given energy consumption to the given method.
-     * @param methodName a String, the method name to which the consumption is mapped
+     * @param methodId an int, the frame ID of the method to which the consumption is mapped
      * @param delta a double, the amount of energy consumption to be added
      */
-    public void addMethodConsumedEnergy(String methodName, double delta) {
-        methodsConsumedEnergy.merge(methodName, delta, Double::sum);
+    public void addMethodConsumedEnergy(int methodId, double delta) {
+        methodsConsumedEnergy.merge(methodId, delta, Double::sum);
     }
 
     /**
      * Adds the given energy consumption to the given filtered method.
-     * @param methodName a String, the filtered method name to which the consumption is mapped
+     * @param methodId an int, the frame ID of the filtered method to which the consumption is mapped
      * @param delta a double, the amount of energy to be added
      */
-    public void addFilteredMethodConsumedEnergy(String methodName, double delta) {
-        filteredMethodsConsumedEnergy.merge(methodName, delta, Double::sum);
+    public void addFilteredMethodConsumedEnergy(int methodId, double delta) {
+        filteredMethodsConsumedEnergy.merge(methodId, delta, Double::sum);
+    }
+
+    /**
+     * Returns the calling context tree of the call trees.
+     * @return the {@link CallingContextTree} in which call trees are added
+     */
+    public CallingContextTree getCallTrees() {
+        return this.callTreesConsumption;
+    }
+
+    /**
+     * Returns the calling context tree of the filtered call trees.
+     * @return the {@link CallingContextTree} in which filtered call trees are added
+     */
+    public CallingContextTree getFilteredCallTrees() {
+        return this.filteredCallTreesConsumption;
     }
 
     /**
      * Adds the given energy consumption to the given call tree.
-     * @param callTree a {@link CallTree} the call tree to which the consumption is mapped
+     * @param callTreeId an int, the node ID of the call tree to which the consumption is mapped
      * @param delta a double, the amount of energy to be added
      */
-    public void addCallTreeConsumedEnergy(CallTree callTree, double delta) {
-        this.callTreesConsumption.merge(callTree, delta, Double::sum);
+    public void addCallTreeConsumedEnergy(int callTreeId, double delta) {
+        this.callTreesConsumption.addEnergy(callTreeId, delta);
     }
 
     /**
      * Adds the given energy consumption to the given filtered call tree
-     * @param callTree a {@link CallTree}, the call tree to which the consumption is mapped
+     * @param callTreeId an int, the node ID of the filtered call tree to which the consumption is mapped
      * @param delta a double, the amount of energy to be added
      */
-    public void addFilteredCallTreeConsumedEnergy(CallTree callTree, double delta) {
-        this.filteredCallTreesConsumption.merge(callTree, delta, Double::sum);
+    public void addFilteredCallTreeConsumedEnergy(int callTreeId, double delta) {
+        this.filteredCallTreesConsumption.addEnergy(callTreeId, delta);
     }
 
     /**
      * Tracks the method's energy consumption over the time. Maps the given UNIX timestamp to the given energy consumption for the given method name. 
-     * Creates or update the needed data structures.
-     * @param methodName a String, the name of the method
+     * Creates or update the needed data structures. Energy tracked several times for the same timestamp is summed.
+     * @param methodId an int, the frame ID of the method
      * @param timestamp a long representing an UNIX timestamp
      * @param energy a double, the method energy consumption
      */
-    public void trackMethodConsumption(String methodName, long timestamp, double energy) {
-        if (!this.methodsConsumptionEvolution.containsKey(methodName)) {
+    public void trackMethodConsumption(int methodId, long timestamp, double energy) {
+        if (!this.methodsConsumptionEvolution.containsKey(methodId)) {
             // Creating a new map for tracking the method's energy consumption over the time
             Map<Long, Double> methodEnergyTrackMap = new ConcurrentHashMap<>();
             methodEnergyTrackMap.put(timestamp, energy);
 
-            this.methodsConsumptionEvolution.put(methodName, methodEnergyTrackMap);
+            this.methodsConsumptionEvolution.put(methodId, methodEnergyTrackMap);
         } else {
-            this.methodsConsumptionEvolution.get(methodName).put(timestamp, energy);
+            this.methodsConsumptionEvolution.get(methodId).merge(timestamp, energy, Double::sum);
         }
     }
 
     /**
      * Tracks the filtered method's energy consumption over the time. Maps the given UNIX timestamp to the given energy consumption for the given method name. 
-     * Creates or update the needed data structures.
-     * @param methodName a String, the name of the method
+     * Creates or update the needed data structures. Energy tracked several times for the same timestamp is summed.
+     * @param methodId an int, the frame ID of the method
      * @param timestamp a long representing an UNIX timestamp
      * @param energy a double, the method energy consumption
      */
-    public void trackFilteredMethodConsumption(String methodName, long timestamp, double energy) {
-        if (!this.filteredMethodsConsumptionEvolution.containsKey(methodName)) {
+    public void trackFilteredMethodConsumption(int methodId, long timestamp, double energy) {
+        if (!this.filteredMethodsConsumptionEvolution.containsKey(methodId)) {
             Map<Long, Double> methodEnergyTrackMap = new ConcurrentHashMap<>();
             methodEnergyTrackMap.put(timestamp, energy);
 
-            this.filteredMethodsConsumptionEvolution.put(methodName, methodEnergyTrackMap);
+            this.filteredMethodsConsumptionEvolution.put(methodId, methodEnergyTrackMap);
         } else {
-            this.filteredMethodsConsumptionEvolution.get(methodName).put(timestamp, energy);
+            this.filteredMethodsConsumptionEvolution.get(methodId).merge(timestamp, energy, Double::sum);
+        }
+    }
+
+    /**
+     * Records the number of sampling ticks and the duration of a monitoring window.
+     * @param sampleCount the number of sampling ticks of the window
+     * @param elapsedNanos the duration of the window, in nanoseconds
+     */
+    public void addSamplingWindow(int sampleCount, long elapsedNanos) {
+        synchronized (consumedEnergyLock) {
+            totalSampleCount += sampleCount;
+            totalSamplingNanos += elapsedNanos;
+        }
+    }
+
+    /**
+     * Returns the effective stack monitoring sample rate since the monitoring started, which may differ from the
+     * configured one when the sample rate is adaptive or the agent is delayed.
+     * @return a double, the average time between two sampling ticks in milliseconds, or 0 if no tick was recorded
+     */
+    public double getEffectiveSampleRate() {
+        synchronized (consumedEnergyLock) {
+            return totalSampleCount > 0 ? totalSamplingNanos / 1e6 / totalSampleCount : 0;
         }
     }
 
@@ -148,7 +202,7 @@ public class MonitoringStatus {
      * @return a {@code Map<String, Double>} mapping method's name to their respective energy consumption.
      */
     public Map<String, Double> getMethodsConsumedEnergy() {
-        return Collections.unmodifiableMap(methodsConsumedEnergy);
+        return resolveNames(methodsConsumedEnergy);
     }
 
     /**
@@ -156,7 +210,7 @@ public class MonitoringStatus {
      * @return a {@code Map<String, Double>} mapping filtered method's name to their respective energy consumption.
      */
     public Map<String, Double> getFilteredMethodsConsumedEnergy() {
-        return Collections.unmodifiableMap(filteredMethodsConsumedEnergy);
+        return resolveNames(filteredMethodsConsumedEnergy);
     }
 
     /**
@@ -165,7 +219,7 @@ public class MonitoringStatus {
      * Consumption evolution is stored as a {@code Map<Long,Double>} mapping UNIX timestamps to energy consumption.
      */
     public Map<String, Map<Long, Double>> getMethodsConsumptionEvolution(){
-        return this.methodsConsumptionEvolution;
+        return resolveEvolutionNames(this.methodsConsumptionEvolution);
     }
 
     /**
@@ -174,22 +228,51 @@ public class MonitoringStatus {
      * Consumption evolution is stored as a {@code Map<Long,Double>} mapping UNIX timestamps to energy consumption.
      */
     public Map<String, Map<Long, Double>> getFilteredMethodsConsumptionEvolution(){
-        return this.filteredMethodsConsumptionEvolution;
+        return resolveEvolutionNames(this.filteredMethodsConsumptionEvolution);
     }
 
     /**
-     * Returns the energy consumption of each call tree.
-     * @return a {@code Map<CallTree, Double>} mapping each call tree to their total energy consumption.
+     * Returns the energy consumption of each call tree, by traversing the calling context tree.
+     * @return a {@code Map<String, Double>} mapping each call tree to their total energy consumption.
      */
-    public Map<CallTree, Double> getCallTreesConsumedEnergy() {
-        return this.callTreesConsumption;
+    public Map<String, Double> getCallTreesConsumedEnergy() {
+        return this.callTreesConsumption.getPathsConsumedEnergy();
     }
 
     /**
-     * Returns the energy consumption of each filtered call tree.
-     * @return a {@code Map<CallTree, Double>} mapping each filtered call tree to their total energy consumption.
+     * Returns the energy consumption of each filtered call tree, by traversing the calling context tree.
+     * @return a {@code Map<String, Double>} mapping each filtered call tree to their total energy consumption.
      */
-    public Map<CallTree, Double> getFilteredCallTreesConsumedEnergy() {
-        return this.filteredCallTreesConsumption;
+    public Map<String, Double> getFilteredCallTreesConsumedEnergy() {
+        return this.filteredCallTreesConsumption.getPathsConsumedEnergy();
+    }
+
+    /**
+     * Maps the method frame IDs to the method names. Frames with the same name (e.g. from different files) are merged.
+     * @param consumedEnergy energy consumption per method frame ID
+     * @return a new {@code Map<String, Double>} of energy consumption per method name
+     */
+    private Map<String, Double> resolveNames(Map<Integer, Double> consumedEnergy) {
+        Map<String, Double> result = new HashMap<>();
+        for (var entry : consumedEnergy.entrySet()) {
+            result.merge(frameDictionary.getName(entry.getKey()), entry.getValue(), Double::sum);
+        }
+        return result;
+    }
+
+    /**
+     * Maps the method frame IDs to the method names. Frames with the same name (e.g. from different files) are merged.
+     * @param consumptionEvolution energy consumption evolution per method frame ID
+     * @return a new {@code Map<String, Map<Long, Double>>} of energy consumption evolution per method name
+     */
+    private Map<String, Map<Long, Double>> resolveEvolutionNames(Map<Integer, Map<Long, Double>> consumptionEvolution) {
+        Map<String, Map<Long, Double>> result = new HashMap<>();
+        for (var entry : consumptionEvolution.entrySet()) {
+            Map<Long, Double> evolution = result.computeIfAbsent(frameDictionary.getName(entry.getKey()), name -> new HashMap<>());
+            for (var timestampEntry : entry.getValue().entrySet()) {
+                evolution.merge(timestampEntry.getKey(), timestampEntry.getValue(), Double::sum);
+            }
+        }
+        return result;
     }
 }
@@ -0,0 +1,231 @@
+/*
+ * Copyright (c) 2021-2026, Adel Noureddine, Université de Pau et des Pays de l'Adour.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the
+ * GNU General Public License v3.0 only (GPL-3.0-only)
+ * which accompanies this distribution, and is available at
+ * https://www.gnu.org/licenses/gpl-3.0.en.html
+ *
+ */
+
+package org.noureddine.joularjx.monitor;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Predicate;
+
+import org.noureddine.joularjx.utils.CallingContextTree;
+import org.noureddine.joularjx.utils.FrameDictionary;
+import org.noureddine.joularjx.utils.LongLongHashMap;
+
+/**
+ * The SampleAggregator counts, per thread, the occurrences of methods, filtered methods, call trees and
+ * filtered call trees in the sampled stack traces of a monitoring cycle.
+ * Each stack trace is visited once to fill the four aggregates together. Frames are interned in a
+ * {@link FrameDictionary}, so methods are counted by frame ID. Call trees are added to the
+ * {@link CallingContextTree}s of the {@link MonitoringStatus}, and counted by node ID.
+ * The result of the filter is computed once per frame, and kept across cycles.
+ * Stack traces are added as soon as they are sampled and are not retained, so the memory used by a cycle
+ * depends on the number of distinct methods and call trees, not on the number of samples.
+ * Each sample counts for the current weight: 1 by default, or the energy consumed during its sampling tick
+ * when samples are weighted by energy (see {@link EnergySampler}).
+ */
+public class SampleAggregator {
+
+    private static final byte UNKNOWN = 0;
+    private static final byte FILTERED = 1;
+    private static final byte NOT_FILTERED = 2;
+
+    private final FrameDictionary dictionary;
+    private final CallingContextTree callTrees;
+    private final CallingContextTree filteredCallTrees;
+    private final Predicate<String> filter;
+    private final boolean aggregateCallTrees;
+
+    // Filter result of each frame, indexed by frame ID
+    private byte[] filterStates;
+    private int[] frameIds;
+    private int[] filteredFrameIds;
+
+    private Map<Long, LongLongHashMap> methodsStats;
+    private Map<Long, LongLongHashMap> filteredMethodsStats;
+    private Map<Long, LongLongHashMap> callTreesStats;
+    private Map<Long, LongLongHashMap> filteredCallTreesStats;
+
+    // Cleared per-thread maps of the previous cycles, reused to avoid growing new maps at every cycle
+    private final Deque<LongLongHashMap> freeMaps;
+
+    private long weight;
+
+    /**
+     * Creates a new empty SampleAggregator.
+     *
+     * @param status             the monitoring status, providing the frame dictionary and the calling context trees
+     * @param filter             a Predicate, used to select the filtered method names
+     * @param aggregateCallTrees true to also aggregate call trees, false to only aggregate methods
+     */
+    public SampleAggregator(MonitoringStatus status, Predicate<String> filter, boolean aggregateCallTrees) {
+        this.dictionary = status.getFrameDictionary();
+        this.callTrees = status.getCallTrees();
+        this.filteredCallTrees = status.getFilteredCallTrees();
+        this.filter = filter;
+        this.aggregateCallTrees = aggregateCallTrees;
+        this.filterStates = new byte[256];
+        this.frameIds = new int[64];
+        this.filteredFrameIds = new int[64];
+        this.freeMaps = new ArrayDeque<>();
+        this.weight = 1;
+        reset();
+    }
+
+    /**
+     * Removes all the aggregated samples, to start a new monitoring cycle.
+     * The maps previously returned by the getters are recycled, and must no longer be used.
+     */
+    public void reset() {
+        this.methodsStats = recycle(this.methodsStats);
+        this.filteredMethodsStats = recycle(this.filteredMethodsStats);
+        this.callTreesStats = recycle(this.callTreesStats);
+        this.filteredCallTreesStats = recycle(this.filteredCallTreesStats);
+    }
+
+    /**
+     * Clears the per-thread maps of the given stats for reuse, and returns a new empty stats map.
+     */
+    private Map<Long, LongLongHashMap> recycle(Map<Long, LongLongHashMap> stats) {
+        if (stats != null) {
+            for (LongLongHashMap threadStats : stats.values()) {
+                threadStats.clear();
+                freeMaps.push(threadStats);
+            }
+        }
+        return new HashMap<>();
+    }
+
+    /**
+     * Returns an empty map for the per-thread stats, reusing a map of a previous cycle if available.
+     */
+    private LongLongHashMap newThreadStats(long threadId) {
+        LongLongHashMap threadStats = freeMaps.poll();
+        return threadStats != null ? threadStats : new LongLongHashMap();
+    }
+
+    /**
+     * Sets the weight of the next added samples, e.g. the energy consumed during their sampling tick.
+     *
+     * @param weight the number of occurrences counted for each added sample, 1 by default
+     */
+    public void setWeight(long weight) {
+        this.weight = weight;
+    }
+
+    /**
+     * Adds a sampled stack trace of the given thread.
+     * The top frame is counted as the running method, and the first frame passing the filter as the running
+     * filtered method, each one for the current weight.
+     *
+     * @param threadId   the ID of the sampled thread
+     * @param stackTrace the stack trace of the thread, top frame first
+     */
+    public void add(long threadId, StackTraceElement[] stackTrace) {
+        LongLongHashMap methods = methodsStats.computeIfAbsent(threadId, this::newThreadStats);
+        LongLongHashMap filteredMethods = filteredMethodsStats.computeIfAbsent(threadId, this::newThreadStats);
+        if (aggregateCallTrees && stackTrace.length > frameIds.length) {
+            frameIds = new int[stackTrace.length];
+            filteredFrameIds = new int[stackTrace.length];
+        }
+
+        boolean filteredMethodFound = false;
+        int filteredCount = 0;
+        for (int i = 0; i < stackTrace.length; i++) {
+            int frameId = dictionary.intern(stackTrace[i]);
+            if (i == 0) {
+                methods.addTo(frameId, weight);
+            }
+
+            if (isFiltered(frameId)) {
+                if (!filteredMethodFound) {
+                    filteredMethodFound = true;
+                    filteredMethods.addTo(frameId, weight);
+                }
+                if (aggregateCallTrees) {
+                    filteredFrameIds[filteredCount++] = frameId;
+                }
+            }
+
+            if (aggregateCallTrees) {
+                frameIds[i] = frameId;
+            } else if (filteredMethodFound) {
+                // Without call trees, the remaining frames are only needed until a filtered method is found
+                break;
+            }
+        }
+
+        if (aggregateCallTrees) {
+            LongLongHashMap threadCallTrees = callTreesStats.computeIfAbsent(threadId, this::newThreadStats);
+            LongLongHashMap threadFilteredCallTrees = filteredCallTreesStats.computeIfAbsent(threadId, this::newThreadStats);
+            if (stackTrace.length > 0) {
+                threadCallTrees.addTo(callTrees.addPath(frameIds, stackTrace.length), weight);
+            }
+            if (filteredCount > 0) {
+                threadFilteredCallTrees.addTo(filteredCallTrees.addPath(filteredFrameIds, filteredCount), weight);
+            }
+        }
+    }
+
+    /**
+     * Indicates whether the frame with the given ID passes the filter, testing its name only the first time.
+     */
+    private boolean isFiltered(int frameId) {
+        if (frameId >= filterStates.length) {
+            filterStates = Arrays.copyOf(filterStates, Math.max(frameId + 1, filterStates.length * 2));
+        }
+
+        byte state = filterStates[frameId];
+        if (state == UNKNOWN) {
+            state = filter.test(dictionary.getName(frameId)) ? FILTERED : NOT_FILTERED;
+            filterStates[frameId] = state;
+        }
+        return state == FILTERED;
+    }
+
+    /**
+     * Returns the occurrences of each method, per thread.
+     *
+     * @return for each thread (ID), a map of each method (frame ID) and its occurrences
+     */
+    public Map<Long, LongLongHashMap> getMethodsStats() {
+        return methodsStats;
+    }
+
+    /**
+     * Returns the occurrences of each filtered method, per thread.
+     *
+     * @return for each thread (ID), a map of each filtered method (frame ID) and its occurrences
+     */
+    public Map<Long, LongLongHashMap> getFilteredMethodsStats() {
+        return filteredMethodsStats;
+    }
+
+    /**
+     * Returns the occurrences of each call tree, per thread. Empty if call trees are not aggregated.
+     *
+     * @return for each thread (ID), a map of each call tree (node ID in the calling context tree) and its occurrences
+     */
+    public Map<Long, LongLongHashMap> getCallTreesStats() {
+        return callTreesStats;
+    }
+
+    /**
+     * Returns the occurrences of each filtered call tree, per thread. Empty if call trees are not aggregated.
+     *
+     * @return for each thread (ID), a map of each filtered call tree (node ID in the filtered calling context tree)
+     *         and its occurrences
+     */
+    public Map<Long, LongLongHashMap> getFilteredCallTreesStats() {
+        return filteredCallTreesStats;
+    }
+}
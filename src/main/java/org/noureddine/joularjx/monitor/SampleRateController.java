@@ -0,0 +1,95 @@
+/*
+ * Copyright (c) 2021-2026, Adel Noureddine, Université de Pau et des Pays de l'Adour.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the
+ * GNU General Public License v3.0 only (GPL-3.0-only)
+ * which accompanies this distribution, and is available at
+ * https://www.gnu.org/licenses/gpl-3.0.en.html
+ *
+ */
+
+package org.noureddine.joularjx.monitor;
+
+/**
+ * The SampleRateController adapts the stack monitoring sample rate to keep the CPU time used by the agent
+ * under an overhead budget, expressed as a percentage of the time of one CPU core.
+ * <p>
+ * The sampling cost is roughly proportional to the number of ticks, so the sample rate (the period between
+ * two ticks) is multiplied by the ratio between the measured overhead and the budget. The change is limited
+ * to a factor of 2 per window, and the rate is only changed when the overhead exceeds the budget or falls
+ * below half of it, so it settles instead of oscillating.
+ */
+public class SampleRateController {
+
+    private static final double MAX_CHANGE_FACTOR = 2.0;
+    private static final double LOWER_THRESHOLD = 0.5;
+
+    private final double overheadBudget;
+    private final long minSampleRate;
+    private final long maxSampleRate;
+    private long sampleRate;
+    private double lastOverhead;
+
+    /**
+     * Creates a new SampleRateController.
+     *
+     * @param overheadBudgetPercentage the maximum CPU time used by the agent, in percent of one CPU core
+     * @param initialSampleRate        the initial sample rate, in milliseconds
+     * @param minSampleRate            the lowest sample rate (finest sampling), in milliseconds
+     * @param maxSampleRate            the highest sample rate (coarsest sampling), in milliseconds
+     */
+    public SampleRateController(double overheadBudgetPercentage, long initialSampleRate, long minSampleRate,
+            long maxSampleRate) {
+        this.overheadBudget = overheadBudgetPercentage / 100.0;
+        this.minSampleRate = minSampleRate;
+        this.maxSampleRate = maxSampleRate;
+        this.sampleRate = Math.max(minSampleRate, Math.min(maxSampleRate, initialSampleRate));
+    }
+
+    /**
+     * Updates the sample rate from the CPU time used by the agent during the last monitoring window.
+     *
+     * @param agentCpuTimeNanos the CPU time used by the agent threads during the window, in nanoseconds
+     * @param elapsedNanos      the duration of the window, in nanoseconds
+     * @return the sample rate to use for the next window, in milliseconds
+     */
+    public long update(long agentCpuTimeNanos, long elapsedNanos) {
+        if (agentCpuTimeNanos < 0 || elapsedNanos <= 0) {
+            return sampleRate;
+        }
+
+        lastOverhead = (double) agentCpuTimeNanos / elapsedNanos;
+        if (lastOverhead <= overheadBudget && lastOverhead >= overheadBudget * LOWER_THRESHOLD) {
+            return sampleRate;
+        }
+
+        double factor = Math.max(1 / MAX_CHANGE_FACTOR, Math.min(MAX_CHANGE_FACTOR, lastOverhead / overheadBudget));
+        long newSampleRate = Math.round(sampleRate * factor);
+        // Always move by at least one millisecond, so small rates can change too
+        if (factor > 1) {
+            newSampleRate = Math.max(sampleRate + 1, newSampleRate);
+        } else {
+            newSampleRate = Math.min(sampleRate - 1, newSampleRate);
+        }
+        sampleRate = Math.max(minSampleRate, Math.min(maxSampleRate, newSampleRate));
+        return sampleRate;
+    }
+
+    /**
+     * Returns the current sample rate.
+     *
+     * @return the sample rate, in milliseconds
+     */
+    public long getSampleRate() {
+        return sampleRate;
+    }
+
+    /**
+     * Returns the overhead measured during the last update.
+     *
+     * @return the CPU time used by the agent, in percent of one CPU core
+     */
+    public double getLastOverheadPercentage() {
+        return lastOverhead * 100;
+    }
+}
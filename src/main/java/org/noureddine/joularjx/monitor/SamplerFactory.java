@@ -0,0 +1,79 @@
+/*
+ * Copyright (c) 2021-2026, Adel Noureddine, Université de Pau et des Pays de l'Adour.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the
+ * GNU General Public License v3.0 only (GPL-3.0-only)
+ * which accompanies this distribution, and is available at
+ * https://www.gnu.org/licenses/gpl-3.0.en.html
+ *
+ */
+
+package org.noureddine.joularjx.monitor;
+
+import java.lang.management.ThreadMXBean;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.noureddine.joularjx.utils.AgentProperties;
+import org.noureddine.joularjx.utils.JoularJXLogging;
+
+/**
+ * Factory class for the {@link StackSampler} implementation
+ */
+public class SamplerFactory {
+
+    /**
+     * Sampler based on {@link Thread#getAllStackTraces()}
+     */
+    public static final String THREAD_DUMP_SAMPLER = "thread-dump";
+
+    /**
+     * Sampler based on JFR execution samples (Java 14+)
+     */
+    public static final String JFR_SAMPLER = "jfr";
+
+    /**
+     * Sampler capturing only the stacks of the threads whose CPU time advanced since the previous sample
+     */
+    public static final String CPU_TIME_SAMPLER = "cpu-time";
+
+    private static final Logger logger = JoularJXLogging.getLogger();
+
+    /**
+     * Select the configured {@link StackSampler} implementation.
+     * Falls back to the thread dump sampler if the configured one is not available on the running JVM.
+     *
+     * @param properties the properties passed to the agent
+     * @param threadBean the thread MXBean of the JVM
+     * @return the selected sampler implementation
+     */
+    public static StackSampler getSampler(final AgentProperties properties, final ThreadMXBean threadBean) {
+        String sampler = properties.stackMonitoringSampler();
+
+        if (JFR_SAMPLER.equals(sampler)) {
+            if (JfrSampler.isSupported()) {
+                logger.info("Initializing JFR stack sampler");
+                return new JfrSampler(properties);
+            }
+            logger.log(Level.WARNING, "JFR event streaming requires Java 14 or later. Falling back to the thread dump sampler");
+        } else if (CPU_TIME_SAMPLER.equals(sampler)) {
+            if (threadBean instanceof com.sun.management.ThreadMXBean) {
+                logger.info("Initializing CPU time stack sampler");
+                return new CpuTimeSampler(properties, (com.sun.management.ThreadMXBean) threadBean);
+            }
+            logger.log(Level.WARNING, "Bulk thread CPU time is not supported by this JVM. Falling back to the thread dump sampler");
+        } else if (!THREAD_DUMP_SAMPLER.equals(sampler)) {
+            logger.log(Level.WARNING, "Unknown stack sampler \"{0}\". Falling back to the thread dump sampler", sampler);
+        }
+
+        logger.info("Initializing thread dump stack sampler");
+        return new ThreadDumpSampler(properties);
+    }
+
+    /**
+     * Private constructor which hides the default one
+     */
+    private SamplerFactory() {
+
+    }
+}
@@ -0,0 +1,385 @@
+/*
+ * Copyright (c) 2021-2026, Adel Noureddine, Université de Pau et des Pays de l'Adour.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the
+ * GNU General Public License v3.0 only (GPL-3.0-only)
+ * which accompanies this distribution, and is available at
+ * https://www.gnu.org/licenses/gpl-3.0.en.html
+ *
+ */
+
+package org.noureddine.joularjx.monitor;
+
+import java.util.Arrays;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.noureddine.joularjx.Agent;
+import org.noureddine.joularjx.utils.JoularJXLogging;
+
+/**
+ * The SamplingScheduler runs the sampling ticks of a {@link StackSampler} at a fixed rate, on a dedicated thread,
+ * and groups them in consecutive monitoring windows.
+ * <p>
+ * Ticks are scheduled with {@link ScheduledExecutorService#scheduleAtFixedRate}, and windows end at fixed
+ * {@link System#nanoTime()} deadlines, so the time spent sampling or computing energy does not delay the next
+ * ticks and windows. Two {@link SampleAggregator}s are used alternately: one is filled by the ticks of the
+ * current window, while the other holds the samples of the previous window for the energy computation.
+ * Each window reports the actual number of ticks and its actual duration, which may differ from the
+ * configured values under load. The sample rate can be changed between windows.
+ * When the sampler reads the CPU time of the threads it samples (e.g. {@link CpuTimeSampler}), these CPU times are
+ * recorded in a {@link ThreadLedger}. Otherwise the ticks read no CPU time, unless samples are weighted by CPU time.
+ * With an {@link EnergySampler}, the energy is also read at each tick, and the samples of the tick are weighted
+ * by the energy consumed since the previous tick (in microjoules, at least 1).
+ * With CPU time weighting, each sample is instead weighted by the CPU time used by its thread since its previous
+ * sample (in nanoseconds, multiplied by the power of the tick in watts with an EnergySampler). The CPU times are
+ * the ones read by the sampler if it passes them, or are read in bulk for all the threads of the tick otherwise.
+ */
+public class SamplingScheduler implements AutoCloseable {
+
+    private static final Logger logger = JoularJXLogging.getLogger();
+
+    /**
+     * The samples of a monitoring window.
+     */
+    public static final class Window {
+        private final SampleAggregator aggregator;
+        private final int sampleCount;
+        private final long totalWeight;
+        private final long elapsedNanos;
+        private final double energy;
+
+        private Window(SampleAggregator aggregator, int sampleCount, long totalWeight, long elapsedNanos,
+                double energy) {
+            this.aggregator = aggregator;
+            this.sampleCount = sampleCount;
+            this.totalWeight = totalWeight;
+            this.elapsedNanos = elapsedNanos;
+            this.energy = energy;
+        }
+
+        /**
+         * Returns the aggregator holding the samples of the window.
+         * @return the SampleAggregator filled during the window
+         */
+        public SampleAggregator getAggregator() {
+            return aggregator;
+        }
+
+        /**
+         * Returns the number of sampling ticks performed during the window.
+         * @return the actual number of ticks
+         */
+        public int getSampleCount() {
+            return sampleCount;
+        }
+
+        /**
+         * Returns the sum of the weights of the ticks of the window, i.e. the occurrences of a thread
+         * sampled at every tick.
+         * @return the total weight of the ticks, equal to the number of ticks if samples are not weighted
+         */
+        public long getTotalWeight() {
+            return totalWeight;
+        }
+
+        /**
+         * Returns the energy read by the {@link EnergySampler} during the window.
+         * @return the energy consumed during the window in joules, or NaN without an EnergySampler
+         */
+        public double getEnergy() {
+            return energy;
+        }
+
+        /**
+         * Returns the duration of the window.
+         * @return the actual duration of the window, in nanoseconds
+         */
+        public long getElapsedNanos() {
+            return elapsedNanos;
+        }
+
+        /**
+         * Returns the duration of the window.
+         * @return the actual duration of the window, in seconds
+         */
+        public double getElapsedSeconds() {
+            return elapsedNanos / 1_000_000_000.0;
+        }
+    }
+
+    private final StackSampler sampler;
+    private final ThreadLedger ledger;
+    private final EnergySampler energySampler;
+    private final boolean cpuTimeWeighting;
+    private final long windowNanos;
+    private final Object lock;
+    private final StackSampler.SampleConsumer consumer;
+    private long sampleRateNanos;
+    private ScheduledExecutorService executor;
+    private ScheduledFuture<?> ticks;
+    private volatile long samplingThreadId;
+
+    // Guarded by lock
+    private SampleAggregator current;
+    private SampleAggregator previous;
+    private int sampleCount;
+    private long totalWeight;
+    private double windowStartEnergy;
+    private long[] seenThreadIds;
+    private StackTraceElement[][] seenStackTraces;
+    private long[] seenCpuTimes;
+    // Whether the sampler passed the CPU time of every thread seen by the tick
+    private boolean seenCpuTimesKnown;
+    private long[] sampleCpuTimes;
+    private int seenCount;
+    private long windowStart;
+    private long windowDeadline;
+
+    /**
+     * Creates a new SamplingScheduler, without energy readings at each tick.
+     *
+     * @param sampler                the StackSampler performing the sampling ticks
+     * @param ledger                 the ThreadLedger recording the CPU time of the sampled threads
+     * @param aggregators            creates the two SampleAggregators alternately filled by the windows
+     * @param sampleRateMilliseconds the period of the sampling ticks, in milliseconds
+     * @param windowMilliseconds     the duration of the monitoring windows, in milliseconds
+     */
+    public SamplingScheduler(StackSampler sampler, ThreadLedger ledger, Supplier<SampleAggregator> aggregators,
+            long sampleRateMilliseconds, long windowMilliseconds) {
+        this(sampler, ledger, null, false, aggregators, sampleRateMilliseconds, windowMilliseconds);
+    }
+
+    /**
+     * Creates a new SamplingScheduler.
+     *
+     * @param sampler                the StackSampler performing the sampling ticks
+     * @param ledger                 the ThreadLedger recording the CPU time of the sampled threads
+     * @param energySampler          the EnergySampler read at each tick to weight the samples, or null to
+     *                               count each sample once
+     * @param cpuTimeWeighting       true to weight each sample by the CPU time used by its thread since its
+     *                               previous sample
+     * @param aggregators            creates the two SampleAggregators alternately filled by the windows
+     * @param sampleRateMilliseconds the period of the sampling ticks, in milliseconds
+     * @param windowMilliseconds     the duration of the monitoring windows, in milliseconds
+     */
+    public SamplingScheduler(StackSampler sampler, ThreadLedger ledger, EnergySampler energySampler,
+            boolean cpuTimeWeighting, Supplier<SampleAggregator> aggregators, long sampleRateMilliseconds,
+            long windowMilliseconds) {
+        this.sampler = sampler;
+        this.ledger = ledger;
+        this.energySampler = energySampler;
+        this.cpuTimeWeighting = cpuTimeWeighting;
+        this.sampleRateNanos = TimeUnit.MILLISECONDS.toNanos(sampleRateMilliseconds);
+        this.windowNanos = TimeUnit.MILLISECONDS.toNanos(windowMilliseconds);
+        this.lock = new Object();
+        this.current = aggregators.get();
+        this.previous = aggregators.get();
+        this.seenThreadIds = new long[16];
+        this.seenStackTraces = new StackTraceElement[16][];
+        this.seenCpuTimes = new long[16];
+        this.sampleCpuTimes = new long[16];
+        // Called under the lock, by the sampling ticks
+        this.consumer = new StackSampler.SampleConsumer() {
+            @Override
+            public void accept(long threadId, StackTraceElement[] stackTrace) {
+                seen(threadId, stackTrace, -1);
+            }
+
+            @Override
+            public void accept(long threadId, StackTraceElement[] stackTrace, long cpuTime) {
+                seen(threadId, stackTrace, cpuTime);
+            }
+        };
+    }
+
+    /**
+     * Adds a sample of the current tick.
+     *
+     * @param threadId   the ID of the sampled thread
+     * @param stackTrace the stack trace of the thread
+     * @param cpuTime    the CPU time of the thread read by the sampler, or -1 if unknown
+     */
+    private void seen(long threadId, StackTraceElement[] stackTrace, long cpuTime) {
+        if (seenCount == seenThreadIds.length) {
+            seenThreadIds = Arrays.copyOf(seenThreadIds, seenCount * 2);
+            seenStackTraces = Arrays.copyOf(seenStackTraces, seenCount * 2);
+            seenCpuTimes = Arrays.copyOf(seenCpuTimes, seenCount * 2);
+        }
+        if (cpuTimeWeighting) {
+            // Added once the CPU times of all the threads of the tick are known
+            seenStackTraces[seenCount] = stackTrace;
+        } else {
+            current.add(threadId, stackTrace);
+        }
+        seenCpuTimesKnown &= cpuTime >= 0;
+        seenCpuTimes[seenCount] = cpuTime;
+        seenThreadIds[seenCount++] = threadId;
+    }
+
+    /**
+     * Starts the sampler, then the sampling ticks and the first window.
+     */
+    public void start() {
+        sampler.start();
+
+        synchronized (lock) {
+            if (energySampler != null) {
+                energySampler.start();
+                windowStartEnergy = energySampler.getTotalEnergy();
+            }
+            windowStart = System.nanoTime();
+            windowDeadline = windowStart + windowNanos;
+        }
+
+        executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, Agent.SAMPLING_THREAD_NAME);
+            thread.setDaemon(true);
+            samplingThreadId = thread.getId(); // Is deprecated in Java 19, use threadId() instead
+            return thread;
+        });
+        ticks = executor.scheduleAtFixedRate(this::tick, 0, sampleRateNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Changes the period of the sampling ticks. The next tick runs one new period after the call.
+     *
+     * @param sampleRateMilliseconds the new period of the sampling ticks, in milliseconds
+     */
+    public void setSampleRate(long sampleRateMilliseconds) {
+        long newSampleRateNanos = TimeUnit.MILLISECONDS.toNanos(sampleRateMilliseconds);
+        if (newSampleRateNanos == sampleRateNanos) {
+            return;
+        }
+
+        sampleRateNanos = newSampleRateNanos;
+        if (ticks != null) {
+            ticks.cancel(false);
+            ticks = executor.scheduleAtFixedRate(this::tick, sampleRateNanos, sampleRateNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Returns the ID of the thread running the sampling ticks.
+     *
+     * @return the Java thread ID of the sampling thread, or 0 if not started yet
+     */
+    public long getSamplingThreadId() {
+        return samplingThreadId;
+    }
+
+    /**
+     * Performs one sampling tick, adding the collected stack traces to the aggregator of the current window.
+     */
+    private void tick() {
+        try {
+            synchronized (lock) {
+                long weight = 1;
+                if (energySampler != null) {
+                    weight = Math.max(1, Math.round(energySampler.record() * 1_000_000));
+                }
+                current.setWeight(weight);
+                seenCount = 0;
+                seenCpuTimesKnown = true;
+                sampler.sample(consumer);
+                if (cpuTimeWeighting) {
+                    addCpuTimeWeightedSamples();
+                } else if (seenCpuTimesKnown) {
+                    // Only record the CPU times already read by the sampler, the others are read once per window
+                    ledger.recordSeen(seenThreadIds, seenCpuTimes, seenCount, null);
+                }
+                sampleCount++;
+                totalWeight += weight;
+            }
+        } catch (RuntimeException exception) {
+            // An exception would cancel the next ticks
+            logger.log(Level.WARNING, "Sampling tick failed: {0}", exception.getMessage());
+            logger.throwing(getClass().getName(), "tick", exception);
+        }
+    }
+
+    /**
+     * Adds the samples of the tick, each one weighted by the CPU time used by its thread since its previous sample.
+     */
+    private void addCpuTimeWeightedSamples() {
+        if (sampleCpuTimes.length < seenCount) {
+            sampleCpuTimes = new long[seenThreadIds.length];
+        }
+        ledger.recordSeen(seenThreadIds, seenCpuTimesKnown ? seenCpuTimes : null, seenCount, sampleCpuTimes);
+
+        double power = energySampler != null ? energySampler.getLastPower() : 1;
+        for (int i = 0; i < seenCount; i++) {
+            current.setWeight(Math.round(sampleCpuTimes[i] * power));
+            current.add(seenThreadIds[i], seenStackTraces[i]);
+            seenStackTraces[i] = null;
+        }
+    }
+
+    /**
+     * Waits for the end of the current window, and starts the next one.
+     * The aggregator of the returned window is reset and reused by the window after the next one,
+     * so it must no longer be used once this method is called again.
+     *
+     * @return the samples of the window that just ended
+     * @throws InterruptedException if the thread is interrupted while waiting for the end of the window
+     */
+    public Window nextWindow() throws InterruptedException {
+        long remaining;
+        while ((remaining = windowDeadline() - System.nanoTime()) > 0) {
+            TimeUnit.NANOSECONDS.sleep(remaining);
+        }
+
+        synchronized (lock) {
+            long now = System.nanoTime();
+            previous.reset();
+            SampleAggregator ended = current;
+            current = previous;
+            previous = ended;
+
+            double energy = Double.NaN;
+            if (energySampler != null) {
+                energy = energySampler.getTotalEnergy() - windowStartEnergy;
+                windowStartEnergy = energySampler.getTotalEnergy();
+                energySampler.startWindow();
+            }
+            Window window = new Window(ended, sampleCount, totalWeight, now - windowStart, energy);
+            sampleCount = 0;
+            totalWeight = 0;
+            windowStart = now;
+            windowDeadline += windowNanos;
+            if (windowDeadline - now <= 0) {
+                // The caller fell behind by more than a window: restart from now instead of catching up
+                windowDeadline = now + windowNanos;
+            }
+            return window;
+        }
+    }
+
+    private long windowDeadline() {
+        synchronized (lock) {
+            return windowDeadline;
+        }
+    }
+
+    /**
+     * Stops the sampling ticks, then the sampler.
+     */
+    @Override
+    public void close() {
+        if (executor != null) {
+            executor.shutdown();
+            try {
+                executor.awaitTermination(windowNanos, TimeUnit.NANOSECONDS);
+            } catch (InterruptedException exception) {
+                Thread.currentThread().interrupt();
+            }
+            executor = null;
+        }
+        sampler.close();
+    }
+}
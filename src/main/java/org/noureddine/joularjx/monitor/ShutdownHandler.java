@@ -59,6 +59,9 @@ public class ShutdownHandler implements Runnable {
 
 	@Override
 	public void run() {
+		// Read the energy of each domain before closing the counters
+		final Map<String, Double> domainsConsumedEnergy = cpu.getDomainsConsumedEnergy();
+
 		// Close monitoring implementation to release all resources
 		try {
 			cpu.close();
@@ -68,6 +71,11 @@ public class ShutdownHandler implements Runnable {
 
 		logger.log(Level.INFO, String.format("JoularJX finished monitoring application with ID %d", appPid));
 		logger.log(Level.INFO, "Program consumed {0,number,#.##} joules", status.getTotalConsumedEnergy());
+		for (final var domainEntry : domainsConsumedEnergy.entrySet()) {
+			logger.log(Level.INFO, "Domain {0} consumed {1,number,#.##} joules (all processes)",
+					new Object[] {domainEntry.getKey(), domainEntry.getValue()});
+		}
+		logger.log(Level.INFO, "Stacks sampled every {0,number,#.##} milliseconds on average", status.getEffectiveSampleRate());
 
 		try {
 			// Writing methods and filtered methods energy consumption
@@ -0,0 +1,68 @@
+/*
+ * Copyright (c) 2021-2026, Adel Noureddine, Université de Pau et des Pays de l'Adour.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the
+ * GNU General Public License v3.0 only (GPL-3.0-only)
+ * which accompanies this distribution, and is available at
+ * https://www.gnu.org/licenses/gpl-3.0.en.html
+ *
+ */
+
+package org.noureddine.joularjx.monitor;
+
+/**
+ * A StackSampler captures the stack traces of the running threads of the monitored application.
+ * The MonitoringHandler calls {@link #sample(SampleConsumer)} once per sampling tick, and each implementation
+ * decides how the stacks are obtained (thread dumps, JFR events, ...).
+ */
+public interface StackSampler extends AutoCloseable {
+
+    /**
+     * Receives the stack traces captured by a {@link StackSampler}.
+     */
+    @FunctionalInterface
+    interface SampleConsumer {
+
+        /**
+         * Accepts the stack trace of a running thread.
+         *
+         * @param threadId   the Java thread ID of the sampled thread
+         * @param stackTrace the stack trace of the thread, the most recent call being the first element
+         */
+        void accept(long threadId, StackTraceElement[] stackTrace);
+
+        /**
+         * Accepts the stack trace of a running thread, with the CPU time of the thread read by the sampler during
+         * the tick. Samplers reading the CPU time of the threads anyway pass it, so it is not read again.
+         *
+         * @param threadId   the Java thread ID of the sampled thread
+         * @param stackTrace the stack trace of the thread, the most recent call being the first element
+         * @param cpuTime    the CPU time of the thread (in nanoseconds), read during the tick
+         */
+        default void accept(long threadId, StackTraceElement[] stackTrace, long cpuTime) {
+            accept(threadId, stackTrace);
+        }
+    }
+
+    /**
+     * Starts the sampler. Called once, before the first sampling tick.
+     */
+    default void start() {
+        // Nothing to do by default
+    }
+
+    /**
+     * Performs one sampling tick. Every stack trace of a running thread collected by this tick is given to the consumer.
+     *
+     * @param consumer the consumer receiving the collected stack traces
+     */
+    void sample(SampleConsumer consumer);
+
+    /**
+     * Stops the sampler and releases its resources.
+     */
+    @Override
+    default void close() {
+        // Nothing to do by default
+    }
+}
@@ -0,0 +1,49 @@
+/*
+ * Copyright (c) 2021-2026, Adel Noureddine, Université de Pau et des Pays de l'Adour.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the
+ * GNU General Public License v3.0 only (GPL-3.0-only)
+ * which accompanies this distribution, and is available at
+ * https://www.gnu.org/licenses/gpl-3.0.en.html
+ *
+ */
+
+package org.noureddine.joularjx.monitor;
+
+import org.noureddine.joularjx.Agent;
+import org.noureddine.joularjx.utils.AgentProperties;
+
+/**
+ * {@link StackSampler} implementation using {@link Thread#getAllStackTraces()}.
+ * Every tick dumps the stacks of all the threads of the JVM (which requires a global safepoint),
+ * then only keeps the runnable ones. Works on all supported Java versions.
+ */
+public class ThreadDumpSampler implements StackSampler {
+
+    private final AgentProperties properties;
+
+    /**
+     * Creates a new thread dump sampler.
+     *
+     * @param properties the agent's configuration properties
+     */
+    public ThreadDumpSampler(AgentProperties properties) {
+        this.properties = properties;
+    }
+
+    @Override
+    public void sample(SampleConsumer consumer) {
+        for (var entry : Thread.getAllStackTraces().entrySet()) {
+            Thread thread = entry.getKey();
+            // Ignoring agent related threads, if option is enabled
+            if (this.properties.hideAgentConsumption() && Agent.isAgentThread(thread.getName())) {
+                continue; // Ignoring the thread
+            }
+
+            // Only check runnable threads (not waiting or blocked)
+            if (thread.getState() == Thread.State.RUNNABLE) {
+                consumer.accept(thread.getId(), entry.getValue()); // Is deprecated in Java 19, use threadId() instead
+            }
+        }
+    }
+}
@@ -0,0 +1,170 @@
+/*
+ * Copyright (c) 2021-2026, Adel Noureddine, Université de Pau et des Pays de l'Adour.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the
+ * GNU General Public License v3.0 only (GPL-3.0-only)
+ * which accompanies this distribution, and is available at
+ * https://www.gnu.org/licenses/gpl-3.0.en.html
+ *
+ */
+
+package org.noureddine.joularjx.monitor;
+
+import java.lang.management.ThreadMXBean;
+import java.util.Arrays;
+import java.util.Collection;
+
+import org.noureddine.joularjx.utils.LongLongHashMap;
+
+/**
+ * The ThreadLedger keeps the CPU time of the sampled threads at the end of each monitoring window, and computes
+ * the CPU time used by each thread during the window.
+ * <p>
+ * Every thread sampled at least once is tracked while it is alive, so the CPU time of a thread is always counted
+ * from the end of the previous window, even if it was not sampled in that window. Threads that have exited are
+ * evicted at the end of the window in which they are first found dead, so the ledger only grows with the number
+ * of live threads.
+ * The CPU time of a thread exiting during a window cannot be read at the end of the window. When the CPU time of
+ * the sampled threads is known at each sampling tick, because the sampler reads it anyway or because samples are
+ * weighted by CPU time, the last reading is used instead. Otherwise the CPU time of the threads is only read once
+ * per window, and a thread exiting mid-window is counted as 0 since the end of the previous window.
+ * The readings of the ticks also give the CPU time used by a thread between two of its samples, to weight each
+ * sample by the CPU time it represents.
+ * All the methods are synchronized, as the ledger is updated by the sampling and the monitoring threads.
+ */
+public class ThreadLedger {
+
+    private final ThreadMXBean threadBean;
+    private final com.sun.management.ThreadMXBean bulkThreadBean;
+
+    // CPU time (in nanoseconds) at the end of the previous window, per tracked thread
+    private final LongLongHashMap cpuTimes;
+    // CPU time (in nanoseconds) read by the last sampling tick that has seen the thread, in the current window
+    private final LongLongHashMap lastSeenCpuTimes;
+    // CPU time (in nanoseconds) used during the last window, per thread
+    private final LongLongHashMap cpuTimeDeltas;
+    // CPU time (in nanoseconds) read by the last sampling tick that has seen the thread, in any window
+    private final LongLongHashMap lastSampleCpuTimes;
+    private long[] threadIds;
+
+    /**
+     * Creates a new empty ThreadLedger.
+     *
+     * @param threadBean the ThreadMXBean used to read the CPU time of threads
+     */
+    public ThreadLedger(ThreadMXBean threadBean) {
+        this.threadBean = threadBean;
+        // The HotSpot bean reads the CPU time of many threads with a single call
+        this.bulkThreadBean = threadBean instanceof com.sun.management.ThreadMXBean
+                ? (com.sun.management.ThreadMXBean) threadBean
+                : null;
+        this.cpuTimes = new LongLongHashMap();
+        this.lastSeenCpuTimes = new LongLongHashMap();
+        this.cpuTimeDeltas = new LongLongHashMap();
+        this.lastSampleCpuTimes = new LongLongHashMap();
+        this.threadIds = new long[16];
+    }
+
+    /**
+     * Records the current CPU time of the threads seen by a sampling tick, and returns the CPU time used by each
+     * thread since its previous sample. The first sample of a thread counts from the end of the previous window
+     * if the thread is tracked, or from the start of the thread otherwise, like {@link #endWindow(Collection)}.
+     *
+     * @param seenThreadIds  the IDs of the threads seen by the tick
+     * @param seenCpuTimes   the CPU time (in nanoseconds) of the threads at the same indexes, as read by the
+     *                       sampler during the tick, or null to read them with a single call
+     * @param count          the number of IDs to read from the array
+     * @param sampleCpuTimes receives at the same indexes the CPU time (in nanoseconds) used by each thread since
+     *                       its previous sample, 0 if it has exited. May be null
+     */
+    public synchronized void recordSeen(long[] seenThreadIds, long[] seenCpuTimes, int count,
+                                        long[] sampleCpuTimes) {
+        if (count == 0) {
+            return;
+        }
+
+        long[] readCpuTimes = seenCpuTimes != null ? seenCpuTimes : readCpuTimes(seenThreadIds, count);
+        for (int i = 0; i < count; i++) {
+            long threadId = seenThreadIds[i];
+            long cpuTime = readCpuTimes[i];
+            if (sampleCpuTimes != null) {
+                long previousCpuTime = lastSampleCpuTimes.get(threadId, cpuTimes.get(threadId, 0));
+                sampleCpuTimes[i] = cpuTime >= 0 ? Math.max(0, cpuTime - previousCpuTime) : 0;
+            }
+            // Threads that have already exited keep their previous reading
+            if (cpuTime >= 0) {
+                lastSeenCpuTimes.put(threadId, cpuTime);
+                lastSampleCpuTimes.put(threadId, cpuTime);
+            }
+        }
+    }
+
+    /**
+     * Ends the current window: reads the CPU time of the tracked and sampled threads, computes the CPU time
+     * they used during the window, and evicts the threads that have exited.
+     *
+     * @param sampledThreadIds the IDs of the threads sampled during the window, tracked from now on
+     * @return the CPU time (in nanoseconds) used by each thread during the window. The map is reused by the
+     *         next call, and must no longer be used after it
+     */
+    public synchronized LongLongHashMap endWindow(Collection<Long> sampledThreadIds) {
+        threadIds = cpuTimes.keys(threadIds);
+        int count = cpuTimes.size();
+        if (threadIds.length < count + sampledThreadIds.size()) {
+            threadIds = Arrays.copyOf(threadIds, count + sampledThreadIds.size());
+        }
+        for (long threadId : sampledThreadIds) {
+            if (!cpuTimes.containsKey(threadId)) {
+                threadIds[count++] = threadId;
+            }
+        }
+
+        long[] currentCpuTimes = readCpuTimes(threadIds, count);
+        cpuTimeDeltas.clear();
+        for (int i = 0; i < count; i++) {
+            long threadId = threadIds[i];
+            long previousCpuTime = cpuTimes.get(threadId, 0);
+            long currentCpuTime = currentCpuTimes[i];
+            if (currentCpuTime < 0) {
+                // The thread has exited: use its last reading in the window, if it was seen, and evict it
+                long lastSeenCpuTime = lastSeenCpuTimes.get(threadId, -1);
+                cpuTimeDeltas.put(threadId, Math.max(0, lastSeenCpuTime - previousCpuTime));
+                cpuTimes.remove(threadId);
+                lastSampleCpuTimes.remove(threadId);
+            } else {
+                cpuTimeDeltas.put(threadId, currentCpuTime - previousCpuTime);
+                cpuTimes.put(threadId, currentCpuTime);
+            }
+        }
+        lastSeenCpuTimes.clear();
+
+        return cpuTimeDeltas;
+    }
+
+    /**
+     * Returns the number of tracked threads.
+     *
+     * @return the number of live threads sampled at least once
+     */
+    public synchronized int size() {
+        return cpuTimes.size();
+    }
+
+    /**
+     * Reads the current CPU time of the given threads, with a single call when the bulk API of the HotSpot
+     * ThreadMXBean is available.
+     *
+     * @return the CPU time of each thread, negative if the thread has exited
+     */
+    private long[] readCpuTimes(long[] ids, int count) {
+        if (bulkThreadBean != null) {
+            return bulkThreadBean.getThreadCpuTime(ids.length == count ? ids : Arrays.copyOf(ids, count));
+        }
+
+        long[] result = new long[count];
+        for (int i = 0; i < count; i++) {
+            result[i] = threadBean.getThreadCpuTime(ids[i]);
+        }
+        return result;
+    }
+}
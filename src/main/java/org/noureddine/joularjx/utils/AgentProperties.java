@@ -44,6 +44,11 @@ public class AgentProperties {
     private static final String SAVE_CT_RUNTIME_DATA_PROPERTY = "save-call-trees-runtime-data";
     private static final String OVERWRITE_CT_RUNTIME_DATA_PROPERTY = "overwrite-call-trees-runtime-data";
     private static final String STACK_MONITORING_SAMPLE_RATE_PROPERTY = "stack-monitoring-sample-rate";
+    private static final String STACK_MONITORING_SAMPLER_PROPERTY = "stack-monitoring-sampler";
+    private static final String STACK_MONITORING_WEIGHTING_PROPERTY = "stack-monitoring-weighting";
+    private static final String MONITORING_WINDOW_PROPERTY = "monitoring-window";
+    private static final String STACK_MONITORING_OVERHEAD_BUDGET_PROPERTY = "stack-monitoring-overhead-budget";
+    private static final String ENERGY_SOURCE_PROPERTY = "energy-source";
     private static final String APPLICATION_SERVER_PROPERTY = "application-server";
     private static final String VM_MONITORING_PROPERTY = "vm-monitoring";
     /**
@@ -51,8 +56,12 @@ public class AgentProperties {
      */
     public static final String VM_POWER_PATH_PROPERTY = "vm-power-path";
     private static final String VM_POWER_FORMAT_PROPERTY = "vm-power-format";
+    private static final String VM_POWER_MODE_PROPERTY = "vm-power-mode";
     private static final String JOULAR_CORE_PROPERTY = "joular-core";
     private static final String JOULAR_CORE_RINGBUFFER_PROPERTY = "joular-core-ring-buffer";
+    private static final String JOULAR_CORE_PROCESS_POWER_PROPERTY = "joular-core-process-power";
+    private static final String POWER_MODEL_PROPERTY = "power-model";
+    private static final String POWER_MODEL_FILE_PROPERTY = "power-model-file";
     /**
      * Property key for the Joular Core executable path.
      */
@@ -82,15 +91,24 @@ public class AgentProperties {
     private final boolean saveCtRuntimeData;
     private final boolean overwriteCtRuntimeData;
     private final int stackMonitoringSampleRate;
+    private final String stackMonitoringSampler;
+    private final String stackMonitoringWeighting;
+    private final int monitoringWindow;
+    private final double stackMonitoringOverheadBudget;
+    private final String energySource;
     private final boolean applicationServer;
     private final boolean vmMonitoring;
     private final String vmPowerPath;
     private final String vmPowerFormat;
+    private final String vmPowerMode;
     private final boolean joularCore;
     private final boolean joularCoreRingBuffer;
     private final String joularCorePath;
     private final String joularCoreParameters;
     private final String joularCoreRingBufferPath;
+    private final boolean joularCoreProcessPower;
+    private final String powerModel;
+    private final String powerModelFile;
 
     /**
      * Instantiate a new instance which will load the properties
@@ -111,15 +129,24 @@ public class AgentProperties {
         this.saveCtRuntimeData = loadSaveCallTreesRuntimeData();
         this.overwriteCtRuntimeData = loadOverwriteCallTreeRuntimeData();
         this.stackMonitoringSampleRate = loadStackMonitoringSampleRate();
+        this.stackMonitoringSampler = loadStackMonitoringSampler();
+        this.stackMonitoringWeighting = loadStackMonitoringWeighting();
+        this.monitoringWindow = loadMonitoringWindow();
+        this.stackMonitoringOverheadBudget = loadStackMonitoringOverheadBudget();
+        this.energySource = loadEnergySource();
         this.applicationServer = loadApplicationServer();
         this.vmMonitoring = loadVMMonitoring();
         this.vmPowerPath = loadVMPowerPath();
         this.vmPowerFormat = loadVMPowerFormat();
+        this.vmPowerMode = loadVMPowerMode();
         this.joularCore = loadJoularCore();
         this.joularCoreRingBuffer = loadJoularCoreRingBuffer();
         this.joularCorePath = loadJoularCorePath();
         this.joularCoreParameters = loadJoularCoreParameters();
         this.joularCoreRingBufferPath = loadJoularCoreRingBufferPath();
+        this.joularCoreProcessPower = loadJoularCoreProcessPower();
+        this.powerModel = loadPowerModel();
+        this.powerModelFile = loadPowerModelFile();
     }
 
     /**
@@ -234,6 +261,53 @@ public class AgentProperties {
         return this.stackMonitoringSampleRate;
     }
 
+    /**
+     * Returns the name of the stack sampler implementation.
+     *
+     * @return the stack sampler name
+     */
+    public String stackMonitoringSampler() {
+        return this.stackMonitoringSampler;
+    }
+
+    /**
+     * Returns how the stack samples are weighted when attributing energy to methods.
+     *
+     * @return the weighting name
+     */
+    public String stackMonitoringWeighting() {
+        return this.stackMonitoringWeighting;
+    }
+
+    /**
+     * Returns the name of the energy source used on GNU/Linux PC/servers.
+     *
+     * @return the energy source name
+     */
+    public String energySource() {
+        return this.energySource;
+    }
+
+    /**
+     * Returns the duration of the monitoring windows in milliseconds, i.e. the period over which energy
+     * is measured and attributed to threads and methods.
+     *
+     * @return the monitoring window duration
+     */
+    public int monitoringWindow() {
+        return this.monitoringWindow;
+    }
+
+    /**
+     * Returns the CPU overhead budget of the agent, in percent of one CPU core. When positive, the stack
+     * monitoring sample rate is adapted at runtime to keep the agent's CPU time under this budget.
+     *
+     * @return the overhead budget percentage, or 0 if the sample rate is fixed
+     */
+    public double stackMonitoringOverheadBudget() {
+        return this.stackMonitoringOverheadBudget;
+    }
+
     /**
      * Indicates whether the monitored application is an application server.
      *
@@ -270,6 +344,16 @@ public class AgentProperties {
         return this.vmPowerFormat;
     }
 
+    /**
+     * Returns how the virtual machine power file is read: "read" (whole file at every cycle) or "tail"
+     * (new values only, when the file changes).
+     *
+     * @return the VM power mode
+     */
+    public String getVMPowerMode() {
+        return this.vmPowerMode;
+    }
+
     /**
      * Indicates whether Joular Core integration is enabled.
      *
@@ -315,6 +399,33 @@ public class AgentProperties {
         return this.joularCoreRingBufferPath;
     }
 
+    /**
+     * Indicates whether the process power measured by Joular Core is used as the share of the process.
+     *
+     * @return true if the process power of the ring buffer is used, false to use the CPU loads
+     */
+    public boolean isJoularCoreProcessPowerEnabled() {
+        return this.joularCoreProcessPower;
+    }
+
+    /**
+     * Returns the identifier of the power model used to estimate the CPU power from the CPU load.
+     *
+     * @return the power model identifier or null if not configured
+     */
+    public String getPowerModel() {
+        return this.powerModel;
+    }
+
+    /**
+     * Returns the path of the file defining additional power models.
+     *
+     * @return the power model file path or null if not configured
+     */
+    public String getPowerModelFile() {
+        return this.powerModelFile;
+    }
+
     private Properties loadProperties(FileSystem fileSystem) {
         Properties result = new Properties();
 
@@ -454,6 +565,80 @@ public class AgentProperties {
         return value;
     }
 
+    /**
+     * Loads the stack sampler name from properties.
+     *
+     * @return the stack sampler name, or "thread-dump" if not configured
+     */
+    public String loadStackMonitoringSampler() {
+        String property = properties.getProperty(STACK_MONITORING_SAMPLER_PROPERTY);
+        if (property == null || property.isBlank()) {
+            return "thread-dump";
+        }
+        return property.trim().toLowerCase();
+    }
+
+    /**
+     * Loads how the stack samples are weighted from properties.
+     *
+     * @return the weighting name, "samples" if not configured or not supported
+     */
+    public String loadStackMonitoringWeighting() {
+        String property = properties.getProperty(STACK_MONITORING_WEIGHTING_PROPERTY);
+        if (property != null && property.trim().equalsIgnoreCase("cpu-time")) {
+            return "cpu-time";
+        }
+        return "samples";
+    }
+
+    /**
+     * Loads the name of the energy source from properties.
+     *
+     * @return the energy source name, or "auto" if not configured
+     */
+    public String loadEnergySource() {
+        String property = properties.getProperty(ENERGY_SOURCE_PROPERTY);
+        if (property == null || property.isBlank()) {
+            return "auto";
+        }
+        return property.trim().toLowerCase();
+    }
+
+    /**
+     * Loads the monitoring window duration from properties.
+     * The window is never shorter than the stack monitoring sample rate.
+     *
+     * @return the monitoring window duration in milliseconds
+     */
+    public int loadMonitoringWindow() {
+        String property = properties.getProperty(MONITORING_WINDOW_PROPERTY);
+        int value = 1000; // default of 1 second
+        if (property != null) {
+            int parsedValue = Integer.parseInt(property);
+            if (parsedValue >= 10 && parsedValue <= 60000) {
+                value = parsedValue;
+            }
+        }
+        return Math.max(value, this.stackMonitoringSampleRate);
+    }
+
+    /**
+     * Loads the agent CPU overhead budget from properties.
+     *
+     * @return the overhead budget in percent of one CPU core, or 0 (fixed sample rate) if not configured or invalid
+     */
+    public double loadStackMonitoringOverheadBudget() {
+        String property = properties.getProperty(STACK_MONITORING_OVERHEAD_BUDGET_PROPERTY);
+        double value = 0; // default of a fixed sample rate
+        if (property != null && !property.isBlank()) {
+            double parsedValue = Double.parseDouble(property);
+            if (parsedValue > 0 && parsedValue <= 100) {
+                value = parsedValue;
+            }
+        }
+        return value;
+    }
+
     private Optional<Path> getPropertiesPathIfExists(FileSystem fileSystem) {
         Path path = fileSystem.getPath(System.getProperty("joularjx.config", "config.properties"));
 
@@ -492,6 +677,19 @@ public class AgentProperties {
         return properties.getProperty(VM_POWER_FORMAT_PROPERTY);
     }
 
+    /**
+     * Loads the VM power mode from properties.
+     *
+     * @return the VM power mode, "read" by default
+     */
+    public String loadVMPowerMode() {
+        String property = properties.getProperty(VM_POWER_MODE_PROPERTY);
+        if (property == null || property.isBlank()) {
+            return "read";
+        }
+        return property.trim().toLowerCase();
+    }
+
     /**
      * Loads the Joular Core enabled flag from properties.
      *
@@ -536,4 +734,39 @@ public class AgentProperties {
     public String loadJoularCoreRingBufferPath() {
         return properties.getProperty(JOULAR_CORE_RINGBUFFER_PATH_PROPERTY);
     }
+
+    /**
+     * Loads the Joular Core process power flag from properties.
+     *
+     * @return true if the process power of the ring buffer is used, false otherwise
+     */
+    public boolean loadJoularCoreProcessPower() {
+        return Boolean.parseBoolean(properties.getProperty(JOULAR_CORE_PROCESS_POWER_PROPERTY));
+    }
+
+    /**
+     * Loads the power model identifier from properties.
+     *
+     * @return the power model identifier or null if not configured
+     */
+    public String loadPowerModel() {
+        String property = properties.getProperty(POWER_MODEL_PROPERTY);
+        if (property == null || property.isBlank()) {
+            return null;
+        }
+        return property.trim();
+    }
+
+    /**
+     * Loads the power model file path from properties.
+     *
+     * @return the power model file path or null if not configured
+     */
+    public String loadPowerModelFile() {
+        String property = properties.getProperty(POWER_MODEL_FILE_PROPERTY);
+        if (property == null || property.isBlank()) {
+            return null;
+        }
+        return property.trim();
+    }
 }
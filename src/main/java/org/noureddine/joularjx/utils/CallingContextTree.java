@@ -0,0 +1,211 @@
+/*
+ * Copyright (c) 2021-2026, Adel Noureddine, Université de Pau et des Pays de l'Adour.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the
+ * GNU General Public License v3.0 only (GPL-3.0-only)
+ * which accompanies this distribution, and is available at
+ * https://www.gnu.org/licenses/gpl-3.0.en.html
+ *
+ */
+
+package org.noureddine.joularjx.utils;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A calling context tree: a prefix tree (trie) of the sampled call trees, where each node is a frame
+ * (from a {@link FrameDictionary}) called from the frame of its parent node. The root node is the empty call tree.
+ * <p>
+ * Each call tree is a path from the root to a node, so the common prefixes of call trees are only stored once,
+ * and finding the node of a call tree costs one child lookup per frame. Nodes are identified by dense int IDs,
+ * and store the energy consumed by the call tree ending at the node.
+ * Children are found in a single hash table keyed by (parent node ID, frame ID). As the same call trees are
+ * sampled again and again, a direct-mapped cache of recent call trees avoids most of the child lookups.
+ * The cache is indexed by a 64-bit fingerprint of the call tree, stored in each node. A cached node is only used
+ * if its fingerprint and then its frames match the call tree, so a fingerprint collision never mixes two call trees.
+ * All the methods are synchronized, as the tree is updated by the monitoring thread and read when writing results.
+ */
+public class CallingContextTree {
+
+    /**
+     * The ID of the root node, representing the empty call tree
+     */
+    public static final int ROOT = 0;
+
+    private static final int INITIAL_CAPACITY = 256;
+    private static final int PATH_CACHE_SIZE = 1 << 16;
+    private static final long ROOT_FINGERPRINT = 0x2545F4914F6CDD1DL;
+
+    private final FrameDictionary dictionary;
+    // (parent node ID << 32 | frame ID) to child node ID
+    private final LongLongHashMap children;
+
+    // Parent node, frame and call tree fingerprint of each node, indexed by node ID
+    private int[] parents;
+    private int[] frames;
+    private long[] fingerprints;
+    private double[] energy;
+    private boolean[] hasEnergy;
+    private int size;
+
+    // Recently added call trees, indexed by fingerprint
+    private final int[] pathCache;
+
+    /**
+     * Creates a new calling context tree, with only the root node.
+     * @param dictionary the FrameDictionary the frame IDs belong to
+     */
+    public CallingContextTree(FrameDictionary dictionary) {
+        this.dictionary = dictionary;
+        this.children = new LongLongHashMap(INITIAL_CAPACITY);
+        this.parents = new int[INITIAL_CAPACITY];
+        this.frames = new int[INITIAL_CAPACITY];
+        this.fingerprints = new long[INITIAL_CAPACITY];
+        this.energy = new double[INITIAL_CAPACITY];
+        this.hasEnergy = new boolean[INITIAL_CAPACITY];
+
+        this.parents[ROOT] = -1;
+        this.frames[ROOT] = -1;
+        this.fingerprints[ROOT] = ROOT_FINGERPRINT;
+        this.size = 1;
+
+        this.pathCache = new int[PATH_CACHE_SIZE];
+        Arrays.fill(this.pathCache, -1);
+    }
+
+    /**
+     * Returns the node of the given call tree, creating the missing nodes.
+     * @param frameIds the frame IDs of the call tree, in the same order as a StackTraceElement array (most recent call first)
+     * @param length the number of frame IDs to read from the array
+     * @return the ID of the node of the call tree
+     */
+    public synchronized int addPath(int[] frameIds, int length) {
+        long fingerprint = ROOT_FINGERPRINT;
+        for (int i = length - 1; i >= 0; i--) {
+            fingerprint = fingerprint(fingerprint, frameIds[i]);
+        }
+        int slot = (int) (fingerprint >>> 32) & (PATH_CACHE_SIZE - 1);
+
+        int node = pathCache[slot];
+        if (node >= 0 && fingerprints[node] == fingerprint && matches(node, frameIds, length)) {
+            return node;
+        }
+
+        node = ROOT;
+        for (int i = length - 1; i >= 0; i--) {
+            node = child(node, frameIds[i]);
+        }
+        pathCache[slot] = node;
+        return node;
+    }
+
+    /**
+     * Checks that the call tree ending at the given node is made of the given frames.
+     */
+    private boolean matches(int node, int[] frameIds, int length) {
+        int current = node;
+        for (int i = 0; i < length; i++) {
+            if (current == ROOT || frames[current] != frameIds[i]) {
+                return false;
+            }
+            current = parents[current];
+        }
+        return current == ROOT;
+    }
+
+    /**
+     * Computes the fingerprint of the call tree made of the given parent call tree and the given frame.
+     */
+    private static long fingerprint(long parentFingerprint, int frameId) {
+        long hash = (parentFingerprint ^ frameId) * 0x9E3779B97F4A7C15L;
+        return hash ^ (hash >>> 29);
+    }
+
+    /**
+     * Returns the child of the given node for the given frame, creating it if needed.
+     */
+    private int child(int parent, int frameId) {
+        long key = ((long) parent << 32) | (frameId & 0xFFFFFFFFL);
+        long child = children.get(key, -1);
+        if (child >= 0) {
+            return (int) child;
+        }
+
+        if (size == parents.length) {
+            int capacity = size * 2;
+            parents = Arrays.copyOf(parents, capacity);
+            frames = Arrays.copyOf(frames, capacity);
+            fingerprints = Arrays.copyOf(fingerprints, capacity);
+            energy = Arrays.copyOf(energy, capacity);
+            hasEnergy = Arrays.copyOf(hasEnergy, capacity);
+        }
+        int node = size++;
+        parents[node] = parent;
+        frames[node] = frameId;
+        fingerprints[node] = fingerprint(fingerprints[parent], frameId);
+        children.put(key, node);
+        return node;
+    }
+
+    /**
+     * Adds the given energy consumption to the call tree ending at the given node.
+     * @param node the ID of the node
+     * @param delta a double, the amount of energy to be added
+     */
+    public synchronized void addEnergy(int node, double delta) {
+        energy[node] += delta;
+        hasEnergy[node] = true;
+    }
+
+    /**
+     * Returns the energy consumed by the call tree ending at the given node.
+     * @param node the ID of the node
+     * @return the energy consumption of the call tree
+     */
+    public synchronized double getEnergy(int node) {
+        return energy[node];
+    }
+
+    /**
+     * Returns the number of nodes of the tree, including the root.
+     * @return the number of nodes
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Returns the call tree ending at the given node, in the same format as {@link CallTree#toString()}:
+     * method names separated by ";", from the least recent call to the most recent one.
+     * @param node the ID of the node
+     * @return the call tree of the node
+     */
+    public synchronized String getPath(int node) {
+        int depth = 0;
+        for (int current = node; current != ROOT; current = parents[current]) {
+            depth++;
+        }
+
+        String[] names = new String[depth];
+        for (int current = node; current != ROOT; current = parents[current]) {
+            names[--depth] = dictionary.getName(frames[current]);
+        }
+        return String.join(";", names);
+    }
+
+    /**
+     * Returns the energy consumed by each call tree, by traversing the nodes to which energy was added.
+     * @return a new {@code Map<String, Double>} mapping each call tree (as returned by {@link #getPath(int)}) to its energy consumption
+     */
+    public synchronized Map<String, Double> getPathsConsumedEnergy() {
+        Map<String, Double> result = new HashMap<>();
+        for (int node = ROOT + 1; node < size; node++) {
+            if (hasEnergy[node]) {
+                result.merge(getPath(node), energy[node], Double::sum);
+            }
+        }
+        return result;
+    }
+}
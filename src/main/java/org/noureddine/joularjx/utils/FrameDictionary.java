@@ -0,0 +1,226 @@
+/*
+ * Copyright (c) 2021-2026, Adel Noureddine, Université de Pau et des Pays de l'Adour.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the
+ * GNU General Public License v3.0 only (GPL-3.0-only)
+ * which accompanies this distribution, and is available at
+ * https://www.gnu.org/licenses/gpl-3.0.en.html
+ *
+ */
+
+package org.noureddine.joularjx.utils;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Interns stack frames, identified by their class name, method name and file name, into dense int IDs
+ * (0, 1, 2, ...). Aggregation structures use the IDs as keys, and the "className.methodName" String of a
+ * frame is only built once, when the frame is first interned.
+ * <p>
+ * Lookups are lock-free: the table is an open-addressing hash table published through a volatile field,
+ * and insertions are serialized. Class and method names of stack frames are usually the same String
+ * instances from one sample to the next, so most lookups only compare references.
+ */
+public class FrameDictionary {
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    /**
+     * An interned stack frame. Line numbers are not part of the frame.
+     */
+    public static final class Frame {
+        private final int id;
+        private final String className;
+        private final String methodName;
+        private final String fileName;
+        private final String name;
+        private final int hash;
+
+        private Frame(int id, String className, String methodName, String fileName, int hash) {
+            this.id = id;
+            this.className = className;
+            this.methodName = methodName;
+            this.fileName = fileName;
+            this.name = className + "." + methodName;
+            this.hash = hash;
+        }
+
+        /**
+         * Returns the ID of the frame.
+         * @return the dense int ID of the frame
+         */
+        public int getId() {
+            return id;
+        }
+
+        /**
+         * Returns the class name of the frame.
+         * @return the fully qualified class name
+         */
+        public String getClassName() {
+            return className;
+        }
+
+        /**
+         * Returns the method name of the frame.
+         * @return the method name
+         */
+        public String getMethodName() {
+            return methodName;
+        }
+
+        /**
+         * Returns the file name of the frame.
+         * @return the file name, or null if not available
+         */
+        public String getFileName() {
+            return fileName;
+        }
+
+        /**
+         * Returns the name of the frame, used in the result files.
+         * @return the "className.methodName" String
+         */
+        public String getName() {
+            return name;
+        }
+
+        private boolean matches(String className, String methodName, String fileName) {
+            return (this.methodName == methodName || this.methodName.equals(methodName))
+                    && (this.className == className || this.className.equals(className))
+                    && (this.fileName == fileName || Objects.equals(this.fileName, fileName));
+        }
+    }
+
+    private final Object insertLock;
+    private volatile Frame[] table;
+    private volatile Frame[] frames;
+    private int size;
+
+    /**
+     * Creates a new empty FrameDictionary.
+     */
+    public FrameDictionary() {
+        this.insertLock = new Object();
+        this.table = new Frame[INITIAL_CAPACITY];
+        this.frames = new Frame[INITIAL_CAPACITY / 2];
+    }
+
+    /**
+     * Returns the ID of the given stack frame, interning it if it is seen for the first time.
+     * @param element the stack frame
+     * @return the ID of the frame
+     */
+    public int intern(StackTraceElement element) {
+        return intern(element.getClassName(), element.getMethodName(), element.getFileName());
+    }
+
+    /**
+     * Returns the ID of the given stack frame, interning it if it is seen for the first time.
+     * @param className the class name of the frame
+     * @param methodName the method name of the frame
+     * @param fileName the file name of the frame, may be null
+     * @return the ID of the frame
+     */
+    public int intern(String className, String methodName, String fileName) {
+        int hash = hash(className, methodName, fileName);
+        Frame frame = find(this.table, hash, className, methodName, fileName);
+        if (frame != null) {
+            return frame.id;
+        }
+
+        synchronized (insertLock) {
+            Frame[] currentTable = this.table;
+            frame = find(currentTable, hash, className, methodName, fileName);
+            if (frame != null) {
+                return frame.id;
+            }
+
+            frame = new Frame(size, className, methodName, fileName, hash);
+            if (size == frames.length) {
+                frames = Arrays.copyOf(frames, size * 2);
+            }
+            frames[size++] = frame;
+
+            if (size * 2 > currentTable.length) {
+                Frame[] newTable = new Frame[currentTable.length * 2];
+                for (Frame existing : currentTable) {
+                    if (existing != null) {
+                        place(newTable, existing);
+                    }
+                }
+                place(newTable, frame);
+                this.table = newTable;
+            } else {
+                place(currentTable, frame);
+            }
+            return frame.id;
+        }
+    }
+
+    /**
+     * Returns the frame with the given ID.
+     * @param id the ID of an interned frame
+     * @return the frame
+     */
+    public Frame get(int id) {
+        return frames[id];
+    }
+
+    /**
+     * Returns the name of the frame with the given ID.
+     * @param id the ID of an interned frame
+     * @return the "className.methodName" String of the frame
+     */
+    public String getName(int id) {
+        return frames[id].name;
+    }
+
+    /**
+     * Returns the number of interned frames. IDs range from 0 to size - 1.
+     * @return the number of interned frames
+     */
+    public int size() {
+        synchronized (insertLock) {
+            return size;
+        }
+    }
+
+    private static Frame find(Frame[] table, int hash, String className, String methodName, String fileName) {
+        int mask = table.length - 1;
+        for (int i = spread(hash) & mask; ; i = (i + 1) & mask) {
+            Frame frame = table[i];
+            if (frame == null) {
+                return null;
+            }
+            if (frame.hash == hash && frame.matches(className, methodName, fileName)) {
+                return frame;
+            }
+        }
+    }
+
+    private static void place(Frame[] table, Frame frame) {
+        int mask = table.length - 1;
+        int i = spread(frame.hash) & mask;
+        while (table[i] != null) {
+            i = (i + 1) & mask;
+        }
+        table[i] = frame;
+    }
+
+    /**
+     * Computes the hash of a frame, the same way as {@link CallTree} does for a StackTraceElement.
+     */
+    private static int hash(String className, String methodName, String fileName) {
+        int result = 31 * className.hashCode() + methodName.hashCode();
+        if (fileName != null) {
+            result = 31 * result + fileName.hashCode();
+        }
+        return result;
+    }
+
+    private static int spread(int hash) {
+        return (hash ^ (hash >>> 16)) * 0x9E3779B9;
+    }
+}
@@ -0,0 +1,319 @@
+/*
+ * Copyright (c) 2021-2026, Adel Noureddine, Université de Pau et des Pays de l'Adour.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the
+ * GNU General Public License v3.0 only (GPL-3.0-only)
+ * which accompanies this distribution, and is available at
+ * https://www.gnu.org/licenses/gpl-3.0.en.html
+ *
+ */
+
+package org.noureddine.joularjx.utils;
+
+import java.util.Arrays;
+
+/**
+ * A hash map from primitive long keys to primitive long values, using open addressing with linear probing.
+ * Used on the sampling path (thread IDs to CPU times) to avoid boxing a Long for every key and value.
+ * This class is not thread-safe.
+ */
+public class LongLongHashMap {
+
+    private static final int DEFAULT_CAPACITY = 16;
+
+    /**
+     * Consumer of the entries of a {@link LongLongHashMap}.
+     */
+    @FunctionalInterface
+    public interface EntryConsumer {
+        /**
+         * Performs this operation on the given entry.
+         *
+         * @param key   the key of the entry
+         * @param value the value of the entry
+         */
+        void accept(long key, long value);
+    }
+
+    // A key equal to 0 marks an empty slot. The 0 key itself is stored separately.
+    private long[] keys;
+    private long[] values;
+    private int size;
+    private boolean hasZeroKey;
+    private long zeroValue;
+
+    /**
+     * Creates a new empty map.
+     */
+    public LongLongHashMap() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Creates a new empty map, sized to hold the given number of entries without resizing.
+     *
+     * @param expectedSize the expected number of entries
+     */
+    public LongLongHashMap(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(DEFAULT_CAPACITY, expectedSize * 2) - 1) << 1;
+        this.keys = new long[capacity];
+        this.values = new long[capacity];
+    }
+
+    /**
+     * Returns the value mapped to the given key.
+     *
+     * @param key          the key
+     * @param defaultValue the value to return if the key is not present
+     * @return the mapped value, or defaultValue if the key is not present
+     */
+    public long get(long key, long defaultValue) {
+        if (key == 0) {
+            return hasZeroKey ? zeroValue : defaultValue;
+        }
+
+        int mask = keys.length - 1;
+        for (int i = index(key, mask); ; i = (i + 1) & mask) {
+            long current = keys[i];
+            if (current == key) {
+                return values[i];
+            }
+            if (current == 0) {
+                return defaultValue;
+            }
+        }
+    }
+
+    /**
+     * Indicates whether the given key is present in the map.
+     *
+     * @param key the key
+     * @return true if the key is present, false otherwise
+     */
+    public boolean containsKey(long key) {
+        if (key == 0) {
+            return hasZeroKey;
+        }
+
+        int mask = keys.length - 1;
+        for (int i = index(key, mask); ; i = (i + 1) & mask) {
+            long current = keys[i];
+            if (current == key) {
+                return true;
+            }
+            if (current == 0) {
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Maps the given value to the given key, replacing any previous value.
+     *
+     * @param key   the key
+     * @param value the value
+     */
+    public void put(long key, long value) {
+        if (key == 0) {
+            if (!hasZeroKey) {
+                hasZeroKey = true;
+                size++;
+            }
+            zeroValue = value;
+            return;
+        }
+
+        int mask = keys.length - 1;
+        for (int i = index(key, mask); ; i = (i + 1) & mask) {
+            long current = keys[i];
+            if (current == key) {
+                values[i] = value;
+                return;
+            }
+            if (current == 0) {
+                keys[i] = key;
+                values[i] = value;
+                if (++size * 2 > keys.length) {
+                    resize(keys.length << 1);
+                }
+                return;
+            }
+        }
+    }
+
+    /**
+     * Adds the given delta to the value mapped to the given key, mapping the delta if the key is not present.
+     *
+     * @param key   the key
+     * @param delta the value to add
+     * @return the new value mapped to the key
+     */
+    public long addTo(long key, long delta) {
+        if (key == 0) {
+            if (!hasZeroKey) {
+                hasZeroKey = true;
+                zeroValue = 0;
+                size++;
+            }
+            return zeroValue += delta;
+        }
+
+        int mask = keys.length - 1;
+        for (int i = index(key, mask); ; i = (i + 1) & mask) {
+            long current = keys[i];
+            if (current == key) {
+                return values[i] += delta;
+            }
+            if (current == 0) {
+                keys[i] = key;
+                values[i] = delta;
+                if (++size * 2 > keys.length) {
+                    resize(keys.length << 1);
+                }
+                return delta;
+            }
+        }
+    }
+
+    /**
+     * Removes the given key from the map.
+     *
+     * @param key the key
+     * @return true if the key was present, false otherwise
+     */
+    public boolean remove(long key) {
+        if (key == 0) {
+            if (hasZeroKey) {
+                hasZeroKey = false;
+                size--;
+                return true;
+            }
+            return false;
+        }
+
+        int mask = keys.length - 1;
+        for (int i = index(key, mask); ; i = (i + 1) & mask) {
+            long current = keys[i];
+            if (current == 0) {
+                return false;
+            }
+            if (current == key) {
+                shiftBack(i, mask);
+                size--;
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Returns the number of entries of the map.
+     *
+     * @return the number of entries
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the sum of the values of the map.
+     *
+     * @return the sum of all the values
+     */
+    public long sumValues() {
+        long sum = hasZeroKey ? zeroValue : 0;
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != 0) {
+                sum += values[i];
+            }
+        }
+        return sum;
+    }
+
+    /**
+     * Performs the given action on each entry of the map. The map must not be modified by the action.
+     *
+     * @param action the action to perform
+     */
+    public void forEach(EntryConsumer action) {
+        if (hasZeroKey) {
+            action.accept(0, zeroValue);
+        }
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != 0) {
+                action.accept(keys[i], values[i]);
+            }
+        }
+    }
+
+    /**
+     * Removes all the entries of the map, keeping its capacity.
+     */
+    public void clear() {
+        Arrays.fill(keys, 0);
+        hasZeroKey = false;
+        size = 0;
+    }
+
+    /**
+     * Copies the keys of the map into the given array, growing it if needed.
+     *
+     * @param target the array to fill, may be reused between calls
+     * @return the filled array (the first {@link #size()} elements are the keys)
+     */
+    public long[] keys(long[] target) {
+        long[] result = target.length >= size ? target : new long[size];
+        int count = 0;
+        if (hasZeroKey) {
+            result[count++] = 0;
+        }
+        for (long key : keys) {
+            if (key != 0) {
+                result[count++] = key;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Removes the entry at the given slot, then moves back the following entries of the probe sequence,
+     * so that lookups never stop on a hole.
+     */
+    private void shiftBack(int slot, int mask) {
+        int hole = slot;
+        for (int i = (slot + 1) & mask; keys[i] != 0; i = (i + 1) & mask) {
+            int home = index(keys[i], mask);
+            // Move the entry if the hole lies cyclically between its home slot and its current slot
+            if (((i - home) & mask) >= ((i - hole) & mask)) {
+                keys[hole] = keys[i];
+                values[hole] = values[i];
+                hole = i;
+            }
+        }
+        keys[hole] = 0;
+    }
+
+    private void resize(int capacity) {
+        long[] oldKeys = keys;
+        long[] oldValues = values;
+        keys = new long[capacity];
+        values = new long[capacity];
+
+        int mask = capacity - 1;
+        for (int j = 0; j < oldKeys.length; j++) {
+            long key = oldKeys[j];
+            if (key != 0) {
+                int i = index(key, mask);
+                while (keys[i] != 0) {
+                    i = (i + 1) & mask;
+                }
+                keys[i] = key;
+                values[i] = oldValues[j];
+            }
+        }
+    }
+
+    private static int index(long key, int mask) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+}
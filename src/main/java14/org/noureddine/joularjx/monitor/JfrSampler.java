@@ -0,0 +1,147 @@
+/*
+ * Copyright (c) 2021-2026, Adel Noureddine, Université de Pau et des Pays de l'Adour.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the
+ * GNU General Public License v3.0 only (GPL-3.0-only)
+ * which accompanies this distribution, and is available at
+ * https://www.gnu.org/licenses/gpl-3.0.en.html
+ *
+ */
+
+package org.noureddine.joularjx.monitor;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordedStackTrace;
+import jdk.jfr.consumer.RecordedThread;
+import jdk.jfr.consumer.RecordingStream;
+
+import org.noureddine.joularjx.Agent;
+import org.noureddine.joularjx.utils.AgentProperties;
+import org.noureddine.joularjx.utils.JoularJXLogging;
+
+/**
+ * {@link StackSampler} implementation using JFR execution samples (Java 14 and later).
+ * <p>
+ * A {@link RecordingStream} of {@code jdk.ExecutionSample} events is started at the configured sample rate.
+ * JFR samples the threads running Java code asynchronously, without bringing the JVM to a global safepoint.
+ * The received events are converted to stack traces and queued, and each sampling tick drains the queue.
+ * JFR delivers events in batches (roughly every second), so a tick may report about a second of samples, taken
+ * during previous ticks. They are therefore never weighted by the energy or CPU time of the tick. Stack traces are limited to the JFR stack depth (64 frames by default, configurable with
+ * {@code -XX:FlightRecorderOptions:stackdepth=}).
+ */
+public class JfrSampler implements StackSampler {
+
+    private static final Logger logger = JoularJXLogging.getLogger();
+    private static final String EXECUTION_SAMPLE_EVENT = "jdk.ExecutionSample";
+
+    /**
+     * A stack trace received from JFR, waiting for the next sampling tick.
+     */
+    private static final class Sample {
+        private final long threadId;
+        private final StackTraceElement[] stackTrace;
+
+        private Sample(long threadId, StackTraceElement[] stackTrace) {
+            this.threadId = threadId;
+            this.stackTrace = stackTrace;
+        }
+    }
+
+    private final AgentProperties properties;
+    private final Queue<Sample> pendingSamples;
+    private RecordingStream recordingStream;
+
+    /**
+     * Creates a new JFR sampler.
+     *
+     * @param properties the agent's configuration properties
+     */
+    public JfrSampler(AgentProperties properties) {
+        this.properties = properties;
+        this.pendingSamples = new ConcurrentLinkedQueue<>();
+    }
+
+    /**
+     * Indicates whether JFR event streaming is available on the running JVM.
+     *
+     * @return true if the jdk.jfr module is present
+     */
+    public static boolean isSupported() {
+        return ModuleLayer.boot().findModule("jdk.jfr").isPresent();
+    }
+
+    @Override
+    public void start() {
+        recordingStream = new RecordingStream();
+        recordingStream.setReuse(true);
+        recordingStream.setOrdered(false);
+        recordingStream.enable(EXECUTION_SAMPLE_EVENT).withPeriod(Duration.ofMillis(properties.stackMonitoringSampleRate()));
+        recordingStream.onEvent(EXECUTION_SAMPLE_EVENT, this::onExecutionSample);
+        recordingStream.onError(exception -> logger.log(Level.WARNING, "JFR sampling error: {0}", exception.getMessage()));
+        recordingStream.startAsync();
+        logger.log(Level.INFO, "Started JFR execution sampling");
+    }
+
+    /**
+     * Converts a JFR execution sample to a stack trace and queues it for the next sampling tick.
+     *
+     * @param event the jdk.ExecutionSample event
+     */
+    private void onExecutionSample(RecordedEvent event) {
+        RecordedThread thread = event.getThread("sampledThread");
+        RecordedStackTrace stackTrace = event.getStackTrace();
+        if (thread == null || stackTrace == null) {
+            return;
+        }
+
+        // Ignoring agent related threads, if option is enabled
+        String threadName = thread.getJavaName();
+        if (this.properties.hideAgentConsumption() && threadName != null && Agent.isAgentThread(threadName)) {
+            return;
+        }
+
+        List<RecordedFrame> frames = stackTrace.getFrames();
+        StackTraceElement[] elements = new StackTraceElement[frames.size()];
+        int size = 0;
+        for (RecordedFrame frame : frames) {
+            if (frame.isJavaFrame()) {
+                elements[size++] = new StackTraceElement(frame.getMethod().getType().getName(),
+                        frame.getMethod().getName(), null, frame.getLineNumber());
+            }
+        }
+
+        if (size > 0) {
+            if (size < elements.length) {
+                StackTraceElement[] trimmed = new StackTraceElement[size];
+                System.arraycopy(elements, 0, trimmed, 0, size);
+                elements = trimmed;
+            }
+            pendingSamples.add(new Sample(thread.getJavaThreadId(), elements));
+        }
+    }
+
+    @Override
+    public void sample(SampleConsumer consumer) {
+        Sample sample;
+        while ((sample = pendingSamples.poll()) != null) {
+            consumer.accept(sample.threadId, sample.stackTrace);
+        }
+    }
+
+    @Override
+    public void close() {
+        if (recordingStream != null) {
+            recordingStream.close();
+            recordingStream = null;
+        }
+        pendingSamples.clear();
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright (c) 2021-2026, Adel Noureddine, Université de Pau et des Pays de l'Adour.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the
+ * GNU General Public License v3.0 only (GPL-3.0-only)
+ * which accompanies this distribution, and is available at
+ * https://www.gnu.org/licenses/gpl-3.0.en.html
+ *
+ */
+
+package org.noureddine.joularjx.cpu;
+
+import com.github.marschall.memoryfilesystem.MemoryFileSystemBuilder;
+import org.junit.jupiter.api.Test;
+import org.noureddine.joularjx.cpu.EnergySourceCapabilities.Platform;
+import org.noureddine.joularjx.cpu.EnergySourceCapabilities.ReadCost;
+import org.noureddine.joularjx.utils.AgentProperties;
+
+import java.io.IOException;
+import java.nio.file.FileSystem;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CpuFactoryTest {
+
+    private static EnergySourceProvider provider(String name, int priority, Platform platform, long resolutionMicros,
+                                                 boolean available) {
+        EnergySourceCapabilities capabilities = new EnergySourceCapabilities(priority, platform, true,
+                resolutionMicros, false, ReadCost.LOW);
+        return new EnergySourceProvider() {
+            @Override
+            public String getName() {
+                return name;
+            }
+
+            @Override
+            public EnergySourceCapabilities getCapabilities() {
+                return capabilities;
+            }
+
+            @Override
+            public boolean isAvailable(AgentProperties properties) {
+                return available;
+            }
+
+            @Override
+            public Cpu create(AgentProperties properties) {
+                return null;
+            }
+        };
+    }
+
+    private static Optional<String> select(String config, EnergySourceProvider... providers) throws IOException {
+        try (FileSystem fs = MemoryFileSystemBuilder.newEmpty().build()) {
+            Files.writeString(fs.getPath("config.properties"), config);
+            AgentProperties properties = new AgentProperties(fs);
+            return CpuFactory.select(List.of(providers), properties, Platform.LINUX)
+                    .map(EnergySourceProvider::getName);
+        }
+    }
+
+    @Test
+    void finerResolutionWins() throws IOException {
+        assertEquals(Optional.of("khz"), select("",
+                provider("hz", 0, Platform.LINUX, 1_000_000, true),
+                provider("khz", 0, Platform.ANY, 1_000, true)));
+    }
+
+    @Test
+    void priorityWinsOverResolution() throws IOException {
+        assertEquals(Optional.of("vm"), select("energy-source=khz",
+                provider("khz", 0, Platform.LINUX, 1_000, true),
+                provider("vm", 100, Platform.ANY, 1_000_000, true)));
+    }
+
+    @Test
+    void requestedSourceFirst() throws IOException {
+        assertEquals(Optional.of("hz"), select("energy-source=hz",
+                provider("khz", 0, Platform.LINUX, 1_000, true),
+                provider("hz", 0, Platform.LINUX, 1_000_000, true)));
+
+        // Not available: the best available source is used
+        assertEquals(Optional.of("khz"), select("energy-source=hz",
+                provider("khz", 0, Platform.LINUX, 1_000, true),
+                provider("hz", 0, Platform.LINUX, 1_000_000, false)));
+    }
+
+    @Test
+    void unavailableAndUnsupportedSourcesSkipped() throws IOException {
+        assertEquals(Optional.of("hz"), select("",
+                provider("khz", 0, Platform.LINUX, 1_000, false),
+                provider("windows", 0, Platform.WINDOWS, 1, true),
+                provider("hz", 0, Platform.LINUX, 1_000_000, true)));
+
+        assertTrue(select("", provider("windows", 0, Platform.WINDOWS, 1, true)).isEmpty());
+    }
+}
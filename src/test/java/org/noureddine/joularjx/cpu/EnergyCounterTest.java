@@ -0,0 +1,74 @@
+/*
+ * Copyright (c) 2021-2026, Adel Noureddine, Université de Pau et des Pays de l'Adour.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the
+ * GNU General Public License v3.0 only (GPL-3.0-only)
+ * which accompanies this distribution, and is available at
+ * https://www.gnu.org/licenses/gpl-3.0.en.html
+ *
+ */
+
+package org.noureddine.joularjx.cpu;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class EnergyCounterTest {
+
+    @Test
+    void accumulatesIncreases() {
+        EnergyCounter counter = new EnergyCounter(1000);
+
+        assertEquals(0, counter.update(100));
+        assertEquals(50, counter.update(150));
+        assertEquals(250, counter.update(400));
+
+        assertEquals(400, counter.getTotal());
+        assertEquals(300, counter.getConsumed());
+    }
+
+    @Test
+    void handlesWraparound() {
+        EnergyCounter counter = new EnergyCounter(1000);
+
+        counter.update(900);
+        // 900 -> 999 -> 0 -> 50
+        assertEquals(150, counter.update(50));
+        counter.update(950);
+        assertEquals(100, counter.update(50));
+
+        assertEquals(2050, counter.getTotal());
+        assertEquals(1150, counter.getConsumed());
+    }
+
+    @Test
+    void wrapsAtFullRange() {
+        EnergyCounter counter = new EnergyCounter(1L << 32);
+
+        counter.update(0xFFFF_FF00L);
+        assertEquals(0x200, counter.update(0x100));
+    }
+
+    @Test
+    void unknownRangeCountsFromRestart() {
+        EnergyCounter counter = new EnergyCounter(0);
+
+        counter.update(500);
+        assertEquals(20, counter.update(20));
+    }
+
+    @Test
+    void deltaSinceLastTaken() {
+        EnergyCounter counter = new EnergyCounter(1000);
+
+        counter.update(100);
+        counter.update(300);
+        assertEquals(200, counter.takeDelta());
+        assertEquals(0, counter.takeDelta());
+
+        counter.update(900);
+        counter.update(100);
+        assertEquals(800, counter.takeDelta());
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright (c) 2021-2026, Adel Noureddine, Université de Pau et des Pays de l'Adour.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the
+ * GNU General Public License v3.0 only (GPL-3.0-only)
+ * which accompanies this distribution, and is available at
+ * https://www.gnu.org/licenses/gpl-3.0.en.html
+ *
+ */
+
+package org.noureddine.joularjx.cpu;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class EnergySampleTest {
+
+    @Test
+    void powerConvertedOverMeasuredInterval() throws InterruptedException {
+        Cpu cpu = new Cpu() {
+            @Override
+            public void initialize() {
+            }
+
+            @Override
+            public double getInitialPower() {
+                return 0;
+            }
+
+            @Override
+            public double getCurrentPower(double cpuLoad) {
+                return 10;
+            }
+
+            @Override
+            public double getMaxPower(double cpuLoad) {
+                return 0;
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+
+        EnergySample sample = new EnergySample();
+        cpu.readEnergy(0, sample);
+        assertTrue(sample.isStarted());
+        assertFalse(sample.isValid());
+        assertTrue(Double.isNaN(sample.getPower()));
+
+        Thread.sleep(20);
+        cpu.readEnergy(0, sample);
+        assertTrue(sample.isValid());
+        assertEquals(sample.getElapsedNanos() / 1e9 * 10, sample.getJoules(), 1e-9);
+        assertEquals(10, sample.getPower(), 1e-9);
+        assertEquals(0, sample.getDomainCount());
+    }
+
+    @Test
+    void invalidReadings() {
+        EnergySample sample = new EnergySample();
+        sample.update(100, 1.0);
+        // The measurement was not started
+        assertFalse(sample.isValid());
+        assertEquals("first reading", sample.getInvalidReason());
+
+        sample.update(200, -1.0);
+        assertFalse(sample.isValid());
+        assertEquals("negative", sample.getInvalidReason());
+        sample.update(300, Double.NaN);
+        assertFalse(sample.isValid());
+        assertEquals("NaN", sample.getInvalidReason());
+        sample.update(350, Double.POSITIVE_INFINITY);
+        assertFalse(sample.isValid());
+        assertEquals("infinite", sample.getInvalidReason());
+        sample.update(400, 2.0);
+        assertTrue(sample.isValid());
+        assertNull(sample.getInvalidReason());
+        assertEquals(50, sample.getElapsedNanos());
+    }
+
+    @Test
+    void domainsGrow() {
+        EnergySample sample = new EnergySample();
+        sample.start(0);
+        sample.update(1_000_000_000L, 3.0);
+        for (int i = 0; i < 5; i++) {
+            sample.setDomain(i, "package-" + i, i);
+        }
+        assertEquals(5, sample.getDomainCount());
+        assertEquals("package-4", sample.getDomainName(4));
+        assertEquals(4.0, sample.getDomainJoules(4));
+        assertEquals(3.0, sample.getPower());
+
+        // A new reading removes the domains of the previous one
+        sample.update(2_000_000_000L, 1.0);
+        assertEquals(0, sample.getDomainCount());
+    }
+}
@@ -0,0 +1,176 @@
+/*
+ * Copyright (c) 2021-2026, Adel Noureddine, Université de Pau et des Pays de l'Adour.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the
+ * GNU General Public License v3.0 only (GPL-3.0-only)
+ * which accompanies this distribution, and is available at
+ * https://www.gnu.org/licenses/gpl-3.0.en.html
+ *
+ */
+
+package org.noureddine.joularjx.cpu;
+
+import com.github.marschall.memoryfilesystem.MemoryFileSystemBuilder;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.FileSystem;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HwmonLinuxTest {
+
+    private FileSystem fileSystem;
+
+    private Cpu cpu;
+
+    @BeforeEach
+    void init() throws IOException {
+        fileSystem = MemoryFileSystemBuilder.newLinux().build();
+        cpu = new HwmonLinux(fileSystem);
+    }
+
+    @AfterEach
+    void cleanup() throws Exception {
+        cpu.close();
+        fileSystem.close();
+    }
+
+    private Path chip(String directory, String name) throws IOException {
+        Path chip = fileSystem.getPath(HwmonLinux.HWMON_ROOT, directory);
+        Files.createDirectories(chip);
+        Files.writeString(chip.resolve("name"), name + "\n");
+        return chip;
+    }
+
+    private void sensor(Path chip, String sensor, String label, long value) throws IOException {
+        if (label != null) {
+            Files.writeString(chip.resolve(sensor + "_label"), label + "\n");
+        }
+        write(chip, sensor, value);
+    }
+
+    private void write(Path chip, String sensor, long value) throws IOException {
+        Files.writeString(chip.resolve(sensor + "_input"), value + "\n");
+    }
+
+    @Test
+    void socketCountersUsedForTotal() throws IOException {
+        Path amd = chip("hwmon2", "amd_energy");
+        sensor(amd, "energy1", "Ecore000", 1_000_000);
+        sensor(amd, "energy2", "Ecore001", 2_000_000);
+        sensor(amd, "energy3", "Esocket0", 10_000_000);
+        // A temperature sensor and a power sensor of another chip
+        Path other = chip("hwmon0", "k10temp");
+        Files.writeString(other.resolve("temp1_input"), "45000\n");
+        sensor(other, "power1", null, 5_000_000);
+
+        cpu.initialize();
+        assertFalse(cpu.isInstantaneousPower());
+        assertEquals(10.0, cpu.getInitialPower());
+
+        EnergySample sample = new EnergySample();
+        cpu.readEnergy(0, sample);
+        write(amd, "energy1", 1_500_000);
+        write(amd, "energy2", 2_250_000);
+        write(amd, "energy3", 12_000_000);
+        cpu.readEnergy(0, sample);
+
+        // The socket counter only, cores are part of it, and the other sensors are not read
+        assertTrue(sample.isValid());
+        assertEquals(2.0, sample.getJoules(), 1e-9);
+        assertEquals(1, sample.getDomainCount());
+        assertEquals("amd_energy:Esocket0", sample.getDomainName(0));
+        assertEquals(2.0, sample.getDomainJoules(0), 1e-9);
+
+        // Every sensor, sorted by chip and sensor
+        Map<String, Double> domains = cpu.getDomainsConsumedEnergy();
+        assertEquals(List.of("k10temp:power1", "amd_energy:Ecore000", "amd_energy:Ecore001", "amd_energy:Esocket0"),
+                List.copyOf(domains.keySet()));
+        assertEquals(2.0, domains.get("amd_energy:Esocket0"), 1e-9);
+        assertEquals(0.5, domains.get("amd_energy:Ecore000"), 1e-9);
+        assertEquals(0.25, domains.get("amd_energy:Ecore001"), 1e-9);
+    }
+
+    @Test
+    void sensorsSortedByIndex() throws IOException {
+        Path amd = chip("hwmon10", "amd_energy");
+        for (int i = 1; i <= 12; i++) {
+            sensor(amd, "energy" + i, String.format("Ecore%03d", i - 1), i);
+        }
+        chip("hwmon2", "amd_energy");
+
+        assertEquals("amd_energy:Ecore011", HwmonLinux.discoverSensors(amd.getParent()).get(11).getLabel());
+        assertTrue(HwmonLinux.compareNames("hwmon2", "hwmon10") < 0);
+    }
+
+    @Test
+    void coreCountersSummedWithoutSocket() throws IOException {
+        Path amd = chip("hwmon1", "amd_energy");
+        sensor(amd, "energy1", "Ecore000", 1_000_000);
+        sensor(amd, "energy2", "Ecore001", 2_000_000);
+
+        cpu.initialize();
+        cpu.getInitialPower();
+        write(amd, "energy1", 3_000_000);
+        write(amd, "energy2", 3_000_000);
+
+        assertEquals(3.0, cpu.getConsumedEnergy(0, 1), 1e-9);
+    }
+
+    @Test
+    void powerSensorsIntegrated() throws IOException, InterruptedException {
+        Path ampere = chip("hwmon0", "smpro_hwmon");
+        sensor(ampere, "power1", "CPU power", 20_000_000);
+        sensor(ampere, "power2", "IO power", 5_000_000);
+
+        cpu.initialize();
+        assertTrue(cpu.isInstantaneousPower());
+        // The CPU sensor only
+        assertEquals(20.0, cpu.getInitialPower());
+
+        EnergySample sample = new EnergySample();
+        cpu.readEnergy(0, sample);
+        Thread.sleep(20);
+        cpu.readEnergy(0, sample);
+        assertEquals(20.0, sample.getPower(), 1.0);
+        assertEquals(1, sample.getDomainCount());
+        assertTrue(cpu.getDomainsConsumedEnergy().containsKey("smpro_hwmon:IO power"));
+    }
+
+    @Test
+    void otherSensorsNeverUsedForTotal() throws IOException {
+        // Power sensors of a processor driver without a socket sensor, and an energy sensor of another device
+        Path zen = chip("hwmon1", "zenpower");
+        sensor(zen, "power1", "SVI2_P_Core", 30_000_000);
+        sensor(zen, "power2", "SVI2_P_SoC", 10_000_000);
+        Path gpu = chip("hwmon2", "amdgpu");
+        sensor(gpu, "energy1", null, 1_000_000);
+        Path root = zen.getParent();
+        assertTrue(HwmonLinux.hasProcessorSensors(root));
+
+        cpu.initialize();
+        // The energy counter of the GPU does not replace the power sensors of the processor
+        assertTrue(cpu.isInstantaneousPower());
+        assertEquals(40.0, cpu.getInitialPower());
+    }
+
+    @Test
+    void unavailableWithoutProcessorSensors() throws IOException {
+        Path nvme = chip("hwmon0", "nvme");
+        sensor(nvme, "power1", "Composite", 3_000_000);
+        Path gpu = chip("hwmon1", "amdgpu");
+        sensor(gpu, "power1", "PPT", 50_000_000);
+
+        assertEquals(2, HwmonLinux.discoverSensors(nvme.getParent()).size());
+        assertFalse(HwmonLinux.hasProcessorSensors(nvme.getParent()));
+    }
+}
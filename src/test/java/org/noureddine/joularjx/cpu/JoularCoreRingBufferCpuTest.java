@@ -0,0 +1,96 @@
+/*
+ * Copyright (c) 2021-2026, Adel Noureddine, Université de Pau et des Pays de l'Adour.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the
+ * GNU General Public License v3.0 only (GPL-3.0-only)
+ * which accompanies this distribution, and is available at
+ * https://www.gnu.org/licenses/gpl-3.0.en.html
+ *
+ */
+
+package org.noureddine.joularjx.cpu;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JoularCoreRingBufferCpuTest {
+
+    private static final int ENTRY_SIZE = 40;
+    private static final int BUFFER_SIZE = 5;
+
+    /**
+     * Writes an entry after the head, then publishes it, as Joular Core does.
+     */
+    private static void write(MappedByteBuffer ring, double cpuPower, double totalPower, double pidAppPower) {
+        long head = ring.getLong(0);
+        int offset = 8 + (int) (head % BUFFER_SIZE) * ENTRY_SIZE;
+        ring.putDouble(offset, cpuPower);
+        ring.putDouble(offset + 8, totalPower - cpuPower);
+        ring.putDouble(offset + 16, totalPower);
+        ring.putDouble(offset + 24, 0.5);
+        ring.putDouble(offset + 32, pidAppPower);
+        ring.putLong(0, head + 1);
+    }
+
+    private static MappedByteBuffer createRing(Path file) throws IOException {
+        try (RandomAccessFile ringFile = new RandomAccessFile(file.toFile(), "rw")) {
+            MappedByteBuffer ring = ringFile.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, 8 + BUFFER_SIZE * ENTRY_SIZE);
+            ring.order(ByteOrder.nativeOrder());
+            return ring;
+        }
+    }
+
+    @Test
+    void integratesAllEntriesOfTheWindow(@TempDir Path directory) throws IOException {
+        Path file = directory.resolve("joularcorering");
+        MappedByteBuffer ring = createRing(file);
+        write(ring, 10, 10, 0);
+
+        JoularCoreRingBufferCpu cpu = new JoularCoreRingBufferCpu(file.toString());
+        cpu.initialize();
+        assertEquals(10, cpu.getInitialPower());
+
+        write(ring, 20, 20, 0);
+        write(ring, 40, 40, 0);
+        // Average of the entries written during the window, over its duration
+        assertEquals(60, cpu.getConsumedEnergy(0, 2), 0.0001);
+        assertEquals(40, cpu.getCurrentPower(0));
+
+        // No new entry: the latest power is kept
+        assertEquals(20, cpu.getConsumedEnergy(0, 0.5), 0.0001);
+        assertTrue(Double.isNaN(cpu.getProcessShare()));
+
+        // Entries overwritten before being read are skipped
+        for (int i = 0; i < 8; i++) {
+            write(ring, i < 4 ? 1000 : 5, 5, 0);
+        }
+        assertEquals(5, cpu.getConsumedEnergy(0, 1), 0.0001);
+        cpu.close();
+    }
+
+    @Test
+    void processShareFromPidAppPower(@TempDir Path directory) throws IOException {
+        Path file = directory.resolve("joularcorering");
+        MappedByteBuffer ring = createRing(file);
+
+        JoularCoreRingBufferCpu cpu = new JoularCoreRingBufferCpu(file.toString(), true);
+        cpu.initialize();
+        cpu.getInitialPower();
+
+        write(ring, 8, 10, 2);
+        write(ring, 8, 10, 3);
+        assertEquals(8, cpu.getConsumedEnergy(0, 1), 0.0001);
+        assertEquals(0.25, cpu.getProcessShare(), 0.0001);
+        cpu.close();
+    }
+}
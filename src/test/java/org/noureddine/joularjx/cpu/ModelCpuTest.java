@@ -0,0 +1,75 @@
+/*
+ * Copyright (c) 2021-2026, Adel Noureddine, Université de Pau et des Pays de l'Adour.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the
+ * GNU General Public License v3.0 only (GPL-3.0-only)
+ * which accompanies this distribution, and is available at
+ * https://www.gnu.org/licenses/gpl-3.0.en.html
+ *
+ */
+
+package org.noureddine.joularjx.cpu;
+
+import com.github.marschall.memoryfilesystem.MemoryFileSystemBuilder;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.noureddine.joularjx.utils.AgentProperties;
+
+import java.io.IOException;
+import java.nio.file.FileSystem;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ModelCpuTest {
+
+    private static void frequency(FileSystem fs, int cpu, long kiloHertz) throws IOException {
+        Path directory = fs.getPath(CpuFrequency.CPU_ROOT, "cpu" + cpu, "cpufreq");
+        Files.createDirectories(directory);
+        Files.writeString(directory.resolve("scaling_cur_freq"), kiloHertz + "\n");
+    }
+
+    @Test
+    void powerFromLoadAndAverageFrequency() throws IOException {
+        try (FileSystem fs = MemoryFileSystemBuilder.newLinux().build()) {
+            frequency(fs, 0, 1_000_000);
+            frequency(fs, 1, 3_000_000);
+            Files.createDirectories(fs.getPath(CpuFrequency.CPU_ROOT, "cpufreq"));
+
+            // 5 + 10 u + f (2 u)
+            PowerModel model = PowerModel.polynomial("sku", null, new double[][] {{5, 10}, {0, 2}});
+            ModelCpu cpu = new ModelCpu(model, fs);
+            cpu.initialize();
+            assertEquals(5 + 5 + 2 * 1, cpu.getCurrentPower(0.5), 1e-9);
+
+            frequency(fs, 1, 1_000_000);
+            assertEquals(5 + 5 + 1, cpu.getCurrentPower(0.5), 1e-9);
+            cpu.close();
+        }
+    }
+
+    @Test
+    void providerUnavailableWithInvalidModelFile(@TempDir Path directory) throws IOException {
+        Path modelFile = directory.resolve("models.properties");
+        Files.writeString(modelFile, "sku.type=spline\n");
+        try (FileSystem fs = MemoryFileSystemBuilder.newEmpty().build()) {
+            Files.writeString(fs.getPath("config.properties"), "power-model=sku\n"
+                    + "power-model-file=" + modelFile.toString().replace("\\", "/") + "\n");
+            AgentProperties properties = new AgentProperties(fs);
+
+            // Logged, without exiting during the availability check
+            assertFalse(new ModelCpu.Provider().isAvailable(properties));
+
+            // The file is only read once per provider
+            ModelCpu.Provider provider = new ModelCpu.Provider();
+            Files.writeString(modelFile, "sku.type=polynomial\nsku.coefficients=3, 7\n");
+            assertTrue(provider.isAvailable(properties));
+            Files.writeString(modelFile, "sku.type=spline\n");
+            ModelCpu cpu = (ModelCpu) provider.create(properties);
+            assertEquals(10, cpu.getModel().evaluate(1, Double.NaN));
+        }
+    }
+}
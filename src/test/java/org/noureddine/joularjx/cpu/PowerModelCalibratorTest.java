@@ -0,0 +1,56 @@
+/*
+ * Copyright (c) 2021-2026, Adel Noureddine, Université de Pau et des Pays de l'Adour.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the
+ * GNU General Public License v3.0 only (GPL-3.0-only)
+ * which accompanies this distribution, and is available at
+ * https://www.gnu.org/licenses/gpl-3.0.en.html
+ *
+ */
+
+package org.noureddine.joularjx.cpu;
+
+import com.github.marschall.memoryfilesystem.MemoryFileSystemBuilder;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.FileSystem;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class PowerModelCalibratorTest {
+
+    @Test
+    void fitRecoversPolynomial() {
+        List<double[]> points = new ArrayList<>();
+        for (int i = 0; i <= 10; i++) {
+            double load = i / 10.0;
+            points.add(new double[] {load, 12 + 30 * load - 8 * load * load, Double.NaN});
+        }
+
+        PowerModel model = PowerModelCalibrator.fit("sku", "Test server", points, 2);
+        for (double load = 0; load <= 1; load += 0.05) {
+            assertEquals(12 + 30 * load - 8 * load * load, model.evaluate(load, Double.NaN), 1e-6);
+        }
+
+        // The degree is lowered to fit the number of points
+        PowerModel line = PowerModelCalibrator.fit("line", null, points.subList(0, 2), 5);
+        assertEquals(12 + 3 - 0.08, line.evaluate(0.1, Double.NaN), 1e-9);
+    }
+
+    @Test
+    void modelWrittenToModelFile() throws IOException {
+        List<double[]> points = List.of(new double[] {0, 5, 1.2}, new double[] {1, 25, 3.1});
+        PowerModel model = PowerModelCalibrator.fit("sku", null, points, 1);
+
+        try (FileSystem fs = MemoryFileSystemBuilder.newLinux().build()) {
+            Path file = fs.getPath("/sku.properties");
+            Files.writeString(file, model.format());
+            assertEquals(15, PowerModel.load(fs, file.toString()).get("sku").evaluate(0.5, Double.NaN), 1e-9);
+        }
+    }
+}
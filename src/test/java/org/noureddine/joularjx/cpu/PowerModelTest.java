@@ -0,0 +1,120 @@
+/*
+ * Copyright (c) 2021-2026, Adel Noureddine, Université de Pau et des Pays de l'Adour.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the
+ * GNU General Public License v3.0 only (GPL-3.0-only)
+ * which accompanies this distribution, and is available at
+ * https://www.gnu.org/licenses/gpl-3.0.en.html
+ *
+ */
+
+package org.noureddine.joularjx.cpu;
+
+import com.github.marschall.memoryfilesystem.MemoryFileSystemBuilder;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.file.FileSystem;
+import java.nio.file.Files;
+import java.util.Map;
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PowerModelTest {
+
+    private static Map<String, PowerModel> parse(String content) throws IOException {
+        Properties properties = new Properties();
+        properties.load(new StringReader(content));
+        return PowerModel.parse(properties);
+    }
+
+    @Test
+    void bundledModelsOfAllBoards() {
+        Map<String, PowerModel> models = PowerModel.bundled();
+        for (RaspberryPiModels board : RaspberryPiModels.values()) {
+            assertTrue(models.containsKey(board.getModelId()), board.getModelId());
+        }
+
+        // Same values as the previous hardcoded polynomial of the Raspberry Pi 4 Model B Rev 1.2 (64-bit)
+        double cpuUsage = 0.37;
+        double expected = 3.039940056604439 + (-3.074225 * cpuUsage) +
+                (47.753114 * Math.pow(cpuUsage, 2)) +
+                (-271.974551 * Math.pow(cpuUsage, 3)) +
+                (879.966571 * Math.pow(cpuUsage, 4)) +
+                (-1437.466442 * Math.pow(cpuUsage, 5)) +
+                (1133.325791 * Math.pow(cpuUsage, 6)) +
+                (-345.134888 * Math.pow(cpuUsage, 7));
+        assertEquals(expected, new RaspberryPi(RaspberryPiModels.RPI_4B_12_64).getCurrentPower(cpuUsage), 1e-9);
+    }
+
+    @Test
+    void polynomialInLoadAndFrequency() throws IOException {
+        PowerModel model = parse("sku.type=polynomial\n" +
+                "sku.coefficients=10, 20, -5\n" +
+                "sku.coefficients.1=1, 4\n").get("sku");
+
+        assertTrue(model.usesFrequency());
+        // 10 + 20 u - 5 u^2 + f (1 + 4 u)
+        assertEquals(10 + 10 - 1.25 + 2 * (1 + 2), model.evaluate(0.5, 2), 1e-9);
+        // Never negative
+        assertEquals(0, PowerModel.polynomial("negative", null, new double[][] {{-1}}).evaluate(0.5, 2));
+    }
+
+    @Test
+    void piecewiseLinearInLoadAndFrequency() throws IOException {
+        Map<String, PowerModel> models = parse("board.type=piecewise-linear\n" +
+                "board.loads=0, 0.5, 1\n" +
+                "board.powers=2, 4, 5\n" +
+                "server.type=Piecewise-Linear\n" +
+                "server.loads=0, 1\n" +
+                "server.frequencies=1, 3\n" +
+                "server.powers.0=10, 20\n" +
+                "server.powers.1=20, 60\n");
+
+        PowerModel board = models.get("board");
+        assertFalse(board.usesFrequency());
+        assertEquals(3, board.evaluate(0.25, Double.NaN), 1e-9);
+        assertEquals(4, board.evaluate(0.5, Double.NaN), 1e-9);
+        // Clamped out of the range of the points
+        assertEquals(5, board.evaluate(1.2, Double.NaN), 1e-9);
+
+        PowerModel server = models.get("server");
+        assertTrue(server.usesFrequency());
+        // 15 W at 1 GHz and 40 W at 3 GHz, half load
+        assertEquals(27.5, server.evaluate(0.5, 2), 1e-9);
+        assertEquals(15, server.evaluate(0.5, 0.5), 1e-9);
+
+        // The formatted model is parsed back to the same model
+        PowerModel parsed = parse(server.format()).get("server");
+        assertEquals(server.evaluate(0.7, 2.5), parsed.evaluate(0.7, 2.5), 1e-9);
+    }
+
+    @Test
+    void invalidModels() {
+        assertThrows(IllegalArgumentException.class, () -> parse("a.type=spline\n"));
+        assertThrows(IllegalArgumentException.class, () -> parse("a.type=polynomial\n"));
+        assertThrows(IllegalArgumentException.class, () -> parse("a.type=polynomial\na.coefficients=1, x\n"));
+        assertThrows(IllegalArgumentException.class, () -> parse("a.type=piecewise-linear\na.loads=0, 1, 0.5\na.powers=1, 2, 3\n"));
+        assertThrows(IllegalArgumentException.class, () -> parse("a.type=piecewise-linear\na.loads=0, 1\na.powers=1\n"));
+    }
+
+    @Test
+    void modelFileReplacesBundledModels() throws IOException {
+        try (FileSystem fs = MemoryFileSystemBuilder.newLinux().build()) {
+            Files.writeString(fs.getPath("/models.properties"), "rpi-zw-11.type=polynomial\n" +
+                    "rpi-zw-11.coefficients=1.5\n" +
+                    "sku.type=polynomial\n" +
+                    "sku.coefficients=3, 7\n");
+
+            Map<String, PowerModel> models = PowerModel.load(fs, "/models.properties");
+            assertEquals(1.5, new RaspberryPi(RaspberryPiModels.RPI_ZW_11, models).getCurrentPower(0.8));
+            assertEquals(10, models.get("sku").evaluate(1, Double.NaN));
+            assertTrue(models.containsKey("rpi-5b-10-64"));
+        }
+    }
+}
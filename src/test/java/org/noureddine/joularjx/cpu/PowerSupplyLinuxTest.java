@@ -0,0 +1,158 @@
+/*
+ * Copyright (c) 2021-2026, Adel Noureddine, Université de Pau et des Pays de l'Adour.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the
+ * GNU General Public License v3.0 only (GPL-3.0-only)
+ * which accompanies this distribution, and is available at
+ * https://www.gnu.org/licenses/gpl-3.0.en.html
+ *
+ */
+
+package org.noureddine.joularjx.cpu;
+
+import com.github.marschall.memoryfilesystem.MemoryFileSystemBuilder;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.FileSystem;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PowerSupplyLinuxTest {
+
+    private static final long SECOND = 1_000_000_000L;
+
+    private FileSystem fileSystem;
+
+    @BeforeEach
+    void init() throws IOException {
+        fileSystem = MemoryFileSystemBuilder.newLinux().build();
+    }
+
+    @AfterEach
+    void cleanup() throws IOException {
+        fileSystem.close();
+    }
+
+    private Path supply(String name, String type) throws IOException {
+        Path directory = fileSystem.getPath(PowerSupplyLinux.POWER_SUPPLY_ROOT, name);
+        Files.createDirectories(directory);
+        Files.writeString(directory.resolve("type"), type + "\n");
+        Files.writeString(directory.resolve("status"), "Discharging\n");
+        return directory;
+    }
+
+    private static void write(Path directory, String attribute, Object value) throws IOException {
+        Files.writeString(directory.resolve(attribute), value + "\n");
+    }
+
+    @Test
+    void discoversSystemBatteries() throws IOException {
+        write(supply("AC", "Mains"), "online", 0);
+        Path mouse = supply("hidpp_battery_0", "Battery");
+        write(mouse, "scope", "Device");
+        write(mouse, "power_now", 100_000);
+        Path battery = supply("BAT0", "Battery");
+        write(battery, "current_now", 1_000_000);
+        write(battery, "voltage_now", 12_000_000);
+        write(battery, "energy_now", 40_000_000);
+
+        List<PowerSupplyBattery> batteries = PowerSupplyLinux.discoverBatteries(battery.getParent());
+        assertEquals(1, batteries.size());
+        assertEquals("BAT0", batteries.get(0).getName());
+        assertEquals(PowerSupplyBattery.Reading.CURRENT_VOLTAGE, batteries.get(0).getReading());
+    }
+
+    @Test
+    void powerConvertedOverMeasuredInterval() throws Exception {
+        Path battery = supply("BAT0", "Battery");
+        write(battery, "current_now", -500_000);
+        write(battery, "voltage_now", 12_000_000);
+
+        Cpu cpu = new PowerSupplyLinux(fileSystem);
+        cpu.initialize();
+        assertEquals(6.0, cpu.getInitialPower(), 1e-9);
+
+        EnergySample sample = new EnergySample();
+        cpu.readEnergy(0, sample);
+        Thread.sleep(20);
+        cpu.readEnergy(0, sample);
+        assertTrue(sample.isValid());
+        assertEquals(6.0, sample.getPower(), 0.1);
+        cpu.close();
+    }
+
+    @Test
+    void notDischargingAtStartup() throws Exception {
+        Path battery = supply("BAT0", "Battery");
+        write(battery, "status", "Full");
+        write(battery, "power_now", 4_000_000);
+
+        // Still used, with a warning, but no energy is measured while plugged in
+        Cpu cpu = new PowerSupplyLinux(fileSystem);
+        cpu.initialize();
+        assertEquals(0, cpu.getInitialPower());
+        cpu.close();
+    }
+
+    @Test
+    void powerInterpolatedBetweenReads() throws IOException {
+        Path directory = supply("BAT0", "Battery");
+        write(directory, "power_now", 4_000_000);
+        PowerSupplyBattery battery = new PowerSupplyBattery("BAT0", directory, PowerSupplyBattery.Reading.POWER);
+        battery.open(0);
+        assertTrue(battery.isDischarging());
+
+        write(directory, "power_now", 8_000_000);
+        battery.read(2 * SECOND);
+        assertEquals(12.0, battery.getConsumedEnergy(), 1e-9);
+
+        // Plugged in: no energy is consumed from the battery
+        write(directory, "status", "Charging");
+        battery.read(3 * SECOND);
+        assertFalse(battery.isDischarging());
+        assertEquals(16.0, battery.getConsumedEnergy(), 1e-9);
+        battery.read(10 * SECOND);
+        assertEquals(16.0, battery.getConsumedEnergy(), 1e-9);
+        battery.close();
+    }
+
+    @Test
+    void energyStepsInterpolated() throws IOException {
+        Path directory = supply("BAT0", "Battery");
+        write(directory, "energy_now", 10_000_000);
+        PowerSupplyBattery battery = new PowerSupplyBattery("BAT0", directory, PowerSupplyBattery.Reading.ENERGY);
+        battery.open(0);
+
+        // The first step only starts the interpolation
+        write(directory, "energy_now", 9_999_000);
+        battery.read(2 * SECOND);
+        assertEquals(0, battery.getConsumedEnergy(), 1e-9);
+
+        // 1000 microWatt-hours (3.6 J) in 10 seconds
+        write(directory, "energy_now", 9_998_000);
+        battery.read(12 * SECOND);
+        assertEquals(3.6, battery.getConsumedEnergy(), 1e-9);
+        assertEquals(0.36, battery.getPower(), 1e-9);
+
+        // Interpolated at the rate of the last step, for at most its duration
+        battery.read(17 * SECOND);
+        assertEquals(5.4, battery.getConsumedEnergy(), 1e-9);
+        battery.read(30 * SECOND);
+        assertEquals(7.2, battery.getConsumedEnergy(), 1e-9);
+
+        // Caught up with the gauge at the next step
+        write(directory, "energy_now", 9_997_000);
+        battery.read(32 * SECOND);
+        assertEquals(7.2, battery.getConsumedEnergy(), 1e-9);
+        assertEquals(0.18, battery.getPower(), 1e-9);
+        battery.close();
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright (c) 2021-2026, Adel Noureddine, Université de Pau et des Pays de l'Adour.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the
+ * GNU General Public License v3.0 only (GPL-3.0-only)
+ * which accompanies this distribution, and is available at
+ * https://www.gnu.org/licenses/gpl-3.0.en.html
+ *
+ */
+
+package org.noureddine.joularjx.cpu;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ProcessPowerReaderTest {
+
+    private static final long SECOND = 1_000_000_000L;
+
+    @Test
+    void readsWithoutBlocking() throws IOException, InterruptedException {
+        PipedOutputStream output = new PipedOutputStream();
+        PipedInputStream input = new PipedInputStream(output);
+        try (ProcessPowerReader reader = new ProcessPowerReader(input, "Test")) {
+            // No line printed yet: the reading does not wait for one
+            assertEquals(0, reader.getLatestPower());
+            assertEquals(0, reader.getConsumedEnergy());
+
+            output.write("1.0\n12.5\n".getBytes(StandardCharsets.UTF_8));
+            output.flush();
+            waitForPower(reader, 12.5);
+
+            output.write("7.25\n".getBytes(StandardCharsets.UTF_8));
+            output.flush();
+            waitForPower(reader, 7.25);
+            output.close();
+        }
+    }
+
+    @Test
+    void keepsAllBufferedLines() throws IOException, InterruptedException {
+        PipedOutputStream output = new PipedOutputStream();
+        PipedInputStream input = new PipedInputStream(output);
+        try (ProcessPowerReader reader = new ProcessPowerReader(input, "Test")) {
+            // The first line is discarded, blank and invalid lines are skipped
+            output.write("0.0\n1.0\n\ninvalid\n2.0\n3.0\n".getBytes(StandardCharsets.UTF_8));
+            output.flush();
+            waitForPower(reader, 3.0);
+
+            // The stream ended: no more power
+            output.close();
+            waitForPower(reader, 0);
+        }
+    }
+
+    @Test
+    void accumulatesEnergyBetweenCalls() throws IOException, InterruptedException {
+        PipedOutputStream output = new PipedOutputStream();
+        PipedInputStream input = new PipedInputStream(output);
+        AtomicLong clock = new AtomicLong(SECOND);
+        try (ProcessPowerReader reader = new ProcessPowerReader(input, "Test", clock::get)) {
+            // Both lines read at 1 s, the first one only starts the measurement
+            output.write("0.0\n10.0\n".getBytes(StandardCharsets.UTF_8));
+            output.flush();
+            waitForPower(reader, 10.0);
+            assertEquals(0, reader.getConsumedEnergy());
+
+            // The energy since the last line is estimated from its value
+            clock.set(3 * SECOND);
+            assertEquals(20.0, reader.getConsumedEnergy(), 1e-9);
+
+            // The next line gives the average power since the previous one, 20 W from 1 s to 4 s, correcting
+            // the estimate
+            clock.set(4 * SECOND);
+            output.write("20.0\n".getBytes(StandardCharsets.UTF_8));
+            output.flush();
+            waitForPower(reader, 20.0);
+            assertEquals(40.0, reader.getConsumedEnergy(), 1e-9);
+            clock.set(5 * SECOND);
+            assertEquals(20.0, reader.getConsumedEnergy(), 1e-9);
+
+            // The stream ended: the next calls only return the energy up to its end
+            output.close();
+            waitForPower(reader, 0);
+            clock.set(10 * SECOND);
+            assertEquals(0, reader.getConsumedEnergy());
+        }
+    }
+
+    private static void waitForPower(ProcessPowerReader reader, double power) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (reader.getLatestPower() != power && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(power, reader.getLatestPower());
+    }
+}
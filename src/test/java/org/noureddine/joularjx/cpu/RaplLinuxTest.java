@@ -26,6 +26,8 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.attribute.PosixFilePermission;
 import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
 import java.util.logging.Level;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -59,24 +61,18 @@ class RaplLinuxTest {
 
     @Test
     void psysFileSupported() throws IOException {
-        Path psys = fileSystem.getPath(RaplLinux.RAPL_PSYS);
-        Path psysMax = fileSystem.getPath(RaplLinux.RAPL_PSYS_MAX);
-        Files.createDirectories(psys.getParent());
-        Files.writeString(psys, "1000000");
-        Files.writeString(psysMax, "1000000");
+        zone("intel-rapl/intel-rapl:0", "package-0", 5000000, 262143328850L);
+        zone("intel-rapl/intel-rapl:1", "psys", 1000000, 262143328850L);
 
         cpu.initialize();
 
+        // psys covers the whole platform, so packages are not added to it
         assertEquals(1.0, cpu.getCurrentPower(0));
     }
 
-   @Test
+    @Test
     void pkgFileSupported() throws IOException {
-        Path pkg = fileSystem.getPath(RaplLinux.RAPL_PKG);
-        Path pkgMax = fileSystem.getPath(RaplLinux.RAPL_PKG_MAX);
-        Files.createDirectories(pkg.getParent());
-        Files.writeString(pkg, "1000000");
-        Files.writeString(pkgMax, "1000000");
+        zone("intel-rapl/intel-rapl:0", "package-0", 1000000, 1000000);
 
         cpu.initialize();
 
@@ -85,34 +81,156 @@ class RaplLinuxTest {
 
     @Test
     void pkgAndDramFileSupported() throws IOException {
-        Path pkg = fileSystem.getPath(RaplLinux.RAPL_PKG);
-        Path dram = fileSystem.getPath(RaplLinux.RAPL_DRAM);
+        zone("intel-rapl/intel-rapl:0", "package-0", 1000000, 1000000);
+        zone("intel-rapl/intel-rapl:0/intel-rapl:0:0", "core", 500000, 1000000);
+        zone("intel-rapl/intel-rapl:0/intel-rapl:0:2", "dram", 1000000, 1000000);
+
+        cpu.initialize();
+
+        // core is part of the package energy, so it is not added to the total
+        assertEquals(2.0, cpu.getCurrentPower(0));
+    }
+
+    @Test
+    void allSocketsMeasured() throws IOException {
+        zone("intel-rapl/intel-rapl:0", "package-0", 1000000, 262143328850L);
+        zone("intel-rapl/intel-rapl:0/intel-rapl:0:0", "dram", 1000000, 65712999613L);
+        zone("intel-rapl/intel-rapl:1", "package-1", 2000000, 262143328850L);
+        zone("intel-rapl/intel-rapl:1/intel-rapl:1:0", "dram", 1000000, 65712999613L);
+        // Duplicate of the package zones, through the MMIO interface
+        zone("intel-rapl-mmio/intel-rapl-mmio:0", "package-0", 7000000, 262143328850L);
+
+        cpu.initialize();
+
+        assertEquals(5.0, cpu.getCurrentPower(0));
+        assertEquals(List.of("package-0", "dram-0", "package-1", "dram-1"),
+                List.copyOf(cpu.getDomainsConsumedEnergy().keySet()));
+    }
 
-        Path pkgMax = fileSystem.getPath(RaplLinux.RAPL_PKG_MAX);
-        Path dramMax = fileSystem.getPath(RaplLinux.RAPL_DRAM_MAX);
+    @Test
+    void countersReadAfterUpdates() throws IOException {
+        Path pkg = zone("intel-rapl/intel-rapl:0", "package-0", 1000000, 262143328850L);
+
+        cpu.initialize();
+
+        assertEquals(1.0, cpu.getCurrentPower(0));
+        Files.writeString(pkg, "3500000");
+        assertEquals(3.5, cpu.getCurrentPower(0));
+        assertEquals(262143.32885, cpu.getMaxPower(0));
+    }
 
-        Files.createDirectories(pkg.getParent());
-        Files.createDirectories(dram.getParent());
+    @Test
+    void domainsEnergyAcrossWraparound() throws IOException {
+        Path pkg = zone("intel-rapl/intel-rapl:0", "package-0", 1000000, 10000000);
+        Path dram = zone("intel-rapl/intel-rapl:0/intel-rapl:0:2", "dram", 1000000, 4000000);
+
+        cpu.initialize();
 
-        Files.writeString(pkg, "1000000");
+        Files.writeString(pkg, "9000000");
+        Files.writeString(dram, "3000000");
+        cpu.getCurrentPower(0);
+        // Each counter wraps around its own range
+        Files.writeString(pkg, "2000000");
         Files.writeString(dram, "1000000");
-        Files.writeString(pkgMax, "1000000");
-        Files.writeString(dramMax, "1000000");
+
+        Map<String, Double> domains = cpu.getDomainsConsumedEnergy();
+        assertEquals(11.0, domains.get("package-0"));
+        assertEquals(4.0, domains.get("dram-0"));
+    }
+
+    @Test
+    void energySampleWithDomains() throws IOException {
+        Path pkg = zone("intel-rapl/intel-rapl:0", "package-0", 1000000, 10000000);
+        Path dram = zone("intel-rapl/intel-rapl:0/intel-rapl:0:2", "dram", 1000000, 4000000);
 
         cpu.initialize();
+        EnergySample sample = new EnergySample();
+        cpu.readEnergy(0, sample);
+        assertFalse(sample.isValid());
+
+        Files.writeString(pkg, "4000000");
+        Files.writeString(dram, "1500000");
+        cpu.readEnergy(0, sample);
+        assertTrue(sample.isValid());
+        assertTrue(sample.getElapsedNanos() > 0);
+        assertEquals(3.5, sample.getJoules());
+        assertEquals(2, sample.getDomainCount());
+        assertEquals("package-0", sample.getDomainName(0));
+        assertEquals(3.0, sample.getDomainJoules(0));
+        assertEquals("dram-0", sample.getDomainName(1));
+        assertEquals(0.5, sample.getDomainJoules(1));
+
+        // Only the energy of the last interval
+        Files.writeString(pkg, "5000000");
+        cpu.readEnergy(0, sample);
+        assertEquals(1.0, sample.getJoules());
+        assertEquals(1.0, sample.getDomainJoules(0));
+        assertEquals(0.0, sample.getDomainJoules(1));
+    }
 
-        assertEquals(2.0, cpu.getCurrentPower(0));
+    @Test
+    void consumedEnergyWithDomainsWrappingIndependently() throws IOException {
+        Path pkg0 = zone("intel-rapl/intel-rapl:0", "package-0", 9000000, 10000000);
+        Path pkg1 = zone("intel-rapl/intel-rapl:1", "package-1", 1000000, 20000000);
+
+        cpu.initialize();
+        cpu.getInitialPower();
+
+        // Only package 0 wraps: its range must not be added to the energy of package 1
+        Files.writeString(pkg0, "1000000");
+        Files.writeString(pkg1, "3000000");
+        assertEquals(4.0, cpu.getConsumedEnergy(0, 1));
+
+        Files.writeString(pkg0, "2000000");
+        assertEquals(1.0, cpu.getConsumedEnergy(0, 1));
+        // The total keeps increasing across the wraparound
+        assertEquals(15.0, cpu.getCurrentPower(0));
+    }
+
+    @Test
+    void supportedWithAnyControlType() throws IOException {
+        // AMD CPUs expose their package zones under amd-rapl, without intel-rapl:0
+        zone("amd-rapl/amd-rapl:0", "package-0", 1000000, 1000000);
+
+        assertTrue(RaplLinux.isSupported(fileSystem));
+    }
+
+    @Test
+    void unsupportedWithoutZones() throws IOException {
+        Files.createDirectories(fileSystem.getPath(RaplLinux.POWERCAP_ROOT, "intel-rapl"));
+
+        assertFalse(RaplLinux.isSupported(fileSystem));
+    }
+
+    @Test
+    void unsupportedWhenTotalZoneNotReadable() throws IOException {
+        zone("intel-rapl/intel-rapl:0", "package-0", 1000000, 1000000);
+        Path psys = zone("intel-rapl/intel-rapl:1", "psys", 1000000, 1000000);
+        Files.setPosixFilePermissions(psys, EnumSet.noneOf(PosixFilePermission.class));
+
+        assertFalse(RaplLinux.isSupported(fileSystem));
+    }
+
+    /**
+     * Creates a powercap zone directory, relative to the powercap root, with its name and counter files.
+     *
+     * @return the energy counter file of the zone
+     */
+    private Path zone(String zonePath, String name, long energy, long maxEnergy) throws IOException {
+        Path directory = fileSystem.getPath(RaplLinux.POWERCAP_ROOT, zonePath);
+        Files.createDirectories(directory);
+        Files.writeString(directory.resolve("name"), name + "\n");
+        Files.writeString(directory.resolve("max_energy_range_uj"), Long.toString(maxEnergy));
+        Path energyFile = directory.resolve("energy_uj");
+        Files.writeString(energyFile, Long.toString(energy));
+        return energyFile;
     }
 
     /*
     @Test
     @ExpectSystemExitWithStatus(1)
     void raplFileNotReadable() throws IOException {
-        Path psys = fileSystem.getPath(RaplLinux.RAPL_PSYS);
-        Path psysMax = fileSystem.getPath(RaplLinux.RAPL_PSYS_MAX);
-        Files.createDirectories(psys.getParent());
-        Files.writeString(psys, "1000000");
-        Files.writeString(psysMax, "1000000");
+        Path psys = zone("intel-rapl/intel-rapl:1", "psys", 1000000, 1000000);
 
         assertTrue(Files.isReadable(psys));
         assertTrue(Files.isWritable(psys));
@@ -0,0 +1,161 @@
+/*
+ * Copyright (c) 2021-2026, Adel Noureddine, Université de Pau et des Pays de l'Adour.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the
+ * GNU General Public License v3.0 only (GPL-3.0-only)
+ * which accompanies this distribution, and is available at
+ * https://www.gnu.org/licenses/gpl-3.0.en.html
+ *
+ */
+
+package org.noureddine.joularjx.cpu;
+
+import com.github.marschall.memoryfilesystem.MemoryFileSystemBuilder;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+import org.noureddine.joularjx.utils.JoularJXLogging;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.FileSystem;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.logging.Level;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@EnabledOnOs(OS.LINUX)
+class RaplMsrLinuxTest {
+
+    // Energy status unit of 14: 1/16384 joule
+    private static final long POWER_UNIT = 0x000A0E03L;
+
+    private FileSystem fileSystem;
+
+    private Cpu cpu;
+
+    @BeforeEach
+    void init() throws IOException {
+        JoularJXLogging.updateLevel(Level.INFO);
+        fileSystem = MemoryFileSystemBuilder.newLinux().build();
+        cpu = new RaplMsrLinux(fileSystem);
+    }
+
+    @AfterEach
+    void cleanup() throws Exception {
+        cpu.close();
+        fileSystem.close();
+    }
+
+    @Test
+    void countersScaledByEnergyUnit() throws IOException {
+        topology(0, 0);
+        Path msr = msr(0, 16384, 8192);
+
+        cpu.initialize();
+
+        assertEquals(1.5, cpu.getCurrentPower(0));
+        assertEquals(1.5, cpu.getInitialPower());
+
+        writeMsr(msr, 16384 * 3, 8192 * 3);
+        assertEquals(3.0, cpu.getConsumedEnergy(0, 1));
+        assertEquals(Map.of("package-0", 2.0, "dram-0", 1.0), cpu.getDomainsConsumedEnergy());
+    }
+
+    @Test
+    void onePerPackage() throws IOException {
+        topology(0, 0);
+        topology(1, 1);
+        topology(2, 0);
+        topology(3, 1);
+        msr(0, 16384, -1);
+        msr(1, 32768, -1);
+        // CPUs 2 and 3 belong to packages already read, and must not be opened
+
+        cpu.initialize();
+
+        assertEquals(3.0, cpu.getCurrentPower(0));
+        assertEquals(Map.of("package-0", 0.0, "package-1", 0.0), cpu.getDomainsConsumedEnergy());
+    }
+
+    @Test
+    void counterWrapsAt32Bits() throws IOException {
+        Path msr = msr(0, 0xFFFF_C000L, -1);
+
+        cpu.initialize();
+        cpu.getInitialPower();
+
+        // Only the low 32 bits are the counter
+        writeMsr(msr, 0xABCD_0000_0000_4000L, -1);
+        assertEquals(2.0, cpu.getConsumedEnergy(0, 1));
+    }
+
+    @Test
+    void supportedOnIntel() throws IOException {
+        cpuinfo("GenuineIntel");
+        msr(0, 16384, -1);
+
+        assertTrue(RaplMsrLinux.isSupported(fileSystem));
+    }
+
+    @Test
+    void unsupportedOnAmd() throws IOException {
+        cpuinfo("AuthenticAMD");
+        msr(0, 16384, -1);
+
+        assertFalse(RaplMsrLinux.isSupported(fileSystem));
+    }
+
+    @Test
+    void unsupportedWithoutPowerUnit() throws IOException {
+        // The msr driver fails to read registers the CPU does not have
+        Path msr = fileSystem.getPath(String.format(RaplMsrLinux.MSR_PATH, 0));
+        Files.createDirectories(msr.getParent());
+        Files.write(msr, new byte[(int) RaplMsrLinux.MSR_RAPL_POWER_UNIT]);
+
+        assertFalse(RaplMsrLinux.isSupported(fileSystem));
+    }
+
+    @Test
+    void unsupportedWithoutMsrFile() {
+        assertFalse(RaplMsrLinux.isSupported(fileSystem));
+    }
+
+    private void cpuinfo(String vendorId) throws IOException {
+        Path cpuinfo = fileSystem.getPath(RaplMsrLinux.CPUINFO_PATH);
+        Files.createDirectories(cpuinfo.getParent());
+        Files.writeString(cpuinfo, "processor\t: 0\nvendor_id\t: " + vendorId + "\ncpu family\t: 6\n");
+    }
+
+    private void topology(int cpuId, int packageId) throws IOException {
+        Path topology = fileSystem.getPath(RaplMsrLinux.CPU_ROOT, "cpu" + cpuId, "topology");
+        Files.createDirectories(topology);
+        Files.writeString(topology.resolve("physical_package_id"), packageId + "\n");
+    }
+
+    /**
+     * Creates a fake msr file, with the given package and DRAM counters (no DRAM register if negative).
+     */
+    private Path msr(int cpuId, long pkg, long dram) throws IOException {
+        Path msr = fileSystem.getPath(String.format(RaplMsrLinux.MSR_PATH, cpuId));
+        Files.createDirectories(msr.getParent());
+        writeMsr(msr, pkg, dram);
+        return msr;
+    }
+
+    private void writeMsr(Path msr, long pkg, long dram) throws IOException {
+        int size = (int) (dram >= 0 ? RaplMsrLinux.MSR_DRAM_ENERGY_STATUS : RaplMsrLinux.MSR_PKG_ENERGY_STATUS) + Long.BYTES;
+        ByteBuffer registers = ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+        registers.putLong((int) RaplMsrLinux.MSR_RAPL_POWER_UNIT, POWER_UNIT);
+        registers.putLong((int) RaplMsrLinux.MSR_PKG_ENERGY_STATUS, pkg);
+        if (dram >= 0) {
+            registers.putLong((int) RaplMsrLinux.MSR_DRAM_ENERGY_STATUS, dram);
+        }
+        Files.write(msr, registers.array());
+    }
+}
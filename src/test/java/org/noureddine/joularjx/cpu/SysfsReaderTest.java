@@ -0,0 +1,85 @@
+/*
+ * Copyright (c) 2021-2026, Adel Noureddine, Université de Pau et des Pays de l'Adour.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the
+ * GNU General Public License v3.0 only (GPL-3.0-only)
+ * which accompanies this distribution, and is available at
+ * https://www.gnu.org/licenses/gpl-3.0.en.html
+ *
+ */
+
+package org.noureddine.joularjx.cpu;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.FileSystem;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.github.marschall.memoryfilesystem.MemoryFileSystemBuilder;
+
+class SysfsReaderTest {
+
+    @Test
+    void readsUpdatedValues() throws IOException {
+        try (FileSystem fileSystem = MemoryFileSystemBuilder.newLinux().build()) {
+            Path file = fileSystem.getPath("/energy_uj");
+            Files.writeString(file, "262143328850\n");
+
+            try (SysfsReader reader = new SysfsReader(file)) {
+                assertEquals(262143328850L, reader.readLong());
+                // The file is kept open, and read again from the beginning
+                Files.writeString(file, "42\n");
+                assertEquals(42, reader.readLong());
+                Files.writeString(file, "  -7");
+                assertEquals(-7, reader.readLong());
+            }
+        }
+    }
+
+    @Test
+    void readsFileChannel(@TempDir Path directory) throws IOException {
+        Path file = directory.resolve("energy_uj");
+        Files.writeString(file, "1000000\n");
+
+        try (SysfsReader reader = new SysfsReader(file)) {
+            assertEquals(1000000, reader.readLong());
+            assertEquals(1000000, reader.readLong());
+        }
+    }
+
+    @Test
+    void comparesText() throws IOException {
+        try (FileSystem fileSystem = MemoryFileSystemBuilder.newLinux().build()) {
+            Path file = fileSystem.getPath("/status");
+            Files.writeString(file, "Discharging\n");
+
+            try (SysfsReader reader = new SysfsReader(file)) {
+                assertTrue(reader.readEquals("Discharging"));
+                Files.writeString(file, "Not charging\n");
+                assertFalse(reader.readEquals("Discharging"));
+                Files.writeString(file, "Dischargin");
+                assertFalse(reader.readEquals("Discharging"));
+            }
+        }
+    }
+
+    @Test
+    void rejectsInvalidContent() throws IOException {
+        try (FileSystem fileSystem = MemoryFileSystemBuilder.newLinux().build()) {
+            Path file = fileSystem.getPath("/energy_uj");
+            Files.writeString(file, "n/a");
+
+            try (SysfsReader reader = new SysfsReader(file)) {
+                assertThrows(IOException.class, reader::readLong);
+            }
+        }
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright (c) 2021-2026, Adel Noureddine, Université de Pau et des Pays de l'Adour.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the
+ * GNU General Public License v3.0 only (GPL-3.0-only)
+ * which accompanies this distribution, and is available at
+ * https://www.gnu.org/licenses/gpl-3.0.en.html
+ *
+ */
+
+package org.noureddine.joularjx.cpu;
+
+import com.github.marschall.memoryfilesystem.MemoryFileSystemBuilder;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.FileSystem;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class VirtualMachineTest {
+
+    private FileSystem fileSystem;
+
+    private Path powerFile;
+
+    @BeforeEach
+    void init() throws IOException {
+        fileSystem = MemoryFileSystemBuilder.newLinux().build();
+        powerFile = fileSystem.getPath("/tmp/power.csv");
+        Files.createDirectories(powerFile.getParent());
+    }
+
+    @AfterEach
+    void cleanup() throws IOException {
+        fileSystem.close();
+    }
+
+    private void rewrite(String content, long modifiedSeconds) throws IOException {
+        Files.writeString(powerFile, content);
+        Files.setLastModifiedTime(powerFile, FileTime.fromMillis(modifiedSeconds * 1000));
+    }
+
+    @Test
+    void readModeReadsTheWholeFile() throws Exception {
+        rewrite("12.5", 1);
+        Cpu cpu = new VirtualMachine(fileSystem, powerFile.toString(), "watts", "read");
+        cpu.initialize();
+
+        assertEquals(12.5, cpu.getCurrentPower(0));
+        assertEquals(25, cpu.getConsumedEnergy(0, 2));
+        cpu.close();
+    }
+
+    @Test
+    void tailModeFollowsRewrittenFile() throws Exception {
+        rewrite("10", 1);
+        Cpu cpu = new VirtualMachine(fileSystem, powerFile.toString(), "watts", "tail");
+        cpu.initialize();
+        cpu.getInitialPower();
+
+        // Not written during the window: the latest value is kept
+        assertEquals(10, cpu.getCurrentPower(0));
+        assertEquals(5, cpu.getConsumedEnergy(0, 0.5), 0.0001);
+
+        // Rewritten with the same size
+        rewrite("20", 2);
+        assertEquals(40, cpu.getConsumedEnergy(0, 2), 0.0001);
+
+        // Rewritten with a longer value
+        rewrite("7.25", 3);
+        assertEquals(7.25, cpu.getCurrentPower(0));
+        assertEquals(7.25, cpu.getConsumedEnergy(0, 1), 0.0001);
+        cpu.close();
+    }
+
+    @Test
+    void tailModePollsDuringTheWindow() throws Exception {
+        rewrite("10", 1);
+        Cpu cpu = new VirtualMachine(fileSystem, powerFile.toString(), "watts", "tail");
+        cpu.initialize();
+        cpu.getInitialPower();
+
+        // Each value rewritten during the window is read by the background polling, not only the last one.
+        // The modification time is left to the file system, so a poll never sees a new value with its old time
+        Files.writeString(powerFile, "20");
+        Thread.sleep(VirtualMachine.TAIL_POLL_MILLISECONDS * 5);
+        Files.writeString(powerFile, "40.0");
+        assertEquals(60, cpu.getConsumedEnergy(0, 2), 0.0001);
+        cpu.close();
+    }
+
+    @Test
+    void tailModeAveragesAppendedLines() throws Exception {
+        rewrite("timestamp,cpu,power\n1,0.5,10\n", 1);
+        Cpu cpu = new VirtualMachine(fileSystem, powerFile.toString(), "powerjoular", "tail");
+        cpu.initialize();
+        cpu.getInitialPower();
+        assertEquals(10, cpu.getCurrentPower(0));
+
+        Files.writeString(powerFile, "2,0.5,20\n3,0.5,40\n4,0.5,", StandardOpenOption.APPEND);
+        // Average of the two complete lines over the window, the unterminated line is read later
+        assertEquals(60, cpu.getConsumedEnergy(0, 2), 0.0001);
+
+        Files.writeString(powerFile, "5\n", StandardOpenOption.APPEND);
+        assertEquals(5, cpu.getConsumedEnergy(0, 1), 0.0001);
+        cpu.close();
+    }
+}
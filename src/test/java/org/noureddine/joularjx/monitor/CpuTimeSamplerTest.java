@@ -0,0 +1,111 @@
+/*
+ * Copyright (c) 2021-2026, Adel Noureddine, Université de Pau et des Pays de l'Adour.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the
+ * GNU General Public License v3.0 only (GPL-3.0-only)
+ * which accompanies this distribution, and is available at
+ * https://www.gnu.org/licenses/gpl-3.0.en.html
+ *
+ */
+
+package org.noureddine.joularjx.monitor;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.nio.file.FileSystem;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import com.github.marschall.memoryfilesystem.MemoryFileSystemBuilder;
+import org.junit.jupiter.api.Test;
+import org.noureddine.joularjx.utils.AgentProperties;
+
+public class CpuTimeSamplerTest {
+
+    private static volatile long sink;
+
+    @Test
+    public void cpuTimeWeightsTest() throws IOException, InterruptedException {
+        AtomicBoolean running = new AtomicBoolean(true);
+        // Busy threads, so their stacks are dumped as RUNNABLE. Their CPU times are set by the stub
+        Thread a = startBusyThread(running);
+        Thread b = startBusyThread(running);
+        Thread c = startBusyThread(running);
+
+        StubThreadMXBean stub = new StubThreadMXBean();
+        ThreadLedger ledger = new ThreadLedger(stub.bulkBean());
+        try (FileSystem fs = MemoryFileSystemBuilder.newEmpty().build()) {
+            CpuTimeSampler sampler = new CpuTimeSampler(new AgentProperties(fs), stub.bulkBean());
+
+            // The first tick only records the initial CPU times
+            stub.setCpuTime(a.getId(), 1_000_000);
+            stub.setCpuTime(b.getId(), 1_000_000);
+            assertEquals(Map.of(), tick(sampler, ledger));
+
+            // c appears, already busy, and b is idle
+            stub.setCpuTime(a.getId(), 3_000_000);
+            stub.setCpuTime(c.getId(), 3_000_000);
+            assertEquals(Map.of(a.getId(), 3_000_000L, c.getId(), 3_000_000L), tick(sampler, ledger));
+
+            // c disappears, and each sample weighs the CPU time used since the previous sample of its thread
+            stub.exit(c.getId());
+            stub.setCpuTime(a.getId(), 4_000_000);
+            stub.setCpuTime(b.getId(), 5_000_000);
+            assertEquals(Map.of(a.getId(), 1_000_000L, b.getId(), 5_000_000L), tick(sampler, ledger));
+
+            // a disappears, and b is idle
+            stub.exit(a.getId());
+            assertEquals(Map.of(), tick(sampler, ledger));
+            // The ledger reuses the CPU times read by the sampler, once per tick
+            assertEquals(4, stub.getBulkReads());
+        } finally {
+            running.set(false);
+            a.join();
+            b.join();
+            c.join();
+        }
+    }
+
+    /**
+     * Performs a sampling tick, and weights its samples like the SamplingScheduler with CPU time weighting.
+     *
+     * @return the weight of the sample of each sampled thread
+     */
+    private static Map<Long, Long> tick(CpuTimeSampler sampler, ThreadLedger ledger) {
+        long[] threadIds = new long[8];
+        long[] cpuTimes = new long[8];
+        int[] count = new int[1];
+        sampler.sample(new StackSampler.SampleConsumer() {
+            @Override
+            public void accept(long threadId, StackTraceElement[] stackTrace) {
+                throw new AssertionError("The CPU time of the thread is not passed");
+            }
+
+            @Override
+            public void accept(long threadId, StackTraceElement[] stackTrace, long cpuTime) {
+                cpuTimes[count[0]] = cpuTime;
+                threadIds[count[0]++] = threadId;
+            }
+        });
+
+        long[] weights = new long[count[0]];
+        ledger.recordSeen(threadIds, cpuTimes, count[0], weights);
+        Map<Long, Long> result = new TreeMap<>();
+        for (int i = 0; i < count[0]; i++) {
+            result.put(threadIds[i], weights[i]);
+        }
+        return result;
+    }
+
+    private static Thread startBusyThread(AtomicBoolean running) {
+        Thread thread = new Thread(() -> {
+            while (running.get()) {
+                sink++;
+            }
+        });
+        thread.start();
+        return thread;
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright (c) 2021-2026, Adel Noureddine, Université de Pau et des Pays de l'Adour.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the
+ * GNU General Public License v3.0 only (GPL-3.0-only)
+ * which accompanies this distribution, and is available at
+ * https://www.gnu.org/licenses/gpl-3.0.en.html
+ *
+ */
+
+package org.noureddine.joularjx.monitor;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+import org.junit.jupiter.api.Test;
+import org.noureddine.joularjx.utils.JoularJXLogging;
+
+public class EnergySamplerTest {
+
+    @Test
+    public void cumulativeEnergyTest() {
+        EnergySampler sampler = new EnergySampler(new SamplingSchedulerTest.ConstantEnergyCpu(0.5));
+        sampler.start();
+        assertEquals(0.0, sampler.getTotalEnergy());
+
+        // Each tick returns the energy of its own interval, and the total keeps increasing
+        for (int i = 1; i <= 10; i++) {
+            assertEquals(0.5, sampler.record());
+            assertEquals(i * 0.5, sampler.getTotalEnergy());
+        }
+    }
+
+    @Test
+    public void invalidReadingsLoggedOncePerWindowTest() {
+        List<String> messages = new ArrayList<>();
+        Handler handler = new Handler() {
+            @Override
+            public void publish(LogRecord record) {
+                messages.add(record.getMessage());
+            }
+
+            @Override
+            public void flush() {
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        JoularJXLogging.updateLevel(Level.INFO);
+        Logger logger = JoularJXLogging.getLogger();
+        logger.addHandler(handler);
+        try {
+            EnergySampler sampler = new EnergySampler(new SamplingSchedulerTest.ConstantEnergyCpu(Double.NaN));
+            sampler.start();
+
+            // Invalid readings count no energy, and are only logged once per window
+            assertEquals(0.0, sampler.record());
+            assertEquals(0.0, sampler.record());
+            assertEquals(0.0, sampler.getTotalEnergy());
+            assertEquals(1, messages.size());
+            assertEquals("Invalid energy reading (NaN), counting no energy for this tick: NaN", messages.get(0));
+
+            sampler.startWindow();
+            sampler.record();
+            assertEquals(2, messages.size());
+        } finally {
+            logger.removeHandler(handler);
+        }
+    }
+}
@@ -0,0 +1,177 @@
+/*
+ * Copyright (c) 2021-2026, Adel Noureddine, Université de Pau et des Pays de l'Adour.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the
+ * GNU General Public License v3.0 only (GPL-3.0-only)
+ * which accompanies this distribution, and is available at
+ * https://www.gnu.org/licenses/gpl-3.0.en.html
+ *
+ */
+
+package org.noureddine.joularjx.monitor;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.Predicate;
+
+import org.noureddine.joularjx.utils.CallTree;
+import org.noureddine.joularjx.utils.StackTraceFilter;
+
+import com.sun.management.ThreadMXBean;
+
+/**
+ * Measures the per-cycle CPU time and allocations of the sample aggregation step, comparing the previous
+ * four passes (methods, filtered methods, call trees and filtered call trees) with the {@link SampleAggregator}.
+ * A cycle is made of 500 threads with 100 stack traces each.
+ * This is not a unit test, run it after {@code mvn test-compile} with:
+ * {@code java -cp target/classes:target/test-classes org.noureddine.joularjx.monitor.SampleAggregatorBenchmark}
+ */
+public class SampleAggregatorBenchmark {
+
+    private static final int THREADS = 500;
+    private static final int SAMPLES_PER_THREAD = 100;
+    private static final int DISTINCT_CALL_PATHS = 5_000;
+    private static final int WARMUP_CYCLES = 20;
+    private static final int MEASURED_CYCLES = 20;
+
+    private static final Predicate<String> FILTER = methodName -> methodName.startsWith("com.app");
+
+    private static volatile Object sink;
+
+    public static void main(String[] args) {
+        Map<Long, List<StackTraceElement[]>> samples = generateSamples(new Random(42));
+        ThreadMXBean threadBean = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+        for (boolean callTrees : new boolean[] {false, true}) {
+            System.out.printf("%d threads x %d samples, call trees %s%n", THREADS, SAMPLES_PER_THREAD,
+                    callTrees ? "enabled" : "disabled");
+            measure("four passes", threadBean, () -> legacyAggregate(samples, callTrees));
+            SampleAggregator aggregator = new SampleAggregator(new MonitoringStatus(), FILTER, callTrees);
+            measure("single pass", threadBean, () -> fusedAggregate(aggregator, samples));
+        }
+    }
+
+    private static void measure(String name, ThreadMXBean threadBean, Runnable cycle) {
+        for (int i = 0; i < WARMUP_CYCLES; i++) {
+            cycle.run();
+        }
+
+        long threadId = Thread.currentThread().getId();
+        long cpuTimeBefore = threadBean.getCurrentThreadCpuTime();
+        long allocatedBefore = threadBean.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < MEASURED_CYCLES; i++) {
+            cycle.run();
+        }
+        long cpuTime = threadBean.getCurrentThreadCpuTime() - cpuTimeBefore;
+        long allocated = threadBean.getThreadAllocatedBytes(threadId) - allocatedBefore;
+
+        System.out.printf("  %-12s %8.2f ms CPU/cycle %10.2f MB allocated/cycle%n", name,
+                cpuTime / 1e6 / MEASURED_CYCLES, allocated / 1e6 / MEASURED_CYCLES);
+    }
+
+    private static void fusedAggregate(SampleAggregator aggregator, Map<Long, List<StackTraceElement[]>> samples) {
+        aggregator.reset();
+        for (var entry : samples.entrySet()) {
+            for (StackTraceElement[] stackTrace : entry.getValue()) {
+                aggregator.add(entry.getKey(), stackTrace);
+            }
+        }
+        sink = aggregator;
+    }
+
+    /**
+     * The aggregation step as performed before the {@link SampleAggregator}: one pass over the samples per aggregate.
+     */
+    private static void legacyAggregate(Map<Long, List<StackTraceElement[]>> samples, boolean callTrees) {
+        sink = extractStats(samples, methodName -> true);
+        sink = extractStats(samples, FILTER);
+        if (callTrees) {
+            sink = extractCallTreesStats(samples, methodName -> true);
+            sink = extractCallTreesStats(samples, FILTER);
+        }
+    }
+
+    private static Map<Long, Map<String, Integer>> extractStats(Map<Long, List<StackTraceElement[]>> samples,
+            Predicate<String> covers) {
+        Map<Long, Map<String, Integer>> stats = new HashMap<>();
+        for (var entry : samples.entrySet()) {
+            Map<String, Integer> target = new HashMap<>();
+            stats.put(entry.getKey(), target);
+            for (StackTraceElement[] stackTrace : entry.getValue()) {
+                for (StackTraceElement stackTraceElement : stackTrace) {
+                    String methodName = stackTraceElement.getClassName() + "." + stackTraceElement.getMethodName();
+                    if (covers.test(methodName)) {
+                        target.merge(methodName, 1, Integer::sum);
+                        break;
+                    }
+                }
+            }
+        }
+        return stats;
+    }
+
+    private static Map<Long, Map<CallTree, Integer>> extractCallTreesStats(Map<Long, List<StackTraceElement[]>> samples,
+            Predicate<String> filter) {
+        Map<Long, Map<CallTree, Integer>> stats = new HashMap<>();
+        for (var entry : samples.entrySet()) {
+            Map<CallTree, Integer> target = new HashMap<>();
+            stats.put(entry.getKey(), target);
+            for (var stackTraceEntry : entry.getValue()) {
+                List<StackTraceElement> stackTrace = StackTraceFilter.filter(stackTraceEntry, filter);
+                if (!stackTrace.isEmpty()) {
+                    target.merge(new CallTree(stackTrace), 1, Integer::sum);
+                }
+            }
+        }
+        return stats;
+    }
+
+    /**
+     * Generates stack traces of 20 to 60 frames: library frames on top of a few application frames,
+     * on top of thread pool frames. Samples are drawn from a pool of distinct call paths, as threads
+     * of real applications keep running the same code paths.
+     */
+    private static Map<Long, List<StackTraceElement[]>> generateSamples(Random random) {
+        StackTraceElement[] libraryFrames = new StackTraceElement[200];
+        for (int i = 0; i < libraryFrames.length; i++) {
+            libraryFrames[i] = new StackTraceElement("java.util.Library" + (i % 20), "method" + i, "Library.java", i);
+        }
+        StackTraceElement[] appFrames = new StackTraceElement[50];
+        for (int i = 0; i < appFrames.length; i++) {
+            appFrames[i] = new StackTraceElement("com.app.Service" + (i % 10), "handle" + i, "Service.java", i);
+        }
+        StackTraceElement[] poolFrames = {
+            new StackTraceElement("java.util.concurrent.ThreadPoolExecutor$Worker", "run", "ThreadPoolExecutor.java", 1),
+            new StackTraceElement("java.lang.Thread", "run", "Thread.java", 2)
+        };
+
+        StackTraceElement[][] callPaths = new StackTraceElement[DISTINCT_CALL_PATHS][];
+        for (int path = 0; path < DISTINCT_CALL_PATHS; path++) {
+            int libraryDepth = 15 + random.nextInt(40);
+            int appDepth = 3 + random.nextInt(5);
+            List<StackTraceElement> stackTrace = new ArrayList<>();
+            for (int i = 0; i < libraryDepth; i++) {
+                stackTrace.add(libraryFrames[random.nextInt(libraryFrames.length)]);
+            }
+            for (int i = 0; i < appDepth; i++) {
+                stackTrace.add(appFrames[random.nextInt(appFrames.length)]);
+            }
+            stackTrace.addAll(List.of(poolFrames));
+            callPaths[path] = stackTrace.toArray(new StackTraceElement[0]);
+        }
+
+        Map<Long, List<StackTraceElement[]>> samples = new HashMap<>();
+        for (long threadId = 1; threadId <= THREADS; threadId++) {
+            List<StackTraceElement[]> stackTraces = new ArrayList<>(SAMPLES_PER_THREAD);
+            for (int sample = 0; sample < SAMPLES_PER_THREAD; sample++) {
+                stackTraces.add(callPaths[random.nextInt(DISTINCT_CALL_PATHS)].clone());
+            }
+            samples.put(threadId, stackTraces);
+        }
+        return samples;
+    }
+}
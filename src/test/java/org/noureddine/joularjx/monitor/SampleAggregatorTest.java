@@ -0,0 +1,78 @@
+/*
+ * Copyright (c) 2021-2026, Adel Noureddine, Université de Pau et des Pays de l'Adour.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the
+ * GNU General Public License v3.0 only (GPL-3.0-only)
+ * which accompanies this distribution, and is available at
+ * https://www.gnu.org/licenses/gpl-3.0.en.html
+ *
+ */
+
+package org.noureddine.joularjx.monitor;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.noureddine.joularjx.utils.CallingContextTree;
+import org.noureddine.joularjx.utils.LongLongHashMap;
+
+public class SampleAggregatorTest {
+
+    private static final StackTraceElement APP_RUN = new StackTraceElement("com.app.Worker", "run", "Worker.java", 10);
+    private static final StackTraceElement APP_COMPUTE = new StackTraceElement("com.app.Worker", "compute", "Worker.java", 20);
+    private static final StackTraceElement LIB_SORT = new StackTraceElement("java.util.Arrays", "sort", "Arrays.java", 30);
+    private static final StackTraceElement LIB_HASH = new StackTraceElement("java.lang.String", "hashCode", "String.java", 40);
+
+    @Test
+    public void methodsTest() {
+        MonitoringStatus status = new MonitoringStatus();
+        SampleAggregator aggregator = new SampleAggregator(status, name -> name.startsWith("com.app"), false);
+
+        aggregator.add(1, new StackTraceElement[] {LIB_SORT, APP_COMPUTE, APP_RUN});
+        aggregator.add(1, new StackTraceElement[] {LIB_SORT, APP_RUN});
+        aggregator.add(1, new StackTraceElement[] {APP_COMPUTE, APP_RUN});
+        aggregator.add(2, new StackTraceElement[] {LIB_HASH});
+
+        assertEquals(Map.of("java.util.Arrays.sort", 2, "com.app.Worker.compute", 1), names(status, aggregator.getMethodsStats().get(1L)));
+        assertEquals(Map.of("com.app.Worker.compute", 2, "com.app.Worker.run", 1), names(status, aggregator.getFilteredMethodsStats().get(1L)));
+        assertEquals(Map.of("java.lang.String.hashCode", 1), names(status, aggregator.getMethodsStats().get(2L)));
+        // Threads without filtered methods are still reported, with no occurrences
+        assertEquals(Map.of(), names(status, aggregator.getFilteredMethodsStats().get(2L)));
+        assertTrue(aggregator.getCallTreesStats().isEmpty());
+    }
+
+    @Test
+    public void callTreesTest() {
+        MonitoringStatus status = new MonitoringStatus();
+        SampleAggregator aggregator = new SampleAggregator(status, name -> name.startsWith("com.app"), true);
+
+        aggregator.add(1, new StackTraceElement[] {LIB_SORT, APP_COMPUTE, APP_RUN});
+        aggregator.add(1, new StackTraceElement[] {LIB_HASH, APP_COMPUTE, APP_RUN});
+        aggregator.add(1, new StackTraceElement[] {LIB_HASH});
+
+        Map<String, Integer> callTrees = paths(status.getCallTrees(), aggregator.getCallTreesStats().get(1L));
+        assertEquals(Map.of("com.app.Worker.run;com.app.Worker.compute;java.util.Arrays.sort", 1,
+                "com.app.Worker.run;com.app.Worker.compute;java.lang.String.hashCode", 1,
+                "java.lang.String.hashCode", 1), callTrees);
+
+        Map<String, Integer> filteredCallTrees = paths(status.getFilteredCallTrees(), aggregator.getFilteredCallTreesStats().get(1L));
+        assertEquals(Map.of("com.app.Worker.run;com.app.Worker.compute", 2), filteredCallTrees);
+        assertEquals(Map.of("com.app.Worker.compute", 2), names(status, aggregator.getFilteredMethodsStats().get(1L)));
+    }
+
+    private static Map<String, Integer> names(MonitoringStatus status, LongLongHashMap stats) {
+        Map<String, Integer> result = new HashMap<>();
+        stats.forEach((frameId, count) -> result.put(status.getFrameDictionary().getName((int) frameId), (int) count));
+        return result;
+    }
+
+    private static Map<String, Integer> paths(CallingContextTree tree, LongLongHashMap stats) {
+        Map<String, Integer> result = new HashMap<>();
+        stats.forEach((node, count) -> result.put(tree.getPath((int) node), (int) count));
+        return result;
+    }
+}
@@ -0,0 +1,57 @@
+/*
+ * Copyright (c) 2021-2026, Adel Noureddine, Université de Pau et des Pays de l'Adour.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the
+ * GNU General Public License v3.0 only (GPL-3.0-only)
+ * which accompanies this distribution, and is available at
+ * https://www.gnu.org/licenses/gpl-3.0.en.html
+ *
+ */
+
+package org.noureddine.joularjx.monitor;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+public class SampleRateControllerTest {
+
+    private static final long SECOND = 1_000_000_000L;
+
+    @Test
+    public void overBudgetTest() {
+        SampleRateController controller = new SampleRateController(1, 10, 1, 1000);
+
+        // 1.5% of overhead for a 1% budget: sampling 1.5 times less often
+        assertEquals(15, controller.update(15_000_000, SECOND));
+        assertEquals(1.5, controller.getLastOverheadPercentage(), 1e-9);
+        // Changes are limited to a factor of 2 per window
+        assertEquals(30, controller.update(100_000_000, SECOND));
+    }
+
+    @Test
+    public void underBudgetTest() {
+        SampleRateController controller = new SampleRateController(1, 100, 1, 1000);
+
+        // Within the budget, the rate is kept
+        assertEquals(100, controller.update(7_000_000, SECOND));
+        // Far under the budget, sampling more often
+        assertEquals(50, controller.update(1_000_000, SECOND));
+        assertEquals(25, controller.update(0, SECOND));
+    }
+
+    @Test
+    public void boundsTest() {
+        SampleRateController controller = new SampleRateController(1, 1, 1, 20);
+
+        // Small rates still move by one millisecond
+        assertEquals(2, controller.update(12_000_000, SECOND));
+        assertEquals(1, controller.update(0, SECOND));
+        assertEquals(1, controller.update(0, SECOND));
+
+        controller = new SampleRateController(1, 15, 1, 20);
+        assertEquals(20, controller.update(50_000_000, SECOND));
+        // Unavailable CPU time keeps the rate
+        assertEquals(20, controller.update(-1, SECOND));
+    }
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright (c) 2021-2026, Adel Noureddine, Université de Pau et des Pays de l'Adour.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the
+ * GNU General Public License v3.0 only (GPL-3.0-only)
+ * which accompanies this distribution, and is available at
+ * https://www.gnu.org/licenses/gpl-3.0.en.html
+ *
+ */
+
+package org.noureddine.joularjx.monitor;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.noureddine.joularjx.cpu.Cpu;
+
+public class SamplingSchedulerTest {
+
+    private static final StackTraceElement[] STACK_TRACE = {
+        new StackTraceElement("com.app.Worker", "run", "Worker.java", 10)
+    };
+
+    @Test
+    public void windowsTest() throws InterruptedException {
+        MonitoringStatus status = new MonitoringStatus();
+        StackSampler sampler = consumer -> consumer.accept(1, STACK_TRACE);
+        StubThreadMXBean stub = new StubThreadMXBean();
+
+        try (SamplingScheduler scheduler = new SamplingScheduler(sampler, new ThreadLedger(stub.bulkBean()),
+                () -> new SampleAggregator(status, name -> true, false), 10, 200)) {
+            scheduler.start();
+
+            SamplingScheduler.Window first = scheduler.nextWindow();
+            assertTrue(first.getElapsedNanos() >= TimeUnit.MILLISECONDS.toNanos(200));
+            assertTrue(first.getSampleCount() > 0);
+            // Each tick samples one stack trace, so the aggregated samples match the measured tick count
+            assertEquals(first.getSampleCount(), first.getAggregator().getMethodsStats().get(1L).sumValues());
+
+            SamplingScheduler.Window second = scheduler.nextWindow();
+            assertNotSame(first.getAggregator(), second.getAggregator());
+            assertTrue(second.getSampleCount() > 0);
+            assertEquals(second.getSampleCount(), second.getAggregator().getMethodsStats().get(1L).sumValues());
+        }
+        // Without CPU time weighting, the ticks read no CPU time
+        assertEquals(0, stub.getBulkReads() + stub.getSingleReads());
+    }
+
+    @Test
+    public void energyWeightedWindowsTest() throws InterruptedException {
+        MonitoringStatus status = new MonitoringStatus();
+        StackSampler sampler = consumer -> consumer.accept(1, STACK_TRACE);
+        EnergySampler energySampler = new EnergySampler(new ConstantEnergyCpu(0.002));
+
+        try (SamplingScheduler scheduler = new SamplingScheduler(sampler, new ThreadLedger(ManagementFactory.getThreadMXBean()),
+                energySampler, false, () -> new SampleAggregator(status, name -> true, false), 10, 200)) {
+            scheduler.start();
+
+            SamplingScheduler.Window window = scheduler.nextWindow();
+            assertTrue(window.getSampleCount() > 0);
+            // Each tick is weighted by the 2000 microjoules read at that tick
+            assertEquals(window.getSampleCount() * 2000L, window.getTotalWeight());
+            assertEquals(window.getTotalWeight(), window.getAggregator().getMethodsStats().get(1L).sumValues());
+            assertEquals(window.getSampleCount() * 0.002, window.getEnergy(), 1e-9);
+        }
+    }
+
+    @Test
+    public void cpuTimeWeightedWindowsTest() throws InterruptedException {
+        MonitoringStatus status = new MonitoringStatus();
+        long workerId = 100;
+        long idleId = 200;
+        StubThreadMXBean stub = new StubThreadMXBean();
+        stub.setCpuTime(workerId, 0);
+        stub.setCpuTime(idleId, 5_000_000);
+        // The busy worker uses 1 ms of CPU time between two ticks, the idle thread none
+        stub.beforeBulkRead(() -> stub.addCpuTime(workerId, 1_000_000));
+        StackSampler sampler = consumer -> {
+            consumer.accept(workerId, STACK_TRACE);
+            consumer.accept(idleId, STACK_TRACE);
+        };
+
+        try (SamplingScheduler scheduler = new SamplingScheduler(sampler, new ThreadLedger(stub.bulkBean()), null, true,
+                () -> new SampleAggregator(status, name -> true, false), 10, 200)) {
+            scheduler.start();
+
+            scheduler.nextWindow();
+            SamplingScheduler.Window window = scheduler.nextWindow();
+            assertTrue(window.getSampleCount() > 0);
+            // Each sample of the worker is weighted by the CPU time it used since its previous sample
+            assertEquals(window.getSampleCount() * 1_000_000L,
+                    window.getAggregator().getMethodsStats().get(workerId).sumValues());
+            // The idle thread used no CPU time since its first sample, in the previous window
+            assertEquals(0, window.getAggregator().getMethodsStats().get(idleId).sumValues());
+        }
+    }
+
+    /**
+     * An energy counter consuming the same energy between two readings.
+     */
+    static class ConstantEnergyCpu implements Cpu {
+
+        private final double energyPerReading;
+
+        ConstantEnergyCpu(double energyPerReading) {
+            this.energyPerReading = energyPerReading;
+        }
+
+        @Override
+        public void initialize() {
+        }
+
+        @Override
+        public double getInitialPower() {
+            return 0;
+        }
+
+        @Override
+        public double getCurrentPower(double cpuLoad) {
+            return 0;
+        }
+
+        @Override
+        public double getMaxPower(double cpuLoad) {
+            return 0;
+        }
+
+        @Override
+        public boolean isInstantaneousPower() {
+            return false;
+        }
+
+        @Override
+        public double getConsumedEnergy(double cpuLoad, double elapsedSeconds) {
+            return energyPerReading;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright (c) 2021-2026, Adel Noureddine, Université de Pau et des Pays de l'Adour.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the
+ * GNU General Public License v3.0 only (GPL-3.0-only)
+ * which accompanies this distribution, and is available at
+ * https://www.gnu.org/licenses/gpl-3.0.en.html
+ *
+ */
+
+package org.noureddine.joularjx.monitor;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A ThreadMXBean reporting the CPU times set by the tests instead of the real ones.
+ * The other methods (e.g. the thread dumps) are delegated to the ThreadMXBean of the JVM.
+ */
+class StubThreadMXBean implements InvocationHandler {
+
+    private final ThreadMXBean delegate = ManagementFactory.getThreadMXBean();
+    // CPU time (in nanoseconds) of each live thread, in the order of getAllThreadIds
+    private final Map<Long, Long> cpuTimes = new LinkedHashMap<>();
+    private Runnable beforeBulkRead = () -> { };
+    private int bulkReads;
+    private int singleReads;
+
+    /**
+     * Returns a HotSpot ThreadMXBean backed by this stub, supporting bulk CPU time reads.
+     *
+     * @return the bean
+     */
+    com.sun.management.ThreadMXBean bulkBean() {
+        return (com.sun.management.ThreadMXBean) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[] {com.sun.management.ThreadMXBean.class}, this);
+    }
+
+    /**
+     * Returns a standard ThreadMXBean backed by this stub, without bulk CPU time reads.
+     *
+     * @return the bean
+     */
+    ThreadMXBean singleBean() {
+        return (ThreadMXBean) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[] {ThreadMXBean.class}, this);
+    }
+
+    void setCpuTime(long threadId, long cpuTime) {
+        cpuTimes.put(threadId, cpuTime);
+    }
+
+    void addCpuTime(long threadId, long cpuTime) {
+        cpuTimes.merge(threadId, cpuTime, Long::sum);
+    }
+
+    /**
+     * Makes a thread exit: its CPU time is no longer readable.
+     */
+    void exit(long threadId) {
+        cpuTimes.remove(threadId);
+    }
+
+    /**
+     * Sets an action run before each bulk read, e.g. to make threads use CPU time between two reads.
+     */
+    void beforeBulkRead(Runnable action) {
+        beforeBulkRead = action;
+    }
+
+    int getBulkReads() {
+        return bulkReads;
+    }
+
+    int getSingleReads() {
+        return singleReads;
+    }
+
+    @Override
+    public synchronized Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        switch (method.getName()) {
+            case "getThreadCpuTime":
+                if (args[0] instanceof long[]) {
+                    bulkReads++;
+                    beforeBulkRead.run();
+                    long[] ids = (long[]) args[0];
+                    long[] result = new long[ids.length];
+                    for (int i = 0; i < ids.length; i++) {
+                        result[i] = cpuTimes.getOrDefault(ids[i], -1L);
+                    }
+                    return result;
+                }
+                singleReads++;
+                return cpuTimes.getOrDefault((Long) args[0], -1L);
+            case "getAllThreadIds":
+                return cpuTimes.keySet().stream().mapToLong(Long::longValue).toArray();
+            default:
+                try {
+                    return method.invoke(delegate, args);
+                } catch (InvocationTargetException exception) {
+                    throw exception.getCause();
+                }
+        }
+    }
+}
@@ -0,0 +1,158 @@
+/*
+ * Copyright (c) 2021-2026, Adel Noureddine, Université de Pau et des Pays de l'Adour.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the
+ * GNU General Public License v3.0 only (GPL-3.0-only)
+ * which accompanies this distribution, and is available at
+ * https://www.gnu.org/licenses/gpl-3.0.en.html
+ *
+ */
+
+package org.noureddine.joularjx.monitor;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.jupiter.api.Test;
+import org.noureddine.joularjx.utils.LongLongHashMap;
+
+public class ThreadLedgerTest {
+
+    private static volatile long sink;
+
+    @Test
+    public void bulkReadTest() {
+        StubThreadMXBean stub = new StubThreadMXBean();
+        ThreadLedger ledger = new ThreadLedger(stub.bulkBean());
+        stub.setCpuTime(1, 3_000_000);
+        stub.setCpuTime(2, 1_000_000);
+        stub.setCpuTime(3, 9_000_000);
+
+        // The first window counts from the start of the threads
+        LongLongHashMap deltas = ledger.endWindow(List.of(1L, 2L));
+        assertEquals(3_000_000, deltas.get(1, -1));
+        assertEquals(1_000_000, deltas.get(2, -1));
+        assertEquals(-1, deltas.get(3, -1));
+
+        // Each window reads all the sampled threads with one call
+        stub.addCpuTime(1, 4_000_000);
+        stub.addCpuTime(3, 2_000_000);
+        deltas = ledger.endWindow(List.of(1L, 2L, 3L));
+        assertEquals(4_000_000, deltas.get(1, -1));
+        assertEquals(0, deltas.get(2, -1));
+        assertEquals(11_000_000, deltas.get(3, -1));
+        assertEquals(2, stub.getBulkReads());
+        assertEquals(0, stub.getSingleReads());
+
+        // A thread that has exited is counted as 0
+        stub.exit(2);
+        deltas = ledger.endWindow(List.of(2L));
+        assertEquals(0, deltas.get(2, -1));
+    }
+
+    @Test
+    public void singleReadTest() {
+        StubThreadMXBean stub = new StubThreadMXBean();
+        ThreadLedger ledger = new ThreadLedger(stub.singleBean());
+        stub.setCpuTime(1, 3_000_000);
+        stub.setCpuTime(2, 1_000_000);
+
+        ledger.endWindow(List.of(1L, 2L));
+        stub.addCpuTime(2, 5_000_000);
+        LongLongHashMap deltas = ledger.endWindow(List.of(1L, 2L));
+        assertEquals(0, deltas.get(1, -1));
+        assertEquals(5_000_000, deltas.get(2, -1));
+        // Without the bulk API, each thread is read separately
+        assertEquals(0, stub.getBulkReads());
+        assertEquals(4, stub.getSingleReads());
+    }
+
+    @Test
+    public void exitedThreadTest() throws InterruptedException {
+        ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+        ThreadLedger ledger = new ThreadLedger(threadBean);
+        long mainThreadId = Thread.currentThread().getId();
+
+        CountDownLatch busy = new CountDownLatch(1);
+        CountDownLatch exit = new CountDownLatch(1);
+        Thread worker = new Thread(() -> {
+            spin(threadBean, 20_000_000);
+            busy.countDown();
+            try {
+                exit.await();
+            } catch (InterruptedException exception) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        worker.start();
+        busy.await();
+
+        // The worker is seen by a tick, then exits before the end of the window
+        ledger.recordSeen(new long[] {worker.getId()}, null, 1, null);
+        exit.countDown();
+        worker.join();
+
+        spin(threadBean, 1_000_000);
+        LongLongHashMap deltas = ledger.endWindow(List.of(mainThreadId, worker.getId()));
+        assertTrue(deltas.get(worker.getId(), 0) >= 20_000_000);
+        assertTrue(deltas.get(mainThreadId, 0) > 0);
+        // The exited worker is evicted, the main thread is still tracked
+        assertEquals(1, ledger.size());
+
+        // The main thread is tracked even when not sampled, so its next delta only covers the next window
+        spin(threadBean, 1_000_000);
+        long cpuTimeBefore = threadBean.getCurrentThreadCpuTime();
+        deltas = ledger.endWindow(List.of());
+        assertTrue(deltas.get(mainThreadId, 0) <= cpuTimeBefore);
+        assertTrue(deltas.get(mainThreadId, 0) > 0);
+    }
+
+    @Test
+    public void exitedUnseenThreadTest() throws InterruptedException {
+        ThreadLedger ledger = new ThreadLedger(ManagementFactory.getThreadMXBean());
+        Thread worker = new Thread(() -> sink++);
+        worker.start();
+        worker.join();
+
+        // Without any reading, an exited thread used no measurable CPU time
+        LongLongHashMap deltas = ledger.endWindow(List.of(worker.getId()));
+        assertEquals(0, deltas.get(worker.getId(), -1));
+        assertEquals(0, ledger.size());
+    }
+
+    @Test
+    public void sampleCpuTimesTest() {
+        ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+        ThreadLedger ledger = new ThreadLedger(threadBean);
+        long mainThreadId = Thread.currentThread().getId();
+        long[] sampleCpuTimes = new long[2];
+
+        ledger.endWindow(List.of(mainThreadId));
+        spin(threadBean, 5_000_000);
+        // The first sample counts from the end of the previous window, a missing thread used no CPU time
+        ledger.recordSeen(new long[] {mainThreadId, Long.MAX_VALUE}, null, 2, sampleCpuTimes);
+        assertTrue(sampleCpuTimes[0] >= 5_000_000);
+        assertEquals(0, sampleCpuTimes[1]);
+
+        // The next samples count from the previous sample, across windows
+        ledger.endWindow(List.of(mainThreadId));
+        spin(threadBean, 2_000_000);
+        long cpuTimeBefore = threadBean.getCurrentThreadCpuTime();
+        spin(threadBean, 3_000_000);
+        ledger.recordSeen(new long[] {mainThreadId}, null, 1, sampleCpuTimes);
+        assertTrue(sampleCpuTimes[0] >= 5_000_000);
+        assertTrue(sampleCpuTimes[0] < threadBean.getCurrentThreadCpuTime() - cpuTimeBefore + 2_500_000);
+    }
+
+    private static void spin(ThreadMXBean threadBean, long cpuTimeNanos) {
+        long end = threadBean.getCurrentThreadCpuTime() + cpuTimeNanos;
+        while (threadBean.getCurrentThreadCpuTime() < end) {
+            sink++;
+        }
+    }
+}
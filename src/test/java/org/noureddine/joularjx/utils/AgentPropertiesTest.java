@@ -46,7 +46,12 @@ class AgentPropertiesTest {
                     () -> assertFalse(properties.loadCallTreesConsumption()),
                     () -> assertFalse(properties.loadSaveCallTreesRuntimeData()),
                     () -> assertFalse(properties.loadOverwriteCallTreeRuntimeData()),
-                    () -> assertEquals(10, properties.loadStackMonitoringSampleRate())
+                    () -> assertEquals(10, properties.loadStackMonitoringSampleRate()),
+                    () -> assertEquals("thread-dump", properties.loadStackMonitoringSampler()),
+                    () -> assertEquals(1000, properties.loadMonitoringWindow()),
+                    () -> assertEquals(0, properties.loadStackMonitoringOverheadBudget()),
+                    () -> assertEquals("auto", properties.loadEnergySource()),
+                    () -> assertEquals("samples", properties.loadStackMonitoringWeighting())
             );
         }
     }
@@ -82,7 +87,16 @@ class AgentPropertiesTest {
                     "enable-call-trees-consumption=true\n" +
                     "save-call-trees-runtime-data=true\n" +
                     "overwrite-call-trees-runtime-data=true\n" +
-                    "stack-monitoring-sample-rate=1";
+                    "stack-monitoring-sample-rate=1\n" +
+                    "stack-monitoring-sampler=JFR\n" +
+                    "monitoring-window=200\n" +
+                    "stack-monitoring-overhead-budget=1.5\n" +
+                    "energy-source=MSR\n" +
+                    "stack-monitoring-weighting=CPU-time\n" +
+                    "joular-core-process-power=true\n" +
+                    "vm-power-mode=Tail\n" +
+                    "power-model=my-sku\n" +
+                    "power-model-file=/etc/joularjx/models.properties";
             Files.write(fs.getPath("config.properties"), (props).getBytes(StandardCharsets.UTF_8));
 
             AgentProperties properties = new AgentProperties(fs);
@@ -97,11 +111,33 @@ class AgentPropertiesTest {
                     () -> assertTrue(properties.callTreesConsumption()),
                     () -> assertTrue(properties.saveCallTreesRuntimeData()),
                     () -> assertTrue(properties.overwriteCallTreesRuntimeData()),
-                    () -> assertEquals(1, properties.stackMonitoringSampleRate())
+                    () -> assertEquals(1, properties.stackMonitoringSampleRate()),
+                    () -> assertEquals("jfr", properties.stackMonitoringSampler()),
+                    () -> assertEquals(200, properties.monitoringWindow()),
+                    () -> assertEquals(1.5, properties.stackMonitoringOverheadBudget()),
+                    () -> assertEquals("msr", properties.energySource()),
+                    () -> assertEquals("cpu-time", properties.stackMonitoringWeighting()),
+                    () -> assertTrue(properties.isJoularCoreProcessPowerEnabled()),
+                    () -> assertEquals("tail", properties.getVMPowerMode()),
+                    () -> assertEquals("my-sku", properties.getPowerModel()),
+                    () -> assertEquals("/etc/joularjx/models.properties", properties.getPowerModelFile())
             );
         }
     }
 
+    @Test
+    void monitoringWindowBounds() throws IOException {
+        try (final FileSystem fs = MemoryFileSystemBuilder.newEmpty().build()) {
+            Files.write(fs.getPath("config.properties"),
+                    "stack-monitoring-sample-rate=500\nmonitoring-window=100".getBytes(StandardCharsets.UTF_8));
+            // The window cannot be shorter than the sample rate
+            assertEquals(500, new AgentProperties(fs).monitoringWindow());
+
+            Files.write(fs.getPath("config.properties"), "monitoring-window=5".getBytes(StandardCharsets.UTF_8));
+            assertEquals(1000, new AgentProperties(fs).monitoringWindow());
+        }
+    }
+
     @Test
     void multipleFilterMethods() throws IOException {
         try (final FileSystem fs = MemoryFileSystemBuilder.newEmpty().build()) {
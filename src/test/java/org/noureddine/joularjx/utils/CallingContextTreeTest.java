@@ -0,0 +1,60 @@
+/*
+ * Copyright (c) 2021-2026, Adel Noureddine, Université de Pau et des Pays de l'Adour.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the
+ * GNU General Public License v3.0 only (GPL-3.0-only)
+ * which accompanies this distribution, and is available at
+ * https://www.gnu.org/licenses/gpl-3.0.en.html
+ *
+ */
+
+package org.noureddine.joularjx.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+public class CallingContextTreeTest {
+
+    @Test
+    public void sharedPrefixTest() {
+        FrameDictionary dictionary = new FrameDictionary();
+        int main = dictionary.intern("App", "main", "App.java");
+        int run = dictionary.intern("App", "run", "App.java");
+        int sort = dictionary.intern("java.util.Arrays", "sort", "Arrays.java");
+        int hash = dictionary.intern("java.lang.String", "hashCode", "String.java");
+        CallingContextTree tree = new CallingContextTree(dictionary);
+
+        // Most recent call first, as in a stack trace
+        int sortNode = tree.addPath(new int[] {sort, run, main}, 3);
+        int hashNode = tree.addPath(new int[] {hash, run, main}, 3);
+        int runNode = tree.addPath(new int[] {run, main}, 2);
+
+        assertEquals(sortNode, tree.addPath(new int[] {sort, run, main}, 3));
+        assertNotEquals(sortNode, hashNode);
+        // Root, main, run, sort and hashCode
+        assertEquals(5, tree.size());
+        assertEquals("App.main;App.run;java.util.Arrays.sort", tree.getPath(sortNode));
+        assertEquals("App.main;App.run", tree.getPath(runNode));
+    }
+
+    @Test
+    public void pathsConsumedEnergyTest() {
+        FrameDictionary dictionary = new FrameDictionary();
+        int main = dictionary.intern("App", "main", "App.java");
+        int run = dictionary.intern("App", "run", "App.java");
+        CallingContextTree tree = new CallingContextTree(dictionary);
+
+        int runNode = tree.addPath(new int[] {run, main}, 2);
+        int mainNode = tree.addPath(new int[] {main}, 1);
+        tree.addEnergy(runNode, 1.5);
+        tree.addEnergy(runNode, 2.0);
+        tree.addEnergy(mainNode, 0.0);
+
+        assertEquals(3.5, tree.getEnergy(runNode));
+        assertEquals(Map.of("App.main;App.run", 3.5, "App.main", 0.0), tree.getPathsConsumedEnergy());
+    }
+}
@@ -0,0 +1,51 @@
+/*
+ * Copyright (c) 2021-2026, Adel Noureddine, Université de Pau et des Pays de l'Adour.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the
+ * GNU General Public License v3.0 only (GPL-3.0-only)
+ * which accompanies this distribution, and is available at
+ * https://www.gnu.org/licenses/gpl-3.0.en.html
+ *
+ */
+
+package org.noureddine.joularjx.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+import org.junit.jupiter.api.Test;
+
+public class FrameDictionaryTest {
+
+    @Test
+    public void internTest() {
+        FrameDictionary dictionary = new FrameDictionary();
+
+        int id = dictionary.intern(new StackTraceElement("ClassA", "MethodA", "FileA", 20));
+        int sameIdOtherLine = dictionary.intern(new StackTraceElement("ClassA", "MethodA", "FileA", 59));
+        int otherFile = dictionary.intern(new StackTraceElement("ClassA", "MethodA", null, 20));
+        int otherMethod = dictionary.intern(new StackTraceElement("ClassA", "MethodB", "FileA", 20));
+
+        assertEquals(0, id);
+        assertEquals(id, sameIdOtherLine);
+        assertNotEquals(id, otherFile);
+        assertNotEquals(id, otherMethod);
+        assertEquals(3, dictionary.size());
+        assertEquals("ClassA.MethodA", dictionary.getName(id));
+        assertEquals("ClassA.MethodA", dictionary.getName(otherFile));
+    }
+
+    @Test
+    public void growTest() {
+        FrameDictionary dictionary = new FrameDictionary();
+
+        for (int i = 0; i < 10_000; i++) {
+            assertEquals(i, dictionary.intern("Class" + (i % 100), "method" + i, "File.java"));
+        }
+        for (int i = 0; i < 10_000; i++) {
+            assertEquals(i, dictionary.intern("Class" + (i % 100), "method" + i, "File.java"));
+            assertEquals("method" + i, dictionary.get(i).getMethodName());
+        }
+        assertEquals(10_000, dictionary.size());
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) 2021-2026, Adel Noureddine, Université de Pau et des Pays de l'Adour.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the
+ * GNU General Public License v3.0 only (GPL-3.0-only)
+ * which accompanies this distribution, and is available at
+ * https://www.gnu.org/licenses/gpl-3.0.en.html
+ *
+ */
+
+package org.noureddine.joularjx.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+public class LongLongHashMapTest {
+
+    @Test
+    public void putGetTest() {
+        LongLongHashMap map = new LongLongHashMap();
+
+        map.put(1, 10);
+        map.put(0, 20);
+        map.put(-5, 30);
+        map.put(1, 40);
+
+        assertEquals(3, map.size());
+        assertEquals(40, map.get(1, -1));
+        assertEquals(20, map.get(0, -1));
+        assertEquals(30, map.get(-5, -1));
+        assertEquals(-1, map.get(2, -1));
+        assertTrue(map.containsKey(0));
+        assertFalse(map.containsKey(2));
+    }
+
+    @Test
+    public void removeTest() {
+        LongLongHashMap map = new LongLongHashMap();
+
+        map.put(0, 1);
+        map.put(7, 2);
+
+        assertTrue(map.remove(0));
+        assertTrue(map.remove(7));
+        assertFalse(map.remove(7));
+        assertEquals(0, map.size());
+        assertEquals(-1, map.get(7, -1));
+    }
+
+    @Test
+    public void matchesHashMapTest() {
+        LongLongHashMap map = new LongLongHashMap();
+        Map<Long, Long> expected = new HashMap<>();
+        Random random = new Random(42);
+
+        for (int i = 0; i < 100_000; i++) {
+            long key = random.nextInt(2_000);
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(key) != null, map.remove(key));
+            } else {
+                map.put(key, i);
+                expected.put(key, (long) i);
+            }
+        }
+
+        assertEquals(expected.size(), map.size());
+        for (long key = 0; key < 2_000; key++) {
+            assertEquals(expected.getOrDefault(key, -1L), map.get(key, -1));
+        }
+
+        long[] keys = map.keys(new long[0]);
+        long sum = 0;
+        for (int i = 0; i < map.size(); i++) {
+            sum += keys[i];
+        }
+        assertEquals(expected.keySet().stream().mapToLong(Long::longValue).sum(), sum);
+    }
+
+    @Test
+    public void clearTest() {
+        LongLongHashMap map = new LongLongHashMap(100);
+
+        for (long key = 0; key < 100; key++) {
+            map.put(key, key);
+        }
+        map.clear();
+
+        assertEquals(0, map.size());
+        assertFalse(map.containsKey(0));
+        assertFalse(map.containsKey(50));
+    }
+}